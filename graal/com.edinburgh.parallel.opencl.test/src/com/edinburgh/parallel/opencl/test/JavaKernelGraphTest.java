@@ -0,0 +1,149 @@
+package com.edinburgh.parallel.opencl.test;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+import com.edinburgh.parallel.opencl.*;
+import com.edinburgh.parallel.opencl.phases.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.graph.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.calc.*;
+import com.oracle.graal.nodes.java.*;
+import com.oracle.graal.nodes.type.*;
+
+/**
+ * Runs hand-built kernel graphs with the {@link JavaKernel}. Unlike {@link JavaKernelTest}, this
+ * neither parses bytecodes nor needs a Graal VM.
+ */
+public class JavaKernelGraphTest {
+
+    private StructuredGraph graph;
+    private LoopBeginNode loopBegin;
+    private BeginNode body;
+    private final Map<LocalNode, Integer[]> arraySizes = new HashMap<>();
+    private final Map<Node, ArrayDepth> arrayAccesses = new HashMap<>();
+    private final Map<Node, Integer> arrayDimensions = new HashMap<>();
+    private final List<Object> params = new ArrayList<>();
+
+    @Before
+    public void createGraph() {
+        graph = new StructuredGraph();
+    }
+
+    private LocalNode array(Object value) {
+        LocalNode ln = graph.unique(new LocalNode(params.size() + 1, StampFactory.object()));
+        arraySizes.put(ln, new BuildGPUArrayIndexDataPhase(null).buildIndexData(value));
+        arrayDimensions.put(ln, 1);
+        params.add(value);
+        return ln;
+    }
+
+    private LocalNode scalar(Kind kind, Object value) {
+        LocalNode ln = graph.unique(new LocalNode(params.size() + 1, StampFactory.forKind(kind)));
+        params.add(value);
+        return ln;
+    }
+
+    private <T extends FixedWithNextNode> T access(T node, LocalNode array) {
+        arrayAccesses.put(node, new ArrayDepth(array, 1));
+        return node;
+    }
+
+    /**
+     * Starts the kernel {@code for (int i = 0; i < length(array); i++) body} and returns
+     * {@code i}. The body is added with {@link #endLoop}.
+     */
+    private PhiNode beginLoop(LocalNode array) {
+        EndNode entry = graph.add(new EndNode());
+        graph.start().setNext(entry);
+        loopBegin = graph.add(new LoopBeginNode());
+        loopBegin.addForwardEnd(entry);
+        PhiNode i = graph.unique(new PhiNode(Kind.Int, loopBegin));
+        ArrayLengthNode length = access(graph.add(new ArrayLengthNode(array)), array);
+        loopBegin.setNext(length);
+        LoopExitNode exit = graph.add(new LoopExitNode(loopBegin));
+        exit.setNext(graph.add(new ReturnNode(null)));
+        body = graph.add(new BeginNode());
+        length.setNext(graph.add(new IfNode(graph.unique(new IntegerLessThanNode(i, length)), body, exit, 0.9)));
+        i.addInput(ConstantNode.forInt(0, graph));
+        i.addInput(graph.unique(new IntegerAddNode(Kind.Int, i, ConstantNode.forInt(1, graph))));
+        return i;
+    }
+
+    private void endLoop(FixedWithNextNode first, FixedWithNextNode last) {
+        body.setNext(first);
+        last.setNext(graph.add(new LoopEndNode(loopBegin)));
+    }
+
+    private void execute(int workSize) {
+        List<OpenCLParameter> clParams = new ArrayList<>();
+        for (Object param : params) {
+            clParams.add(ParallelUtil.getOpenCLParameter(param, false));
+        }
+        for (LocalNode ln : graph.getNodes(LocalNode.class)) {
+            if (arraySizes.containsKey(ln)) {
+                clParams.add(ParallelUtil.getOpenCLParameter(arraySizes.get(ln), true));
+            }
+        }
+        SymbolTable table = new SymbolTable(arraySizes, arrayAccesses, arrayDimensions);
+        new JavaKernel(graph, table).execute(clParams, workSize);
+        ParallelUtil.rebuildParameters(clParams);
+    }
+
+    /**
+     * {@code b[i] = a[i] * a[i] + c} over int arrays.
+     */
+    @Test
+    public void testIntArithmetic() {
+        int[] a = new int[1000];
+        for (int j = 0; j < a.length; j++) {
+            a[j] = j - 500;
+        }
+        int[] b = new int[a.length];
+        LocalNode arrayA = array(a);
+        LocalNode arrayB = array(b);
+        LocalNode c = scalar(Kind.Int, 7);
+
+        PhiNode i = beginLoop(arrayA);
+        LoadIndexedNode load = access(graph.add(new LoadIndexedNode(arrayA, i, Kind.Int)), arrayA);
+        ValueNode value = graph.unique(new IntegerAddNode(Kind.Int, graph.unique(new IntegerMulNode(Kind.Int, load, load)), c));
+        StoreIndexedNode store = access(graph.add(new StoreIndexedNode(arrayB, i, Kind.Int, value)), arrayB);
+        load.setNext(store);
+        endLoop(load, store);
+
+        execute(16);
+        for (int j = 0; j < a.length; j++) {
+            assertEquals(a[j] * a[j] + 7, b[j]);
+        }
+    }
+
+    /**
+     * {@code a[i] = (float) (a[i] * factor) / 3} over a float array, with the division in double.
+     */
+    @Test
+    public void testFloatConversions() {
+        float[] a = new float[333];
+        float[] expected = new float[a.length];
+        for (int j = 0; j < a.length; j++) {
+            a[j] = j * 0.1f;
+            expected[j] = (float) ((a[j] * 1.7f) / 3d);
+        }
+        LocalNode arrayA = array(a);
+        LocalNode factor = scalar(Kind.Float, 1.7f);
+
+        PhiNode i = beginLoop(arrayA);
+        LoadIndexedNode load = access(graph.add(new LoadIndexedNode(arrayA, i, Kind.Float)), arrayA);
+        ValueNode product = graph.unique(new FloatMulNode(Kind.Float, load, factor, false));
+        ValueNode quotient = graph.unique(new FloatDivNode(Kind.Double, graph.unique(new ConvertNode(ConvertNode.Op.F2D, product)), ConstantNode.forDouble(3d, graph), false));
+        StoreIndexedNode store = access(graph.add(new StoreIndexedNode(arrayA, i, Kind.Float, graph.unique(new ConvertNode(ConvertNode.Op.D2F, quotient)))), arrayA);
+        load.setNext(store);
+        endLoop(load, store);
+
+        execute(7);
+        assertArrayEquals(expected, a, 0f);
+    }
+}
@@ -0,0 +1,103 @@
+package com.edinburgh.parallel.opencl.test;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+import com.edinburgh.parallel.opencl.*;
+import com.oracle.graal.compiler.test.*;
+import com.oracle.graal.nodes.*;
+
+/**
+ * Runs {@code @Parallel} methods with the Java backend, which needs no OpenCL device.
+ */
+public class JavaKernelTest extends GraalCompilerTest {
+
+    private String backend;
+    private boolean execute;
+
+    @Before
+    public void selectJavaBackend() {
+        backend = ParallelOptions.Backend.getValue();
+        execute = ParallelOptions.Execute.getValue();
+        ParallelOptions.Backend.setValue("java");
+        ParallelOptions.Execute.setValue(true);
+    }
+
+    @After
+    public void restoreBackend() {
+        ParallelOptions.Backend.setValue(backend);
+        ParallelOptions.Execute.setValue(execute);
+    }
+
+    @Parallel
+    public void square(int[] a, int[] b) {
+        for (int i = 0; i < a.length; i++) {
+            b[i] = a[i] * a[i];
+        }
+    }
+
+    @Parallel
+    public void scale(float[] a, float factor) {
+        for (int i = 0; i < a.length; i++) {
+            a[i] = a[i] * factor;
+        }
+    }
+
+    @Parallel
+    public void rowSums(int[][] matrix, int[] sums) {
+        for (int i = 0; i < matrix.length; i++) {
+            int sum = 0;
+            for (int j = 0; j < matrix[i].length; j++) {
+                sum += matrix[i][j];
+            }
+            sums[i] = sum;
+        }
+    }
+
+    private void run(String methodName, Object... params) {
+        ParallelUtil.run(new StructuredGraph(runtime.lookupJavaMethod(getMethod(methodName))), params);
+    }
+
+    @Test
+    public void testSquare() {
+        int[] a = new int[2500];
+        int[] b = new int[a.length];
+        int[] expected = new int[a.length];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = i - 1000;
+        }
+        square(a, expected);
+        run("square", a, b);
+        assertArrayEquals(expected, b);
+    }
+
+    @Test
+    public void testScale() {
+        float[] a = new float[100];
+        float[] expected = new float[a.length];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = i * 0.5f;
+            expected[i] = a[i];
+        }
+        scale(expected, 3f);
+        run("scale", a, 3f);
+        assertArrayEquals(expected, a, 0f);
+    }
+
+    @Test
+    public void testRowSums() {
+        int[][] matrix = new int[1500][];
+        for (int i = 0; i < matrix.length; i++) {
+            matrix[i] = new int[i % 7 + 1];
+            for (int j = 0; j < matrix[i].length; j++) {
+                matrix[i][j] = i * j;
+            }
+        }
+        int[] sums = new int[matrix.length];
+        int[] expected = new int[matrix.length];
+        rowSums(matrix, expected);
+        run("rowSums", matrix, sums);
+        assertArrayEquals(expected, sums);
+    }
+}
@@ -0,0 +1,43 @@
+package com.edinburgh.parallel.opencl.test;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+
+import org.junit.*;
+
+import com.edinburgh.parallel.opencl.*;
+
+public class KernelCacheDirTest {
+
+    private Path dir;
+
+    @Before
+    public void createDir() throws IOException {
+        Assume.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        dir = Files.createTempDirectory("KernelCacheDirTest");
+    }
+
+    @After
+    public void deleteDir() throws IOException {
+        if (dir != null) {
+            Files.setPosixFilePermissions(dir, PosixFilePermissions.fromString("rwx------"));
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void testPrivateDirectory() throws IOException {
+        Files.setPosixFilePermissions(dir, PosixFilePermissions.fromString("rwx------"));
+        assertTrue(OpenCLRuntime.isOwnedByUser(dir));
+    }
+
+    @Test
+    public void testSharedDirectory() throws IOException {
+        // like the default temporary directory, without the sticky bit
+        Files.setPosixFilePermissions(dir, PosixFilePermissions.fromString("rwxrwxrwx"));
+        assertFalse(OpenCLRuntime.isOwnedByUser(dir));
+    }
+}
@@ -0,0 +1,57 @@
+package com.edinburgh.parallel.opencl.test;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+import com.edinburgh.parallel.opencl.*;
+
+public class ParallelCostModelTest {
+
+    @Before
+    public void resetCalibration() {
+        ParallelCostModel.resetCalibration();
+    }
+
+    private static List<OpenCLParameter> params(Object... values) {
+        List<OpenCLParameter> clParams = new ArrayList<>();
+        for (Object value : values) {
+            clParams.add(ParallelUtil.getOpenCLParameter(value, false));
+        }
+        return clParams;
+    }
+
+    @Test
+    public void testTransferBytes() {
+        // a written int[10] is copied both ways, a scalar only to the device
+        assertEquals(2 * 4 * 10 + 4, ParallelCostModel.transferBytes(params(new int[10], 42)));
+    }
+
+    @Test
+    public void testSmallWorkRunsInJava() {
+        List<OpenCLParameter> clParams = params(new int[16], new int[16]);
+        assertFalse(ParallelCostModel.preferOpenCL(16 * 20, ParallelCostModel.transferBytes(clParams), 4));
+    }
+
+    @Test
+    public void testLargeWorkRunsOnDevice() {
+        List<OpenCLParameter> clParams = params(new float[1 << 20], new float[1 << 20]);
+        assertTrue(ParallelCostModel.preferOpenCL((1 << 20) * 20L, ParallelCostModel.transferBytes(clParams), 4));
+    }
+
+    @Test
+    public void testCalibration() {
+        List<OpenCLParameter> clParams = params(new int[1000], new int[1000]);
+        long work = 1000 * 20;
+        long transferBytes = ParallelCostModel.transferBytes(clParams);
+        assertFalse(ParallelCostModel.preferOpenCL(work, transferBytes, 4));
+
+        // the Java kernel turns out to take milliseconds on this machine
+        for (int i = 0; i < 4; i++) {
+            ParallelCostModel.recordJava(work, 4, 2000000);
+        }
+        assertTrue(ParallelCostModel.preferOpenCL(work, transferBytes, 4));
+    }
+}
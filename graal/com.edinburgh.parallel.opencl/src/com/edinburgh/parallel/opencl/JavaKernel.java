@@ -0,0 +1,1376 @@
+package com.edinburgh.parallel.opencl;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import com.edinburgh.parallel.opencl.phases.*;
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.graph.*;
+import com.oracle.graal.loop.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.calc.*;
+import com.oracle.graal.nodes.extended.*;
+import com.oracle.graal.nodes.java.*;
+
+/**
+ * Executes a {@code @Parallel} graph on the CPU. This is the Java counterpart of the kernel
+ * produced by {@link OpenCLCodeGen}: it takes the same {@link OpenCLParameter}s in the same order
+ * as the OpenCL kernel arguments, addresses arrays through the flattened data and index data
+ * built for OpenCL, and uses the array access information of the {@link SymbolTable}.
+ * <p>
+ * As in the OpenCL kernel, work item {@code id} of {@code n} runs the iterations {@code id},
+ * {@code id + n}, {@code id + 2n}, ... of each outermost loop. The work items run on a fork/join
+ * pool.
+ * <p>
+ * The graph is compiled once, when the kernel is created, into a tree of {@link Step}s and
+ * {@link Expr}s that are specialized to the operation and kind of each node. Running a work item
+ * therefore neither dispatches on node classes nor boxes values: integer values and array offsets
+ * live in the {@code long} slots of a {@link Frame}, {@code float} and {@code double} values in its
+ * {@code double} slots.
+ */
+public class JavaKernel {
+
+    private static final ForkJoinPool pool = new ForkJoinPool();
+
+    private final int kernelParameterCount;
+    private final int arrayParameterCount;
+    private final int longSlots;
+    private final int doubleSlots;
+    private final int maxPhis;
+    private final Step entry;
+
+    public JavaKernel(StructuredGraph graph, SymbolTable table) {
+        Compiler compiler = new Compiler(graph, table);
+        this.entry = compiler.compileEntry();
+        this.kernelParameterCount = compiler.kernelParameters.size();
+        this.arrayParameterCount = compiler.arrayParameters.size();
+        this.longSlots = compiler.longSlots;
+        this.doubleSlots = compiler.doubleSlots;
+        this.maxPhis = compiler.maxPhis;
+    }
+
+    /**
+     * Runs {@code workSize} work items over {@code clParams} and waits for them to complete.
+     */
+    public void execute(List<OpenCLParameter> clParams, int workSize) {
+        GraalInternalError.guarantee(clParams.size() == kernelParameterCount + arrayParameterCount, "expected %d kernel arguments, got %d", kernelParameterCount + arrayParameterCount,
+                        clParams.size());
+        Object[] data = new Object[kernelParameterCount];
+        int[][] indexData = new int[arrayParameterCount][];
+        int i = 0;
+        for (int j = 0; j < data.length; j++) {
+            data[j] = clParams.get(i++).getFlatArray();
+        }
+        for (int j = 0; j < indexData.length; j++) {
+            indexData[j] = (int[]) clParams.get(i++).getFlatArray();
+        }
+        int threshold = Math.max(1, workSize / (pool.getParallelism() * 4));
+        pool.invoke(new WorkItems(data, indexData, 0, workSize, workSize, threshold));
+    }
+
+    private class WorkItems extends RecursiveAction {
+
+        private static final long serialVersionUID = 4137513290640214816L;
+
+        private final Object[] data;
+        private final int[][] indexData;
+        private final int from;
+        private final int to;
+        private final int workSize;
+        private final int threshold;
+
+        WorkItems(Object[] data, int[][] indexData, int from, int to, int workSize, int threshold) {
+            this.data = data;
+            this.indexData = indexData;
+            this.from = from;
+            this.to = to;
+            this.workSize = workSize;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                // every slot is written before it is read, so the work items can share a frame
+                Frame frame = new Frame(data, indexData, workSize, longSlots, doubleSlots, maxPhis);
+                for (int id = from; id < to; id++) {
+                    frame.id = id;
+                    Step step = entry;
+                    while (step != null) {
+                        step = step.execute(frame);
+                    }
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new WorkItems(data, indexData, from, mid, workSize, threshold), new WorkItems(data, indexData, mid, to, workSize, threshold));
+            }
+        }
+    }
+
+    /**
+     * The state of one work item. Array values are offsets into the index data of the array
+     * parameter they are derived from, like the {@code _dim_} variables of the OpenCL kernel.
+     */
+    private static final class Frame {
+
+        final Object[] data;
+        final int[][] indexData;
+        final int workSize;
+        final long[] longs;
+        final double[] doubles;
+        final long[] longPhis;
+        final double[] doublePhis;
+        int id;
+
+        Frame(Object[] data, int[][] indexData, int workSize, int longSlots, int doubleSlots, int maxPhis) {
+            this.data = data;
+            this.indexData = indexData;
+            this.workSize = workSize;
+            this.longs = new long[longSlots];
+            this.doubles = new double[doubleSlots];
+            this.longPhis = new long[maxPhis];
+            this.doublePhis = new double[maxPhis];
+        }
+    }
+
+    /**
+     * Translates the nodes of a graph into steps and expressions.
+     */
+    private static final class Compiler {
+
+        private final StructuredGraph graph;
+        private final SymbolTable table;
+        final List<LocalNode> kernelParameters = new ArrayList<>();
+        final List<LocalNode> arrayParameters = new ArrayList<>();
+        private final Map<LoopBeginNode, BasicInductionVariable> parallelLoops = new HashMap<>();
+
+        /**
+         * Slot of each parameter, phi and fixed node that has a value.
+         */
+        private final NodeMap<Integer> slots;
+        private final NodeMap<Step> steps;
+        private final NodeMap<Expr> exprs;
+        int longSlots;
+        int doubleSlots;
+        int maxPhis;
+
+        Compiler(StructuredGraph graph, SymbolTable table) {
+            this.graph = graph;
+            this.table = table;
+            this.slots = new NodeMap<>(graph);
+            this.steps = new NodeMap<>(graph);
+            this.exprs = new NodeMap<>(graph);
+
+            // same parameter order as the kernel signature generated by OpenCLCodeGen
+            for (LocalNode ln : graph.getNodes(LocalNode.class)) {
+                if (ln.kind().isPrimitive() || table.lookupArraySize(ln) != null) {
+                    kernelParameters.add(ln);
+                }
+                if (!ln.kind().isPrimitive() && table.lookupArraySize(ln) != null) {
+                    arrayParameters.add(ln);
+                }
+            }
+
+            LoopsData loopsData = new LoopsData(graph);
+            for (LoopEx loop : loopsData.loops()) {
+                if (loop.parent() == null) {
+                    parallelLoops.put(loop.loopBegin(), findIterationVariable(loop));
+                }
+            }
+
+            for (Node node : graph.getNodes()) {
+                if (node instanceof LocalNode || node instanceof PhiNode || node instanceof LoadIndexedNode || node instanceof ArrayLengthNode || node instanceof FixedBinaryNode) {
+                    Kind kind = ((ValueNode) node).kind();
+                    slots.set(node, isDouble(kind) ? doubleSlots++ : longSlots++);
+                }
+                if (node instanceof MergeNode) {
+                    maxPhis = Math.max(maxPhis, ((MergeNode) node).phis().count());
+                }
+            }
+        }
+
+        /**
+         * Finds the induction variable that is distributed over the work items, preferring one
+         * that is used to index arrays.
+         */
+        private static BasicInductionVariable findIterationVariable(LoopEx loop) {
+            BasicInductionVariable result = null;
+            for (PhiNode phi : loop.loopBegin().phis()) {
+                InductionVariable iv = loop.getInductionVariables().get(phi);
+                if (iv instanceof BasicInductionVariable) {
+                    for (Node usage : phi.usages()) {
+                        if (usage instanceof LoadIndexedNode || usage instanceof StoreIndexedNode) {
+                            return (BasicInductionVariable) iv;
+                        }
+                    }
+                    if (result == null) {
+                        result = (BasicInductionVariable) iv;
+                    }
+                }
+            }
+            if (result == null) {
+                throw new GraalInternalError("outermost loop of %s has no induction variable", loop.loopBegin());
+            }
+            return result;
+        }
+
+        /**
+         * Compiles the graph, starting with the steps that load the scalar parameters.
+         */
+        Step compileEntry() {
+            Step entry = compile(graph.start());
+            for (int i = kernelParameters.size() - 1; i >= 0; i--) {
+                LocalNode ln = kernelParameters.get(i);
+                if (ln.kind().isPrimitive()) {
+                    ParameterStep parameter = new ParameterStep(slots.get(ln), isDouble(ln.kind()), i, ElementAccess.forKind(ln.kind()));
+                    parameter.next = entry;
+                    entry = parameter;
+                }
+            }
+            return entry;
+        }
+
+        private Step compile(FixedNode node) {
+            FixedNode current = node;
+            while (current instanceof AbstractBeginNode || current instanceof ValueAnchorNode) {
+                current = ((FixedWithNextNode) current).next();
+            }
+            Step step = steps.get(current);
+            if (step == null) {
+                step = createStep(current);
+                // registered before compiling the successors, which may loop back to it
+                steps.set(current, step);
+                linkStep(current, step);
+            }
+            return step;
+        }
+
+        private Step createStep(FixedNode node) {
+            if (node instanceof LoadIndexedNode) {
+                LoadIndexedNode load = (LoadIndexedNode) node;
+                ArrayDepth access = table.lookupArrayAccessInfo(load);
+                LocalNode array = access.getNode();
+                if (access.getDimensionAccessedAt() == table.lookupArrayDimension(array)) {
+                    return new LoadElementStep(slots.get(load), isDouble(load.elementKind()), data(array), indexData(array), expr(load.array()), expr(load.index()),
+                                    ElementAccess.forKind(load.elementKind()));
+                }
+                return new LoadOffsetStep(slots.get(load), indexData(array), expr(load.array()), expr(load.index()));
+            } else if (node instanceof StoreIndexedNode) {
+                StoreIndexedNode store = (StoreIndexedNode) node;
+                LocalNode array = table.lookupArrayAccessInfo(store).getNode();
+                return new StoreElementStep(data(array), indexData(array), expr(store.array()), expr(store.index()), expr(store.value()), isDouble(store.elementKind()),
+                                ElementAccess.forKind(store.elementKind()));
+            } else if (node instanceof ArrayLengthNode) {
+                ArrayLengthNode length = (ArrayLengthNode) node;
+                LocalNode array = table.lookupArrayAccessInfo(length).getNode();
+                return new ArrayLengthStep(slots.get(length), indexData(array), expr(length.array()));
+            } else if (node instanceof FixedBinaryNode) {
+                FixedBinaryNode binary = (FixedBinaryNode) node;
+                return new ValueStep(slots.get(binary), isDouble(binary.kind()), arithmetic(binary, expr(binary.x()), expr(binary.y())));
+            } else if (node instanceof IfNode) {
+                return new IfStep(condition(((IfNode) node).condition()));
+            } else if (node instanceof AbstractEndNode) {
+                AbstractEndNode end = (AbstractEndNode) node;
+                MergeNode merge = end.merge();
+                List<PhiNode> phis = merge.phis().snapshot();
+                int[] phiSlots = new int[phis.size()];
+                boolean[] phiIsDouble = new boolean[phis.size()];
+                Expr[] phiValues = new Expr[phis.size()];
+                for (int i = 0; i < phiSlots.length; i++) {
+                    PhiNode phi = phis.get(i);
+                    phiSlots[i] = slots.get(phi);
+                    phiIsDouble[i] = isDouble(phi.kind());
+                    phiValues[i] = expr(phi.valueAt(end));
+                }
+                BasicInductionVariable iv = merge instanceof LoopBeginNode ? parallelLoops.get(merge) : null;
+                if (iv == null) {
+                    return new EndStep(phiSlots, phiIsDouble, phiValues);
+                }
+                ValueNode phi = iv.valueNode();
+                return new ParallelEndStep(phiSlots, phiIsDouble, phiValues, end instanceof LoopEndNode, slots.get(phi), phi.kind() == Kind.Long, expr(iv.strideNode()));
+            } else if (node instanceof ReturnNode) {
+                return new ReturnStep();
+            }
+            throw new GraalInternalError("cannot execute %s in a Java kernel", node);
+        }
+
+        private void linkStep(FixedNode node, Step step) {
+            if (node instanceof IfNode) {
+                IfNode ifNode = (IfNode) node;
+                IfStep ifStep = (IfStep) step;
+                ifStep.trueStep = compile(ifNode.trueSuccessor());
+                ifStep.falseStep = compile(ifNode.falseSuccessor());
+            } else if (node instanceof AbstractEndNode) {
+                step.next = compile(((AbstractEndNode) node).merge());
+            } else if (node instanceof FixedWithNextNode) {
+                step.next = compile(((FixedWithNextNode) node).next());
+            }
+        }
+
+        private int data(LocalNode array) {
+            return kernelParameters.indexOf(array);
+        }
+
+        private int indexData(LocalNode array) {
+            return arrayParameters.indexOf(array);
+        }
+
+        private Expr expr(ValueNode node) {
+            Expr expr = exprs.get(node);
+            if (expr == null) {
+                expr = createExpr(node);
+                exprs.set(node, expr);
+            }
+            return expr;
+        }
+
+        private Expr createExpr(ValueNode node) {
+            if (node.isConstant()) {
+                Constant constant = node.asConstant();
+                switch (constant.getKind()) {
+                    case Float:
+                        return new DoubleConstant(constant.asFloat());
+                    case Double:
+                        return new DoubleConstant(constant.asDouble());
+                    case Object:
+                        break;
+                    default:
+                        return new LongConstant(constant.asLong());
+                }
+            } else if (slots.get(node) != null) {
+                return isDouble(node.kind()) ? new DoubleSlot(slots.get(node)) : new LongSlot(slots.get(node));
+            } else if (node instanceof IntegerArithmeticNode || node instanceof FloatArithmeticNode || node instanceof BitLogicNode || node instanceof ShiftNode) {
+                BinaryNode binary = (BinaryNode) node;
+                return arithmetic(binary, expr(binary.x()), expr(binary.y()));
+            } else if (node instanceof ConvertNode) {
+                ConvertNode convert = (ConvertNode) node;
+                return convert(convert.opcode, expr(convert.value()));
+            } else if (node instanceof ConditionalNode) {
+                ConditionalNode conditional = (ConditionalNode) node;
+                return new ConditionalExpr(condition(conditional.condition()), expr(conditional.trueValue()), expr(conditional.falseValue()));
+            } else if (node instanceof NormalizeCompareNode) {
+                NormalizeCompareNode compare = (NormalizeCompareNode) node;
+                return normalizeCompare(compare.x().kind(), expr(compare.x()), expr(compare.y()), compare.isUnorderedLess);
+            } else if (node instanceof NegateNode) {
+                return negate(node.kind(), expr(((NegateNode) node).x()));
+            }
+            throw new GraalInternalError("cannot evaluate %s in a Java kernel", node);
+        }
+
+        private Cond condition(LogicNode node) {
+            if (node instanceof LogicConstantNode) {
+                return ((LogicConstantNode) node).getValue() ? Cond.TRUE : Cond.FALSE;
+            } else if (node instanceof IsNullNode) {
+                IsNullNode isNull = (IsNullNode) node;
+                final int indexData = indexData(table.lookupArrayAccessInfo(isNull).getNode());
+                final Expr object = expr(isNull.object());
+                return new Cond() {
+
+                    @Override
+                    boolean test(Frame frame) {
+                        return frame.indexData[indexData][(int) object.asLong(frame)] == -1;
+                    }
+                };
+            } else if (node instanceof IntegerTestNode) {
+                IntegerTestNode test = (IntegerTestNode) node;
+                final Expr x = expr(test.x());
+                final Expr y = expr(test.y());
+                return new Cond() {
+
+                    @Override
+                    boolean test(Frame frame) {
+                        return (x.asLong(frame) & y.asLong(frame)) == 0;
+                    }
+                };
+            } else if (node instanceof CompareNode && !(node instanceof ObjectEqualsNode)) {
+                CompareNode compare = (CompareNode) node;
+                Kind kind = compare.x().kind();
+                if (isDouble(kind)) {
+                    return new FloatCompare(compare.condition(), compare.unorderedIsTrue(), expr(compare.x()), expr(compare.y()));
+                }
+                return new IntegerCompare(compare.condition(), kind == Kind.Long, expr(compare.x()), expr(compare.y()));
+            }
+            throw new GraalInternalError("cannot evaluate %s in a Java kernel", node);
+        }
+    }
+
+    private static boolean isDouble(Kind kind) {
+        return kind == Kind.Float || kind == Kind.Double;
+    }
+
+    /**
+     * A compiled fixed node. {@link #execute} performs its effect on a frame and returns the step
+     * to continue with, or {@code null} at the end of the kernel.
+     */
+    private abstract static class Step {
+
+        Step next;
+
+        abstract Step execute(Frame frame);
+    }
+
+    private static final class ParameterStep extends Step {
+
+        private final int slot;
+        private final boolean isDouble;
+        private final int data;
+        private final ElementAccess access;
+
+        ParameterStep(int slot, boolean isDouble, int data, ElementAccess access) {
+            this.slot = slot;
+            this.isDouble = isDouble;
+            this.data = data;
+            this.access = access;
+        }
+
+        @Override
+        Step execute(Frame frame) {
+            if (isDouble) {
+                frame.doubles[slot] = access.getDouble(frame.data[data], 0);
+            } else {
+                frame.longs[slot] = access.getLong(frame.data[data], 0);
+            }
+            return next;
+        }
+    }
+
+    private static final class LoadElementStep extends Step {
+
+        private final int slot;
+        private final boolean isDouble;
+        private final int data;
+        private final int indexData;
+        private final Expr array;
+        private final Expr index;
+        private final ElementAccess access;
+
+        LoadElementStep(int slot, boolean isDouble, int data, int indexData, Expr array, Expr index, ElementAccess access) {
+            this.slot = slot;
+            this.isDouble = isDouble;
+            this.data = data;
+            this.indexData = indexData;
+            this.array = array;
+            this.index = index;
+            this.access = access;
+        }
+
+        @Override
+        Step execute(Frame frame) {
+            int i = frame.indexData[indexData][(int) array.asLong(frame) + 1] + (int) index.asLong(frame);
+            if (isDouble) {
+                frame.doubles[slot] = access.getDouble(frame.data[data], i);
+            } else {
+                frame.longs[slot] = access.getLong(frame.data[data], i);
+            }
+            return next;
+        }
+    }
+
+    /**
+     * Loads a sub-array of a multi-dimensional array, which yields its offset in the index data.
+     */
+    private static final class LoadOffsetStep extends Step {
+
+        private final int slot;
+        private final int indexData;
+        private final Expr array;
+        private final Expr index;
+
+        LoadOffsetStep(int slot, int indexData, Expr array, Expr index) {
+            this.slot = slot;
+            this.indexData = indexData;
+            this.array = array;
+            this.index = index;
+        }
+
+        @Override
+        Step execute(Frame frame) {
+            frame.longs[slot] = frame.indexData[indexData][(int) array.asLong(frame) + (int) index.asLong(frame) + 1];
+            return next;
+        }
+    }
+
+    private static final class StoreElementStep extends Step {
+
+        private final int data;
+        private final int indexData;
+        private final Expr array;
+        private final Expr index;
+        private final Expr value;
+        private final boolean isDouble;
+        private final ElementAccess access;
+
+        StoreElementStep(int data, int indexData, Expr array, Expr index, Expr value, boolean isDouble, ElementAccess access) {
+            this.data = data;
+            this.indexData = indexData;
+            this.array = array;
+            this.index = index;
+            this.value = value;
+            this.isDouble = isDouble;
+            this.access = access;
+        }
+
+        @Override
+        Step execute(Frame frame) {
+            int i = frame.indexData[indexData][(int) array.asLong(frame) + 1] + (int) index.asLong(frame);
+            if (isDouble) {
+                access.setDouble(frame.data[data], i, value.asDouble(frame));
+            } else {
+                access.setLong(frame.data[data], i, value.asLong(frame));
+            }
+            return next;
+        }
+    }
+
+    private static final class ArrayLengthStep extends Step {
+
+        private final int slot;
+        private final int indexData;
+        private final Expr array;
+
+        ArrayLengthStep(int slot, int indexData, Expr array) {
+            this.slot = slot;
+            this.indexData = indexData;
+            this.array = array;
+        }
+
+        @Override
+        Step execute(Frame frame) {
+            frame.longs[slot] = frame.indexData[indexData][(int) array.asLong(frame)];
+            return next;
+        }
+    }
+
+    private static final class ValueStep extends Step {
+
+        private final int slot;
+        private final boolean isDouble;
+        private final Expr value;
+
+        ValueStep(int slot, boolean isDouble, Expr value) {
+            this.slot = slot;
+            this.isDouble = isDouble;
+            this.value = value;
+        }
+
+        @Override
+        Step execute(Frame frame) {
+            if (isDouble) {
+                frame.doubles[slot] = value.asDouble(frame);
+            } else {
+                frame.longs[slot] = value.asLong(frame);
+            }
+            return next;
+        }
+    }
+
+    private static final class IfStep extends Step {
+
+        private final Cond condition;
+        Step trueStep;
+        Step falseStep;
+
+        IfStep(Cond condition) {
+            this.condition = condition;
+        }
+
+        @Override
+        Step execute(Frame frame) {
+            return condition.test(frame) ? trueStep : falseStep;
+        }
+    }
+
+    /**
+     * Moves the values of an end into the phis of its merge.
+     */
+    private static class EndStep extends Step {
+
+        private final int[] phiSlots;
+        private final boolean[] phiIsDouble;
+        private final Expr[] phiValues;
+
+        EndStep(int[] phiSlots, boolean[] phiIsDouble, Expr[] phiValues) {
+            this.phiSlots = phiSlots;
+            this.phiIsDouble = phiIsDouble;
+            this.phiValues = phiValues;
+        }
+
+        @Override
+        Step execute(Frame frame) {
+            // all values are read before any phi is written, as a phi may be the value of another
+            for (int i = 0; i < phiValues.length; i++) {
+                if (phiIsDouble[i]) {
+                    frame.doublePhis[i] = phiValues[i].asDouble(frame);
+                } else {
+                    frame.longPhis[i] = phiValues[i].asLong(frame);
+                }
+            }
+            for (int i = 0; i < phiValues.length; i++) {
+                if (phiIsDouble[i]) {
+                    frame.doubles[phiSlots[i]] = frame.doublePhis[i];
+                } else {
+                    frame.longs[phiSlots[i]] = frame.longPhis[i];
+                }
+            }
+            return next;
+        }
+    }
+
+    /**
+     * Enters or continues an outermost loop, whose iterations are distributed over the work items.
+     */
+    private static final class ParallelEndStep extends EndStep {
+
+        private final boolean backEdge;
+        private final int ivSlot;
+        private final boolean ivIsLong;
+        private final Expr stride;
+
+        ParallelEndStep(int[] phiSlots, boolean[] phiIsDouble, Expr[] phiValues, boolean backEdge, int ivSlot, boolean ivIsLong, Expr stride) {
+            super(phiSlots, phiIsDouble, phiValues);
+            this.backEdge = backEdge;
+            this.ivSlot = ivSlot;
+            this.ivIsLong = ivIsLong;
+            this.stride = stride;
+        }
+
+        @Override
+        Step execute(Frame frame) {
+            Step result = super.execute(frame);
+            // start at the iteration of this work item, then skip those run by the other ones
+            long offset = stride.asLong(frame) * (backEdge ? frame.workSize - 1 : frame.id);
+            long value = frame.longs[ivSlot] + offset;
+            frame.longs[ivSlot] = ivIsLong ? value : (int) value;
+            return result;
+        }
+    }
+
+    private static final class ReturnStep extends Step {
+
+        @Override
+        Step execute(Frame frame) {
+            return null;
+        }
+    }
+
+    /**
+     * A compiled floating node. Values of kind {@code int} and smaller, {@code long} and array
+     * offsets are read with {@link #asLong}, {@code float} and {@code double} values with
+     * {@link #asDouble}.
+     */
+    private abstract static class Expr {
+
+        long asLong(@SuppressWarnings("unused") Frame frame) {
+            throw GraalInternalError.shouldNotReachHere();
+        }
+
+        double asDouble(@SuppressWarnings("unused") Frame frame) {
+            throw GraalInternalError.shouldNotReachHere();
+        }
+    }
+
+    private static final class LongConstant extends Expr {
+
+        private final long value;
+
+        LongConstant(long value) {
+            this.value = value;
+        }
+
+        @Override
+        long asLong(Frame frame) {
+            return value;
+        }
+    }
+
+    private static final class DoubleConstant extends Expr {
+
+        private final double value;
+
+        DoubleConstant(double value) {
+            this.value = value;
+        }
+
+        @Override
+        double asDouble(Frame frame) {
+            return value;
+        }
+    }
+
+    private static final class LongSlot extends Expr {
+
+        private final int slot;
+
+        LongSlot(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        long asLong(Frame frame) {
+            return frame.longs[slot];
+        }
+    }
+
+    private static final class DoubleSlot extends Expr {
+
+        private final int slot;
+
+        DoubleSlot(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        double asDouble(Frame frame) {
+            return frame.doubles[slot];
+        }
+    }
+
+    private static final class ConditionalExpr extends Expr {
+
+        private final Cond condition;
+        private final Expr trueValue;
+        private final Expr falseValue;
+
+        ConditionalExpr(Cond condition, Expr trueValue, Expr falseValue) {
+            this.condition = condition;
+            this.trueValue = trueValue;
+            this.falseValue = falseValue;
+        }
+
+        @Override
+        long asLong(Frame frame) {
+            return condition.test(frame) ? trueValue.asLong(frame) : falseValue.asLong(frame);
+        }
+
+        @Override
+        double asDouble(Frame frame) {
+            return condition.test(frame) ? trueValue.asDouble(frame) : falseValue.asDouble(frame);
+        }
+    }
+
+    /**
+     * Truncates a {@code long} result to {@code int}.
+     */
+    private static Expr toInt(final Expr x) {
+        return new Expr() {
+
+            @Override
+            long asLong(Frame frame) {
+                return (int) x.asLong(frame);
+            }
+        };
+    }
+
+    /**
+     * Rounds a {@code double} result to {@code float}. For the basic arithmetic operations this is
+     * the same as computing in {@code float}, because a {@code double} holds more than twice the
+     * precision of a {@code float}.
+     */
+    private static Expr toFloat(final Expr x) {
+        return new Expr() {
+
+            @Override
+            double asDouble(Frame frame) {
+                return (float) x.asDouble(frame);
+            }
+        };
+    }
+
+    private static Expr arithmetic(ValueNode node, final Expr x, final Expr y) {
+        switch (node.kind()) {
+            case Int:
+                if (node instanceof LeftShiftNode) {
+                    return new Expr() {
+
+                        @Override
+                        long asLong(Frame frame) {
+                            return (int) x.asLong(frame) << (int) y.asLong(frame);
+                        }
+                    };
+                } else if (node instanceof RightShiftNode) {
+                    return new Expr() {
+
+                        @Override
+                        long asLong(Frame frame) {
+                            return (int) x.asLong(frame) >> (int) y.asLong(frame);
+                        }
+                    };
+                } else if (node instanceof UnsignedRightShiftNode) {
+                    return new Expr() {
+
+                        @Override
+                        long asLong(Frame frame) {
+                            return (int) x.asLong(frame) >>> (int) y.asLong(frame);
+                        }
+                    };
+                }
+                // the low 32 bits of these operations do not depend on the upper bits
+                return toInt(integerArithmetic(node, x, y));
+            case Long:
+                return integerArithmetic(node, x, y);
+            case Float:
+                return toFloat(floatArithmetic(node, x, y));
+            case Double:
+                return floatArithmetic(node, x, y);
+            default:
+                throw new GraalInternalError("cannot evaluate %s in a Java kernel", node);
+        }
+    }
+
+    private static Expr integerArithmetic(ValueNode node, final Expr x, final Expr y) {
+        if (node instanceof IntegerAddNode) {
+            return new Expr() {
+
+                @Override
+                long asLong(Frame frame) {
+                    return x.asLong(frame) + y.asLong(frame);
+                }
+            };
+        } else if (node instanceof IntegerSubNode) {
+            return new Expr() {
+
+                @Override
+                long asLong(Frame frame) {
+                    return x.asLong(frame) - y.asLong(frame);
+                }
+            };
+        } else if (node instanceof IntegerMulNode) {
+            return new Expr() {
+
+                @Override
+                long asLong(Frame frame) {
+                    return x.asLong(frame) * y.asLong(frame);
+                }
+            };
+        } else if (node instanceof IntegerDivNode) {
+            return new Expr() {
+
+                @Override
+                long asLong(Frame frame) {
+                    return x.asLong(frame) / y.asLong(frame);
+                }
+            };
+        } else if (node instanceof IntegerRemNode) {
+            return new Expr() {
+
+                @Override
+                long asLong(Frame frame) {
+                    return x.asLong(frame) % y.asLong(frame);
+                }
+            };
+        } else if (node instanceof AndNode) {
+            return new Expr() {
+
+                @Override
+                long asLong(Frame frame) {
+                    return x.asLong(frame) & y.asLong(frame);
+                }
+            };
+        } else if (node instanceof OrNode) {
+            return new Expr() {
+
+                @Override
+                long asLong(Frame frame) {
+                    return x.asLong(frame) | y.asLong(frame);
+                }
+            };
+        } else if (node instanceof XorNode) {
+            return new Expr() {
+
+                @Override
+                long asLong(Frame frame) {
+                    return x.asLong(frame) ^ y.asLong(frame);
+                }
+            };
+        } else if (node instanceof LeftShiftNode) {
+            return new Expr() {
+
+                @Override
+                long asLong(Frame frame) {
+                    return x.asLong(frame) << y.asLong(frame);
+                }
+            };
+        } else if (node instanceof RightShiftNode) {
+            return new Expr() {
+
+                @Override
+                long asLong(Frame frame) {
+                    return x.asLong(frame) >> y.asLong(frame);
+                }
+            };
+        } else if (node instanceof UnsignedRightShiftNode) {
+            return new Expr() {
+
+                @Override
+                long asLong(Frame frame) {
+                    return x.asLong(frame) >>> y.asLong(frame);
+                }
+            };
+        }
+        throw new GraalInternalError("cannot evaluate %s in a Java kernel", node);
+    }
+
+    private static Expr floatArithmetic(ValueNode node, final Expr x, final Expr y) {
+        if (node instanceof FloatAddNode) {
+            return new Expr() {
+
+                @Override
+                double asDouble(Frame frame) {
+                    return x.asDouble(frame) + y.asDouble(frame);
+                }
+            };
+        } else if (node instanceof FloatSubNode) {
+            return new Expr() {
+
+                @Override
+                double asDouble(Frame frame) {
+                    return x.asDouble(frame) - y.asDouble(frame);
+                }
+            };
+        } else if (node instanceof FloatMulNode) {
+            return new Expr() {
+
+                @Override
+                double asDouble(Frame frame) {
+                    return x.asDouble(frame) * y.asDouble(frame);
+                }
+            };
+        } else if (node instanceof FloatDivNode) {
+            return new Expr() {
+
+                @Override
+                double asDouble(Frame frame) {
+                    return x.asDouble(frame) / y.asDouble(frame);
+                }
+            };
+        } else if (node instanceof FloatRemNode) {
+            return new Expr() {
+
+                @Override
+                double asDouble(Frame frame) {
+                    return x.asDouble(frame) % y.asDouble(frame);
+                }
+            };
+        }
+        throw new GraalInternalError("cannot evaluate %s in a Java kernel", node);
+    }
+
+    private static Expr negate(Kind kind, final Expr x) {
+        switch (kind) {
+            case Int:
+                return toInt(new Expr() {
+
+                    @Override
+                    long asLong(Frame frame) {
+                        return -x.asLong(frame);
+                    }
+                });
+            case Long:
+                return new Expr() {
+
+                    @Override
+                    long asLong(Frame frame) {
+                        return -x.asLong(frame);
+                    }
+                };
+            case Float:
+            case Double:
+                return new Expr() {
+
+                    @Override
+                    double asDouble(Frame frame) {
+                        return -x.asDouble(frame);
+                    }
+                };
+            default:
+                throw GraalInternalError.shouldNotReachHere();
+        }
+    }
+
+    private static Expr normalizeCompare(Kind kind, final Expr x, final Expr y, final boolean isUnorderedLess) {
+        if (isDouble(kind)) {
+            return new Expr() {
+
+                @Override
+                long asLong(Frame frame) {
+                    double a = x.asDouble(frame);
+                    double b = y.asDouble(frame);
+                    if (a < b) {
+                        return -1;
+                    } else if (a == b) {
+                        return 0;
+                    } else if (a > b) {
+                        return 1;
+                    }
+                    return isUnorderedLess ? -1 : 1;
+                }
+            };
+        }
+        // values of kind int are sign extended, so they compare like their long values
+        return new Expr() {
+
+            @Override
+            long asLong(Frame frame) {
+                return Long.compare(x.asLong(frame), y.asLong(frame));
+            }
+        };
+    }
+
+    private static Expr convert(ConvertNode.Op op, final Expr x) {
+        switch (op) {
+            case I2L:
+            case F2D:
+                // already held in a wider slot
+                return x;
+            case UNSIGNED_I2L:
+                return new Expr() {
+
+                    @Override
+                    long asLong(Frame frame) {
+                        return x.asLong(frame) & 0xFFFFFFFFL;
+                    }
+                };
+            case L2I:
+                return toInt(x);
+            case I2B:
+                return new Expr() {
+
+                    @Override
+                    long asLong(Frame frame) {
+                        return (byte) x.asLong(frame);
+                    }
+                };
+            case I2C:
+                return new Expr() {
+
+                    @Override
+                    long asLong(Frame frame) {
+                        return (char) x.asLong(frame);
+                    }
+                };
+            case I2S:
+                return new Expr() {
+
+                    @Override
+                    long asLong(Frame frame) {
+                        return (short) x.asLong(frame);
+                    }
+                };
+            case D2F:
+                return toFloat(x);
+            case I2F:
+            case L2F:
+                return new Expr() {
+
+                    @Override
+                    double asDouble(Frame frame) {
+                        return (float) x.asLong(frame);
+                    }
+                };
+            case I2D:
+            case L2D:
+                return new Expr() {
+
+                    @Override
+                    double asDouble(Frame frame) {
+                        return x.asLong(frame);
+                    }
+                };
+            case F2I:
+            case D2I:
+                return new Expr() {
+
+                    @Override
+                    long asLong(Frame frame) {
+                        return (int) x.asDouble(frame);
+                    }
+                };
+            case F2L:
+            case D2L:
+                return new Expr() {
+
+                    @Override
+                    long asLong(Frame frame) {
+                        return (long) x.asDouble(frame);
+                    }
+                };
+            case MOV_I2F:
+                return new Expr() {
+
+                    @Override
+                    double asDouble(Frame frame) {
+                        return Float.intBitsToFloat((int) x.asLong(frame));
+                    }
+                };
+            case MOV_L2D:
+                return new Expr() {
+
+                    @Override
+                    double asDouble(Frame frame) {
+                        return Double.longBitsToDouble(x.asLong(frame));
+                    }
+                };
+            case MOV_F2I:
+                return new Expr() {
+
+                    @Override
+                    long asLong(Frame frame) {
+                        return Float.floatToRawIntBits((float) x.asDouble(frame));
+                    }
+                };
+            case MOV_D2L:
+                return new Expr() {
+
+                    @Override
+                    long asLong(Frame frame) {
+                        return Double.doubleToRawLongBits(x.asDouble(frame));
+                    }
+                };
+            default:
+                throw new GraalInternalError("cannot evaluate %s in a Java kernel", op);
+        }
+    }
+
+    /**
+     * A compiled condition.
+     */
+    private abstract static class Cond {
+
+        static final Cond TRUE = new Cond() {
+
+            @Override
+            boolean test(Frame frame) {
+                return true;
+            }
+        };
+
+        static final Cond FALSE = new Cond() {
+
+            @Override
+            boolean test(Frame frame) {
+                return false;
+            }
+        };
+
+        abstract boolean test(Frame frame);
+    }
+
+    private static final class IntegerCompare extends Cond {
+
+        private final Condition condition;
+        private final boolean isLong;
+        private final Expr x;
+        private final Expr y;
+
+        IntegerCompare(Condition condition, boolean isLong, Expr x, Expr y) {
+            this.condition = condition;
+            this.isLong = isLong;
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        boolean test(Frame frame) {
+            long a = x.asLong(frame);
+            long b = y.asLong(frame);
+            switch (condition) {
+                case EQ:
+                    return a == b;
+                case NE:
+                    return a != b;
+                case LT:
+                    return a < b;
+                case LE:
+                    return a <= b;
+                case GT:
+                    return a > b;
+                case GE:
+                    return a >= b;
+                case AE:
+                    return isLong ? UnsignedMath.aboveOrEqual(a, b) : UnsignedMath.aboveOrEqual((int) a, (int) b);
+                case BE:
+                    return isLong ? UnsignedMath.belowOrEqual(a, b) : UnsignedMath.belowOrEqual((int) a, (int) b);
+                case AT:
+                    return isLong ? UnsignedMath.aboveThan(a, b) : UnsignedMath.aboveThan((int) a, (int) b);
+                case BT:
+                    return isLong ? UnsignedMath.belowThan(a, b) : UnsignedMath.belowThan((int) a, (int) b);
+                default:
+                    throw new GraalInternalError("expected condition: %s", condition);
+            }
+        }
+    }
+
+    private static final class FloatCompare extends Cond {
+
+        private final Condition condition;
+        private final boolean unorderedIsTrue;
+        private final Expr x;
+        private final Expr y;
+
+        FloatCompare(Condition condition, boolean unorderedIsTrue, Expr x, Expr y) {
+            this.condition = condition;
+            this.unorderedIsTrue = unorderedIsTrue;
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        boolean test(Frame frame) {
+            double a = x.asDouble(frame);
+            double b = y.asDouble(frame);
+            if (Double.isNaN(a) || Double.isNaN(b)) {
+                return unorderedIsTrue;
+            }
+            switch (condition) {
+                case EQ:
+                    return a == b;
+                case NE:
+                    return a != b;
+                case LT:
+                    return a < b;
+                case LE:
+                    return a <= b;
+                case GT:
+                    return a > b;
+                case GE:
+                    return a >= b;
+                default:
+                    throw new GraalInternalError("expected condition: %s", condition);
+            }
+        }
+    }
+
+    /**
+     * Reads and writes the elements of a flattened array of one element kind.
+     */
+    private abstract static class ElementAccess {
+
+        long getLong(@SuppressWarnings("unused") Object array, @SuppressWarnings("unused") int index) {
+            throw GraalInternalError.shouldNotReachHere();
+        }
+
+        double getDouble(@SuppressWarnings("unused") Object array, @SuppressWarnings("unused") int index) {
+            throw GraalInternalError.shouldNotReachHere();
+        }
+
+        void setLong(@SuppressWarnings("unused") Object array, @SuppressWarnings("unused") int index, @SuppressWarnings("unused") long value) {
+            throw GraalInternalError.shouldNotReachHere();
+        }
+
+        void setDouble(@SuppressWarnings("unused") Object array, @SuppressWarnings("unused") int index, @SuppressWarnings("unused") double value) {
+            throw GraalInternalError.shouldNotReachHere();
+        }
+
+        static ElementAccess forKind(Kind kind) {
+            switch (kind) {
+                case Boolean:
+                    return new ElementAccess() {
+
+                        @Override
+                        long getLong(Object array, int index) {
+                            return ((boolean[]) array)[index] ? 1 : 0;
+                        }
+
+                        @Override
+                        void setLong(Object array, int index, long value) {
+                            ((boolean[]) array)[index] = (int) value != 0;
+                        }
+                    };
+                case Byte:
+                    return new ElementAccess() {
+
+                        @Override
+                        long getLong(Object array, int index) {
+                            return ((byte[]) array)[index];
+                        }
+
+                        @Override
+                        void setLong(Object array, int index, long value) {
+                            ((byte[]) array)[index] = (byte) value;
+                        }
+                    };
+                case Char:
+                    return new ElementAccess() {
+
+                        @Override
+                        long getLong(Object array, int index) {
+                            return ((char[]) array)[index];
+                        }
+
+                        @Override
+                        void setLong(Object array, int index, long value) {
+                            ((char[]) array)[index] = (char) value;
+                        }
+                    };
+                case Short:
+                    return new ElementAccess() {
+
+                        @Override
+                        long getLong(Object array, int index) {
+                            return ((short[]) array)[index];
+                        }
+
+                        @Override
+                        void setLong(Object array, int index, long value) {
+                            ((short[]) array)[index] = (short) value;
+                        }
+                    };
+                case Int:
+                    return new ElementAccess() {
+
+                        @Override
+                        long getLong(Object array, int index) {
+                            return ((int[]) array)[index];
+                        }
+
+                        @Override
+                        void setLong(Object array, int index, long value) {
+                            ((int[]) array)[index] = (int) value;
+                        }
+                    };
+                case Long:
+                    return new ElementAccess() {
+
+                        @Override
+                        long getLong(Object array, int index) {
+                            return ((long[]) array)[index];
+                        }
+
+                        @Override
+                        void setLong(Object array, int index, long value) {
+                            ((long[]) array)[index] = value;
+                        }
+                    };
+                case Float:
+                    return new ElementAccess() {
+
+                        @Override
+                        double getDouble(Object array, int index) {
+                            return ((float[]) array)[index];
+                        }
+
+                        @Override
+                        void setDouble(Object array, int index, double value) {
+                            ((float[]) array)[index] = (float) value;
+                        }
+                    };
+                case Double:
+                    return new ElementAccess() {
+
+                        @Override
+                        double getDouble(Object array, int index) {
+                            return ((double[]) array)[index];
+                        }
+
+                        @Override
+                        void setDouble(Object array, int index, double value) {
+                            ((double[]) array)[index] = value;
+                        }
+                    };
+                default:
+                    throw GraalInternalError.shouldNotReachHere();
+            }
+        }
+    }
+}
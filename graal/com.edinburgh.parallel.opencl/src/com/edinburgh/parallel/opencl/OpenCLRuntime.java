@@ -0,0 +1,278 @@
+package com.edinburgh.parallel.opencl;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.security.*;
+import java.util.*;
+
+import org.jocl.*;
+
+/**
+ * Holds the OpenCL context and command queue of a device for the lifetime of the VM and caches the
+ * programs and kernels built on it.
+ * <p>
+ * Programs are keyed by a hash of their source, the device and the build options. If
+ * {@link ParallelOptions#KernelCacheDir} is set, built program binaries are also stored there and
+ * reused by later runs instead of compiling the source again. Since a binary from the cache is run
+ * without further checks, the cache directory is only used if it is owned by the current user and
+ * cannot be written by other users. A missing directory is created with owner-only permissions.
+ */
+public final class OpenCLRuntime {
+
+    private static final String BUILD_OPTIONS = "-cl-opt-enable";
+
+    private static final Map<Long, OpenCLRuntime> runtimes = new HashMap<>();
+    private static final Set<Long> unavailable = new HashSet<>();
+
+    private static boolean cacheDirChecked;
+    private static Path cacheDir;
+
+    /**
+     * Determines if there is an OpenCL device of the given type, i.e., if
+     * {@link #getRuntime(long)} can succeed.
+     */
+    public static synchronized boolean isAvailable(long deviceType) {
+        if (unavailable.contains(deviceType)) {
+            return false;
+        }
+        try {
+            getRuntime(deviceType);
+            return true;
+        } catch (LinkageError | CLException e) {
+            // no OpenCL library, platform or device
+            unavailable.add(deviceType);
+            return false;
+        }
+    }
+
+    /**
+     * Gets the runtime for the first device of the given type on the first platform, creating it
+     * on first use.
+     *
+     * @param deviceType {@link CL#CL_DEVICE_TYPE_CPU} or {@link CL#CL_DEVICE_TYPE_GPU}
+     */
+    public static synchronized OpenCLRuntime getRuntime(long deviceType) {
+        OpenCLRuntime runtime = runtimes.get(deviceType);
+        if (runtime == null) {
+            runtime = new OpenCLRuntime(deviceType);
+            runtimes.put(deviceType, runtime);
+        }
+        return runtime;
+    }
+
+    private final cl_device_id device;
+    private final cl_context context;
+    private final cl_command_queue commandQueue;
+    private final String deviceKey;
+
+    private final Map<String, cl_program> programs = new HashMap<>();
+    private final Map<String, cl_kernel> kernels = new HashMap<>();
+
+    private OpenCLRuntime(long deviceType) {
+        CL.setExceptionsEnabled(true);
+
+        int[] numPlatforms = new int[1];
+        CL.clGetPlatformIDs(0, null, numPlatforms);
+        if (numPlatforms[0] == 0) {
+            throw new CLException("no OpenCL platform");
+        }
+        cl_platform_id[] platforms = new cl_platform_id[numPlatforms[0]];
+        CL.clGetPlatformIDs(platforms.length, platforms, null);
+        cl_platform_id platform = platforms[0];
+
+        int[] numDevices = new int[1];
+        CL.clGetDeviceIDs(platform, deviceType, 0, null, numDevices);
+        cl_device_id[] devices = new cl_device_id[numDevices[0]];
+        CL.clGetDeviceIDs(platform, deviceType, devices.length, devices, null);
+        device = devices[0];
+
+        cl_context_properties contextProperties = new cl_context_properties();
+        contextProperties.addProperty(CL.CL_CONTEXT_PLATFORM, platform);
+        context = CL.clCreateContext(contextProperties, 1, new cl_device_id[]{device}, null, null, null);
+        commandQueue = CL.clCreateCommandQueue(context, device, CL.CL_QUEUE_PROFILING_ENABLE, null);
+
+        deviceKey = getDeviceString(CL.CL_DEVICE_NAME) + "|" + getDeviceString(CL.CL_DEVICE_VERSION) + "|" + getDeviceString(CL.CL_DRIVER_VERSION);
+    }
+
+    public cl_context getContext() {
+        return context;
+    }
+
+    public cl_command_queue getCommandQueue() {
+        return commandQueue;
+    }
+
+    /**
+     * Gets the kernel called {@code kernelName} from the program built from {@code source},
+     * building the program if it is not in the cache yet. The returned kernel is shared, so callers
+     * must synchronize on it while setting its arguments and enqueuing it.
+     */
+    public synchronized cl_kernel getKernel(String kernelName, String source) {
+        String programKey = hash(deviceKey + "|" + BUILD_OPTIONS + "|" + source);
+        String kernelKey = programKey + "." + kernelName;
+        cl_kernel kernel = kernels.get(kernelKey);
+        if (kernel == null) {
+            cl_program program = programs.get(programKey);
+            if (program == null) {
+                program = buildProgram(programKey, source);
+                programs.put(programKey, program);
+            }
+            kernel = CL.clCreateKernel(program, kernelName, null);
+            kernels.put(kernelKey, kernel);
+        }
+        return kernel;
+    }
+
+    private cl_program buildProgram(String programKey, String source) {
+        long startTime = System.nanoTime();
+        Path cacheFile = getCacheFile(programKey);
+        cl_program program = null;
+        if (cacheFile != null && isOwnedByUser(cacheFile)) {
+            program = loadBinary(cacheFile);
+        }
+        if (program == null) {
+            program = CL.clCreateProgramWithSource(context, 1, new String[]{source}, null, null);
+            CL.clBuildProgram(program, 0, null, BUILD_OPTIONS, null, null);
+            if (cacheFile != null) {
+                storeBinary(program, cacheFile);
+            }
+        }
+        long endTime = System.nanoTime();
+        System.out.println("Build Time: " + (endTime - startTime));
+        return program;
+    }
+
+    private cl_program loadBinary(Path cacheFile) {
+        try {
+            byte[] binary = Files.readAllBytes(cacheFile);
+            int[] binaryStatus = new int[1];
+            cl_program program = CL.clCreateProgramWithBinary(context, 1, new cl_device_id[]{device}, new long[]{binary.length}, new byte[][]{binary}, binaryStatus, null);
+            CL.clBuildProgram(program, 0, null, BUILD_OPTIONS, null, null);
+            return program;
+        } catch (IOException | CLException e) {
+            // a stale or corrupt binary: fall back to building from source
+            try {
+                Files.deleteIfExists(cacheFile);
+            } catch (IOException ex) {
+                // the binary is rebuilt and replaced
+            }
+            return null;
+        }
+    }
+
+    private void storeBinary(cl_program program, Path cacheFile) {
+        long[] binarySize = new long[1];
+        CL.clGetProgramInfo(program, CL.CL_PROGRAM_BINARY_SIZES, Sizeof.size_t, Pointer.to(binarySize), null);
+        byte[] binary = new byte[(int) binarySize[0]];
+        CL.clGetProgramInfo(program, CL.CL_PROGRAM_BINARIES, Sizeof.POINTER, Pointer.to(Pointer.to(binary)), null);
+        Path tmp = null;
+        try {
+            // write to a temporary file first so that concurrent runs never see a partial binary.
+            // On POSIX file systems, temporary files are only accessible by the owner.
+            tmp = Files.createTempFile(cacheFile.getParent(), cacheFile.getFileName().toString(), ".tmp");
+            Files.write(tmp, binary);
+            Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the cache is only an optimization
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ex) {
+                }
+            }
+        }
+    }
+
+    private static Path getCacheFile(String programKey) {
+        Path dir = getCacheDir();
+        return dir == null ? null : dir.resolve(programKey + ".bin");
+    }
+
+    /**
+     * Gets the {@linkplain ParallelOptions#KernelCacheDir cache directory}, creating it if it does
+     * not exist, or null if the cache is disabled or the directory is not safe to use.
+     */
+    private static synchronized Path getCacheDir() {
+        if (!cacheDirChecked) {
+            cacheDirChecked = true;
+            String name = ParallelOptions.KernelCacheDir.getValue();
+            if (name != null && !name.isEmpty()) {
+                try {
+                    Path dir = Paths.get(name).toAbsolutePath();
+                    if (Files.notExists(dir, LinkOption.NOFOLLOW_LINKS)) {
+                        createPrivateDirectory(dir);
+                    }
+                    if (Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS) && isOwnedByUser(dir)) {
+                        cacheDir = dir;
+                    } else {
+                        System.err.println("Warning: not using OpenCL kernel cache " + dir + ": it must be a directory owned by the current user and not writable by others");
+                    }
+                } catch (IOException | InvalidPathException e) {
+                    System.err.println("Warning: not using OpenCL kernel cache " + name + ": " + e);
+                }
+            }
+        }
+        return cacheDir;
+    }
+
+    private static void createPrivateDirectory(Path dir) throws IOException {
+        if (dir.getParent() != null) {
+            Files.createDirectories(dir.getParent());
+        }
+        try {
+            if (dir.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                Files.createDirectory(dir, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            } else {
+                Files.createDirectory(dir);
+            }
+        } catch (FileAlreadyExistsException e) {
+            // created concurrently; its owner is checked by the caller
+        }
+    }
+
+    /**
+     * Determines if {@code path} is owned by the current user and, on POSIX file systems, cannot be
+     * written by other users. Symbolic links are not followed.
+     */
+    public static boolean isOwnedByUser(Path path) {
+        try {
+            UserPrincipal user = path.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName(System.getProperty("user.name"));
+            if (!user.equals(Files.getOwner(path, LinkOption.NOFOLLOW_LINKS))) {
+                return false;
+            }
+            if (path.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(path, LinkOption.NOFOLLOW_LINKS);
+                if (permissions.contains(PosixFilePermission.GROUP_WRITE) || permissions.contains(PosixFilePermission.OTHERS_WRITE)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    private String getDeviceString(int param) {
+        long[] size = new long[1];
+        CL.clGetDeviceInfo(device, param, 0, null, size);
+        byte[] buffer = new byte[(int) size[0]];
+        CL.clGetDeviceInfo(device, param, buffer.length, Pointer.to(buffer), null);
+        // strip the terminating NUL
+        return new String(buffer, 0, Math.max(0, buffer.length - 1), StandardCharsets.US_ASCII);
+    }
+
+    private static String hash(String s) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(s.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b & 0xff));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new InternalError(e.toString());
+        }
+    }
+}
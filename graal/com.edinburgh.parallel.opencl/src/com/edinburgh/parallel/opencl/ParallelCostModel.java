@@ -0,0 +1,136 @@
+package com.edinburgh.parallel.opencl;
+
+import java.util.*;
+
+import com.oracle.graal.nodes.*;
+
+/**
+ * Chooses between running a {@code @Parallel} method through OpenCL and through the
+ * {@link JavaKernel}. OpenCL pays a fixed launch cost and the transfer of every argument to the
+ * device and of the written arrays back, while the Java kernel works on the marshalled arrays in
+ * place but runs on the CPU cores only.
+ * <p>
+ * The constants below are first-principles defaults that only need to be right in their order of
+ * magnitude. Each backend's estimate is scaled by a correction factor, which
+ * {@link #recordOpenCL} and {@link #recordJava} derive from the measured execution times, so after
+ * a few executions the model follows the actual host and device.
+ */
+public final class ParallelCostModel {
+
+    /**
+     * Estimated cost of a kernel launch, including argument setup and waiting for completion. A
+     * launch followed by {@code clFinish} takes tens of microseconds on discrete GPUs.
+     */
+    static final double OPENCL_LAUNCH_NANOS = 50000;
+
+    /**
+     * Estimated cost of copying one byte between host and device, corresponding to 4 GB/s, the
+     * practical bandwidth of a PCIe 2.0 x16 link from pageable host memory.
+     */
+    static final double OPENCL_NANOS_PER_BYTE = 0.25;
+
+    /**
+     * Estimated cost of executing one node on the device: a few hundred lanes at about 1 GHz, each
+     * spending around 16 cycles per node once memory latency is accounted for.
+     */
+    static final double OPENCL_NANOS_PER_NODE = 0.05;
+
+    /**
+     * Estimated cost of executing one node on one CPU core. The Java kernel makes a few virtual
+     * calls into its compiled steps and expressions per node, at a few nanoseconds each.
+     */
+    static final double JAVA_NANOS_PER_NODE = 5;
+
+    /**
+     * Weight of the latest measurement in the correction factors.
+     */
+    private static final double CORRECTION_WEIGHT = 0.25;
+
+    /**
+     * Bounds of the correction factors, so that a single outlier such as a garbage collection
+     * during a measurement cannot rule out a backend for good.
+     */
+    private static final double MIN_CORRECTION = 0.01;
+    private static final double MAX_CORRECTION = 100;
+
+    /**
+     * Ratio of measured to estimated execution time of each backend, as an exponential moving
+     * average. Concurrent updates may overwrite each other, which only delays convergence.
+     */
+    private static volatile double openCLCorrection = 1;
+    private static volatile double javaCorrection = 1;
+
+    private ParallelCostModel() {
+    }
+
+    /**
+     * Estimates the number of node executions of a kernel, assuming the outermost loop visits
+     * every element of the largest array argument once.
+     */
+    public static long estimateWork(StructuredGraph graph, List<OpenCLParameter> clParams) {
+        long elements = 1;
+        for (OpenCLParameter clParam : clParams) {
+            if (clParam.isArray()) {
+                elements = Math.max(elements, clParam.getArrayLength());
+            }
+        }
+        return elements * graph.getNodeCount();
+    }
+
+    /**
+     * Computes the number of bytes an OpenCL execution copies to and from the device.
+     */
+    public static long transferBytes(List<OpenCLParameter> clParams) {
+        long bytes = 0;
+        for (OpenCLParameter clParam : clParams) {
+            long size = (long) clParam.getType() * clParam.getArrayLength();
+            bytes += clParam.isReadOnly() ? size : 2 * size;
+        }
+        return bytes;
+    }
+
+    /**
+     * Determines if OpenCL is expected to be faster than the Java kernel running on
+     * {@code parallelism} threads.
+     */
+    public static boolean preferOpenCL(long work, long transferBytes, int parallelism) {
+        double openCL = estimateOpenCL(work, transferBytes) * openCLCorrection;
+        double java = estimateJava(work, parallelism) * javaCorrection;
+        return openCL < java;
+    }
+
+    /**
+     * Records the time an OpenCL execution took, excluding the building of the kernel.
+     */
+    public static void recordOpenCL(long work, long transferBytes, long nanos) {
+        openCLCorrection = correct(openCLCorrection, nanos / estimateOpenCL(work, transferBytes));
+    }
+
+    /**
+     * Records the time a Java kernel execution on {@code parallelism} threads took.
+     */
+    public static void recordJava(long work, int parallelism, long nanos) {
+        javaCorrection = correct(javaCorrection, nanos / estimateJava(work, parallelism));
+    }
+
+    /**
+     * Forgets all recorded measurements.
+     */
+    public static void resetCalibration() {
+        openCLCorrection = 1;
+        javaCorrection = 1;
+    }
+
+    private static double estimateOpenCL(long work, long transferBytes) {
+        return OPENCL_LAUNCH_NANOS + transferBytes * OPENCL_NANOS_PER_BYTE + work * OPENCL_NANOS_PER_NODE;
+    }
+
+    private static double estimateJava(long work, int parallelism) {
+        return Math.max(1, work) * JAVA_NANOS_PER_NODE / Math.max(1, parallelism);
+    }
+
+    private static double correct(double correction, double ratio) {
+        double result = (1 - CORRECTION_WEIGHT) * correction + CORRECTION_WEIGHT * ratio;
+        return Math.min(MAX_CORRECTION, Math.max(MIN_CORRECTION, result));
+    }
+}
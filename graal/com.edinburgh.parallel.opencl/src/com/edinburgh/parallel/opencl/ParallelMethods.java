@@ -8,5 +8,6 @@ import com.oracle.graal.nodes.*;
 public final class ParallelMethods {
 
     @SuppressWarnings("unused") public static ConcurrentHashMap<String, StructuredGraph> methods = new ConcurrentHashMap<String, StructuredGraph>();
-    public static Map<String, String> methodCodes = new HashMap<>();
+    public static Map<String, String> methodCodes = new ConcurrentHashMap<>();
+    public static Map<String, JavaKernel> javaKernels = new ConcurrentHashMap<>();
 }
@@ -1,5 +1,7 @@
 package com.edinburgh.parallel.opencl;
 
+import java.io.*;
+
 import com.oracle.graal.options.*;
 
 public class ParallelOptions {
@@ -9,4 +11,6 @@ public class ParallelOptions {
     @Option(help = "Execute code on GPU") public static final OptionValue<Boolean> Execute = new OptionValue<>(true);
     @Option(help = "Use CPU or GPU") public static final OptionValue<Boolean> UseCPU = new OptionValue<>(false);
     @Option(help = "Set global work size") public static final OptionValue<Integer> WorkSize = new OptionValue<>(1000);
+    @Option(help = "Backend for @Parallel methods: opencl, java or auto to choose by a cost model") public static final OptionValue<String> Backend = new OptionValue<>("auto");
+    @Option(help = "Directory for caching built OpenCL program binaries across runs (empty to disable). It must be owned by the current user and not writable by others") public static final OptionValue<String> KernelCacheDir = new OptionValue<>(System.getProperty("user.home") + File.separator + ".graal" + File.separator + "opencl-cache");
 }
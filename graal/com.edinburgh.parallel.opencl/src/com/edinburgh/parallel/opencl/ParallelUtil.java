@@ -55,9 +55,10 @@ public class ParallelUtil {
         String methodName = sg.method().getName();
         String kernelName = methodName + "Kernel";
 
+        SymbolTable table = new SymbolTable(indexData, arrayAccessDim, arrayDimensions);
+
         // check if method has already been converted to opencl if yes then use that.
         if (!ParallelMethods.methodCodes.containsKey(methodName)) {
-            SymbolTable table = new SymbolTable(indexData, arrayAccessDim, arrayDimensions);
             OpenCLCodeGen cgen = new OpenCLCodeGen(ParallelOptions.EnableComments.getValue(), table);
             cgen.beginCodeGen(sg.start(), sg);
             gpuCode = cgen.endCodeGen();
@@ -99,8 +100,25 @@ public class ParallelUtil {
 
             System.out.println("Marshalling Time: " + (marshallEndTime - marshallStartTime));
 
-            // Run code on GPU
-            execute(kernelName, gpuCode, clParams);
+            long work = ParallelCostModel.estimateWork(sg, clParams);
+            long transferBytes = ParallelCostModel.transferBytes(clParams);
+            if (useOpenCL(work, transferBytes)) {
+                // Run code on GPU
+                long openCLTime = execute(kernelName, gpuCode, clParams);
+                ParallelCostModel.recordOpenCL(work, transferBytes, openCLTime);
+            } else {
+                // Run the same kernel on the CPU, compiling it on the first call like the OpenCL code
+                JavaKernel kernel = ParallelMethods.javaKernels.get(methodName);
+                if (kernel == null) {
+                    kernel = new JavaKernel(sg, table);
+                    ParallelMethods.javaKernels.put(methodName, kernel);
+                }
+                long javaStartTime = System.nanoTime();
+                kernel.execute(clParams, ParallelOptions.WorkSize.getValue());
+                long javaEndTime = System.nanoTime();
+                ParallelCostModel.recordJava(work, Runtime.getRuntime().availableProcessors(), javaEndTime - javaStartTime);
+                System.out.println("Java Kernel Execution Time: " + (javaEndTime - javaStartTime));
+            }
 
             long unmarshallStartTime = System.nanoTime();
 
@@ -164,57 +182,53 @@ public class ParallelUtil {
         return null;
     }
 
-    public static void execute(String kernelName, String kernelSource, List<OpenCLParameter> clParams) {
-        // The platform, device type and device number
-        // that will be used
-        final int platformIndex = 0;
-        final long deviceType = ParallelOptions.UseCPU.getValue() ? CL.CL_DEVICE_TYPE_CPU : CL.CL_DEVICE_TYPE_GPU;
-        final int deviceIndex = 0;
-
-        // Enable exceptions and subsequently omit error checks in this sample
-        CL.setExceptionsEnabled(true);
-
-        // Obtain the number of platforms
-        int numPlatformsArray[] = new int[1];
-        CL.clGetPlatformIDs(0, null, numPlatformsArray);
-        int numPlatforms = numPlatformsArray[0];
-
-        // Obtain a platform ID
-        cl_platform_id platforms[] = new cl_platform_id[numPlatforms];
-        CL.clGetPlatformIDs(platforms.length, platforms, null);
-        cl_platform_id platform = platforms[platformIndex];
-
-        // Initialize the context properties
-        cl_context_properties contextProperties = new cl_context_properties();
-        contextProperties.addProperty(CL.CL_CONTEXT_PLATFORM, platform);
-
-        // Obtain the number of devices for the platform
-        int numDevicesArray[] = new int[1];
-        CL.clGetDeviceIDs(platform, deviceType, 0, null, numDevicesArray);
-        int numDevices = numDevicesArray[0];
-
-        // Obtain a device ID
-        cl_device_id devices[] = new cl_device_id[numDevices];
-        CL.clGetDeviceIDs(platform, deviceType, numDevices, devices, null);
-        cl_device_id device = devices[deviceIndex];
-
-        // Create a context for the selected device
-        cl_context context = CL.clCreateContext(contextProperties, 1, new cl_device_id[]{device}, null, null, null);
-
-        // Create a command-queue for the selected device
-        cl_command_queue commandQueue = CL.clCreateCommandQueue(context, device, CL.CL_QUEUE_PROFILING_ENABLE, null);
+    /**
+     * Decides if a call runs through OpenCL or through the {@link JavaKernel}, as selected by
+     * {@link ParallelOptions#Backend}.
+     * 
+     * @param work the {@linkplain ParallelCostModel#estimateWork estimated work} of the call
+     * @param transferBytes the {@linkplain ParallelCostModel#transferBytes bytes transferred} to
+     *            and from the device
+     */
+    public static boolean useOpenCL(long work, long transferBytes) {
+        String backend = ParallelOptions.Backend.getValue();
+        if (backend.equals("java")) {
+            return false;
+        } else if (backend.equals("opencl")) {
+            return true;
+        }
+        if (!OpenCLRuntime.isAvailable(getDeviceType())) {
+            return false;
+        }
+        return ParallelCostModel.preferOpenCL(work, transferBytes, Runtime.getRuntime().availableProcessors());
+    }
 
-        // Create the program from the source code
-        cl_program program = CL.clCreateProgramWithSource(context, 1, new String[]{kernelSource}, null, null);
+    private static long getDeviceType() {
+        return ParallelOptions.UseCPU.getValue() ? CL.CL_DEVICE_TYPE_CPU : CL.CL_DEVICE_TYPE_GPU;
+    }
 
-        // Build the program
-        long startTime = System.nanoTime();
-        CL.clBuildProgram(program, 0, null, "-cl-opt-enable", null, null);
-        long endTime = System.nanoTime();
-        System.out.println("Build Time: " + (endTime - startTime));
+    /**
+     * Runs a kernel and returns the time the execution took, excluding the building of the kernel.
+     */
+    public static long execute(String kernelName, String kernelSource, List<OpenCLParameter> clParams) {
+        // The context, command queue and built kernels are kept for the lifetime of the VM
+        OpenCLRuntime runtime = OpenCLRuntime.getRuntime(getDeviceType());
+        cl_context context = runtime.getContext();
+        cl_command_queue commandQueue = runtime.getCommandQueue();
+        cl_kernel kernel = runtime.getKernel(kernelName, kernelSource);
+
+        // The kernel object is shared, so only one thread may set its arguments and run it at a
+        // time
+        synchronized (kernel) {
+            long startTime = System.nanoTime();
+            execute(context, commandQueue, kernel, clParams);
+            return System.nanoTime() - startTime;
+        }
+    }
 
-        // Create the kernel
-        cl_kernel kernel = CL.clCreateKernel(program, kernelName, null);
+    private static void execute(cl_context context, cl_command_queue commandQueue, cl_kernel kernel, List<OpenCLParameter> clParams) {
+        long startTime;
+        long endTime;
 
         // measure the data transfer time.
         startTime = System.nanoTime();
@@ -276,16 +290,11 @@ public class ParallelUtil {
 
         System.out.println("Read Data Time: " + (endTime - startTime));
 
-        // Release kernel, program, and memory objects
+        // Release the memory objects, the context outlives them
         for (int i = 0; i < memObjects.length; i++) {
-            if (!clParams.get(i).isReadOnly())
-                CL.clReleaseMemObject(memObjects[i]);
+            CL.clReleaseMemObject(memObjects[i]);
         }
-
-        CL.clReleaseKernel(kernel);
-        CL.clReleaseProgram(program);
-        CL.clReleaseCommandQueue(commandQueue);
-        CL.clReleaseContext(context);
+        CL.clReleaseEvent(event);
     }
 
     public static Class<?> compile(JavaMethod jm, String signature) {
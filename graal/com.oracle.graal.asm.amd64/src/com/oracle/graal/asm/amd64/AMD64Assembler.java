@@ -431,6 +431,13 @@ public class AMD64Assembler extends AbstractAssembler {
         emitArith(0x23, 0xC0, dst, src);
     }
 
+    public final void bsfl(Register dst, Register src) {
+        int encode = prefixAndEncode(dst.encoding, src.encoding);
+        emitByte(0x0F);
+        emitByte(0xBC);
+        emitByte(0xC0 | encode);
+    }
+
     public final void bsfq(Register dst, Register src) {
         int encode = prefixqAndEncode(dst.encoding, src.encoding);
         emitByte(0x0F);
@@ -1742,6 +1749,225 @@ public class AMD64Assembler extends AbstractAssembler {
         emitOperandHelper(dst, src);
     }
 
+    public final void movdqu(Register dst, AMD64Address src) {
+        assert dst.getRegisterCategory() == AMD64.XMM;
+        emitByte(0xF3);
+        prefix(src, dst);
+        emitByte(0x0F);
+        emitByte(0x6F);
+        emitOperandHelper(dst, src);
+    }
+
+    public final void movdqu(AMD64Address dst, Register src) {
+        assert src.getRegisterCategory() == AMD64.XMM;
+        emitByte(0xF3);
+        prefix(dst, src);
+        emitByte(0x0F);
+        emitByte(0x7F);
+        emitOperandHelper(src, dst);
+    }
+
+    public final void addps(Register dst, Register src) {
+        packedOp(0, 0x58, dst, src);
+    }
+
+    public final void addpd(Register dst, Register src) {
+        packedOp(0x66, 0x58, dst, src);
+    }
+
+    public final void mulps(Register dst, Register src) {
+        packedOp(0, 0x59, dst, src);
+    }
+
+    public final void mulpd(Register dst, Register src) {
+        packedOp(0x66, 0x59, dst, src);
+    }
+
+    public final void paddd(Register dst, Register src) {
+        packedOp(0x66, 0xFE, dst, src);
+    }
+
+    public final void paddq(Register dst, Register src) {
+        packedOp(0x66, 0xD4, dst, src);
+    }
+
+    public final void pand(Register dst, Register src) {
+        packedOp(0x66, 0xDB, dst, src);
+    }
+
+    public final void por(Register dst, Register src) {
+        packedOp(0x66, 0xEB, dst, src);
+    }
+
+    public final void pxor(Register dst, Register src) {
+        packedOp(0x66, 0xEF, dst, src);
+    }
+
+    /**
+     * Packed signed multiply of doublewords (SSE4.1).
+     */
+    public final void pmulld(Register dst, Register src) {
+        packedOp38(0x40, dst, src);
+    }
+
+    /**
+     * Packed signed minimum of doublewords (SSE4.1).
+     */
+    public final void pminsd(Register dst, Register src) {
+        packedOp38(0x39, dst, src);
+    }
+
+    /**
+     * Packed signed maximum of doublewords (SSE4.1).
+     */
+    public final void pmaxsd(Register dst, Register src) {
+        packedOp38(0x3D, dst, src);
+    }
+
+    /**
+     * Sets ZF if the bitwise and of both operands is zero (SSE4.1).
+     */
+    public final void ptest(Register dst, Register src) {
+        packedOp38(0x17, dst, src);
+    }
+
+    public final void pcmpeqw(Register dst, Register src) {
+        packedOp(0x66, 0x75, dst, src);
+    }
+
+    public final void pshufd(Register dst, Register src, int imm8) {
+        packedOp(0x66, 0x70, dst, src);
+        emitByte(imm8);
+    }
+
+    public final void pshuflw(Register dst, Register src, int imm8) {
+        packedOp(0xF2, 0x70, dst, src);
+        emitByte(imm8);
+    }
+
+    public final void pmovmskb(Register dst, Register src) {
+        assert dst.getRegisterCategory() == AMD64.CPU && src.getRegisterCategory() == AMD64.XMM;
+        emitByte(0x66);
+        int encode = prefixAndEncode(dst.encoding, src.encoding);
+        emitByte(0x0F);
+        emitByte(0xD7);
+        emitByte(0xC0 | encode);
+    }
+
+    private void packedOp(int sizePrefix, int op, Register dst, Register src) {
+        assert dst.getRegisterCategory() == AMD64.XMM && src.getRegisterCategory() == AMD64.XMM;
+        if (sizePrefix != 0) {
+            emitByte(sizePrefix);
+        }
+        int encode = prefixAndEncode(dst.encoding, src.encoding);
+        emitByte(0x0F);
+        emitByte(op);
+        emitByte(0xC0 | encode);
+    }
+
+    private void packedOp38(int op, Register dst, Register src) {
+        assert dst.getRegisterCategory() == AMD64.XMM && src.getRegisterCategory() == AMD64.XMM;
+        emitByte(0x66);
+        int encode = prefixAndEncode(dst.encoding, src.encoding);
+        emitByte(0x0F);
+        emitByte(0x38);
+        emitByte(op);
+        emitByte(0xC0 | encode);
+    }
+
+    /**
+     * Copies {@code rcx} bytes from {@code [rsi]} to {@code [rdi]}, advancing both pointers.
+     */
+    public final void repMovsb() {
+        emitByte(0xF3);
+        emitByte(0xA4);
+    }
+
+    /**
+     * Stores {@code al} into {@code rcx} bytes starting at {@code [rdi]}, advancing the pointer.
+     */
+    public final void repStosb() {
+        emitByte(0xF3);
+        emitByte(0xAA);
+    }
+
+    /**
+     * Stores {@code rax} into {@code rcx} quadwords starting at {@code [rdi]}, advancing the
+     * pointer.
+     */
+    public final void repStosq() {
+        emitByte(0xF3);
+        emitByte(Prefix.REXW);
+        emitByte(0xAB);
+    }
+
+    private static final int VEX_PP_66 = 1;
+    private static final int VEX_PP_F3 = 2;
+    private static final int VEX_M_0F = 1;
+    private static final int VEX_M_0F3A = 3;
+
+    /**
+     * Emits a three byte VEX prefix with {@code VEX.W = 0}.
+     *
+     * @param rexR extends the ModRM reg field
+     * @param rexX extends the SIB index field
+     * @param rexB extends the ModRM rm field or the SIB base field
+     * @param nds the encoding of the additional source register, or 0 if there is none
+     * @param l256 specifies if the instruction operates on 256 bits
+     */
+    private void vexPrefix(boolean rexR, boolean rexX, boolean rexB, int nds, boolean l256, int pp, int mmmmm) {
+        emitByte(0xC4);
+        emitByte((rexR ? 0 : 0x80) | (rexX ? 0 : 0x40) | (rexB ? 0 : 0x20) | mmmmm);
+        emitByte(((~nds & 0xF) << 3) | (l256 ? 0x04 : 0) | pp);
+    }
+
+    private void vexPrefix(AMD64Address adr, Register reg, boolean l256, int pp, int mmmmm) {
+        vexPrefix(reg.encoding >= 8, needsRex(adr.getIndex()), needsRex(adr.getBase()), 0, l256, pp, mmmmm);
+    }
+
+    /**
+     * Loads 32 bytes from a possibly unaligned address into the YMM register overlaying
+     * {@code dst} (AVX).
+     */
+    public final void vmovdqu(Register dst, AMD64Address src) {
+        assert dst.getRegisterCategory() == AMD64.XMM;
+        vexPrefix(src, dst, true, VEX_PP_F3, VEX_M_0F);
+        emitByte(0x6F);
+        emitOperandHelper(dst, src);
+    }
+
+    /**
+     * Stores the YMM register overlaying {@code src} to a possibly unaligned address (AVX).
+     */
+    public final void vmovdqu(AMD64Address dst, Register src) {
+        assert src.getRegisterCategory() == AMD64.XMM;
+        vexPrefix(dst, src, true, VEX_PP_F3, VEX_M_0F);
+        emitByte(0x7F);
+        emitOperandHelper(src, dst);
+    }
+
+    /**
+     * Copies the YMM register overlaying {@code nds} to the one overlaying {@code dst} and
+     * replaces the 128-bit half selected by {@code imm8} with {@code src} (AVX).
+     */
+    public final void vinsertf128(Register dst, Register nds, Register src, int imm8) {
+        assert dst.getRegisterCategory() == AMD64.XMM && nds.getRegisterCategory() == AMD64.XMM && src.getRegisterCategory() == AMD64.XMM;
+        vexPrefix(dst.encoding >= 8, false, src.encoding >= 8, nds.encoding, true, VEX_PP_66, VEX_M_0F3A);
+        emitByte(0x18);
+        emitByte(0xC0 | encode(dst) << 3 | encode(src));
+        emitByte(imm8);
+    }
+
+    /**
+     * Zeroes the upper halves of all YMM registers, which avoids the penalty of a transition from
+     * AVX to legacy SSE code (AVX).
+     */
+    public final void vzeroupper() {
+        emitByte(0xC5);
+        emitByte(0xF8);
+        emitByte(0x77);
+    }
+
     protected final void decl(Register dst) {
         // Use two-byte form (one-byte form is a REX prefix in 64-bit mode)
         int encode = prefixAndEncode(dst.encoding);
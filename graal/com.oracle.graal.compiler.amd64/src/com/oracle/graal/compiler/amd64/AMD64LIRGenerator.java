@@ -28,6 +28,7 @@ import static com.oracle.graal.lir.amd64.AMD64Arithmetic.*;
 import static com.oracle.graal.lir.amd64.AMD64BitManipulationOp.IntrinsicOpcode.*;
 import static com.oracle.graal.lir.amd64.AMD64Compare.*;
 import static com.oracle.graal.lir.amd64.AMD64MathIntrinsicOp.IntrinsicOpcode.*;
+import static com.oracle.graal.phases.GraalOptions.*;
 
 import com.oracle.graal.amd64.*;
 import com.oracle.graal.api.code.*;
@@ -58,6 +59,7 @@ import com.oracle.graal.lir.amd64.AMD64ControlFlow.FloatCondMoveOp;
 import com.oracle.graal.lir.amd64.AMD64ControlFlow.ReturnOp;
 import com.oracle.graal.lir.amd64.AMD64ControlFlow.SequentialSwitchOp;
 import com.oracle.graal.lir.amd64.AMD64ControlFlow.SwitchRangesOp;
+import com.oracle.graal.lir.amd64.AMD64ControlFlow.SwitchTreeOp;
 import com.oracle.graal.lir.amd64.AMD64ControlFlow.TableSwitchOp;
 import com.oracle.graal.lir.amd64.AMD64Move.LeaOp;
 import com.oracle.graal.lir.amd64.AMD64Move.MembarOp;
@@ -66,6 +68,7 @@ import com.oracle.graal.lir.amd64.AMD64Move.MoveToRegOp;
 import com.oracle.graal.lir.amd64.AMD64Move.StackLeaOp;
 import com.oracle.graal.nodes.*;
 import com.oracle.graal.nodes.calc.*;
+import com.oracle.graal.nodes.extended.*;
 import com.oracle.graal.phases.util.*;
 
 /**
@@ -828,6 +831,41 @@ public abstract class AMD64LIRGenerator extends LIRGenerator {
         append(new AMD64ByteSwapOp(result, input));
     }
 
+    @Override
+    public void emitArrayMismatch(Variable result, Kind kind, Value array1, Value array2, Value length) {
+        // comparing 16 bytes at a time requires ptest, which is only available with SSE4.1
+        boolean useVectors = ((AMD64) target().arch).getSupportedSSEVersion() >= 4;
+        Value vector1 = useVectors ? newVariable(Kind.Double) : Value.ILLEGAL;
+        Value vector2 = useVectors ? newVariable(Kind.Double) : Value.ILLEGAL;
+        append(new AMD64ArrayMismatchOp(kind, useVectors, result, load(array1), load(array2), load(length), newVariable(Kind.Long), newVariable(Kind.Long), newVariable(Kind.Long), vector1,
+                        vector2));
+    }
+
+    @Override
+    public void emitCharArrayIndexOf(Variable result, Value array, Value ch, Value fromIndex, Value toIndex) {
+        append(new AMD64CharArrayIndexOfOp(result, load(array), load(ch), load(fromIndex), load(toIndex), newVariable(Kind.Int), newVariable(Kind.Double), newVariable(Kind.Double)));
+    }
+
+    @Override
+    public void emitMemoryCopy(Value src, Value dest, Value length, boolean conjoint, boolean aligned) {
+        boolean useAVX = ((AMD64) target().arch).getSupportedAVXVersion() > 0;
+        append(new AMD64MemoryCopyOp(conjoint, aligned, useAVX, load(src), load(dest), load(length), newVariable(Kind.Long), newVariable(Kind.Double)));
+    }
+
+    @Override
+    public void emitMemoryFill(Value dest, Value length, Value pattern) {
+        boolean useAVX = ((AMD64) target().arch).getSupportedAVXVersion() > 0;
+        append(new AMD64MemoryFillOp(useAVX, load(dest), load(length), load(pattern), newVariable(Kind.Long), newVariable(Kind.Double)));
+    }
+
+    @Override
+    public Value emitVectorArrayOp(VectorArrayOpNode.Op op, Kind kind, Value destination, Value x, Value y, Value start, Value end) {
+        Variable result = newVariable(Kind.Int);
+        Value yValue = y == null ? Value.ILLEGAL : load(y);
+        append(new AMD64VectorArrayOp(op, kind, result, load(destination), load(x), yValue, load(start), load(end), newVariable(Kind.Int), newVariable(Kind.Double), newVariable(Kind.Double)));
+        return result;
+    }
+
     @Override
     protected void emitReturn(Value input) {
         append(new ReturnOp(input));
@@ -850,6 +888,17 @@ public abstract class AMD64LIRGenerator extends LIRGenerator {
         append(new SwitchRangesOp(lowKeys, highKeys, targets, defaultTarget, key));
     }
 
+    @Override
+    protected void emitSwitchTree(SwitchNode x, int switchRangeCount, Variable key, LabelRef defaultTarget) {
+        int[] lowKeys = new int[switchRangeCount];
+        int[] highKeys = new int[switchRangeCount];
+        LabelRef[] targets = new LabelRef[switchRangeCount];
+        double[] probabilities = new double[switchRangeCount];
+        collectSwitchRanges(x, lowKeys, highKeys, targets, probabilities);
+        append(new SwitchTreeOp(lowKeys, highKeys, targets, probabilities, defaultTarget, MinimumJumpTableSize.getValue(), MinTableSwitchDensity.getValue(), key, newVariable(Kind.Int),
+                        newVariable(target.wordKind)));
+    }
+
     @Override
     protected void emitTableSwitch(int lowKey, LabelRef defaultTarget, LabelRef[] targets, Value key) {
         // Making a copy of the switch value is necessary because jump table destroys the input
@@ -58,6 +58,7 @@ import com.oracle.graal.lir.hsail.HSAILMove.LoadCompressedPointer;
 import com.oracle.graal.lir.hsail.HSAILMove.StoreCompressedPointer;
 import com.oracle.graal.nodes.*;
 import com.oracle.graal.nodes.calc.*;
+import com.oracle.graal.nodes.extended.VectorArrayOpNode;
 import com.oracle.graal.nodes.java.*;
 import com.oracle.graal.hotspot.meta.*;
 
@@ -669,6 +670,31 @@ public class HSAILLIRGenerator extends LIRGenerator {
         throw new InternalError("NYI");
     }
 
+    @Override
+    public void emitArrayMismatch(Variable result, Kind kind, Value array1, Value array2, Value length) {
+        throw new InternalError("NYI");
+    }
+
+    @Override
+    public void emitCharArrayIndexOf(Variable result, Value array, Value ch, Value fromIndex, Value toIndex) {
+        throw new InternalError("NYI");
+    }
+
+    @Override
+    public void emitMemoryCopy(Value src, Value dest, Value length, boolean conjoint, boolean aligned) {
+        throw new InternalError("NYI");
+    }
+
+    @Override
+    public void emitMemoryFill(Value dest, Value length, Value pattern) {
+        throw new InternalError("NYI");
+    }
+
+    @Override
+    public Value emitVectorArrayOp(VectorArrayOpNode.Op op, Kind kind, Value destination, Value x, Value y, Value start, Value end) {
+        throw new InternalError("NYI");
+    }
+
     @Override
     protected void emitReturn(Value input) {
         append(new ReturnOp(input));
@@ -62,6 +62,7 @@ import com.oracle.graal.lir.ptx.PTXMove.StoreOp;
 import com.oracle.graal.nodes.*;
 import com.oracle.graal.nodes.calc.Condition;
 import com.oracle.graal.nodes.calc.ConvertNode;
+import com.oracle.graal.nodes.extended.VectorArrayOpNode;
 import com.oracle.graal.nodes.java.*;
 
 /**
@@ -700,6 +701,31 @@ public class PTXLIRGenerator extends LIRGenerator {
         throw new InternalError("NYI");
     }
 
+    @Override
+    public void emitArrayMismatch(Variable result, Kind kind, Value array1, Value array2, Value length) {
+        throw new InternalError("NYI");
+    }
+
+    @Override
+    public void emitCharArrayIndexOf(Variable result, Value array, Value ch, Value fromIndex, Value toIndex) {
+        throw new InternalError("NYI");
+    }
+
+    @Override
+    public void emitMemoryCopy(Value src, Value dest, Value length, boolean conjoint, boolean aligned) {
+        throw new InternalError("NYI");
+    }
+
+    @Override
+    public void emitMemoryFill(Value dest, Value length, Value pattern) {
+        throw new InternalError("NYI");
+    }
+
+    @Override
+    public Value emitVectorArrayOp(VectorArrayOpNode.Op op, Kind kind, Value destination, Value x, Value y, Value start, Value end) {
+        throw new InternalError("NYI");
+    }
+
     @Override
     protected void emitReturn(Value input) {
         append(new ReturnOp(input));
@@ -62,6 +62,7 @@ import com.oracle.graal.lir.sparc.SPARCMove.StackLoadAddressOp;
 import com.oracle.graal.nodes.*;
 import com.oracle.graal.nodes.calc.*;
 import com.oracle.graal.nodes.calc.ConvertNode.Op;
+import com.oracle.graal.nodes.extended.VectorArrayOpNode;
 import com.oracle.graal.nodes.java.*;
 
 /**
@@ -463,6 +464,31 @@ public abstract class SPARCLIRGenerator extends LIRGenerator {
         append(new SPARCByteSwapOp(result, input));
     }
 
+    @Override
+    public void emitArrayMismatch(Variable result, Kind kind, Value array1, Value array2, Value length) {
+        throw new InternalError("NYI");
+    }
+
+    @Override
+    public void emitCharArrayIndexOf(Variable result, Value array, Value ch, Value fromIndex, Value toIndex) {
+        throw new InternalError("NYI");
+    }
+
+    @Override
+    public void emitMemoryCopy(Value src, Value dest, Value length, boolean conjoint, boolean aligned) {
+        throw new InternalError("NYI");
+    }
+
+    @Override
+    public void emitMemoryFill(Value dest, Value length, Value pattern) {
+        throw new InternalError("NYI");
+    }
+
+    @Override
+    public Value emitVectorArrayOp(VectorArrayOpNode.Op op, Kind kind, Value destination, Value x, Value y, Value start, Value end) {
+        throw new InternalError("NYI");
+    }
+
     @Override
     public Value emitNegate(Value input) {
         Variable result = newVariable(input.getKind());
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+import com.oracle.graal.phases.util.*;
+
+/**
+ * Checks {@link ChunkedBitSet} against {@link BitSet} and that untouched chunks stay unallocated.
+ */
+public class ChunkedBitSetTest {
+
+    private static final int SIZE = 10 * ChunkedBitSet.CHUNK_BITS + 17;
+
+    private static void assertSame(BitSet expected, ChunkedBitSet actual) {
+        assertEquals(expected.cardinality(), actual.cardinality());
+        assertEquals(expected.isEmpty(), actual.isEmpty());
+        assertEquals(expected.toString(), actual.toString());
+        for (int i = 0; i <= SIZE; i++) {
+            int e = expected.nextSetBit(i);
+            assertEquals(e < SIZE ? e : -1, actual.nextSetBit(i));
+        }
+    }
+
+    @Test
+    public void testSparse() {
+        ChunkedBitSet set = new ChunkedBitSet(SIZE);
+        assertTrue(set.isEmpty());
+        assertEquals(0, set.allocatedChunks());
+        set.set(3);
+        set.set(SIZE - 1);
+        assertEquals(2, set.allocatedChunks());
+        assertTrue(set.get(3));
+        assertFalse(set.get(4));
+        set.clear(4 * ChunkedBitSet.CHUNK_BITS);
+        assertEquals(2, set.allocatedChunks());
+        assertEquals(SIZE - 1, set.nextSetBit(4));
+    }
+
+    @Test
+    public void testRandom() {
+        Random random = new Random(42);
+        BitSet a = new BitSet();
+        BitSet b = new BitSet();
+        ChunkedBitSet ca = new ChunkedBitSet(SIZE);
+        ChunkedBitSet cb = new ChunkedBitSet(SIZE);
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 40; i++) {
+                int index = random.nextInt(SIZE);
+                if (random.nextBoolean()) {
+                    a.set(index);
+                    ca.set(index);
+                } else {
+                    b.set(index);
+                    cb.set(index);
+                }
+            }
+            switch (random.nextInt(3)) {
+                case 0:
+                    a.or(b);
+                    ca.or(cb);
+                    break;
+                case 1:
+                    a.andNot(b);
+                    ca.andNot(cb);
+                    break;
+                default:
+                    b.clear();
+                    cb.clear();
+                    break;
+            }
+            assertSame(a, ca);
+            assertSame(b, cb);
+            ChunkedBitSet copy = new ChunkedBitSet(ca);
+            assertEquals(ca, copy);
+            assertEquals(ca.hashCode(), copy.hashCode());
+        }
+    }
+}
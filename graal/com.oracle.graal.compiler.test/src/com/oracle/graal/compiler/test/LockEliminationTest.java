@@ -86,6 +86,69 @@ public class LockEliminationTest extends GraalCompilerTest {
         assertEquals(1, graph.getNodes().filter(MonitorExitNode.class).count());
     }
 
+    public static void testCoarseningSnippet(A x, A y) {
+        int value1;
+        synchronized (x) {
+            value1 = x.value;
+        }
+        int value2 = y.value;
+        synchronized (x) {
+            field1 = value1 + value2;
+        }
+    }
+
+    @Test
+    public void testCoarsening() {
+        test("testCoarseningSnippet", new A(), new A());
+
+        StructuredGraph graph = getGraph("testCoarseningSnippet");
+        new LockCoarseningPhase().apply(graph);
+        assertEquals(1, graph.getNodes().filter(MonitorEnterNode.class).count());
+        assertEquals(1, graph.getNodes().filter(MonitorExitNode.class).count());
+    }
+
+    public static void testNoCoarseningSnippet(A x, A y) {
+        int value1;
+        synchronized (x) {
+            value1 = x.value;
+        }
+        field2 = y.value;
+        synchronized (x) {
+            field1 = value1;
+        }
+    }
+
+    @Test
+    public void testNoCoarsening() {
+        test("testNoCoarseningSnippet", new A(), new A());
+
+        StructuredGraph graph = getGraph("testNoCoarseningSnippet");
+        new LockCoarseningPhase().apply(graph);
+        assertEquals(2, graph.getNodes().filter(MonitorEnterNode.class).count());
+        assertEquals(2, graph.getNodes().filter(MonitorExitNode.class).count());
+    }
+
+    public static void testCoarseningOtherLockSnippet(A x, A y) {
+        int value1;
+        synchronized (x) {
+            value1 = x.value;
+        }
+        int value2 = y.getValue();
+        synchronized (x) {
+            field1 = value1 + value2;
+        }
+    }
+
+    @Test
+    public void testCoarseningOtherLock() {
+        test("testCoarseningOtherLockSnippet", new A(), new A());
+
+        StructuredGraph graph = getGraph("testCoarseningOtherLockSnippet");
+        new LockCoarseningPhase().apply(graph);
+        assertEquals(3, graph.getNodes().filter(MonitorEnterNode.class).count());
+        assertEquals(3, graph.getNodes().filter(MonitorExitNode.class).count());
+    }
+
     private StructuredGraph getGraph(String snippet) {
         Method method = getMethod(snippet);
         StructuredGraph graph = parse(method);
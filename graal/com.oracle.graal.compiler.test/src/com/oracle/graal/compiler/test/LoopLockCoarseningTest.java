@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test;
+
+import static com.oracle.graal.phases.GraalOptions.*;
+
+import java.lang.reflect.*;
+
+import org.junit.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.loop.*;
+import com.oracle.graal.loop.phases.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.java.*;
+import com.oracle.graal.phases.common.*;
+
+/**
+ * Tests {@link LoopLockCoarseningPhase} followed by {@link LockCoarseningPhase} on a counted loop
+ * that locks a loop invariant object in every iteration. The main loop of the unrolled loop must
+ * hold the lock once per chunk of iterations and the remainder loop must execute the remaining
+ * iterations correctly.
+ */
+public class LoopLockCoarseningTest extends GraalCompilerTest {
+
+    private static final int CHUNK = 4;
+
+    static class A {
+
+        int value;
+    }
+
+    @Override
+    protected StructuredGraph parse(Method m) {
+        StructuredGraph graph = super.parse(m);
+        new CanonicalizerPhase.Instance(runtime(), new Assumptions(false), true).apply(graph);
+        LoopBeginNode remainderBegin = graph.getNodes(LoopBeginNode.class).first();
+
+        // the snippet is not run often enough to be profiled, so mark its loop as hot
+        LoopsData data = new LoopsData(graph);
+        data.detectedCountedLoops();
+        AbstractBeginNode body = data.loop(remainderBegin).counted().getBody();
+        ((IfNode) body.predecessor()).setProbability(body, 0.99);
+
+        int chunk = LockCoarseningLoopChunk.getValue();
+        try {
+            LockCoarseningLoopChunk.setValue(CHUNK);
+            new LoopLockCoarseningPhase().apply(graph);
+        } finally {
+            LockCoarseningLoopChunk.setValue(chunk);
+        }
+        new LockCoarseningPhase().apply(graph);
+
+        Assert.assertEquals(2, graph.getNodes(LoopBeginNode.class).count());
+        LoopBeginNode mainBegin = null;
+        for (LoopBeginNode loopBegin : graph.getNodes(LoopBeginNode.class)) {
+            if (loopBegin != remainderBegin) {
+                mainBegin = loopBegin;
+            }
+        }
+        data = new LoopsData(graph);
+        LoopEx mainLoop = data.loop(mainBegin);
+        LoopEx remainderLoop = data.loop(remainderBegin);
+
+        // the main loop runs a chunk of iterations while holding the lock once
+        Assert.assertEquals(CHUNK, mainLoop.whole().nodes().filter(StoreFieldNode.class).count());
+        Assert.assertEquals(1, mainLoop.whole().nodes().filter(MonitorEnterNode.class).count());
+        Assert.assertEquals(1, mainLoop.whole().nodes().filter(MonitorExitNode.class).count());
+
+        // the remainder loop still locks in every iteration
+        Assert.assertEquals(1, remainderLoop.whole().nodes().filter(StoreFieldNode.class).count());
+        Assert.assertEquals(1, remainderLoop.whole().nodes().filter(MonitorEnterNode.class).count());
+        Assert.assertEquals(1, remainderLoop.whole().nodes().filter(MonitorExitNode.class).count());
+        return graph;
+    }
+
+    public static int sumSnippet(A x, int[] a) {
+        int n = a.length;
+        x.value = 0;
+        for (int i = 0; i < n; i++) {
+            synchronized (x) {
+                x.value += a[i];
+            }
+        }
+        return x.value;
+    }
+
+    private static int[] intArray(int length) {
+        int[] a = new int[length];
+        for (int i = 0; i < length; i++) {
+            a[i] = i * 31 + 7;
+        }
+        return a;
+    }
+
+    @Test
+    public void testSum() {
+        // lengths that are not a multiple of the chunk leave iterations to the remainder loop
+        for (int length = 0; length < 12; length++) {
+            test("sumSnippet", new A(), intArray(length));
+        }
+        test("sumSnippet", new A(), intArray(1001));
+    }
+}
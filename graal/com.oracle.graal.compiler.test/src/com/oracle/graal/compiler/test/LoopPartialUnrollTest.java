@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test;
+
+import java.lang.reflect.*;
+
+import org.junit.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.loop.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.phases.common.*;
+
+/**
+ * Tests {@link LoopTransformations#unroll(LoopEx, int)} by unrolling all suitable loops of the
+ * snippets before comparing their results with the interpreter.
+ */
+public class LoopPartialUnrollTest extends GraalCompilerTest {
+
+    private static final int FACTOR = 4;
+
+    @Override
+    protected StructuredGraph parse(Method m) {
+        StructuredGraph graph = super.parse(m);
+        new CanonicalizerPhase.Instance(runtime(), new Assumptions(false), true).apply(graph);
+        int loops = graph.getNodes(LoopBeginNode.class).count();
+        for (LoopBeginNode loopBegin : graph.getNodes(LoopBeginNode.class).snapshot()) {
+            LoopsData data = new LoopsData(graph);
+            data.detectedCountedLoops();
+            LoopEx loop = data.loop(loopBegin);
+            if (LoopPolicies.canPartialUnroll(loop)) {
+                LoopTransformations.unroll(loop, FACTOR);
+            }
+        }
+        Assert.assertTrue(graph.getNodes(LoopBeginNode.class).count() > loops);
+        return graph;
+    }
+
+    public static int sumSnippet(int[] a) {
+        int n = a.length;
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += a[i];
+        }
+        return sum;
+    }
+
+    public static double sumDoubleSnippet(double[] a) {
+        int n = a.length;
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += a[i] * i;
+        }
+        return sum;
+    }
+
+    public static int strideSnippet(int[] a) {
+        int n = a.length;
+        int sum = 0;
+        for (int i = 1; i < n; i += 2) {
+            sum += a[i] - a[i - 1];
+        }
+        return sum;
+    }
+
+    public static int limitSnippet(int start, int limit) {
+        int count = 0;
+        for (int i = start; i < limit; i++) {
+            count++;
+        }
+        return count;
+    }
+
+    private static int[] intArray(int length) {
+        int[] a = new int[length];
+        for (int i = 0; i < length; i++) {
+            a[i] = i * 31 + 7;
+        }
+        return a;
+    }
+
+    private static double[] doubleArray(int length) {
+        double[] a = new double[length];
+        for (int i = 0; i < length; i++) {
+            a[i] = i * 0.5 + 1;
+        }
+        return a;
+    }
+
+    @Test
+    public void testSum() {
+        for (int length = 0; length < 12; length++) {
+            test("sumSnippet", intArray(length));
+        }
+        test("sumSnippet", intArray(1001));
+    }
+
+    @Test
+    public void testSumDouble() {
+        for (int length = 0; length < 12; length++) {
+            test("sumDoubleSnippet", doubleArray(length));
+        }
+        test("sumDoubleSnippet", doubleArray(1003));
+    }
+
+    @Test
+    public void testStride() {
+        for (int length = 0; length < 20; length++) {
+            test("strideSnippet", intArray(length));
+        }
+    }
+
+    @Test
+    public void testLimit() {
+        test("limitSnippet", 0, 10);
+        test("limitSnippet", 10, 0);
+        test("limitSnippet", Integer.MIN_VALUE, Integer.MIN_VALUE + 2);
+        test("limitSnippet", Integer.MIN_VALUE, Integer.MIN_VALUE + 5);
+        test("limitSnippet", Integer.MAX_VALUE - 7, Integer.MAX_VALUE);
+    }
+}
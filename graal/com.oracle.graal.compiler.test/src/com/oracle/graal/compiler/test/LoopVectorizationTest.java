@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test;
+
+import java.lang.reflect.*;
+
+import org.junit.*;
+
+import com.oracle.graal.amd64.*;
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.loop.phases.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.extended.*;
+import com.oracle.graal.phases.common.*;
+
+/**
+ * Tests {@link LoopVectorizationPhase} by vectorizing the loops of the snippets before comparing
+ * their results with the interpreter. The array lengths are chosen to exercise the scalar post-loop
+ * with all possible numbers of remaining elements.
+ */
+public class LoopVectorizationTest extends GraalCompilerTest {
+
+    /**
+     * Packed int multiplication, minimum and maximum require SSE4.1.
+     */
+    private boolean supportsPackedIntMulMinMax() {
+        Architecture arch = runtime().getTarget().arch;
+        return arch instanceof AMD64 && ((AMD64) arch).getSupportedSSEVersion() >= 4;
+    }
+
+    @Override
+    protected StructuredGraph parse(Method m) {
+        StructuredGraph graph = super.parse(m);
+        new CanonicalizerPhase.Instance(runtime(), new Assumptions(false), true).apply(graph);
+        new LoopVectorizationPhase(supportsPackedIntMulMinMax()).apply(graph);
+        Assert.assertTrue(graph.getNodes().filter(VectorArrayOpNode.class).isNotEmpty());
+        return graph;
+    }
+
+    public static int[] addIntSnippet(int[] a, int[] b) {
+        int[] c = new int[a.length];
+        for (int i = 0; i < c.length; i++) {
+            c[i] = a[i] + b[i];
+        }
+        return c;
+    }
+
+    public static int[] mulIntSnippet(int[] a, int[] b) {
+        int[] c = new int[a.length];
+        for (int i = 0; i < c.length; i++) {
+            c[i] = a[i] * b[i];
+        }
+        return c;
+    }
+
+    public static int[] xorIntSnippet(int[] a, int[] b) {
+        int[] c = new int[a.length];
+        for (int i = 0; i < c.length; i++) {
+            c[i] = a[i] ^ b[i];
+        }
+        return c;
+    }
+
+    public static int[] minIntSnippet(int[] a, int[] b) {
+        int[] c = new int[a.length];
+        for (int i = 0; i < c.length; i++) {
+            int x = a[i];
+            int y = b[i];
+            c[i] = x < y ? x : y;
+        }
+        return c;
+    }
+
+    public static int[] maxIntSnippet(int[] a, int[] b) {
+        int[] c = new int[a.length];
+        for (int i = 0; i < c.length; i++) {
+            int x = a[i];
+            int y = b[i];
+            c[i] = x > y ? x : y;
+        }
+        return c;
+    }
+
+    public static long[] andLongSnippet(long[] a, long[] b) {
+        long[] c = new long[a.length];
+        for (int i = 0; i < c.length; i++) {
+            c[i] = a[i] & b[i];
+        }
+        return c;
+    }
+
+    public static float[] addFloatSnippet(float[] a, float[] b) {
+        float[] c = new float[a.length];
+        for (int i = 0; i < c.length; i++) {
+            c[i] = a[i] + b[i];
+        }
+        return c;
+    }
+
+    public static double[] mulDoubleSnippet(double[] a, double[] b) {
+        double[] c = new double[a.length];
+        for (int i = 0; i < c.length; i++) {
+            c[i] = a[i] * b[i];
+        }
+        return c;
+    }
+
+    public static int[] copySnippet(int[] a, int start, int end) {
+        int[] c = new int[a.length];
+        for (int i = start; i < end; i++) {
+            c[i] = a[i];
+        }
+        return c;
+    }
+
+    public static int[] inPlaceSnippet(int[] a, int[] b, int n) {
+        int[] c = new int[a.length];
+        System.arraycopy(a, 0, c, 0, a.length);
+        for (int i = 0; i < n; i++) {
+            c[i] = c[i] | b[i];
+        }
+        return c;
+    }
+
+    public static void unusedLoadSnippet(int[] dst, int[] a, int[] b, int[] z) {
+        for (int i = 0; i < dst.length; i++) {
+            @SuppressWarnings("unused")
+            int t = z[i];
+            dst[i] = a[i] + b[i];
+        }
+    }
+
+    private static final int[] LENGTHS = {0, 1, 3, 4, 5, 7, 8, 9, 15, 16, 17, 101};
+
+    private static int[] intArray(int length, int seed) {
+        int[] a = new int[length];
+        for (int i = 0; i < length; i++) {
+            a[i] = (i * 31 + seed) * (i % 3 == 0 ? -1 : 1);
+        }
+        return a;
+    }
+
+    private static long[] longArray(int length, int seed) {
+        long[] a = new long[length];
+        for (int i = 0; i < length; i++) {
+            a[i] = (i * 0x123456789L + seed) ^ (i << 7);
+        }
+        return a;
+    }
+
+    private static float[] floatArray(int length, int seed) {
+        float[] a = new float[length];
+        for (int i = 0; i < length; i++) {
+            a[i] = i * 0.25f + seed;
+        }
+        return a;
+    }
+
+    private static double[] doubleArray(int length, int seed) {
+        double[] a = new double[length];
+        for (int i = 0; i < length; i++) {
+            a[i] = i * 0.5 - seed;
+        }
+        return a;
+    }
+
+    private void testInt(String name) {
+        for (int length : LENGTHS) {
+            test(name, intArray(length, 7), intArray(length, 13));
+        }
+    }
+
+    @Test
+    public void testAddInt() {
+        testInt("addIntSnippet");
+    }
+
+    @Test
+    public void testMulInt() {
+        Assume.assumeTrue(supportsPackedIntMulMinMax());
+        testInt("mulIntSnippet");
+    }
+
+    @Test
+    public void testXorInt() {
+        testInt("xorIntSnippet");
+    }
+
+    @Test
+    public void testMinInt() {
+        Assume.assumeTrue(supportsPackedIntMulMinMax());
+        testInt("minIntSnippet");
+    }
+
+    @Test
+    public void testMaxInt() {
+        Assume.assumeTrue(supportsPackedIntMulMinMax());
+        testInt("maxIntSnippet");
+    }
+
+    @Test
+    public void testAndLong() {
+        for (int length : LENGTHS) {
+            test("andLongSnippet", longArray(length, 7), longArray(length, 13));
+        }
+    }
+
+    @Test
+    public void testAddFloat() {
+        for (int length : LENGTHS) {
+            test("addFloatSnippet", floatArray(length, 7), floatArray(length, 13));
+        }
+    }
+
+    @Test
+    public void testMulDouble() {
+        for (int length : LENGTHS) {
+            test("mulDoubleSnippet", doubleArray(length, 7), doubleArray(length, 13));
+        }
+    }
+
+    @Test
+    public void testCopy() {
+        int[] a = intArray(40, 3);
+        test("copySnippet", a, 0, 40);
+        test("copySnippet", a, 3, 37);
+        test("copySnippet", a, 20, 10);
+        test("copySnippet", a, -1, 20);
+        test("copySnippet", a, 0, 41);
+        test("copySnippet", a, 10, 100);
+    }
+
+    @Test
+    public void testInPlace() {
+        test("inPlaceSnippet", intArray(40, 3), intArray(40, 5), 40);
+        test("inPlaceSnippet", intArray(40, 3), intArray(20, 5), 40);
+        test("inPlaceSnippet", intArray(40, 3), intArray(40, 5), 0);
+        test("inPlaceSnippet", intArray(40, 3), null, 0);
+        test("inPlaceSnippet", intArray(40, 3), null, 10);
+    }
+
+    /**
+     * The vector operation must not store elements in front of which the scalar loop throws an
+     * exception for an array whose elements are loaded but not used.
+     */
+    @Test
+    public void testUnusedLoad() {
+        Method method = getMethod("unusedLoadSnippet");
+        int[] a = intArray(40, 3);
+        int[] b = intArray(40, 5);
+        for (int[] z : new int[][]{intArray(40, 7), intArray(10, 7), intArray(0, 7), null}) {
+            int[] expectedDst = new int[a.length];
+            int[] actualDst = new int[a.length];
+            Result expected = executeExpected(method, null, expectedDst, a, b, z);
+            Result actual = executeActual(method, null, actualDst, a, b, z);
+            assertEquals(expected, actual);
+            Assert.assertArrayEquals(expectedDst, actualDst);
+        }
+    }
+}
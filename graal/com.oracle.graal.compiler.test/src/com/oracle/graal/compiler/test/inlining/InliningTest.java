@@ -22,6 +22,7 @@
  */
 package com.oracle.graal.compiler.test.inlining;
 
+import static com.oracle.graal.phases.GraalOptions.*;
 import static org.junit.Assert.*;
 
 import java.lang.reflect.*;
@@ -34,6 +35,7 @@ import com.oracle.graal.compiler.test.*;
 import com.oracle.graal.debug.*;
 import com.oracle.graal.graph.*;
 import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.java.*;
 import com.oracle.graal.phases.*;
 import com.oracle.graal.phases.common.*;
 import com.oracle.graal.phases.tiers.*;
@@ -87,6 +89,88 @@ public class InliningTest extends GraalCompilerTest {
         assertManyMethodInfopoints(assertInlined(getGraph("invokeMethodOnFieldSnippet", true)));
     }
 
+    @Test
+    public void testGlobalInlining() {
+        boolean originalSetting = GlobalInlining.getValue();
+        GlobalInlining.setValue(true);
+        try {
+            assertInlined(getGraph("invokeStaticSnippet", false));
+            assertInlined(getGraph("invokeConstructorSnippet", false));
+            assertInlined(getGraph("invokeFinalMethodSnippet", false));
+            assertInlined(getGraph("invokeMethodOnFinalClassSnippet", false));
+            assertInlined(getGraph("invokeMethodOnStaticFinalFieldSnippet", false));
+        } finally {
+            GlobalInlining.setValue(originalSetting);
+        }
+    }
+
+    /**
+     * With a budget that fits the hot call chain of {@link #hotAndColdSnippet} but none of its cold
+     * call sites, global inlining must reach the hot call site three levels down even though the
+     * cold call sites are shallower and come first.
+     */
+    @Test
+    public void testGlobalInliningBudget() {
+        boolean originalSetting = GlobalInlining.getValue();
+        int originalSize = MaximumDesiredSize.getValue();
+        GlobalInlining.setValue(true);
+        try {
+            // with the default budget, every call site is worth inlining
+            assertInlined(getGraph("hotAndColdSnippet", false));
+
+            int hotNodes = getGraph("hotSnippet", false).getNodeCount() - getRootGraph("hotSnippet").getNodeCount();
+            int coldNodes = getGraph("coldSnippet", false).getNodeCount() - getRootGraph("coldSnippet").getNodeCount();
+            assertTrue("cold call site too small for the test: " + coldNodes, coldNodes > 20);
+            MaximumDesiredSize.setValue(getRootGraph("hotAndColdSnippet").getNodeCount() + hotNodes + coldNodes / 2);
+
+            StructuredGraph graph = getGraph("hotAndColdSnippet", false);
+            assertFalse(invokes(graph, "hot1"));
+            assertFalse(invokes(graph, "hot2"));
+            assertFalse(invokes(graph, "hot3"));
+            assertTrue(invokes(graph, "cold"));
+        } finally {
+            GlobalInlining.setValue(originalSetting);
+            MaximumDesiredSize.setValue(originalSize);
+        }
+    }
+
+    @SuppressWarnings("all")
+    public static int hotAndColdSnippet(int[] a, boolean rare) {
+        int result = hot1(a[0]);
+        if (rare) {
+            result += cold(a);
+            result += cold(a);
+            result += cold(a);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("all")
+    public static int hotSnippet(int[] a) {
+        return hot1(a[0]);
+    }
+
+    @SuppressWarnings("all")
+    public static int coldSnippet(int[] a) {
+        return cold(a);
+    }
+
+    private static int hot1(int x) {
+        return hot2(x) + 1;
+    }
+
+    private static int hot2(int x) {
+        return hot3(x) * 3;
+    }
+
+    private static int hot3(int x) {
+        return x ^ (x >>> 7);
+    }
+
+    private static int cold(int[] a) {
+        return a[0] * a[1] + a[2] * a[3] + a[4] * a[5] + a[6] * a[7] + a[8] * a[9] + a[10] * a[11];
+    }
+
     @SuppressWarnings("all")
     public static Object invokeConstructorSnippet(int value) {
         return new SuperClass(value);
@@ -249,6 +333,21 @@ public class InliningTest extends GraalCompilerTest {
         });
     }
 
+    private StructuredGraph getRootGraph(String snippet) {
+        StructuredGraph graph = parse(getMethod(snippet));
+        new CanonicalizerPhase.Instance(runtime(), new Assumptions(false), true).apply(graph);
+        return graph;
+    }
+
+    private static boolean invokes(StructuredGraph graph, String methodName) {
+        for (Invoke invoke : graph.getInvokes()) {
+            if (((MethodCallTargetNode) invoke.callTarget()).targetMethod().getName().equals(methodName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private static StructuredGraph assertInlined(StructuredGraph graph) {
         return assertNotInGraph(graph, Invoke.class);
     }
@@ -52,6 +52,8 @@ import com.oracle.graal.phases.tiers.*;
  */
 public class GraalCompiler {
 
+    private static final DebugMetric METRIC_GRAPH_COMPACTIONS = Debug.metric("GraphCompactions");
+
     /**
      * Requests compilation of a given graph.
      * 
@@ -108,6 +110,20 @@ public class GraalCompiler {
         return leafGraphIdArray;
     }
 
+    /**
+     * Compacts a graph if the percentage of its node ids that belong to deleted nodes exceeds
+     * {@link GraalOptions#GraphCompactionThreshold}, so that the following phases do not pay for
+     * the deleted nodes when iterating over the graph or creating node maps.
+     */
+    private static void compactGraph(StructuredGraph graph) {
+        int deleted = graph.getDeletedNodeCount();
+        if (deleted * 100L > GraphCompactionThreshold.getValue() * (long) (graph.getNodeCount() + deleted)) {
+            Debug.log("compacting graph with %d live and %d deleted nodes", graph.getNodeCount(), deleted);
+            graph.compact();
+            METRIC_GRAPH_COMPACTIONS.increment();
+        }
+    }
+
     /**
      * Builds the graph, optimizes it.
      * 
@@ -131,12 +147,15 @@ public class GraalCompiler {
 
         HighTierContext highTierContext = new HighTierContext(runtime, assumptions, replacements, cache, plan, optimisticOpts);
         suites.getHighTier().apply(graph, highTierContext);
+        compactGraph(graph);
 
         MidTierContext midTierContext = new MidTierContext(runtime, assumptions, replacements, target, optimisticOpts);
         suites.getMidTier().apply(graph, midTierContext);
+        compactGraph(graph);
 
         LowTierContext lowTierContext = new LowTierContext(runtime, assumptions, replacements, target);
         suites.getLowTier().apply(graph, lowTierContext);
+        compactGraph(graph);
 
         // we do not want to store statistics about OSR compilations because it may prevent inlining
         if (!graph.isOSR()) {
@@ -170,6 +189,16 @@ public class GraalCompiler {
     }
 
     public static LIRGenerator emitLIR(Backend backend, final TargetDescription target, final LIR lir, StructuredGraph graph, CallingConvention cc) {
+        LIRGenerator lirGen = generateLIR(backend, lir, graph, cc);
+        allocateRegisters(target, lir, lirGen);
+        return lirGen;
+    }
+
+    /**
+     * Emits the LIR instructions for all blocks of {@code lir}, leaving the LIR ready for register
+     * allocation.
+     */
+    public static LIRGenerator generateLIR(Backend backend, final LIR lir, StructuredGraph graph, CallingConvention cc) {
         final FrameMap frameMap = backend.newFrameMap();
         final LIRGenerator lirGen = backend.newLIRGenerator(graph, frameMap, cc, lir);
 
@@ -196,14 +225,20 @@ public class GraalCompiler {
         });
 
         lirGen.beforeRegisterAllocation();
+        return lirGen;
+    }
 
+    /**
+     * Runs the register allocator over LIR produced by
+     * {@link #generateLIR(Backend, LIR, StructuredGraph, CallingConvention)}.
+     */
+    public static void allocateRegisters(final TargetDescription target, final LIR lir, final LIRGenerator lirGen) {
         Debug.scope("Allocator", new Runnable() {
 
             public void run() {
-                new LinearScan(target, lir, lirGen, frameMap).allocate();
+                new LinearScan(target, lir, lirGen, lirGen.frameMap).allocate();
             }
         });
-        return lirGen;
     }
 
     public static void emitCode(Backend backend, long[] leafGraphIds, Assumptions assumptions, LIRGenerator lirGen, CompilationResult compilationResult, ResolvedJavaMethod installedCodeOwner) {
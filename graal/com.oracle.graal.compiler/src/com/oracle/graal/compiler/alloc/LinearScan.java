@@ -75,7 +75,7 @@ public final class LinearScan {
          * block. The bit index of an operand is its {@linkplain LinearScan#operandNumber(Value)
          * operand number}.
          */
-        public BitSet liveIn;
+        public ChunkedBitSet liveIn;
 
         /**
          * Bit map specifying which operands are live upon exit from this block. These are values
@@ -83,20 +83,20 @@ public final class LinearScan {
          * to this block. The bit index of an operand is its
          * {@linkplain LinearScan#operandNumber(Value) operand number}.
          */
-        public BitSet liveOut;
+        public ChunkedBitSet liveOut;
 
         /**
          * Bit map specifying which operands are used (before being defined) in this block. That is,
          * these are the values that are live upon entry to the block. The bit index of an operand
          * is its {@linkplain LinearScan#operandNumber(Value) operand number}.
          */
-        public BitSet liveGen;
+        public ChunkedBitSet liveGen;
 
         /**
          * Bit map specifying which operands are defined/overwritten in this block. The bit index of
          * an operand is its {@linkplain LinearScan#operandNumber(Value) operand number}.
          */
-        public BitSet liveKill;
+        public ChunkedBitSet liveKill;
     }
 
     public final BlockMap<BlockData> blockData;
@@ -680,8 +680,8 @@ public final class LinearScan {
 
         // iterate all blocks
         for (final Block block : sortedBlocks) {
-            final BitSet liveGen = new BitSet(liveSize);
-            final BitSet liveKill = new BitSet(liveSize);
+            final ChunkedBitSet liveGen = new ChunkedBitSet(liveSize);
+            final ChunkedBitSet liveKill = new ChunkedBitSet(liveSize);
 
             List<LIRInstruction> instructions = ir.lir(block);
             int numInst = instructions.size();
@@ -761,8 +761,8 @@ public final class LinearScan {
 
             blockData.get(block).liveGen = liveGen;
             blockData.get(block).liveKill = liveKill;
-            blockData.get(block).liveIn = new BitSet(liveSize);
-            blockData.get(block).liveOut = new BitSet(liveSize);
+            blockData.get(block).liveIn = new ChunkedBitSet(liveGen);
+            blockData.get(block).liveOut = new ChunkedBitSet(liveSize);
 
             if (TraceLinearScanLevel.getValue() >= 4) {
                 TTY.println("liveGen  B%d %s", block.getId(), blockData.get(block).liveGen);
@@ -771,7 +771,7 @@ public final class LinearScan {
         } // end of block iteration
     }
 
-    private void verifyTemp(BitSet liveKill, Value operand) {
+    private void verifyTemp(ChunkedBitSet liveKill, Value operand) {
         // fixed intervals are never live at block boundaries, so
         // they need not be processed in live sets
         // process them only in debug mode so that this can be checked
@@ -782,7 +782,7 @@ public final class LinearScan {
         }
     }
 
-    private void verifyInput(Block block, BitSet liveKill, Value operand) {
+    private void verifyInput(Block block, ChunkedBitSet liveKill, Value operand) {
         // fixed intervals are never live at block boundaries, so
         // they need not be processed in live sets.
         // this is checked by these assertions to be sure about it.
@@ -798,71 +798,79 @@ public final class LinearScan {
     /**
      * Performs a backward dataflow analysis to compute global live sets (i.e.
      * {@link BlockData#liveIn} and {@link BlockData#liveOut}) for each block.
+     * <p>
+     * The analysis starts with {@code liveIn == liveGen} for every block, as set up by
+     * {@link #computeLocalLiveSets()}. Blocks are visited in reverse linear-scan order, but only if
+     * the {@code liveIn} set of one of their successors changed since their last visit, so blocks
+     * outside of loops are typically visited once.
      */
     void computeGlobalLiveSets() {
         int numBlocks = blockCount();
-        boolean changeOccurred;
-        boolean changeOccurredInBlock;
         int iterationCount = 0;
-        BitSet liveOut = new BitSet(liveSetSize()); // scratch set for calculations
-
-        // Perform a backward dataflow analysis to compute liveOut and liveIn for each block.
-        // The loop is executed until a fixpoint is reached (no changes in an iteration)
-        do {
-            changeOccurred = false;
-
-            // iterate all blocks in reverse order
-            for (int i = numBlocks - 1; i >= 0; i--) {
-                Block block = blockAt(i);
-
-                changeOccurredInBlock = false;
-
-                // liveOut(block) is the union of liveIn(sux), for successors sux of block
-                int n = block.getSuccessorCount();
-                if (n > 0) {
-                    // block has successors
-                    if (n > 0) {
-                        liveOut.clear();
-                        for (Block successor : block.getSuccessors()) {
-                            liveOut.or(blockData.get(successor).liveIn);
-                        }
-                    } else {
-                        liveOut.clear();
-                    }
-
-                    if (!blockData.get(block).liveOut.equals(liveOut)) {
-                        // A change occurred. Swap the old and new live out sets to avoid copying.
-                        BitSet temp = blockData.get(block).liveOut;
-                        blockData.get(block).liveOut = liveOut;
-                        liveOut = temp;
-
-                        changeOccurred = true;
-                        changeOccurredInBlock = true;
-                    }
+        ChunkedBitSet liveOut = new ChunkedBitSet(liveSetSize()); // scratch set for calculations
+        ChunkedBitSet liveIn = new ChunkedBitSet(liveSetSize()); // scratch set for calculations
+
+        // the linear scan numbers of the blocks that need to be visited
+        BitSet worklist = new BitSet(numBlocks);
+        worklist.set(0, numBlocks);
+        int next = numBlocks - 1;
+        while (true) {
+            int i = next < 0 ? -1 : worklist.previousSetBit(next);
+            if (i < 0) {
+                if (worklist.isEmpty()) {
+                    break;
+                }
+                // start the next round at the end of the block list
+                iterationCount++;
+                if (iterationCount > 50) {
+                    throw new BailoutException("too many iterations in computeGlobalLiveSets");
+                }
+                next = numBlocks - 1;
+                continue;
+            }
+            worklist.clear(i);
+            next = i - 1;
+            Block block = blockAt(i);
+            BlockData data = blockData.get(block);
+            boolean changeOccurredInBlock = false;
+
+            // liveOut(block) is the union of liveIn(sux), for successors sux of block
+            if (block.getSuccessorCount() > 0) {
+                liveOut.clear();
+                for (Block successor : block.getSuccessors()) {
+                    liveOut.or(blockData.get(successor).liveIn);
                 }
 
-                if (iterationCount == 0 || changeOccurredInBlock) {
+                if (!data.liveOut.equals(liveOut)) {
+                    // A change occurred. Swap the old and new live out sets to avoid copying.
+                    ChunkedBitSet temp = data.liveOut;
+                    data.liveOut = liveOut;
+                    liveOut = temp;
+
                     // liveIn(block) is the union of liveGen(block) with (liveOut(block) &
                     // !liveKill(block))
-                    // note: liveIn has to be computed only in first iteration or if liveOut has
-                    // changed!
-                    BitSet liveIn = blockData.get(block).liveIn;
                     liveIn.clear();
-                    liveIn.or(blockData.get(block).liveOut);
-                    liveIn.andNot(blockData.get(block).liveKill);
-                    liveIn.or(blockData.get(block).liveGen);
-                }
-
-                if (TraceLinearScanLevel.getValue() >= 4) {
-                    traceLiveness(changeOccurredInBlock, iterationCount, block);
+                    liveIn.or(data.liveOut);
+                    liveIn.andNot(data.liveKill);
+                    liveIn.or(data.liveGen);
+                    if (!data.liveIn.equals(liveIn)) {
+                        temp = data.liveIn;
+                        data.liveIn = liveIn;
+                        liveIn = temp;
+                        changeOccurredInBlock = true;
+                        for (Block predecessor : block.getPredecessors()) {
+                            if (predecessor.getLinearScanNumber() >= 0) {
+                                worklist.set(predecessor.getLinearScanNumber());
+                            }
+                        }
+                    }
                 }
             }
-            iterationCount++;
 
-            if (changeOccurred && iterationCount > 50) {
-                throw new BailoutException("too many iterations in computeGlobalLiveSets");
+            if (TraceLinearScanLevel.getValue() >= 4) {
+                traceLiveness(changeOccurredInBlock, iterationCount, block);
             }
-        } while (changeOccurred);
+        }
 
         if (DetailedAsserts.getValue()) {
             verifyLiveness();
@@ -870,8 +878,7 @@ public final class LinearScan {
 
         // check that the liveIn set of the first block is empty
         Block startBlock = ir.cfg.getStartBlock();
-        BitSet liveInArgs = new BitSet(blockData.get(startBlock).liveIn.size());
-        if (!blockData.get(startBlock).liveIn.equals(liveInArgs)) {
+        if (!blockData.get(startBlock).liveIn.isEmpty()) {
             if (DetailedAsserts.getValue()) {
                 reportFailure(numBlocks);
             }
@@ -1154,7 +1161,7 @@ public final class LinearScan {
             assert blockTo == instructions.get(instructions.size() - 1).id();
 
             // Update intervals for operands live at the end of this block;
-            BitSet live = blockData.get(block).liveOut;
+            ChunkedBitSet live = blockData.get(block).liveOut;
             for (int operandNum = live.nextSetBit(0); operandNum >= 0; operandNum = live.nextSetBit(operandNum + 1)) {
                 assert live.get(operandNum) : "should not stop here otherwise";
                 AllocatableValue operand = operandFor(operandNum);
@@ -1473,7 +1480,7 @@ public final class LinearScan {
         assert moveResolver.checkEmpty();
 
         int numOperands = operandSize();
-        BitSet liveAtEdge = blockData.get(toBlock).liveIn;
+        ChunkedBitSet liveAtEdge = blockData.get(toBlock).liveIn;
 
         // visit all variables for which the liveAtEdge bit is set
         for (int operandNum = liveAtEdge.nextSetBit(0); operandNum >= 0; operandNum = liveAtEdge.nextSetBit(operandNum + 1)) {
@@ -2065,7 +2072,7 @@ public final class LinearScan {
 
     void verifyConstants() {
         for (Block block : sortedBlocks) {
-            BitSet liveAtEdge = blockData.get(block).liveIn;
+            ChunkedBitSet liveAtEdge = blockData.get(block).liveIn;
 
             // visit all operands where the liveAtEdge bit is set
             for (int operandNum = liveAtEdge.nextSetBit(0); operandNum >= 0; operandNum = liveAtEdge.nextSetBit(operandNum + 1)) {
@@ -659,6 +659,8 @@ public abstract class LIRGenerator implements LIRGeneratorTool {
                         targets[x.keyAt(i).asInt() - minValue] = getLIRBlock(x.keySuccessor(i));
                     }
                     emitTableSwitch(minValue, defaultTarget, targets, value);
+                } else if (switchRangeCount >= MinimumSwitchTreeRanges.getValue()) {
+                    emitSwitchTree(x, switchRangeCount, value, defaultTarget);
                 } else if (keyCount / switchRangeCount >= RangeTestsSwitchDensity.getValue()) {
                     emitSwitchRanges(x, switchRangeCount, value, defaultTarget);
                 } else {
@@ -668,6 +670,20 @@ public abstract class LIRGenerator implements LIRGeneratorTool {
         }
     }
 
+    /**
+     * Emits an int switch with at least {@code MinimumSwitchTreeRanges} key ranges that is not
+     * dense enough for a single jump table. Backends can override this to emit a decision tree that
+     * uses {@link SwitchNode#keyProbability(int) key probabilities} instead of testing the ranges or
+     * keys one after the other.
+     */
+    protected void emitSwitchTree(SwitchNode x, int switchRangeCount, Variable key, LabelRef defaultTarget) {
+        if (x.keyCount() / switchRangeCount >= RangeTestsSwitchDensity.getValue()) {
+            emitSwitchRanges(x, switchRangeCount, key, defaultTarget);
+        } else {
+            emitSequentialSwitch(x, key, defaultTarget);
+        }
+    }
+
     private void emitSequentialSwitch(final SwitchNode x, Variable key, LabelRef defaultTarget) {
         int keyCount = x.keyCount();
         Integer[] indexes = Util.createSortedPermutation(keyCount, new Comparator<Integer>() {
@@ -692,7 +708,7 @@ public abstract class LIRGenerator implements LIRGeneratorTool {
 
     protected abstract void emitTableSwitch(int lowKey, LabelRef defaultTarget, LabelRef[] targets, Value key);
 
-    private static int switchRangeCount(SwitchNode x) {
+    protected static int switchRangeCount(SwitchNode x) {
         int keyCount = x.keyCount();
         int switchRangeCount = 0;
         int defaultSux = x.defaultSuccessorIndex();
@@ -712,11 +728,23 @@ public abstract class LIRGenerator implements LIRGeneratorTool {
     }
 
     private void emitSwitchRanges(SwitchNode x, int switchRangeCount, Variable keyValue, LabelRef defaultTarget) {
-        assert switchRangeCount >= 1 : "switch ranges should not be used for emitting only the default case";
-
         int[] lowKeys = new int[switchRangeCount];
         int[] highKeys = new int[switchRangeCount];
         LabelRef[] targets = new LabelRef[switchRangeCount];
+        collectSwitchRanges(x, lowKeys, highKeys, targets, null);
+        emitSwitchRanges(lowKeys, highKeys, targets, defaultTarget, keyValue);
+    }
+
+    /**
+     * Fills the given arrays, whose length must be the {@link #switchRangeCount(SwitchNode) number
+     * of ranges} of an int switch, with the ranges of consecutive keys that go to the same
+     * non-default successor, sorted by key.
+     * 
+     * @param probabilities if non-null, receives the sum of the key probabilities of each range
+     */
+    protected void collectSwitchRanges(SwitchNode x, int[] lowKeys, int[] highKeys, LabelRef[] targets, double[] probabilities) {
+        int switchRangeCount = targets.length;
+        assert switchRangeCount >= 1 : "switch ranges should not be used for emitting only the default case";
 
         int keyCount = x.keyCount();
         int defaultSuccessor = x.defaultSuccessorIndex();
@@ -737,12 +765,14 @@ public abstract class LIRGenerator implements LIRGeneratorTool {
                     highKeys[current] = newKey;
                     targets[current] = getLIRBlock(x.blockSuccessor(newSuccessor));
                 }
+                if (probabilities != null) {
+                    probabilities[current] += x.keyProbability(i);
+                }
             }
             key = newKey;
             successor = newSuccessor;
         }
         assert current == switchRangeCount - 1;
-        emitSwitchRanges(lowKeys, highKeys, targets, defaultTarget, keyValue);
     }
 
     public FrameMap frameMap() {
@@ -801,4 +831,12 @@ public abstract class LIRGenerator implements LIRGeneratorTool {
     public abstract void emitMathTan(Variable result, Variable input);
 
     public abstract void emitByteSwap(Variable result, Value operand);
+
+    public abstract void emitArrayMismatch(Variable result, Kind kind, Value array1, Value array2, Value length);
+
+    public abstract void emitCharArrayIndexOf(Variable result, Value array, Value ch, Value fromIndex, Value toIndex);
+
+    public abstract void emitMemoryCopy(Value src, Value dest, Value length, boolean conjoint, boolean aligned);
+
+    public abstract void emitMemoryFill(Value dest, Value length, Value pattern);
 }
@@ -91,6 +91,12 @@ public class HighTier extends PhaseSuite<HighTierContext> {
         if (OptLoopTransform.getValue()) {
             appendPhase(new LoopTransformHighPhase());
             appendPhase(new LoopTransformLowPhase());
+            if (LockCoarseningLoopChunk.getValue() > 1) {
+                appendPhase(new LoopLockCoarseningPhase());
+            }
+            if (PartialUnroll.getValue()) {
+                appendPhase(new LoopPartialUnrollPhase());
+            }
         }
         appendPhase(new RemoveValueProxyPhase());
 
@@ -45,6 +45,9 @@ public class MidTier extends PhaseSuite<MidTierContext> {
 
         appendPhase(new ValueAnchorCleanupPhase());
         appendPhase(new LockEliminationPhase());
+        if (OptLockCoarsening.getValue()) {
+            appendPhase(new LockCoarseningPhase());
+        }
 
         if (OptReadElimination.getValue()) {
             appendPhase(new EarlyReadEliminationPhase(canonicalizer));
@@ -80,6 +83,10 @@ public class MidTier extends PhaseSuite<MidTierContext> {
             appendPhase(canonicalizer);
         }
 
+        if (OptRangeCheckElimination.getValue()) {
+            appendPhase(new LoopRangeCheckEliminationPhase());
+        }
+
         appendPhase(new LoopSafepointEliminationPhase());
 
         appendPhase(new SafepointInsertionPhase());
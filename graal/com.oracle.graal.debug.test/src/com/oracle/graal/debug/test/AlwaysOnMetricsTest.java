@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.debug.test;
+
+import java.util.*;
+
+import org.junit.*;
+
+import com.oracle.graal.debug.*;
+import com.oracle.graal.debug.internal.*;
+
+public class AlwaysOnMetricsTest {
+
+    @Before
+    public void enable() {
+        AlwaysOnMetrics.enable();
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws InterruptedException {
+        final DebugMetric metric = AlwaysOnMetricImpl.create("AlwaysOnMetricsTest.Concurrent");
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+
+                @Override
+                public void run() {
+                    for (int j = 0; j < 100000; j++) {
+                        metric.increment();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(Long.valueOf(400000), AlwaysOnMetrics.snapshot().get("AlwaysOnMetricsTest.Concurrent"));
+    }
+
+    @Test
+    public void testTimer() throws InterruptedException {
+        DebugTimer timer = AlwaysOnTimerImpl.create("AlwaysOnMetricsTest.Timer");
+        for (int i = 0; i < 2; i++) {
+            TimerCloseable t = timer.start();
+            try {
+                Thread.sleep(1);
+            } finally {
+                t.close();
+            }
+        }
+        SortedMap<String, Long> snapshot = AlwaysOnMetrics.snapshot();
+        Assert.assertEquals(Long.valueOf(2), snapshot.get("AlwaysOnMetricsTest.Timer_Count"));
+        Assert.assertTrue(snapshot.get("AlwaysOnMetricsTest.Timer_Nanos") >= 2000000);
+    }
+
+    @Test
+    public void testSharedByName() {
+        for (int i = 0; i < 10; i++) {
+            Debug.metric("AlwaysOnMetricsTest.Shared").increment();
+        }
+        Assert.assertEquals(Long.valueOf(10), AlwaysOnMetrics.snapshot().get("AlwaysOnMetricsTest.Shared"));
+        Assert.assertSame(AlwaysOnCounter.create("AlwaysOnMetricsTest.Shared"), AlwaysOnCounter.create("AlwaysOnMetricsTest.Shared"));
+
+        Assert.assertSame(Debug.metric("AlwaysOnMetricsTest.Shared"), Debug.metric("AlwaysOnMetricsTest.Shared"));
+        Assert.assertSame(Debug.timer("AlwaysOnMetricsTest.SharedTimer"), Debug.timer("AlwaysOnMetricsTest.SharedTimer"));
+
+        int counters = AlwaysOnCounter.getCounters().size();
+        for (int i = 0; i < 10; i++) {
+            AlwaysOnMetricImpl.create("AlwaysOnMetricsTest.Shared").increment();
+            TimerCloseable t = AlwaysOnTimerImpl.create("AlwaysOnMetricsTest.SharedTimer").start();
+            t.close();
+        }
+        Assert.assertEquals(counters, AlwaysOnCounter.getCounters().size());
+        Assert.assertEquals(Long.valueOf(20), AlwaysOnMetrics.snapshot().get("AlwaysOnMetricsTest.Shared"));
+        Assert.assertEquals(Long.valueOf(10), AlwaysOnMetrics.snapshot().get("AlwaysOnMetricsTest.SharedTimer_Count"));
+    }
+
+    @Test
+    public void testDisabled() {
+        DebugMetric metric = Debug.metric("AlwaysOnMetricsTest.Disabled");
+        DebugTimer timer = Debug.timer("AlwaysOnMetricsTest.DisabledTimer");
+        AlwaysOnMetrics.disable();
+        try {
+            Assert.assertFalse(Debug.metric("AlwaysOnMetricsTest.Unused") instanceof AlwaysOnMetricImpl);
+            Assert.assertFalse(Debug.timer("AlwaysOnMetricsTest.UnusedTimer") instanceof AlwaysOnTimerImpl);
+            Assert.assertNull(AlwaysOnMetrics.snapshot().get("AlwaysOnMetricsTest.Unused"));
+
+            // metrics created while enabled keep their values, but are not updated
+            metric.increment();
+            timer.start().close();
+            SortedMap<String, Long> snapshot = AlwaysOnMetrics.snapshot();
+            Assert.assertEquals(Long.valueOf(0), snapshot.get("AlwaysOnMetricsTest.Disabled"));
+            Assert.assertEquals(Long.valueOf(0), snapshot.get("AlwaysOnMetricsTest.DisabledTimer_Count"));
+        } finally {
+            AlwaysOnMetrics.enable();
+        }
+    }
+}
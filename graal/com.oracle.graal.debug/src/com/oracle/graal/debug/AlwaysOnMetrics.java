@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.debug;
+
+import java.io.*;
+import java.util.*;
+
+import com.oracle.graal.debug.internal.*;
+
+/**
+ * Support for collecting {@linkplain Debug#metric(String) metrics} and
+ * {@linkplain Debug#timer(String) timers} in production. Once {@linkplain #enable() enabled}, the
+ * metrics and timers created by {@link Debug} are backed by lock-free, striped counters that are
+ * updated regardless of debug scopes and filters. Their values can be read at any time with
+ * {@link #snapshot()} or dumped periodically with {@link #startPeriodicDump(PrintStream, long)}.
+ * <p>
+ * Only metrics and timers created after this mode is enabled are counted, so it must be enabled
+ * before the compiler classes that hold metrics in static fields are initialized. Metrics and
+ * timers with the same name share their counters.
+ */
+public final class AlwaysOnMetrics {
+
+    private static volatile boolean enabled;
+    private static volatile long enableTime;
+
+    private AlwaysOnMetrics() {
+    }
+
+    public static void enable() {
+        enableTime = System.currentTimeMillis();
+        enabled = true;
+    }
+
+    /**
+     * Stops updating the always-on metrics and timers. Their values are retained.
+     */
+    public static void disable() {
+        enabled = false;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Gets the current value of every always-on metric and timer, sorted by name.
+     */
+    public static SortedMap<String, Long> snapshot() {
+        SortedMap<String, Long> result = new TreeMap<>();
+        for (AlwaysOnCounter counter : AlwaysOnCounter.getCounters()) {
+            result.put(counter.getName(), counter.get());
+        }
+        return result;
+    }
+
+    /**
+     * Prints a {@linkplain #snapshot() snapshot} of the always-on values. Each value is printed on
+     * a line of the form {@code time,name,value}, where {@code time} is the number of milliseconds
+     * since this mode was {@linkplain #enable() enabled}. Values that are zero are omitted.
+     */
+    public static void print(PrintStream out) {
+        long time = System.currentTimeMillis() - enableTime;
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Long> entry : snapshot().entrySet()) {
+            if (entry.getValue() != 0) {
+                sb.append(time).append(',').append(entry.getKey()).append(',').append(entry.getValue()).append('\n');
+            }
+        }
+        out.print(sb);
+        out.flush();
+    }
+
+    /**
+     * Starts a daemon thread that {@linkplain #print(PrintStream) prints} the always-on values
+     * every {@code periodMillis} milliseconds until the returned object is closed.
+     */
+    public static Closeable startPeriodicDump(final PrintStream out, final long periodMillis) {
+        final Thread thread = new Thread(new Runnable() {
+
+            public void run() {
+                try {
+                    while (true) {
+                        Thread.sleep(periodMillis);
+                        print(out);
+                    }
+                } catch (InterruptedException e) {
+                    // closed
+                }
+            }
+        });
+        thread.setName("AlwaysOnMetricsDump");
+        thread.setDaemon(true);
+        thread.start();
+        return new Closeable() {
+
+            public void close() {
+                thread.interrupt();
+            }
+        };
+    }
+}
@@ -215,8 +215,15 @@ public class Debug {
         return null;
     }
 
+    /**
+     * Creates a metric. While {@link AlwaysOnMetrics} are {@linkplain AlwaysOnMetrics#isEnabled()
+     * enabled}, the metric is the always-on metric with the given name. Otherwise, the metric is
+     * only counted if debugging is {@linkplain #isEnabled() enabled}.
+     */
     public static DebugMetric metric(String name) {
-        if (ENABLED) {
+        if (AlwaysOnMetrics.isEnabled()) {
+            return AlwaysOnMetricImpl.create(name);
+        } else if (ENABLED) {
             return new MetricImpl(name);
         } else {
             return VOID_METRIC;
@@ -291,8 +298,14 @@ public class Debug {
         }
     };
 
+    /**
+     * Creates a timer. Like {@linkplain #metric(String) metrics}, the timer is the always-on timer
+     * with the given name while {@link AlwaysOnMetrics} are enabled.
+     */
     public static DebugTimer timer(String name) {
-        if (ENABLED) {
+        if (AlwaysOnMetrics.isEnabled()) {
+            return AlwaysOnTimerImpl.create(name);
+        } else if (ENABLED) {
             return new TimerImpl(name);
         } else {
             return VOID_TIMER;
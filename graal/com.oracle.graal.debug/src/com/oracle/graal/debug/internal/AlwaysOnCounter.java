@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.debug.internal;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * A counter that is cheap enough to be updated unconditionally in production. Updates go to one
+ * of several padded stripes selected by the id of the updating thread, so threads rarely contend
+ * on the same cache line and never take a lock. Reading the value sums the stripes.
+ */
+public final class AlwaysOnCounter {
+
+    /**
+     * Number of longs between two stripes, which keeps each stripe on its own cache line.
+     */
+    private static final int PADDING = 8;
+    private static final int STRIPES = stripeCount();
+
+    private static final ConcurrentMap<String, AlwaysOnCounter> counters = new ConcurrentHashMap<>();
+
+    private static int stripeCount() {
+        int stripes = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) * 2;
+        return Math.min(Math.max(stripes, 2), 64);
+    }
+
+    private final String name;
+    private final AtomicLongArray cells;
+
+    private AlwaysOnCounter(String name) {
+        this.name = name;
+        this.cells = new AtomicLongArray(STRIPES * PADDING);
+    }
+
+    /**
+     * Gets the counter with a given name, creating it if it does not exist yet. Counters are
+     * shared by name, so call sites that create a metric with a computed name on every use only
+     * allocate one counter per distinct name.
+     */
+    public static AlwaysOnCounter create(String name) {
+        AlwaysOnCounter counter = counters.get(name);
+        if (counter == null) {
+            counter = new AlwaysOnCounter(name);
+            AlwaysOnCounter existing = counters.putIfAbsent(name, counter);
+            if (existing != null) {
+                counter = existing;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Gets all counters created so far.
+     */
+    public static Collection<AlwaysOnCounter> getCounters() {
+        return Collections.unmodifiableCollection(counters.values());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void add(long value) {
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        cells.getAndAdd(stripe * PADDING, value);
+    }
+
+    /**
+     * Gets the sum of all updates. Updates that race with this call may or may not be included.
+     */
+    public long get() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return name + "=" + get();
+    }
+}
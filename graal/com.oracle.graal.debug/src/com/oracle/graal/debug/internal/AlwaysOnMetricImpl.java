@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.debug.internal;
+
+import java.util.concurrent.*;
+
+import com.oracle.graal.debug.*;
+
+/**
+ * A {@link DebugMetric} that is counted independently of debug scopes and the metering filter
+ * while {@link AlwaysOnMetrics} are {@linkplain AlwaysOnMetrics#isEnabled() enabled}. Instances
+ * are interned by name, so call sites that create a metric on every use do not allocate.
+ */
+public final class AlwaysOnMetricImpl implements DebugMetric {
+
+    private static final ConcurrentMap<String, AlwaysOnMetricImpl> metrics = new ConcurrentHashMap<>();
+
+    private final AlwaysOnCounter counter;
+
+    private AlwaysOnMetricImpl(String name) {
+        this.counter = AlwaysOnCounter.create(name);
+    }
+
+    /**
+     * Gets the always-on metric with a given name, creating it if it does not exist yet.
+     */
+    public static AlwaysOnMetricImpl create(String name) {
+        AlwaysOnMetricImpl metric = metrics.get(name);
+        if (metric == null) {
+            metric = new AlwaysOnMetricImpl(name);
+            AlwaysOnMetricImpl existing = metrics.putIfAbsent(name, metric);
+            if (existing != null) {
+                metric = existing;
+            }
+        }
+        return metric;
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long value) {
+        if (AlwaysOnMetrics.isEnabled()) {
+            counter.add(value);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.debug.internal;
+
+import java.util.concurrent.*;
+
+import com.oracle.graal.debug.*;
+
+/**
+ * A {@link DebugTimer} that is measured independently of debug scopes and the timing filter. It
+ * records the elapsed {@linkplain System#nanoTime() wall clock time} of each timed region and the
+ * number of regions. Unlike {@link TimerImpl}, the time of nested timers is not subtracted and no
+ * thread CPU time is queried. Like {@link AlwaysOnMetricImpl}, the timer only measures while
+ * {@link AlwaysOnMetrics} are enabled and instances are interned by name.
+ */
+public final class AlwaysOnTimerImpl implements DebugTimer {
+
+    private static final ConcurrentMap<String, AlwaysOnTimerImpl> timers = new ConcurrentHashMap<>();
+
+    private final AlwaysOnCounter time;
+    private final AlwaysOnCounter count;
+
+    private AlwaysOnTimerImpl(String name) {
+        this.time = AlwaysOnCounter.create(name + "_Nanos");
+        this.count = AlwaysOnCounter.create(name + "_Count");
+    }
+
+    /**
+     * Gets the always-on timer with a given name, creating it if it does not exist yet.
+     */
+    public static AlwaysOnTimerImpl create(String name) {
+        AlwaysOnTimerImpl timer = timers.get(name);
+        if (timer == null) {
+            timer = new AlwaysOnTimerImpl(name);
+            AlwaysOnTimerImpl existing = timers.putIfAbsent(name, timer);
+            if (existing != null) {
+                timer = existing;
+            }
+        }
+        return timer;
+    }
+
+    @Override
+    public TimerCloseable start() {
+        if (!AlwaysOnMetrics.isEnabled()) {
+            return TimerImpl.VOID_CLOSEABLE;
+        }
+        final long startTime = System.nanoTime();
+        return new TimerCloseable() {
+
+            @Override
+            public void close() {
+                time.add(System.nanoTime() - startTime);
+                count.add(1);
+            }
+        };
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.graph.test;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+import com.oracle.graal.graph.*;
+
+public class GraphCompactionTest {
+
+    private static class TestNode extends Node implements Node.IterableNodeType, TestNodeInterface {
+
+        private final String name;
+
+        public TestNode(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static class OtherNode extends Node {
+    }
+
+    private static List<TestNode> addNodes(Graph graph, String names) {
+        List<TestNode> result = new ArrayList<>();
+        for (char c : names.toCharArray()) {
+            result.add(graph.add(new TestNode(String.valueOf(c))));
+            graph.add(new OtherNode());
+        }
+        return result;
+    }
+
+    @Test
+    public void compactTest() {
+        Graph graph = new Graph();
+        List<TestNode> nodes = addNodes(graph, "abcdef");
+        nodes.get(0).safeDelete();
+        nodes.get(2).safeDelete();
+        nodes.get(5).safeDelete();
+        assertEquals(3, graph.getDeletedNodeCount());
+
+        graph.compact();
+        assertEquals(0, graph.getDeletedNodeCount());
+        assertEquals(9, graph.getNodeCount());
+        assertEquals("bde", TypedNodeIteratorTest.toString(graph.getNodes(TestNode.class)));
+        int count = 0;
+        for (Node node : graph.getNodes()) {
+            assertTrue(node.isAlive());
+            count++;
+        }
+        assertEquals(9, count);
+    }
+
+    @Test
+    public void addAfterCompactTest() {
+        Graph graph = new Graph();
+        List<TestNode> nodes = addNodes(graph, "abc");
+        nodes.get(2).safeDelete();
+        graph.compact();
+
+        int mark = graph.getMark();
+        addNodes(graph, "xy");
+        assertEquals("abxy", TypedNodeIteratorTest.toString(graph.getNodes(TestNode.class)));
+        assertEquals(4, graph.getNewNodes(mark).count());
+    }
+
+    @Test
+    public void nodeBitMapAfterCompactTest() {
+        Graph graph = new Graph();
+        List<TestNode> nodes = addNodes(graph, "abcd");
+        nodes.get(1).safeDelete();
+        graph.compact();
+
+        NodeBitMap map = graph.createNodeBitMap();
+        map.mark(nodes.get(3));
+        assertTrue(map.isMarked(nodes.get(3)));
+        assertFalse(map.isMarked(nodes.get(0)));
+        assertFalse(map.isMarked(nodes.get(2)));
+    }
+
+    @Test
+    public void compactAllDeletedTest() {
+        Graph graph = new Graph();
+        List<TestNode> nodes = addNodes(graph, "ab");
+        for (Node node : graph.getNodes().snapshot()) {
+            node.safeDelete();
+        }
+        graph.compact();
+        assertEquals(0, graph.getNodeCount());
+        assertFalse(graph.hasNode(TestNode.class));
+        graph.add(new TestNode("c"));
+        assertEquals("c", TypedNodeIteratorTest.toString(graph.getNodes(TestNode.class)));
+        assertTrue(nodes.get(0).isDeleted());
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.graph.test;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.junit.*;
+
+import com.oracle.graal.graph.*;
+
+public class GraphSerializerTest {
+
+    private static class ValueNode extends Node {
+
+        private final int value;
+        private final String name;
+
+        public ValueNode(int value, String name) {
+            this.value = value;
+            this.name = name;
+        }
+    }
+
+    private static class CombineNode extends Node {
+
+        @Input private ValueNode first;
+        @Input private final NodeInputList<ValueNode> rest;
+        @Successor private CombineNode next;
+        private final double weight;
+
+        public CombineNode(ValueNode first, double weight, ValueNode... rest) {
+            this.first = first;
+            this.weight = weight;
+            this.rest = new NodeInputList<>(this, rest);
+        }
+
+        public void setNext(CombineNode x) {
+            updatePredecessor(next, x);
+            next = x;
+        }
+    }
+
+    private static class StringCodec implements GraphSerializer.ValueCodec {
+
+        @Override
+        public void write(DataOutputStream out, Object value) throws IOException {
+            if (value != null && !(value instanceof String)) {
+                throw new IOException("unsupported value " + value);
+            }
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeUTF((String) value);
+            }
+        }
+
+        @Override
+        public Object read(DataInputStream in) throws IOException {
+            return in.readBoolean() ? in.readUTF() : null;
+        }
+
+        @Override
+        public Class<?> resolveClass(String name) throws IOException {
+            try {
+                return Class.forName(name, false, getClass().getClassLoader());
+            } catch (ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    private static byte[] encode(Graph graph, GraphSerializer.ValueCodec codec, Node... fixedNodes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GraphSerializer.write(graph, new DataOutputStream(bytes), codec, fixedNodes);
+        return bytes.toByteArray();
+    }
+
+    private static void decode(Graph graph, byte[] bytes, GraphSerializer.ValueCodec codec, Node... fixedNodes) throws IOException {
+        GraphSerializer.read(graph, new DataInputStream(new ByteArrayInputStream(bytes)), codec, fixedNodes);
+    }
+
+    @Test
+    public void roundTripTest() throws IOException {
+        Graph graph = new Graph();
+        ValueNode a = graph.add(new ValueNode(1, "a"));
+        ValueNode b = graph.add(new ValueNode(2, null));
+        ValueNode c = graph.add(new ValueNode(3, "c"));
+        CombineNode head = graph.add(new CombineNode(a, 0.5, b, c, a));
+        CombineNode tail = graph.add(new CombineNode(c, 0.25));
+        head.setNext(tail);
+
+        StringCodec codec = new StringCodec();
+        Graph copy = new Graph();
+        decode(copy, encode(graph, codec), codec);
+        assertTrue(copy.verify());
+        assertEquals(graph.getNodeCount(), copy.getNodeCount());
+
+        CombineNode newHead = null;
+        for (Node node : copy.getNodes()) {
+            if (node instanceof CombineNode && node.predecessor() == null) {
+                newHead = (CombineNode) node;
+            }
+        }
+        assertNotNull(newHead);
+        assertEquals(0.5, newHead.weight, 0.0);
+        assertEquals(1, newHead.first.value);
+        assertEquals("a", newHead.first.name);
+        assertEquals(3, newHead.rest.size());
+        assertNull(newHead.rest.get(0).name);
+        assertSame(newHead.first, newHead.rest.get(2));
+        assertEquals(2, newHead.first.usages().count());
+        assertEquals(0.25, newHead.next.weight, 0.0);
+        assertSame(newHead.rest.get(1), newHead.next.first);
+        assertEquals(0, newHead.next.rest.size());
+    }
+
+    @Test
+    public void fixedNodeTest() throws IOException {
+        Graph graph = new Graph();
+        ValueNode a = graph.add(new ValueNode(1, "a"));
+        CombineNode fixed = graph.add(new CombineNode(null, 1.0));
+        fixed.setNext(graph.add(new CombineNode(a, 2.0)));
+
+        StringCodec codec = new StringCodec();
+        Graph copy = new Graph();
+        CombineNode newFixed = copy.add(new CombineNode(null, 3.0));
+        decode(copy, encode(graph, codec, fixed), codec, newFixed);
+        assertEquals(3, copy.getNodeCount());
+        assertEquals(3.0, newFixed.weight, 0.0);
+        assertEquals(2.0, newFixed.next.weight, 0.0);
+        assertEquals("a", newFixed.next.first.name);
+    }
+
+    @Test(expected = IOException.class)
+    public void unsupportedValueTest() throws IOException {
+        Graph graph = new Graph();
+        graph.add(new ValueNode(1, "a"));
+        encode(graph, new StringCodec() {
+
+            @Override
+            public void write(DataOutputStream out, Object value) throws IOException {
+                throw new IOException("unsupported value " + value);
+            }
+        });
+    }
+}
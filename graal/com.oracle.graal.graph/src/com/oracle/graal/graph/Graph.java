@@ -552,6 +552,51 @@ public class Graph {
         // nodes aren't removed from the type cache here - they will be removed during iteration
     }
 
+    /**
+     * Removes the entries of deleted nodes from the node list and the type caches of this graph.
+     * The live nodes are renumbered in their current order, so ids obtained before compaction
+     * (including {@linkplain #getMark() marks}) become invalid. This must therefore not be called
+     * while any {@link NodeBitMap}, {@link NodeMap} or other structure indexed by node ids is in use
+     * for this graph, or while the nodes of this graph are being iterated.
+     */
+    public void compact() {
+        if (deletedNodeCount == 0) {
+            return;
+        }
+        int liveCount = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            if (node != null) {
+                node.id = liveCount;
+                nodes.set(liveCount, node);
+                liveCount++;
+            }
+        }
+        nodes.subList(liveCount, nodes.size()).clear();
+        nodes.trimToSize();
+        deletedNodeCount = 0;
+
+        for (int i = 0; i < nodeCacheFirst.size(); i++) {
+            Node last = null;
+            for (Node node = nodeCacheFirst.get(i); node != null; node = node.typeCacheNext) {
+                if (!node.isDeleted()) {
+                    if (last == null) {
+                        nodeCacheFirst.set(i, node);
+                    } else {
+                        last.typeCacheNext = node;
+                    }
+                    last = node;
+                }
+            }
+            if (last == null) {
+                nodeCacheFirst.set(i, null);
+            } else {
+                last.typeCacheNext = null;
+            }
+            nodeCacheLast.set(i, last);
+        }
+    }
+
     public boolean verify() {
         for (Node node : getNodes()) {
             try {
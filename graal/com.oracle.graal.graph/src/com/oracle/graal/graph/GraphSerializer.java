@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.graph;
+
+import static com.oracle.graal.graph.UnsafeAccess.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Encodes the nodes of a {@link Graph} into a byte stream and decodes them back into a graph. The
+ * stream starts with a table describing the layout of every node class it uses, so that a stream
+ * written by a different version of a node class is rejected instead of being decoded into garbage.
+ * Values stored in the data fields of nodes are encoded by a {@link ValueCodec}.
+ * 
+ * Nodes that exist in every graph (e.g., the start node of a structured graph) are passed to both
+ * {@link #write} and {@link #read} as <i>fixed</i> nodes. Only their edges are encoded.
+ */
+public final class GraphSerializer {
+
+    /**
+     * Encodes and decodes the values of data fields that are not of a primitive type.
+     */
+    public interface ValueCodec {
+
+        /**
+         * Writes a value to a stream.
+         * 
+         * @throws IOException if the value cannot be encoded, which means that the graph cannot be
+         *             encoded
+         */
+        void write(DataOutputStream out, Object value) throws IOException;
+
+        /**
+         * Reads a value written by {@link #write}.
+         * 
+         * @throws IOException if the value cannot be decoded in the current VM
+         */
+        Object read(DataInputStream in) throws IOException;
+
+        /**
+         * Resolves the name of a node class or of a class referenced by a value.
+         * 
+         * @throws IOException if the class cannot be resolved
+         */
+        Class<?> resolveClass(String name) throws IOException;
+    }
+
+    private static final int MAGIC = 0x47524146;
+
+    private static final long NODE_CLASS_OFFSET;
+
+    static {
+        try {
+            NODE_CLASS_OFFSET = unsafe.objectFieldOffset(Node.class.getDeclaredField("nodeClass"));
+        } catch (NoSuchFieldException e) {
+            throw new GraalInternalError(e);
+        }
+    }
+
+    private GraphSerializer() {
+    }
+
+    public static void write(Graph graph, DataOutputStream out, ValueCodec codec, Node... fixedNodes) throws IOException {
+        Map<Node, Integer> nodeIds = new IdentityHashMap<>();
+        List<Node> nodes = new ArrayList<>(graph.getNodeCount());
+        for (Node fixed : fixedNodes) {
+            assert fixed.graph() == graph;
+            nodeIds.put(fixed, nodes.size());
+            nodes.add(fixed);
+        }
+        for (Node node : graph.getNodes()) {
+            if (!nodeIds.containsKey(node)) {
+                nodeIds.put(node, nodes.size());
+                nodes.add(node);
+            }
+        }
+
+        Map<NodeClass, Integer> classIds = new IdentityHashMap<>();
+        List<NodeClass> classes = new ArrayList<>();
+        for (Node node : nodes) {
+            if (!classIds.containsKey(node.getNodeClass())) {
+                classIds.put(node.getNodeClass(), classes.size());
+                classes.add(node.getNodeClass());
+            }
+        }
+
+        out.writeInt(MAGIC);
+        out.writeInt(classes.size());
+        for (NodeClass nodeClass : classes) {
+            out.writeUTF(nodeClass.getJavaClass().getName());
+            out.writeUTF(layout(nodeClass));
+        }
+
+        out.writeInt(fixedNodes.length);
+        out.writeInt(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            NodeClass nodeClass = node.getNodeClass();
+            out.writeInt(classIds.get(nodeClass));
+            if (i >= fixedNodes.length) {
+                writeData(node, nodeClass, out, codec);
+            }
+            writeListSizes(node, nodeClass.getInputOffsets(), nodeClass.getDirectInputCount(), out);
+            writeListSizes(node, nodeClass.getSuccessorOffsets(), nodeClass.getDirectSuccessorCount(), out);
+        }
+        for (Node node : nodes) {
+            NodeClass nodeClass = node.getNodeClass();
+            writeEdges(node, nodeClass.getInputOffsets(), nodeClass.getDirectInputCount(), nodeIds, out);
+            writeEdges(node, nodeClass.getSuccessorOffsets(), nodeClass.getDirectSuccessorCount(), nodeIds, out);
+        }
+    }
+
+    /**
+     * Adds the nodes encoded in a stream to a graph. If an exception is thrown, the graph is left in
+     * an inconsistent state and must be discarded.
+     */
+    public static void read(Graph graph, DataInputStream in, ValueCodec codec, Node... fixedNodes) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not an encoded graph");
+        }
+        NodeClass[] classes = new NodeClass[in.readInt()];
+        for (int i = 0; i < classes.length; i++) {
+            String className = in.readUTF();
+            Class<?> clazz = codec.resolveClass(className);
+            if (!Node.class.isAssignableFrom(clazz)) {
+                throw new IOException("not a node class: " + className);
+            }
+            classes[i] = NodeClass.get(clazz);
+            if (!layout(classes[i]).equals(in.readUTF())) {
+                throw new IOException("layout of " + className + " has changed");
+            }
+        }
+
+        if (in.readInt() != fixedNodes.length) {
+            throw new IOException("fixed node count mismatch");
+        }
+        Node[] nodes = new Node[in.readInt()];
+        for (int i = 0; i < nodes.length; i++) {
+            NodeClass nodeClass = classes[in.readInt()];
+            Node node;
+            if (i < fixedNodes.length) {
+                node = fixedNodes[i];
+                if (node.getNodeClass() != nodeClass) {
+                    throw new IOException("fixed node " + node + " does not match " + nodeClass);
+                }
+            } else {
+                node = allocate(nodeClass);
+                readData(node, nodeClass, in, codec);
+            }
+            readListSizes(node, nodeClass.getInputOffsets(), nodeClass.getDirectInputCount(), true, i < fixedNodes.length, in);
+            readListSizes(node, nodeClass.getSuccessorOffsets(), nodeClass.getDirectSuccessorCount(), false, i < fixedNodes.length, in);
+            nodes[i] = node;
+        }
+        for (int i = fixedNodes.length; i < nodes.length; i++) {
+            nodes[i].initialize(graph);
+        }
+        for (Node node : nodes) {
+            NodeClass nodeClass = node.getNodeClass();
+            readEdges(node, nodeClass, true, nodeClass.getInputOffsets().length, nodeClass.getDirectInputCount(), nodes, in);
+            readEdges(node, nodeClass, false, nodeClass.getSuccessorOffsets().length, nodeClass.getDirectSuccessorCount(), nodes, in);
+        }
+    }
+
+    /**
+     * Describes the edge counts and the names and types of the data fields of a node class.
+     */
+    private static String layout(NodeClass nodeClass) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(nodeClass.getDirectInputCount()).append('/').append(nodeClass.getInputOffsets().length).append(' ');
+        sb.append(nodeClass.getDirectSuccessorCount()).append('/').append(nodeClass.getSuccessorOffsets().length);
+        long[] dataOffsets = nodeClass.getDataOffsets();
+        Class<?>[] dataTypes = nodeClass.getDataTypes();
+        for (int i = 0; i < dataOffsets.length; i++) {
+            sb.append(' ').append(nodeClass.getFieldName(dataOffsets[i])).append(':').append(dataTypes[i].getName());
+        }
+        return sb.toString();
+    }
+
+    private static Node allocate(NodeClass nodeClass) throws IOException {
+        Node node;
+        try {
+            node = (Node) unsafe.allocateInstance(nodeClass.getJavaClass());
+        } catch (InstantiationException e) {
+            throw new IOException("cannot instantiate " + nodeClass, e);
+        }
+        unsafe.putObject(node, NODE_CLASS_OFFSET, nodeClass);
+        node.id = Node.INITIAL_ID;
+        return node;
+    }
+
+    private static void writeData(Node node, NodeClass nodeClass, DataOutputStream out, ValueCodec codec) throws IOException {
+        long[] dataOffsets = nodeClass.getDataOffsets();
+        Class<?>[] dataTypes = nodeClass.getDataTypes();
+        for (int i = 0; i < dataOffsets.length; i++) {
+            Class<?> type = dataTypes[i];
+            long offset = dataOffsets[i];
+            if (type == Integer.TYPE) {
+                out.writeInt(unsafe.getInt(node, offset));
+            } else if (type == Long.TYPE) {
+                out.writeLong(unsafe.getLong(node, offset));
+            } else if (type == Boolean.TYPE) {
+                out.writeBoolean(unsafe.getBoolean(node, offset));
+            } else if (type == Double.TYPE) {
+                out.writeDouble(unsafe.getDouble(node, offset));
+            } else if (type == Float.TYPE) {
+                out.writeFloat(unsafe.getFloat(node, offset));
+            } else if (type == Byte.TYPE) {
+                out.writeByte(unsafe.getByte(node, offset));
+            } else if (type == Short.TYPE) {
+                out.writeShort(unsafe.getShort(node, offset));
+            } else if (type == Character.TYPE) {
+                out.writeChar(unsafe.getChar(node, offset));
+            } else {
+                codec.write(out, unsafe.getObject(node, offset));
+            }
+        }
+    }
+
+    private static void readData(Node node, NodeClass nodeClass, DataInputStream in, ValueCodec codec) throws IOException {
+        long[] dataOffsets = nodeClass.getDataOffsets();
+        Class<?>[] dataTypes = nodeClass.getDataTypes();
+        for (int i = 0; i < dataOffsets.length; i++) {
+            Class<?> type = dataTypes[i];
+            long offset = dataOffsets[i];
+            if (type == Integer.TYPE) {
+                unsafe.putInt(node, offset, in.readInt());
+            } else if (type == Long.TYPE) {
+                unsafe.putLong(node, offset, in.readLong());
+            } else if (type == Boolean.TYPE) {
+                unsafe.putBoolean(node, offset, in.readBoolean());
+            } else if (type == Double.TYPE) {
+                unsafe.putDouble(node, offset, in.readDouble());
+            } else if (type == Float.TYPE) {
+                unsafe.putFloat(node, offset, in.readFloat());
+            } else if (type == Byte.TYPE) {
+                unsafe.putByte(node, offset, in.readByte());
+            } else if (type == Short.TYPE) {
+                unsafe.putShort(node, offset, in.readShort());
+            } else if (type == Character.TYPE) {
+                unsafe.putChar(node, offset, in.readChar());
+            } else {
+                Object value = codec.read(in);
+                if (value != null && !type.isInstance(value)) {
+                    throw new IOException("cannot assign " + value.getClass().getName() + " to " + nodeClass.getFieldName(offset) + " in " + nodeClass);
+                }
+                unsafe.putObject(node, offset, value);
+            }
+        }
+    }
+
+    private static void writeListSizes(Node node, long[] offsets, int directCount, DataOutputStream out) throws IOException {
+        for (int i = directCount; i < offsets.length; i++) {
+            NodeList<?> list = (NodeList<?>) unsafe.getObject(node, offsets[i]);
+            out.writeInt(list.initialSize);
+        }
+    }
+
+    private static void readListSizes(Node node, long[] offsets, int directCount, boolean input, boolean fixed, DataInputStream in) throws IOException {
+        for (int i = directCount; i < offsets.length; i++) {
+            int initialSize = in.readInt();
+            if (!fixed) {
+                unsafe.putObject(node, offsets[i], input ? new NodeInputList<>(node, initialSize) : new NodeSuccessorList<>(node, initialSize));
+            }
+        }
+    }
+
+    private static void writeEdges(Node node, long[] offsets, int directCount, Map<Node, Integer> nodeIds, DataOutputStream out) throws IOException {
+        for (int i = 0; i < offsets.length; i++) {
+            if (i < directCount) {
+                writeNodeId((Node) unsafe.getObject(node, offsets[i]), nodeIds, out);
+            } else {
+                NodeList<?> list = (NodeList<?>) unsafe.getObject(node, offsets[i]);
+                out.writeInt(list.size());
+                for (Node element : list) {
+                    writeNodeId(element, nodeIds, out);
+                }
+            }
+        }
+    }
+
+    private static void writeNodeId(Node node, Map<Node, Integer> nodeIds, DataOutputStream out) throws IOException {
+        if (node == null) {
+            out.writeInt(-1);
+        } else {
+            Integer id = nodeIds.get(node);
+            if (id == null) {
+                throw new IOException("edge to node outside of graph: " + node);
+            }
+            out.writeInt(id);
+        }
+    }
+
+    private static void readEdges(Node node, NodeClass nodeClass, boolean input, int count, int directCount, Node[] nodes, DataInputStream in) throws IOException {
+        for (int i = 0; i < count; i++) {
+            if (i < directCount) {
+                Node target = readNode(nodes, in);
+                if (target != null) {
+                    nodeClass.set(node, new NodeClass.Position(input, i, NodeClass.NOT_ITERABLE), target);
+                }
+            } else {
+                @SuppressWarnings("unchecked")
+                NodeList<Node> list = (NodeList<Node>) unsafe.getObject(node, (input ? nodeClass.getInputOffsets() : nodeClass.getSuccessorOffsets())[i]);
+                int size = in.readInt();
+                for (int j = 0; j < size; j++) {
+                    Node target = readNode(nodes, in);
+                    if (j < list.size()) {
+                        list.set(j, target);
+                    } else {
+                        list.add(target);
+                    }
+                }
+                while (list.size() > size) {
+                    list.remove(list.size() - 1);
+                }
+            }
+        }
+    }
+
+    private static Node readNode(Node[] nodes, DataInputStream in) throws IOException {
+        int id = in.readInt();
+        if (id == -1) {
+            return null;
+        }
+        if (id < 0 || id >= nodes.length) {
+            throw new IOException("invalid node index " + id);
+        }
+        return nodes[id];
+    }
+}
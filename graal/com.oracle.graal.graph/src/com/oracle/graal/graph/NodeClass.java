@@ -183,6 +183,34 @@ public class NodeClass extends FieldIntrospection {
         return nextIterableId;
     }
 
+    int getDirectInputCount() {
+        return directInputCount;
+    }
+
+    long[] getInputOffsets() {
+        return inputOffsets;
+    }
+
+    int getDirectSuccessorCount() {
+        return directSuccessorCount;
+    }
+
+    long[] getSuccessorOffsets() {
+        return successorOffsets;
+    }
+
+    long[] getDataOffsets() {
+        return dataOffsets;
+    }
+
+    Class<?>[] getDataTypes() {
+        return dataTypes;
+    }
+
+    String getFieldName(long offset) {
+        return fieldNames.get(offset);
+    }
+
     protected static class FieldScanner extends BaseFieldScanner {
 
         public final ArrayList<Long> inputOffsets = new ArrayList<>();
@@ -32,14 +32,26 @@ import static com.oracle.graal.hotspot.HotSpotForeignCallLinkage.RegisterEffect.
 import static com.oracle.graal.hotspot.HotSpotForeignCallLinkage.Transition.*;
 import static com.oracle.graal.hotspot.replacements.AESCryptSubstitutions.*;
 import static com.oracle.graal.hotspot.replacements.CipherBlockChainingSubstitutions.*;
+import static com.oracle.graal.hotspot.stubs.ArrayCopyStub.*;
+import static com.oracle.graal.hotspot.stubs.ArrayFillStub.*;
+import static com.oracle.graal.phases.GraalOptions.*;
 
+import java.util.*;
+
+import com.oracle.graal.amd64.*;
 import com.oracle.graal.api.code.*;
 import com.oracle.graal.api.meta.*;
 import com.oracle.graal.graph.*;
 import com.oracle.graal.hotspot.*;
 import com.oracle.graal.hotspot.meta.*;
+import com.oracle.graal.hotspot.replacements.*;
+import com.oracle.graal.hotspot.stubs.*;
+import com.oracle.graal.loop.phases.*;
 import com.oracle.graal.nodes.calc.*;
 import com.oracle.graal.nodes.spi.*;
+import com.oracle.graal.phases.*;
+import com.oracle.graal.phases.common.*;
+import com.oracle.graal.phases.tiers.*;
 import com.oracle.graal.replacements.amd64.*;
 
 public class AMD64HotSpotRuntime extends HotSpotRuntime {
@@ -70,6 +82,22 @@ public class AMD64HotSpotRuntime extends HotSpotRuntime {
         registerForeignCall(ENCRYPT, config.cipherBlockChainingEncryptAESCryptStub, NativeCall, PRESERVES_REGISTERS, LEAF, NOT_REEXECUTABLE, ANY_LOCATION);
         registerForeignCall(DECRYPT, config.cipherBlockChainingDecryptAESCryptStub, NativeCall, PRESERVES_REGISTERS, LEAF, NOT_REEXECUTABLE, ANY_LOCATION);
 
+        TargetDescription target = graalRuntime.getTarget();
+        // a conjoint copy that overlaps cannot be re-executed once it has started
+        link(new ArrayCopyStub(this, replacements, target, registerStubCall(ARRAYCOPY_DISJOINT, REEXECUTABLE, LEAF, ANY_LOCATION), false, false));
+        link(new ArrayCopyStub(this, replacements, target, registerStubCall(ARRAYCOPY_CONJOINT, NOT_REEXECUTABLE, LEAF, ANY_LOCATION), true, false));
+        link(new ArrayCopyStub(this, replacements, target, registerStubCall(ARRAYCOPY_ALIGNED_DISJOINT, REEXECUTABLE, LEAF, ANY_LOCATION), false, true));
+        link(new ArrayCopyStub(this, replacements, target, registerStubCall(ARRAYCOPY_ALIGNED_CONJOINT, NOT_REEXECUTABLE, LEAF, ANY_LOCATION), true, true));
+        link(new ArrayFillStub(this, replacements, target, registerStubCall(ARRAY_FILL, REEXECUTABLE, LEAF, ANY_LOCATION)));
+
+        if (Intrinsify.getValue()) {
+            replacements.registerSubstitutions(AMD64ArraysSubstitutions.class);
+            replacements.registerSubstitutions(ArrayFillSubstitutions.class);
+            if (AMD64StringSubstitutions.isSupported()) {
+                replacements.registerSubstitutions(AMD64StringSubstitutions.class);
+            }
+        }
+
         convertSnippets = new AMD64ConvertSnippets.Templates(this, replacements, graalRuntime.getTarget());
         super.registerReplacements(replacements);
     }
@@ -83,6 +111,19 @@ public class AMD64HotSpotRuntime extends HotSpotRuntime {
         }
     }
 
+    @Override
+    public Suites createSuites() {
+        Suites ret = super.createSuites();
+        if (VectorizeLoops.getValue()) {
+            // packed int multiplication, minimum and maximum require SSE4.1
+            boolean sse41 = ((AMD64) graalRuntime.getTarget().arch).getSupportedSSEVersion() >= 4;
+            ListIterator<BasePhase<? super HighTierContext>> position = ret.getHighTier().findPhase(RemoveValueProxyPhase.class);
+            position.previous();
+            position.add(new LoopVectorizationPhase(sse41));
+        }
+        return ret;
+    }
+
     @Override
     public Register threadRegister() {
         return r15;
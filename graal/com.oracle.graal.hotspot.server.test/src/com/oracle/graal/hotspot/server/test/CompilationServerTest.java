@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.server.test;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+import com.oracle.graal.hotspot.server.*;
+
+/**
+ * Tests the {@link CompilationServer} with several stand-in clients connected over the loopback
+ * interface.
+ */
+public class CompilationServerTest {
+
+    /**
+     * The remote interface of the test server. Besides {@link #compile(int)} it has methods named
+     * like {@code CompilerToVM} methods that are sent asynchronously or cached in pipelined mode.
+     */
+    public interface TestCompiler {
+
+        int compile(int id);
+
+        void reprofile(long id);
+
+        String getSignature(long id);
+
+        long[] reprofiled();
+
+        int signatureLookups();
+    }
+
+    public static class TestCompilerImpl implements TestCompiler, Remote {
+
+        private final List<Long> reprofiled = new ArrayList<>();
+        private int signatureLookups;
+
+        public int compile(int id) {
+            return id * 2;
+        }
+
+        public void reprofile(long id) {
+            if (id < 0) {
+                throw new IllegalArgumentException("invalid id " + id);
+            }
+            reprofiled.add(id);
+        }
+
+        public String getSignature(long id) {
+            signatureLookups++;
+            return "()V" + id;
+        }
+
+        public long[] reprofiled() {
+            long[] result = new long[reprofiled.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = reprofiled.get(i);
+            }
+            return result;
+        }
+
+        public int signatureLookups() {
+            return signatureLookups;
+        }
+    }
+
+    private static class TestServer extends CompilationServer {
+
+        public TestServer() {
+            super(true, 0, 2);
+        }
+
+        @Override
+        protected Object initializeSession(Object clientObject) {
+            assertEquals(CLIENT_NAME, clientObject);
+            return new TestCompilerImpl();
+        }
+    }
+
+    private static final String CLIENT_NAME = "loopback client";
+
+    /**
+     * Stand-in for a client VM. Instead of its {@code CompilerToVM} it sends a string to the
+     * server, and it receives the {@link TestCompiler} of the server.
+     */
+    private static class LoopbackClient {
+
+        private final Socket socket;
+        private final ReplacingStreams streams;
+        private final TestCompiler compiler;
+
+        public LoopbackClient(int port) throws Exception {
+            socket = new Socket(InetAddress.getByName(null), port);
+            final DataInputStream socketInput = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final FrameInputStream input = new FrameInputStream();
+            Thread reader = new Thread() {
+
+                @Override
+                public void run() {
+                    try {
+                        while (true) {
+                            byte[] frame = new byte[socketInput.readInt()];
+                            socketInput.readFully(frame);
+                            input.addFrame(frame);
+                        }
+                    } catch (IOException e) {
+                        input.endOfStream();
+                    }
+                }
+            };
+            reader.setDaemon(true);
+            reader.start();
+
+            streams = new ReplacingStreams(new FrameOutputStream(socket.getOutputStream()), input);
+            streams.getInvocation().sendResult(CLIENT_NAME);
+            compiler = (TestCompiler) streams.getInvocation().waitForResult(false);
+        }
+
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    private TestServer server;
+    private Thread serverThread;
+
+    @Before
+    public void startServer() throws IOException {
+        server = new TestServer();
+        server.bind();
+        serverThread = new Thread(server);
+        serverThread.start();
+    }
+
+    @After
+    public void stopServer() throws InterruptedException {
+        server.shutdown();
+        serverThread.join(10000);
+        assertFalse(serverThread.isAlive());
+    }
+
+    private static final int REQUESTS = 20;
+
+    @Test
+    public void testConcurrentClients() throws Exception {
+        final Map<ClientConnection, Long> finished = new ConcurrentHashMap<>();
+        server.addConnectionObserver(new CompilationServer.ConnectionObserver() {
+
+            public void connectionStarted(ClientConnection connection) {
+                assertTrue(connection.getServerObject() instanceof TestCompilerImpl);
+            }
+
+            public void connectionFinished(ClientConnection connection) {
+                finished.put(connection, connection.getRequestCount());
+            }
+        });
+
+        int clients = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            results.add(executor.submit(new Callable<Integer>() {
+
+                public Integer call() throws Exception {
+                    LoopbackClient client = new LoopbackClient(server.getLocalPort());
+                    int sum = 0;
+                    for (int j = 0; j < REQUESTS; j++) {
+                        sum += client.compiler.compile(j);
+                    }
+                    client.close();
+                    return sum;
+                }
+            }));
+        }
+        for (Future<Integer> result : results) {
+            assertEquals(REQUESTS * (REQUESTS - 1), (int) result.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while ((finished.size() < clients || !server.getConnections().isEmpty()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(clients, finished.size());
+        for (long requests : finished.values()) {
+            assertEquals(REQUESTS, requests);
+        }
+        for (ClientConnection connection : finished.keySet()) {
+            assertEquals(0, connection.getQueueDepth());
+            assertTrue(connection.getMaxLatency() >= connection.getAverageLatency());
+        }
+        assertTrue(server.getConnections().isEmpty());
+        assertEquals(0, server.getPendingRequests());
+    }
+
+    @Test
+    public void testMoreClientsThanWorkers() throws Exception {
+        // the test server has two worker threads, which must not be occupied by idle clients
+        List<LoopbackClient> idle = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            LoopbackClient client = new LoopbackClient(server.getLocalPort());
+            assertEquals(2 * i, client.compiler.compile(i));
+            idle.add(client);
+        }
+        LoopbackClient client = new LoopbackClient(server.getLocalPort());
+        for (int j = 0; j < REQUESTS; j++) {
+            assertEquals(2 * j, client.compiler.compile(j));
+        }
+        assertEquals(4, server.getConnections().size());
+        // the connections are served by the selector and worker threads only
+        int serverThreads = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("CompilationServer")) {
+                serverThreads++;
+            }
+        }
+        assertTrue(serverThreads <= 2);
+        client.close();
+        for (LoopbackClient c : idle) {
+            c.close();
+        }
+    }
+
+    @Test
+    public void testPipelining() throws Exception {
+        LoopbackClient client = new LoopbackClient(server.getLocalPort());
+        client.streams.getInvocation().setPipelining(true);
+        TestCompiler compiler = client.compiler;
+
+        // asynchronous calls are executed in order before the next synchronous call
+        compiler.reprofile(1);
+        compiler.reprofile(2);
+        compiler.reprofile(3);
+        assertArrayEquals(new long[]{1, 2, 3}, compiler.reprofiled());
+
+        // failures of asynchronous calls are reported by the next synchronous call
+        compiler.reprofile(-1);
+        try {
+            compiler.compile(1);
+            fail("expected failure of asynchronous call");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        assertEquals(4, compiler.compile(2));
+
+        // immutable results are only requested once per argument list
+        assertEquals("()V7", compiler.getSignature(7));
+        assertEquals("()V7", compiler.getSignature(7));
+        assertEquals("()V8", compiler.getSignature(8));
+        assertEquals(2, compiler.signatureLookups());
+        client.close();
+    }
+
+    @Test
+    public void testFrames() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FrameOutputStream output = new FrameOutputStream(bytes);
+        output.write(new byte[]{1, 2, 3});
+        output.flush();
+        output.flush();
+        output.write(4);
+        output.flush();
+
+        DataInputStream frames = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        FrameInputStream input = new FrameInputStream();
+        while (frames.available() > 0) {
+            byte[] frame = new byte[frames.readInt()];
+            frames.readFully(frame);
+            input.addFrame(frame);
+        }
+        input.endOfStream();
+        // flushing without pending data does not produce a frame
+        assertEquals(2, input.getQueueDepth());
+
+        byte[] buffer = new byte[8];
+        assertEquals(3, input.read(buffer, 0, buffer.length));
+        assertEquals(4, input.read());
+        assertEquals(-1, input.read());
+    }
+}
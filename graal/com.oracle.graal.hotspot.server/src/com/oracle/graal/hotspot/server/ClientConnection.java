@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.server;
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import com.oracle.graal.hotspot.logging.*;
+
+/**
+ * The connection of one client VM to a {@link CompilationServer}. The network I/O of a connection
+ * is done by the server's selector thread, which splits the incoming bytes into frames. Whenever
+ * frames arrive for a connection that is not being served, a task is dispatched to the server's
+ * worker threads that decodes and executes the messages of the received frames and returns once
+ * all of them are processed. A worker thread only waits for the client while a request makes
+ * callbacks to the client, so idle clients do not occupy any thread.
+ */
+public class ClientConnection implements InvocationSocket.InvocationListener {
+
+    private static final int INITIAL_READ_BUFFER_SIZE = 64 * 1024;
+
+    private final CompilationServer server;
+    private final SocketChannel channel;
+    private final SocketAddress remoteAddress;
+    private SelectionKey key;
+
+    private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER_SIZE);
+    private final FrameInputStream input = new FrameInputStream();
+    private final Queue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<>();
+    private volatile boolean closeRequested;
+    private boolean closed;
+
+    /**
+     * Set while a {@link #dispatchTask} is scheduled or running, which ensures that the messages
+     * of this connection are processed by one worker thread at a time in the order of arrival.
+     */
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+    private final Runnable dispatchTask = new Runnable() {
+
+        public void run() {
+            dispatch();
+        }
+    };
+
+    /**
+     * The streams of the session, created when the first frame arrives. Only accessed by the
+     * dispatch task.
+     */
+    private ReplacingStreams streams;
+    private boolean started;
+    private boolean finished;
+
+    private volatile Object serverObject;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    ClientConnection(CompilationServer server, SocketChannel channel) {
+        this.server = server;
+        this.channel = channel;
+        this.remoteAddress = channel.socket().getRemoteSocketAddress();
+    }
+
+    void register(Selector selector) throws IOException {
+        key = channel.register(selector, SelectionKey.OP_READ, this);
+    }
+
+    public SocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    /**
+     * Gets the object that was sent to the client when the connection was established.
+     */
+    public Object getServerObject() {
+        return serverObject;
+    }
+
+    /**
+     * Gets the number of messages received from the client that are waiting to be processed.
+     */
+    public int getQueueDepth() {
+        return input.getQueueDepth();
+    }
+
+    /**
+     * Gets the number of requests of the client that have been completed.
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Gets the average time in nanoseconds it took to complete a request of the client.
+     */
+    public long getAverageLatency() {
+        long count = requestCount.get();
+        return count == 0 ? 0 : totalLatency.get() / count;
+    }
+
+    /**
+     * Gets the maximum time in nanoseconds it took to complete a request of the client.
+     */
+    public long getMaxLatency() {
+        return maxLatency.get();
+    }
+
+    @Override
+    public void invocationFinished(String methodName, long nanos) {
+        requestCount.incrementAndGet();
+        totalLatency.addAndGet(nanos);
+        long max = maxLatency.get();
+        while (nanos > max && !maxLatency.compareAndSet(max, nanos)) {
+            max = maxLatency.get();
+        }
+    }
+
+    /**
+     * Schedules the processing of the received frames unless it is already scheduled.
+     */
+    private void scheduleDispatch() {
+        if (dispatching.compareAndSet(false, true)) {
+            server.getWorkers().execute(dispatchTask);
+        }
+    }
+
+    /**
+     * Processes the received messages until no more input is available. Called on a worker
+     * thread.
+     */
+    private void dispatch() {
+        do {
+            try {
+                while (!finished && hasInput()) {
+                    processMessage();
+                }
+            } catch (IOException | ClassNotFoundException e) {
+                Logger.log("Error in connection to " + remoteAddress + ": " + e);
+                finish();
+            }
+            dispatching.set(false);
+            // frames that arrived after the last check must not be left behind
+        } while (!finished && hasInput() && dispatching.compareAndSet(false, true));
+    }
+
+    private boolean hasInput() {
+        try {
+            return input.hasInput() || (streams != null && streams.getInvocation().hasInput());
+        } catch (IOException e) {
+            // reported when the input is read
+            return true;
+        }
+    }
+
+    private void processMessage() throws IOException, ClassNotFoundException {
+        if (streams == null) {
+            // reads the stream header of the client
+            streams = new ReplacingStreams(new FrameOutputStream(new ChannelOutputStream()), input);
+            streams.getInvocation().setInvocationListener(this);
+            streams.getInvocation().setPipelining(server.isPipelining());
+        } else if (!started) {
+            // get the CompilerToVM proxy from the client
+            Object clientObject = streams.getInvocation().waitForResult(false);
+
+            // return the initialized compiler to the client
+            serverObject = server.initializeSession(clientObject);
+            streams.getInvocation().sendResult(serverObject);
+            started = true;
+            server.connectionStarted(this);
+        } else if (!streams.getInvocation().receiveRequest()) {
+            server.connectionFinished(this);
+            finish();
+        }
+    }
+
+    private void finish() {
+        finished = true;
+        Logger.log(String.format("Disconnected from %s after %d requests, average latency %.3f ms, maximum latency %.3f ms", remoteAddress, getRequestCount(), getAverageLatency() / 1e6,
+                        getMaxLatency() / 1e6));
+        closeRequested = true;
+        server.requestUpdate(this);
+    }
+
+    /**
+     * Reads the available bytes from the channel, queues all complete frames and schedules their
+     * processing. Called on the selector thread.
+     */
+    void read() throws IOException {
+        if (channel.read(readBuffer) < 0) {
+            input.endOfStream();
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            scheduleDispatch();
+            return;
+        }
+        try {
+            readFrames();
+        } finally {
+            scheduleDispatch();
+        }
+    }
+
+    private void readFrames() throws IOException {
+        readBuffer.flip();
+        while (readBuffer.remaining() >= 4) {
+            int length = readBuffer.getInt(readBuffer.position());
+            if (length < 0) {
+                throw new IOException("invalid frame length " + length + " from " + remoteAddress);
+            }
+            if (readBuffer.remaining() < 4 + length) {
+                if (4 + length > readBuffer.capacity()) {
+                    ByteBuffer newBuffer = ByteBuffer.allocate(Math.max(4 + length, readBuffer.capacity() * 2));
+                    newBuffer.put(readBuffer);
+                    readBuffer = newBuffer;
+                    return;
+                }
+                break;
+            }
+            readBuffer.getInt();
+            byte[] frame = new byte[length];
+            readBuffer.get(frame);
+            input.addFrame(frame);
+        }
+        readBuffer.compact();
+    }
+
+    /**
+     * Writes as many of the queued frames as the channel accepts. Called on the selector thread.
+     */
+    void write() throws IOException {
+        ByteBuffer buffer;
+        while ((buffer = writeQueue.peek()) != null) {
+            channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                return;
+            }
+            writeQueue.poll();
+        }
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        if (closeRequested) {
+            close();
+        }
+    }
+
+    /**
+     * Updates the operations the selector waits for after the session queued frames or finished.
+     * Called on the selector thread.
+     */
+    void update() throws IOException {
+        if (!key.isValid()) {
+            return;
+        }
+        if (!writeQueue.isEmpty()) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        } else if (closeRequested) {
+            close();
+        }
+    }
+
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+        }
+        input.endOfStream();
+        scheduleDispatch();
+        server.connectionClosed(this);
+    }
+
+    /**
+     * Queues the frames written by the session for the selector thread.
+     */
+    private class ChannelOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            writeQueue.add(ByteBuffer.wrap(Arrays.copyOfRange(b, off, off + len)));
+            server.requestUpdate(ClientConnection.this);
+        }
+    }
+}
@@ -24,44 +24,85 @@ package com.oracle.graal.hotspot.server;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.*;
 import java.util.*;
-
-import javax.net.*;
+import java.util.concurrent.*;
 
 import com.oracle.graal.hotspot.*;
 import com.oracle.graal.hotspot.bridge.*;
 import com.oracle.graal.hotspot.logging.*;
 
 /**
- * Server side of the client/server compilation model. The server listens for connections on the
- * hardcoded port 1199.
+ * Server side of the client/server compilation model. By default the server listens for
+ * connections on port 1199.
+ * <p>
+ * All sockets are served by a single selector thread using non-blocking I/O. The messages received
+ * from the clients are decoded and executed on a fixed pool of worker threads, so that no thread
+ * is occupied by an idle client and any number of client VMs can be connected. Clients must
+ * wrap their streams in a {@link FrameOutputStream} and {@link FrameInputStream} so that the server
+ * can find message boundaries.
  */
 public class CompilationServer implements Runnable {
 
+    public static final int DEFAULT_PORT = 1199;
+
     public static void main(String[] args) throws Exception {
         new CompilationServer(false).run();
     }
 
     public interface ConnectionObserver {
 
-        void connectionStarted(HotSpotGraalRuntime compiler);
+        void connectionStarted(ClientConnection connection);
 
-        void connectionFinished(HotSpotGraalRuntime compiler);
+        void connectionFinished(ClientConnection connection);
     }
 
+    private static final ThreadFactory WORKER_FACTORY = new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r);
+            thread.setName("CompilationServerWorker-" + thread.getId());
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
     private final boolean multiple;
-    private final ArrayList<ConnectionObserver> observers = new ArrayList<>();
+    private final int port;
+    private final int workerThreads;
+    private final List<ConnectionObserver> observers = new CopyOnWriteArrayList<>();
+    private final Set<ClientConnection> connections = Collections.newSetFromMap(new ConcurrentHashMap<ClientConnection, Boolean>());
+    private final Queue<ClientConnection> pendingUpdates = new ConcurrentLinkedQueue<>();
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private volatile ThreadPoolExecutor workers;
+    private volatile boolean running = true;
+    private volatile boolean pipelining;
 
     /**
-     * Creates a new Compilation server. The server is activated by calling {@link #run()} directly
-     * or via a new {@link Thread}.
+     * Creates a new Compilation server listening on {@link #DEFAULT_PORT} with one worker thread
+     * per available processor. The server is activated by calling {@link #run()} directly or via a
+     * new {@link Thread}.
      * 
      * @param multiple true if the server should server should serve an infinite amount of
-     *            consecutive connections, false if it should terminate after the first connection
-     *            ends.
+     *            connections, false if it should terminate after the first connection ends.
      */
     public CompilationServer(boolean multiple) {
+        this(multiple, DEFAULT_PORT, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new Compilation server.
+     * 
+     * @param port the port to listen on, or 0 to use an ephemeral port
+     * @param workerThreads the maximum number of client requests that are processed concurrently
+     */
+    public CompilationServer(boolean multiple, int port, int workerThreads) {
         this.multiple = multiple;
+        this.port = port;
+        this.workerThreads = workerThreads;
     }
 
     public void addConnectionObserver(ConnectionObserver observer) {
@@ -72,51 +113,173 @@ public class CompilationServer implements Runnable {
         observers.remove(observer);
     }
 
+    /**
+     * Enables pipelining of the calls the server makes to its clients for connections established
+     * after this call.
+     * 
+     * @see InvocationSocket#setPipelining(boolean)
+     */
+    public void setPipelining(boolean pipelining) {
+        this.pipelining = pipelining;
+    }
+
+    public boolean isPipelining() {
+        return pipelining;
+    }
+
+    /**
+     * Binds the server socket. This is done by {@link #run()} if it has not been done before.
+     */
+    public synchronized void bind() throws IOException {
+        if (serverChannel == null) {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.socket().bind(new InetSocketAddress(port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        }
+    }
+
+    /**
+     * Gets the port the server is listening on, or -1 if it has not been {@linkplain #bind() bound}
+     * yet.
+     */
+    public synchronized int getLocalPort() {
+        return serverChannel == null ? -1 : serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Gets the connections that are currently open.
+     */
+    public Collection<ClientConnection> getConnections() {
+        return new ArrayList<>(connections);
+    }
+
+    /**
+     * Gets the number of connections with received messages that are waiting for a worker thread.
+     */
+    public int getPendingRequests() {
+        ThreadPoolExecutor pool = workers;
+        return pool == null ? 0 : pool.getQueue().size();
+    }
+
+    /**
+     * Stops accepting connections, closes all open connections and terminates {@link #run()}.
+     */
+    public void shutdown() {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+    }
+
     public void run() {
-        final ServerSocket serverSocket;
         try {
-            serverSocket = ServerSocketFactory.getDefault().createServerSocket(1199);
+            bind();
         } catch (IOException e) {
             throw new RuntimeException("Couldn't create compilation server", e);
         }
-        do {
-            Socket socket = null;
+        workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), WORKER_FACTORY);
+        Logger.log("Compilation server ready, waiting for clients to connect on port " + getLocalPort() + "...");
+        try {
+            while (running) {
+                selector.select();
+                ClientConnection updated;
+                while ((updated = pendingUpdates.poll()) != null) {
+                    updated.update();
+                }
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        ClientConnection connection = (ClientConnection) key.attachment();
+                        try {
+                            if (key.isReadable()) {
+                                connection.read();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                connection.write();
+                            }
+                        } catch (IOException e) {
+                            Logger.log("Error in connection to " + connection.getRemoteAddress() + ": " + e);
+                            connection.close();
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            for (ClientConnection connection : getConnections()) {
+                connection.close();
+            }
+            workers.shutdown();
             try {
-                Logger.log("Compilation server ready, waiting for client to connect...");
-                socket = serverSocket.accept();
-                Logger.log("Connected to " + socket.getRemoteSocketAddress());
+                serverChannel.close();
+                selector.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        if (!multiple) {
+            // only serve the first client
+            serverChannel.keyFor(selector).cancel();
+        }
+        Logger.log("Connected to " + channel.socket().getRemoteSocketAddress());
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        ClientConnection connection = new ClientConnection(this, channel);
+        connection.register(selector);
+        connections.add(connection);
+    }
 
-                ReplacingStreams streams = new ReplacingStreams(socket.getOutputStream(), socket.getInputStream());
+    ExecutorService getWorkers() {
+        return workers;
+    }
 
-                // get the CompilerToVM proxy from the client
-                CompilerToVM toVM = (CompilerToVM) streams.getInvocation().waitForResult(false);
+    void requestUpdate(ClientConnection connection) {
+        pendingUpdates.add(connection);
+        selector.wakeup();
+    }
 
-                // return the initialized compiler to the client
-                HotSpotGraalRuntime compiler = initializeServer(toVM);
-                streams.getInvocation().sendResult(compiler);
+    void connectionStarted(ClientConnection connection) {
+        for (ConnectionObserver observer : observers) {
+            observer.connectionStarted(connection);
+        }
+    }
 
-                for (ConnectionObserver observer : observers) {
-                    observer.connectionStarted(compiler);
-                }
+    void connectionFinished(ClientConnection connection) {
+        for (ConnectionObserver observer : observers) {
+            observer.connectionFinished(connection);
+        }
+    }
 
-                streams.getInvocation().waitForResult(true);
+    void connectionClosed(ClientConnection connection) {
+        connections.remove(connection);
+        if (!multiple) {
+            running = false;
+        }
+    }
 
-                for (ConnectionObserver observer : observers) {
-                    observer.connectionFinished(compiler);
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
-            } catch (ClassNotFoundException e) {
-                throw new RuntimeException(e);
-            } finally {
-                if (socket != null) {
-                    try {
-                        socket.close();
-                    } catch (IOException e) {
-                    }
-                }
-            }
-        } while (multiple);
+    /**
+     * Creates the object that is sent to a client in reply to the first object the client sends,
+     * which normally is its {@link CompilerToVM}. Remote invocations of the client on the returned
+     * object are executed by the server.
+     */
+    protected Object initializeSession(Object clientObject) {
+        return initializeServer((CompilerToVM) clientObject);
     }
 
     @SuppressWarnings("unused")
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.server;
+
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * An input stream over a queue of frames written by a {@link FrameOutputStream}. Frames are added
+ * by the thread doing the network I/O and consumed by the thread reading this stream, which blocks
+ * while no frame is available.
+ */
+public class FrameInputStream extends InputStream {
+
+    private static final byte[] END_OF_STREAM = new byte[0];
+
+    private final LinkedBlockingQueue<byte[]> frames = new LinkedBlockingQueue<>();
+    private final AtomicInteger queuedFrames = new AtomicInteger();
+    private final AtomicBoolean endOfStreamAdded = new AtomicBoolean();
+    private byte[] current;
+    private int position;
+    private boolean endOfStream;
+
+    /**
+     * Appends a frame to the stream.
+     */
+    public void addFrame(byte[] frame) {
+        queuedFrames.incrementAndGet();
+        frames.add(frame);
+    }
+
+    /**
+     * Marks the end of the stream. Reads return -1 once all frames added before this call have been
+     * consumed.
+     */
+    public void endOfStream() {
+        if (endOfStreamAdded.compareAndSet(false, true)) {
+            frames.add(END_OF_STREAM);
+        }
+    }
+
+    /**
+     * Gets the number of frames that have been received but not yet consumed.
+     */
+    public int getQueueDepth() {
+        return queuedFrames.get();
+    }
+
+    /**
+     * Determines if a read would return without waiting for a frame, because bytes of the current
+     * frame are left, another frame has been added or the end of the stream has been marked.
+     */
+    public boolean hasInput() {
+        return available() > 0 || !frames.isEmpty();
+    }
+
+    private boolean nextFrame() throws IOException {
+        while (current == null || position == current.length) {
+            if (endOfStream) {
+                return false;
+            }
+            try {
+                current = frames.take();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+            position = 0;
+            if (current == END_OF_STREAM) {
+                endOfStream = true;
+                return false;
+            }
+            queuedFrames.decrementAndGet();
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextFrame()) {
+            return -1;
+        }
+        return current[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextFrame()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current == null ? 0 : current.length - position;
+    }
+}
@@ -33,16 +33,43 @@ import com.oracle.graal.hotspot.logging.*;
  * A collection of java.lang.reflect proxies that communicate over a socket connection.
  * 
  * Calling a method sends the method name and the parameters through the socket. Afterwards this
- * class waits for a result. While waiting for a result three types of objects can arrive through
+ * class waits for a result. While waiting for a result three types of messages can arrive through
  * the socket: a method invocation, a method result or an exception. Method invocation can thus be
  * recursive.
+ * 
+ * Messages are encoded compactly: each one starts with a tag byte, method names are sent only the
+ * first time they are used and replaced by an index afterwards, and primitive arguments are written
+ * without boxing.
+ * 
+ * In {@linkplain #setPipelining(boolean) pipelined mode} two further optimizations are enabled.
+ * Calls to the void methods in {@link #asyncMethodNames} do not wait for the other end: they are
+ * batched with the next message that is flushed, and failures are reported to the next synchronous
+ * call. In addition, the results of the methods in {@link #immutableMethodNames}, which only depend
+ * on their arguments, are cached for the lifetime of the socket.
  */
 public class InvocationSocket {
 
     private static final boolean DEBUG = false;
     private static final boolean COUNT_CALLS = false;
 
+    private static final byte TAG_INVOCATION = 1;
+    private static final byte TAG_RESULT = 2;
+    private static final byte TAG_EXCEPTION = 3;
+    private static final byte TAG_ASYNC_EXCEPTION = 4;
+
+    private static final byte FLAG_ASYNC = 0x10;
+    private static final byte FLAG_NEW_METHOD = 0x20;
+    private static final byte TAG_MASK = 0x0f;
+
+    private static final byte ARG_OBJECT = 0;
+    private static final byte ARG_LONG = 1;
+    private static final byte ARG_INT = 2;
+    private static final byte ARG_BYTE = 3;
+    private static final byte ARG_BOOLEAN = 4;
+
     private static final HashSet<String> cachedMethodNames = new HashSet<>();
+    private static final HashSet<String> immutableMethodNames = new HashSet<>();
+    private static final HashSet<String> asyncMethodNames = new HashSet<>();
     private static final HashSet<String> forbiddenMethodNames = new HashSet<>();
 
     static {
@@ -52,6 +79,26 @@ public class InvocationSocket {
         cachedMethodNames.add("getCompilerToVM");
         cachedMethodNames.add("exactType");
         cachedMethodNames.add("isInitialized");
+
+        immutableMethodNames.add("getSignature");
+        immutableMethodNames.add("hasBalancedMonitors");
+        immutableMethodNames.add("constantPoolLength");
+        immutableMethodNames.add("getResolvedType");
+        immutableMethodNames.add("getInstanceFields");
+        immutableMethodNames.add("getMethods");
+        immutableMethodNames.add("getJavaField");
+        immutableMethodNames.add("getVtableEntryOffset");
+        immutableMethodNames.add("hasVtableEntry");
+        immutableMethodNames.add("getLineNumberTable");
+        immutableMethodNames.add("getLocalVariableTable");
+        immutableMethodNames.add("getFileName");
+        immutableMethodNames.add("getStackTraceElement");
+
+        asyncMethodNames.add("lookupReferencedTypeInPool");
+        asyncMethodNames.add("initializeType");
+        asyncMethodNames.add("reprofile");
+        asyncMethodNames.add("invalidateInstalledCode");
+
         forbiddenMethodNames.add("javaClass");
     }
 
@@ -60,6 +107,38 @@ public class InvocationSocket {
 
     private final Map<String, Integer> counts = new HashMap<>();
 
+    /**
+     * Indexes of the method names that have been sent to the other end.
+     */
+    private final Map<String, Integer> sentMethodNames = new HashMap<>();
+
+    /**
+     * The method names received from the other end, in the order of their indexes.
+     */
+    private final List<String> receivedMethodNames = new ArrayList<>();
+
+    private boolean pipelining;
+
+    /**
+     * The first failure of an asynchronous invocation that has not been reported yet.
+     */
+    private Throwable asyncFailure;
+
+    /**
+     * Notified about the invocations executed on behalf of the other end of the socket.
+     */
+    public interface InvocationListener {
+
+        void invocationFinished(String methodName, long nanos);
+    }
+
+    private InvocationListener listener;
+
+    /**
+     * Returned by {@link #receiveMessage(byte)} for messages that are not a result.
+     */
+    private static final Object NO_RESULT = new Object();
+
     public InvocationSocket(ObjectOutputStream output, ObjectInputStream input) {
         this.output = output;
         this.input = input;
@@ -81,38 +160,16 @@ public class InvocationSocket {
         }
     }
 
-    /**
-     * Represents one invocation of a method that is transferred via the socket connection.
-     * 
-     */
-    private static class Invocation implements Serializable {
-
-        private static final long serialVersionUID = -799162779226626066L;
-
-        public Object receiver;
-        public String methodName;
-        public Object[] args;
-
-        public Invocation(Object receiver, String methodName, Object[] args) {
-            this.receiver = receiver;
-            this.methodName = methodName;
-            this.args = args;
-        }
+    public void setInvocationListener(InvocationListener listener) {
+        this.listener = listener;
     }
 
     /**
-     * Represents the result of an invocation that is transferred via the socket connection.
-     * 
+     * Enables or disables pipelining of asynchronous invocations and caching of immutable results
+     * for the invocations made through this socket.
      */
-    private static class Result implements Serializable {
-
-        private static final long serialVersionUID = -7496058356272415814L;
-
-        public Object result;
-
-        public Result(Object result) {
-            this.result = result;
-        }
+    public void setPipelining(boolean pipelining) {
+        this.pipelining = pipelining;
     }
 
     private void incCount(String name, Object[] args) {
@@ -126,6 +183,78 @@ public class InvocationSocket {
         }
     }
 
+    private void writeInvocation(Object receiver, String methodName, Object[] args, boolean async) throws IOException {
+        Integer index = sentMethodNames.get(methodName);
+        byte tag = TAG_INVOCATION;
+        if (async) {
+            tag |= FLAG_ASYNC;
+        }
+        if (index == null) {
+            index = sentMethodNames.size();
+            sentMethodNames.put(methodName, index);
+            output.writeByte(tag | FLAG_NEW_METHOD);
+            output.writeUTF(methodName);
+        } else {
+            output.writeByte(tag);
+            output.writeShort(index);
+        }
+        output.writeObject(receiver);
+        if (args == null) {
+            output.writeByte(-1);
+        } else {
+            output.writeByte(args.length);
+            for (Object arg : args) {
+                writeArgument(arg);
+            }
+        }
+    }
+
+    private void writeArgument(Object arg) throws IOException {
+        if (arg instanceof Long) {
+            output.writeByte(ARG_LONG);
+            output.writeLong((Long) arg);
+        } else if (arg instanceof Integer) {
+            output.writeByte(ARG_INT);
+            output.writeInt((Integer) arg);
+        } else if (arg instanceof Byte) {
+            output.writeByte(ARG_BYTE);
+            output.writeByte((Byte) arg);
+        } else if (arg instanceof Boolean) {
+            output.writeByte(ARG_BOOLEAN);
+            output.writeBoolean((Boolean) arg);
+        } else {
+            output.writeByte(ARG_OBJECT);
+            output.writeObject(arg);
+        }
+    }
+
+    private Object readArgument() throws IOException, ClassNotFoundException {
+        byte kind = input.readByte();
+        switch (kind) {
+            case ARG_LONG:
+                return input.readLong();
+            case ARG_INT:
+                return input.readInt();
+            case ARG_BYTE:
+                return input.readByte();
+            case ARG_BOOLEAN:
+                return input.readBoolean();
+            default:
+                assert kind == ARG_OBJECT;
+                return input.readObject();
+        }
+    }
+
+    private static Object copyIfArray(Object value) {
+        if (value != null && value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+            System.arraycopy(value, 0, copy, 0, length);
+            return copy;
+        }
+        return value;
+    }
+
     /**
      * Each instance of this class handles remote invocations for one instance of a Remote class. It
      * will forward all interface methods to the other end of the socket and cache the results of
@@ -136,6 +265,7 @@ public class InvocationSocket {
 
         private final Object receiver;
         private final HashMap<String, Object> cache = new HashMap<>();
+        private final HashMap<List<Object>, Object> immutableCache = new HashMap<>();
 
         public Handler(Object receiver) {
             this.receiver = receiver;
@@ -154,6 +284,15 @@ public class InvocationSocket {
                     return cache.get(methodName);
                 }
             }
+            List<Object> immutableKey = null;
+            if (pipelining && args != null && args.length > 0 && immutableMethodNames.contains(methodName)) {
+                immutableKey = new ArrayList<>(args.length + 1);
+                immutableKey.add(methodName);
+                immutableKey.addAll(Arrays.asList(args));
+                if (immutableCache.containsKey(immutableKey)) {
+                    return copyIfArray(immutableCache.get(immutableKey));
+                }
+            }
             if (forbiddenMethodNames.contains(methodName)) {
                 throw new IllegalAccessException(methodName + " not allowed");
             }
@@ -164,7 +303,13 @@ public class InvocationSocket {
                 }
                 incCount(methodName, args);
 
-                output.writeObject(new Invocation(receiver, methodName, args));
+                if (pipelining && method.getReturnType() == void.class && asyncMethodNames.contains(methodName)) {
+                    // sent together with the next message that is flushed
+                    writeInvocation(receiver, methodName, args, true);
+                    return null;
+                }
+
+                writeInvocation(receiver, methodName, args, false);
                 output.flush();
                 result = waitForResult(false);
 
@@ -172,6 +317,9 @@ public class InvocationSocket {
                 if ((args == null || args.length == 0) && cachedMethodNames.contains(methodName)) {
                     cache.put(methodName, result);
                 }
+                if (immutableKey != null) {
+                    immutableCache.put(immutableKey, copyIfArray(result));
+                }
                 return result;
             } catch (Throwable t) {
                 t.printStackTrace();
@@ -189,87 +337,174 @@ public class InvocationSocket {
      * this VM might arrive while waiting for the result, and these invocations will be executed
      * before again waiting fort he result.
      */
-    @SuppressWarnings("unused")
     public Object waitForResult(boolean eofExpected) throws IOException, ClassNotFoundException {
         while (true) {
-            Object in;
+            byte tag;
             try {
-                in = input.readObject();
+                tag = input.readByte();
             } catch (EOFException e) {
                 if (eofExpected) {
                     return null;
                 }
                 throw e;
             }
-            if (in instanceof Result) {
-                return ((Result) in).result;
-            } else if (in instanceof RuntimeException) {
-                throw (RuntimeException) in;
-            } else if (in instanceof Throwable) {
-                throw new RuntimeException((Throwable) in);
+            Object result = receiveMessage(tag);
+            if (result != NO_RESULT) {
+                return result;
             }
+        }
+    }
 
-            Invocation invoke = (Invocation) in;
-            Method method = null;
-            for (Class<?> clazz = invoke.receiver.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
-                for (Method m : clazz.getDeclaredMethods()) {
-                    if (invoke.methodName.equals(m.getName())) {
-                        method = m;
-                        break;
-                    }
+    /**
+     * Receives the next message without waiting for a result. This is used to serve the requests
+     * of the other end one message at a time, so that no thread has to wait for the next request.
+     * The message must not be a result, but invocations made while executing a request are
+     * received as usual.
+     * 
+     * @return false if the other end has closed the stream
+     */
+    public boolean receiveRequest() throws IOException, ClassNotFoundException {
+        byte tag;
+        try {
+            tag = input.readByte();
+        } catch (EOFException e) {
+            return false;
+        }
+        Object result = receiveMessage(tag);
+        if (result != NO_RESULT) {
+            throw new IOException("unexpected result " + result);
+        }
+        return true;
+    }
+
+    /**
+     * Determines if bytes of the next message have been received.
+     */
+    public boolean hasInput() throws IOException {
+        return input.available() > 0;
+    }
+
+    private Object receiveMessage(byte tag) throws IOException, ClassNotFoundException {
+        switch (tag & TAG_MASK) {
+            case TAG_RESULT: {
+                Object result = input.readObject();
+                reportAsyncFailure();
+                return result;
+            }
+            case TAG_EXCEPTION: {
+                Object exception = input.readObject();
+                if (exception instanceof RuntimeException) {
+                    throw (RuntimeException) exception;
                 }
+                throw new RuntimeException((Throwable) exception);
             }
-            if (method == null) {
-                Exception e = new UnsupportedOperationException("unknown method " + invoke.methodName);
-                e.printStackTrace();
-                output.writeObject(e);
-                output.flush();
-            } else {
-                Object result = null;
-                try {
-                    if (invoke.args == null) {
-                        if (DEBUG) {
-                            Logger.startScope("invoking local " + invoke.methodName);
-                        }
-                        result = method.invoke(invoke.receiver);
-                    } else {
-                        if (Logger.ENABLED && DEBUG) {
-                            StringBuilder str = new StringBuilder();
-                            str.append("invoking local " + invoke.methodName + "(");
-                            for (int i = 0; i < invoke.args.length; i++) {
-                                str.append(i == 0 ? "" : ", ");
-                                str.append(Logger.pretty(invoke.args[i]));
-                            }
-                            str.append(")");
-                            Logger.startScope(str.toString());
-                        }
-                        result = method.invoke(invoke.receiver, invoke.args);
-                    }
-                    result = new Result(result);
-                } catch (IllegalArgumentException e) {
-                    TTY.println("error while invoking " + invoke.methodName);
-                    e.getCause().printStackTrace();
-                    result = e.getCause();
-                } catch (InvocationTargetException e) {
-                    TTY.println("error while invoking " + invoke.methodName);
-                    e.getCause().printStackTrace();
-                    result = e.getCause();
-                } catch (IllegalAccessException e) {
-                    TTY.println("error while invoking " + invoke.methodName);
-                    e.getCause().printStackTrace();
-                    result = e.getCause();
-                } finally {
+            case TAG_ASYNC_EXCEPTION: {
+                Throwable exception = (Throwable) input.readObject();
+                if (asyncFailure == null) {
+                    asyncFailure = exception;
+                }
+                return NO_RESULT;
+            }
+        }
+
+        assert (tag & TAG_MASK) == TAG_INVOCATION;
+        String methodName;
+        if ((tag & FLAG_NEW_METHOD) != 0) {
+            methodName = input.readUTF();
+            receivedMethodNames.add(methodName);
+        } else {
+            methodName = receivedMethodNames.get(input.readShort());
+        }
+        boolean async = (tag & FLAG_ASYNC) != 0;
+        Object receiver = input.readObject();
+        int argCount = input.readByte();
+        Object[] args = null;
+        if (argCount >= 0) {
+            args = new Object[argCount];
+            for (int i = 0; i < argCount; i++) {
+                args[i] = readArgument();
+            }
+        }
+        execute(methodName, async, receiver, args);
+        return NO_RESULT;
+    }
+
+    private void execute(String methodName, boolean async, Object receiver, Object[] args) throws IOException {
+        Method method = null;
+        for (Class<?> clazz = receiver.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
+            for (Method m : clazz.getDeclaredMethods()) {
+                if (methodName.equals(m.getName())) {
+                    method = m;
+                    break;
+                }
+            }
+        }
+        if (method == null) {
+            Exception e = new UnsupportedOperationException("unknown method " + methodName);
+            e.printStackTrace();
+            output.writeByte(async ? TAG_ASYNC_EXCEPTION : TAG_EXCEPTION);
+            output.writeObject(e);
+            output.flush();
+        } else {
+            Object result = null;
+            Throwable exception = null;
+            long start = System.nanoTime();
+            try {
+                if (args == null) {
                     if (DEBUG) {
-                        if (result instanceof Result) {
-                            Logger.endScope(" = " + ((Result) result).result);
-                        } else {
-                            Logger.endScope(" = " + result);
+                        Logger.startScope("invoking local " + methodName);
+                    }
+                    result = method.invoke(receiver);
+                } else {
+                    if (Logger.ENABLED && DEBUG) {
+                        StringBuilder str = new StringBuilder();
+                        str.append("invoking local " + methodName + "(");
+                        for (int i = 0; i < args.length; i++) {
+                            str.append(i == 0 ? "" : ", ");
+                            str.append(Logger.pretty(args[i]));
                         }
+                        str.append(")");
+                        Logger.startScope(str.toString());
                     }
+                    result = method.invoke(receiver, args);
+                }
+            } catch (IllegalArgumentException e) {
+                TTY.println("error while invoking " + methodName);
+                e.getCause().printStackTrace();
+                exception = e.getCause();
+            } catch (InvocationTargetException e) {
+                TTY.println("error while invoking " + methodName);
+                e.getCause().printStackTrace();
+                exception = e.getCause();
+            } catch (IllegalAccessException e) {
+                TTY.println("error while invoking " + methodName);
+                e.getCause().printStackTrace();
+                exception = e.getCause();
+            } finally {
+                if (DEBUG) {
+                    Logger.endScope(" = " + (exception != null ? exception : result));
                 }
+            }
+            if (exception != null) {
+                output.writeByte(async ? TAG_ASYNC_EXCEPTION : TAG_EXCEPTION);
+                output.writeObject(exception);
+                output.flush();
+            } else if (!async) {
+                output.writeByte(TAG_RESULT);
                 output.writeObject(result);
                 output.flush();
             }
+            if (listener != null) {
+                listener.invocationFinished(methodName, System.nanoTime() - start);
+            }
+        }
+    }
+
+    private void reportAsyncFailure() {
+        if (asyncFailure != null) {
+            Throwable failure = asyncFailure;
+            asyncFailure = null;
+            throw new RuntimeException("asynchronous remote invocation failed", failure);
         }
     }
 
@@ -277,7 +512,8 @@ public class InvocationSocket {
      * Sends a result without invoking a method, used by CompilationServer startup code.
      */
     public void sendResult(Object obj) throws IOException {
-        output.writeObject(new Result(obj));
+        output.writeByte(TAG_RESULT);
+        output.writeObject(obj);
         output.flush();
     }
     // CheckStyle: resume system..print check
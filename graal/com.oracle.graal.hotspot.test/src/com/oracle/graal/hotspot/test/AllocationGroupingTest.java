@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.test;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+import org.junit.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.compiler.test.*;
+import com.oracle.graal.hotspot.meta.*;
+import com.oracle.graal.hotspot.nodes.*;
+import com.oracle.graal.hotspot.phases.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.phases.*;
+import com.oracle.graal.phases.tiers.*;
+
+/**
+ * Tests the grouping of consecutive allocations by {@link AllocationGroupingPhase}. The snippets
+ * publish their objects in a static field, so that escape analysis materializes them right before
+ * the store and the allocations reach the low tier next to each other.
+ */
+public class AllocationGroupingTest extends GraalCompilerTest {
+
+    static class Wrapper {
+
+        final int[] values;
+
+        Wrapper(int[] values) {
+            this.values = values;
+        }
+    }
+
+    static Wrapper lastWrapper;
+
+    public static int groupSnippet(int x) {
+        Wrapper wrapper = new Wrapper(new int[4]);
+        wrapper.values[1] = x;
+        lastWrapper = wrapper;
+        return wrapper.values[1] + wrapper.values.length;
+    }
+
+    public static int variableLengthSnippet(int length) {
+        Wrapper wrapper = new Wrapper(new int[length]);
+        lastWrapper = wrapper;
+        return wrapper.values.length;
+    }
+
+    /**
+     * Runs the high and mid tier on a snippet, which yields the graph that the low tier and thus
+     * {@link AllocationGroupingPhase} start with.
+     */
+    private StructuredGraph lowTierGraph(String snippet) {
+        StructuredGraph graph = parse(snippet);
+        Assumptions assumptions = new Assumptions(false);
+        suites.getHighTier().apply(graph, new HighTierContext(runtime(), assumptions, replacements, null, getDefaultPhasePlan(), OptimisticOptimizations.ALL));
+        suites.getMidTier().apply(graph, new MidTierContext(runtime(), assumptions, replacements, runtime().getTarget(), OptimisticOptimizations.ALL));
+        return graph;
+    }
+
+    /**
+     * Runs the compiled snippet and checks the wrapper it published.
+     */
+    private void testCompiledGroup(int x) throws Exception {
+        Method method = getMethod("groupSnippet");
+        lastWrapper = null;
+        Object result = getCode(runtime.lookupJavaMethod(method), parse(method)).executeVarargs(x);
+        Assert.assertEquals(x + 4, result);
+
+        // a collection finds any object that was not formatted properly
+        System.gc();
+        Wrapper wrapper = lastWrapper;
+        Assert.assertNotNull(wrapper);
+        Assert.assertNotNull(wrapper.values);
+        Assert.assertEquals(4, wrapper.values.length);
+        Assert.assertArrayEquals(new int[]{0, x, 0, 0}, wrapper.values);
+    }
+
+    @Test
+    public void testGroup() throws Exception {
+        test("groupSnippet", 42);
+        StructuredGraph graph = lowTierGraph("groupSnippet");
+        new AllocationGroupingPhase((HotSpotRuntime) runtime()).apply(graph);
+        Assert.assertEquals(1, graph.getNodes().filter(AllocationGroupNode.class).count());
+        Assert.assertEquals(2, graph.getNodes().filter(AllocationGroupMemberNode.class).count());
+
+        testCompiledGroup(42);
+        testCompiledGroup(-1);
+    }
+
+    /**
+     * Makes every reservation of the compiled code fail, as when the TLAB does not have enough
+     * space left, so that each allocation of the group falls back to its own allocation path.
+     */
+    @Test
+    public void testReservationFails() throws Exception {
+        final int[] failedReservations = {0};
+        ListIterator<BasePhase<? super LowTierContext>> lowTier = suites.getLowTier().findPhase(AllocationGroupingPhase.class);
+        Assert.assertTrue(lowTier.previous() instanceof AllocationGroupingPhase);
+        lowTier.next();
+        lowTier.add(new Phase() {
+
+            @Override
+            protected void run(StructuredGraph graph) {
+                for (AllocationGroupNode group : graph.getNodes().filter(AllocationGroupNode.class).snapshot()) {
+                    graph.replaceFixedWithFloating(group, ConstantNode.forIntegerKind(runtime().getTarget().wordKind, 0, graph));
+                    failedReservations[0]++;
+                }
+            }
+        });
+
+        testCompiledGroup(42);
+        Assert.assertEquals(1, failedReservations[0]);
+    }
+
+    @Test
+    public void testVariableLength() {
+        test("variableLengthSnippet", 10);
+        StructuredGraph graph = lowTierGraph("variableLengthSnippet");
+        new AllocationGroupingPhase((HotSpotRuntime) runtime()).apply(graph);
+        Assert.assertEquals(0, graph.getNodes().filter(AllocationGroupNode.class).count());
+    }
+}
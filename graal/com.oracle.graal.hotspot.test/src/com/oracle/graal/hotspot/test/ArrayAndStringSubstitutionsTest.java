@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.test;
+
+import java.util.*;
+
+import org.junit.*;
+
+import com.oracle.graal.replacements.test.*;
+
+/**
+ * Tests the substitutions for {@link Arrays#equals} and the comparison and search methods of
+ * {@link String}. Besides checking that the substituted methods are inlined, the results of the
+ * compiled snippets are compared with the interpreter for arrays and strings whose lengths and
+ * first differences are around the block sizes used by the intrinsics.
+ */
+public class ArrayAndStringSubstitutionsTest extends MethodSubstitutionTest {
+
+    private static final int[] LENGTHS = {0, 1, 2, 3, 4, 7, 8, 9, 15, 16, 17, 31, 32, 33, 100};
+
+    public static boolean arraysEqualsByte(byte[] a, byte[] b) {
+        return Arrays.equals(a, b);
+    }
+
+    public static boolean arraysEqualsChar(char[] a, char[] b) {
+        return Arrays.equals(a, b);
+    }
+
+    public static boolean arraysEqualsInt(int[] a, int[] b) {
+        return Arrays.equals(a, b);
+    }
+
+    public static boolean arraysEqualsLong(long[] a, long[] b) {
+        return Arrays.equals(a, b);
+    }
+
+    public static boolean stringEquals(String a, Object b) {
+        return a.equals(b);
+    }
+
+    public static int stringCompareTo(String a, String b) {
+        return a.compareTo(b);
+    }
+
+    public static int stringIndexOfChar(String s, int ch, int fromIndex) {
+        return s.indexOf(ch, fromIndex);
+    }
+
+    public static int stringIndexOfString(String s, String str, int fromIndex) {
+        return s.indexOf(str, fromIndex);
+    }
+
+    private static char[] chars(int length) {
+        char[] c = new char[length];
+        for (int i = 0; i < length; i++) {
+            c[i] = (char) ('a' + i % 26);
+        }
+        return c;
+    }
+
+    @Test
+    public void testInlined() {
+        test("arraysEqualsByte");
+        test("arraysEqualsChar");
+        test("arraysEqualsInt");
+        test("arraysEqualsLong");
+        test("stringEquals");
+        test("stringCompareTo");
+        test("stringIndexOfChar");
+        test("stringIndexOfString");
+    }
+
+    @Test
+    public void testArraysEquals() {
+        test("arraysEqualsInt", null, null);
+        test("arraysEqualsInt", new int[0], null);
+        for (int length : LENGTHS) {
+            byte[] b1 = new byte[length];
+            char[] c1 = chars(length);
+            int[] i1 = new int[length];
+            long[] l1 = new long[length];
+            for (int i = 0; i < length; i++) {
+                b1[i] = (byte) i;
+                i1[i] = i * 1000;
+                l1[i] = i * 100000000000L;
+            }
+            test("arraysEqualsByte", b1, b1.clone());
+            test("arraysEqualsChar", c1, c1.clone());
+            test("arraysEqualsInt", i1, i1.clone());
+            test("arraysEqualsLong", l1, l1.clone());
+            test("arraysEqualsInt", i1, Arrays.copyOf(i1, length + 1));
+            for (int diff = 0; diff < length; diff++) {
+                byte[] b2 = b1.clone();
+                b2[diff]++;
+                char[] c2 = c1.clone();
+                c2[diff]++;
+                int[] i2 = i1.clone();
+                i2[diff]++;
+                long[] l2 = l1.clone();
+                l2[diff] ^= 1L << 40;
+                test("arraysEqualsByte", b1, b2);
+                test("arraysEqualsChar", c1, c2);
+                test("arraysEqualsInt", i1, i2);
+                test("arraysEqualsLong", l1, l2);
+            }
+        }
+    }
+
+    @Test
+    public void testStringEqualsAndCompareTo() {
+        test("stringEquals", "abc", null);
+        test("stringEquals", "abc", new Object());
+        test("stringCompareTo", "abc", null);
+        for (int length : LENGTHS) {
+            String s = new String(chars(length));
+            test("stringEquals", s, new String(chars(length)));
+            test("stringCompareTo", s, new String(chars(length)));
+            test("stringCompareTo", s, s + "x");
+            test("stringCompareTo", s + "x", s);
+            for (int diff = 0; diff < length; diff++) {
+                char[] c = chars(length);
+                c[diff] = '\u1234';
+                test("stringEquals", s, new String(c));
+                test("stringCompareTo", s, new String(c));
+                test("stringCompareTo", new String(c), s);
+            }
+        }
+    }
+
+    @Test
+    public void testStringIndexOf() {
+        String s = new String(chars(100)) + "\uD801\uDC00!";
+        for (int from = -1; from < s.length() + 2; from += 3) {
+            test("stringIndexOfChar", s, (int) 'a', from);
+            test("stringIndexOfChar", s, (int) 'z', from);
+            test("stringIndexOfChar", s, (int) '!', from);
+            test("stringIndexOfChar", s, (int) '#', from);
+            test("stringIndexOfChar", s, -5, from);
+            test("stringIndexOfChar", s, 0x10400, from);
+            test("stringIndexOfString", s, "xyz", from);
+            test("stringIndexOfString", s, "xyza", from);
+            test("stringIndexOfString", s, "", from);
+            test("stringIndexOfString", s, "\uDC00!", from);
+            test("stringIndexOfString", s, "xyy", from);
+        }
+        test("stringIndexOfString", s, null, 0);
+        test("stringIndexOfString", "ab", "abc", 0);
+    }
+}
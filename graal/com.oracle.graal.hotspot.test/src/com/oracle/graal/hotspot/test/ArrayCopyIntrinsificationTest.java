@@ -160,6 +160,64 @@ public class ArrayCopyIntrinsificationTest extends GraalCompilerTest {
         testHelper("objectArraycopyExact", src);
     }
 
+    /**
+     * Lengths around the block sizes and the {@code rep movs} threshold of the array copy stubs.
+     */
+    private static final int[] STUB_LENGTHS = {0, 1, 7, 8, 9, 31, 32, 33, 100, 2047, 2048, 2049, 5000};
+
+    @Test
+    public void testLargeByte() {
+        byte[] src = new byte[5000];
+        for (int i = 0; i < src.length; i++) {
+            src[i] = (byte) i;
+        }
+        testHelper("byteArraycopy", src);
+    }
+
+    @Test
+    public void testOverlapping() {
+        for (int length : STUB_LENGTHS) {
+            for (int offset : new int[]{-9, -8, -1, 1, 8, 9}) {
+                test("overlappingByteArraycopy", length, offset);
+                test("overlappingLongArraycopy", length, offset);
+            }
+        }
+    }
+
+    @Test
+    public void testNewArrayZeroing() {
+        for (int length : STUB_LENGTHS) {
+            test("newByteArray", length);
+            test("newLongArray", length);
+        }
+    }
+
+    public static byte[] overlappingByteArraycopy(int length, int offset) {
+        byte[] array = new byte[length + 16];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = (byte) i;
+        }
+        System.arraycopy(array, 8, array, 8 + offset, length);
+        return array;
+    }
+
+    public static long[] overlappingLongArraycopy(int length, int offset) {
+        long[] array = new long[length + 16];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = i;
+        }
+        System.arraycopy(array, 8, array, 8 + offset, length);
+        return array;
+    }
+
+    public static byte[] newByteArray(int length) {
+        return new byte[length];
+    }
+
+    public static long[] newLongArray(int length) {
+        return new long[length];
+    }
+
     private static Object newArray(Object proto, int length) {
         assert proto != null;
         assert proto.getClass().isArray();
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.test;
+
+import java.util.*;
+
+import org.junit.*;
+
+import com.oracle.graal.replacements.test.*;
+
+/**
+ * Tests the substitutions for the {@link Arrays#fill} methods that fill a whole primitive array.
+ * The lengths are around the block sizes and the {@code rep stos} threshold of the array fill stub.
+ */
+public class ArrayFillSubstitutionTest extends MethodSubstitutionTest {
+
+    private static final int[] LENGTHS = {0, 1, 3, 7, 8, 9, 15, 16, 17, 31, 32, 33, 100, 2047, 2048, 2049, 5000};
+
+    public static boolean[] fillBoolean(int length, boolean value) {
+        boolean[] a = new boolean[length];
+        Arrays.fill(a, value);
+        return a;
+    }
+
+    public static byte[] fillByte(int length, byte value) {
+        byte[] a = new byte[length];
+        Arrays.fill(a, value);
+        return a;
+    }
+
+    public static char[] fillChar(int length, char value) {
+        char[] a = new char[length];
+        Arrays.fill(a, value);
+        return a;
+    }
+
+    public static short[] fillShort(int length, short value) {
+        short[] a = new short[length];
+        Arrays.fill(a, value);
+        return a;
+    }
+
+    public static int[] fillInt(int length, int value) {
+        int[] a = new int[length];
+        Arrays.fill(a, value);
+        return a;
+    }
+
+    public static long[] fillLong(int length, long value) {
+        long[] a = new long[length];
+        Arrays.fill(a, value);
+        return a;
+    }
+
+    public static float[] fillFloat(int length, float value) {
+        float[] a = new float[length];
+        Arrays.fill(a, value);
+        return a;
+    }
+
+    public static double[] fillDouble(int length, double value) {
+        double[] a = new double[length];
+        Arrays.fill(a, value);
+        return a;
+    }
+
+    public static void fillNull(int[] a) {
+        Arrays.fill(a, 1);
+    }
+
+    @Test
+    public void testInlined() {
+        test("fillBoolean");
+        test("fillByte");
+        test("fillChar");
+        test("fillShort");
+        test("fillInt");
+        test("fillLong");
+        test("fillFloat");
+        test("fillDouble");
+    }
+
+    @Test
+    public void testFill() {
+        for (int length : LENGTHS) {
+            test("fillBoolean", length, true);
+            test("fillByte", length, (byte) -2);
+            test("fillChar", length, '\uabcd');
+            test("fillShort", length, (short) -3);
+            test("fillInt", length, 0x89abcdef);
+            test("fillLong", length, 0x0123456789abcdefL);
+            test("fillFloat", length, -1.5f);
+            test("fillDouble", length, Double.NaN);
+        }
+    }
+
+    @Test
+    public void testNull() {
+        test("fillNull", (Object) null);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+import com.oracle.graal.hotspot.meta.*;
+
+public class ConcurrentLongMapTest {
+
+    @Test
+    public void testGrow() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>(2);
+        for (long key = 0; key < 10000; key++) {
+            Assert.assertEquals(String.valueOf(key), map.putIfAbsent(key << 32, String.valueOf(key)));
+        }
+        for (long key = 0; key < 10000; key++) {
+            Assert.assertEquals(String.valueOf(key), map.get(key << 32));
+            Assert.assertEquals(String.valueOf(key), map.putIfAbsent(key << 32, "other"));
+        }
+        Assert.assertNull(map.get(-1));
+    }
+
+    /**
+     * Checks that threads inserting the same keys while the map grows agree on a single value per
+     * key.
+     */
+    @Test
+    public void testCanonicalValues() throws Exception {
+        final ConcurrentLongMap<Object> map = new ConcurrentLongMap<>(2);
+        final int keys = 20000;
+        final int threads = 4;
+        final CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Object[]>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(new Callable<Object[]>() {
+
+                public Object[] call() throws Exception {
+                    barrier.await();
+                    Object[] values = new Object[keys];
+                    for (int i = 0; i < keys; i++) {
+                        values[i] = map.putIfAbsent(i * 31L, new Object());
+                    }
+                    return values;
+                }
+            }));
+        }
+        Object[] first = results.get(0).get();
+        for (Future<Object[]> result : results) {
+            Object[] values = result.get();
+            for (int i = 0; i < keys; i++) {
+                Assert.assertSame(first[i], values[i]);
+                Assert.assertSame(first[i], map.get(i * 31L));
+            }
+        }
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.test;
+
+import static com.oracle.graal.hotspot.PriorityCompilationQueue.*;
+
+import org.junit.*;
+
+import com.oracle.graal.hotspot.*;
+import com.oracle.graal.hotspot.PriorityCompilationQueue.PrioritizedCompilation;
+
+public class PriorityCompilationQueueTest {
+
+    private static class Task implements PrioritizedCompilation {
+
+        long events;
+        boolean osr;
+        boolean obsolete;
+        boolean discarded;
+
+        Task(long events) {
+            this.events = events;
+        }
+
+        public void run() {
+        }
+
+        public long getProfiledEvents() {
+            return events;
+        }
+
+        public boolean isOSR() {
+            return osr;
+        }
+
+        public boolean isObsolete() {
+            return obsolete;
+        }
+
+        public boolean discard() {
+            discarded = true;
+            return true;
+        }
+    }
+
+    @Test
+    public void testHotterFirst() {
+        PriorityCompilationQueue queue = new PriorityCompilationQueue();
+        Task cold = new Task(10);
+        Task hot = new Task(1000);
+        Task warm = new Task(100);
+        queue.offer(cold);
+        queue.offer(hot);
+        queue.offer(warm);
+        Assert.assertSame(hot, queue.poll());
+        Assert.assertSame(warm, queue.poll());
+        Assert.assertSame(cold, queue.poll());
+        Assert.assertNull(queue.poll());
+    }
+
+    /**
+     * Checks that the hotness of a task is sampled when it is dequeued, not when it is queued.
+     */
+    @Test
+    public void testHotnessSampledOnPoll() {
+        PriorityCompilationQueue queue = new PriorityCompilationQueue();
+        Task first = new Task(100);
+        Task second = new Task(100);
+        queue.offer(first);
+        queue.offer(second);
+        second.events = 100000;
+        Assert.assertSame(second, queue.poll());
+        Assert.assertSame(first, queue.poll());
+    }
+
+    @Test
+    public void testOSRBoost() {
+        PriorityCompilationQueue queue = new PriorityCompilationQueue();
+        Task normal = new Task(200);
+        Task osr = new Task(100);
+        osr.osr = true;
+        queue.offer(normal);
+        queue.offer(osr);
+        Assert.assertSame(osr, queue.poll());
+        Assert.assertSame(normal, queue.poll());
+    }
+
+    @Test
+    public void testOtherRunnablesFirst() {
+        PriorityCompilationQueue queue = new PriorityCompilationQueue();
+        Runnable other = new Runnable() {
+
+            public void run() {
+            }
+        };
+        Task task = new Task(1000);
+        queue.offer(task);
+        queue.offer(other);
+        Assert.assertSame(other, queue.poll());
+        Assert.assertSame(task, queue.poll());
+    }
+
+    @Test
+    public void testObsoleteDiscarded() {
+        PriorityCompilationQueue queue = new PriorityCompilationQueue();
+        Task compiled = new Task(1000);
+        Task task = new Task(10);
+        queue.offer(compiled);
+        queue.offer(task);
+        compiled.obsolete = true;
+        Assert.assertSame(task, queue.poll());
+        Assert.assertTrue(compiled.discarded);
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testStaleDiscarded() throws InterruptedException {
+        int originalSetting = CompileQueueStaleTimeout.getValue();
+        CompileQueueStaleTimeout.setValue(0);
+        try {
+            PriorityCompilationQueue queue = new PriorityCompilationQueue();
+            Task inactive = new Task(1000);
+            Task active = new Task(10);
+            queue.offer(inactive);
+            queue.offer(active);
+            Thread.sleep(10);
+            active.events++;
+            Assert.assertSame(active, queue.poll());
+            Assert.assertTrue(inactive.discarded);
+            Assert.assertFalse(active.discarded);
+            Assert.assertTrue(queue.isEmpty());
+        } finally {
+            CompileQueueStaleTimeout.setValue(originalSetting);
+        }
+    }
+
+    @Test
+    public void testPeekHasNoSideEffects() {
+        PriorityCompilationQueue queue = new PriorityCompilationQueue();
+        Task compiled = new Task(10);
+        Task hot = new Task(1000);
+        queue.offer(compiled);
+        queue.offer(hot);
+        compiled.obsolete = true;
+        Assert.assertSame(compiled, queue.peek());
+        Assert.assertSame(compiled, queue.peek());
+        Assert.assertEquals(2, queue.size());
+        Assert.assertFalse(compiled.discarded);
+        Assert.assertSame(hot, queue.poll());
+        Assert.assertTrue(compiled.discarded);
+    }
+}
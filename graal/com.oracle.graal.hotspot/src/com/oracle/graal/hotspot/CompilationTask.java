@@ -41,6 +41,7 @@ import com.oracle.graal.api.runtime.*;
 import com.oracle.graal.compiler.*;
 import com.oracle.graal.debug.*;
 import com.oracle.graal.debug.internal.*;
+import com.oracle.graal.hotspot.PriorityCompilationQueue.PrioritizedCompilation;
 import com.oracle.graal.hotspot.meta.*;
 import com.oracle.graal.java.*;
 import com.oracle.graal.nodes.*;
@@ -50,7 +51,7 @@ import com.oracle.graal.phases.PhasePlan.*;
 import com.oracle.graal.phases.common.*;
 import com.oracle.graal.phases.tiers.*;
 
-public final class CompilationTask implements Runnable {
+public final class CompilationTask implements PrioritizedCompilation {
 
     public static final ThreadLocal<Boolean> withinEnqueue = new ThreadLocal<Boolean>() {
 
@@ -61,7 +62,7 @@ public final class CompilationTask implements Runnable {
     };
 
     private enum CompilationStatus {
-        Queued, Running
+        Queued, Running, Discarded
     }
 
     private final HotSpotGraalRuntime graalRuntime;
@@ -103,6 +104,21 @@ public final class CompilationTask implements Runnable {
         return entryBCI;
     }
 
+    @Override
+    public long getProfiledEvents() {
+        return method.getInvocationAndBackedgeCount();
+    }
+
+    @Override
+    public boolean isOSR() {
+        return entryBCI != INVOCATION_ENTRY_BCI;
+    }
+
+    @Override
+    public boolean isObsolete() {
+        return method.hasCompiledCode();
+    }
+
     public void run() {
         withinEnqueue.set(Boolean.FALSE);
         try {
@@ -221,6 +237,25 @@ public final class CompilationTask implements Runnable {
         }
     }
 
+    /**
+     * Abandons this task if it has not started running yet. For the method this has the same
+     * effect as a compilation that bailed out immediately.
+     * 
+     * @return {@code true} if the task was abandoned, {@code false} if it is already running
+     */
+    @Override
+    public boolean discard() {
+        if (!tryToChangeStatus(CompilationStatus.Queued, CompilationStatus.Discarded)) {
+            return false;
+        }
+        if (method.currentTask() == this) {
+            method.setCurrentTask(null);
+        }
+        assert method.isQueuedForCompilation();
+        method.clearQueuedForCompilation();
+        return true;
+    }
+
     /**
      * Print a HotSpot-style compilation message to the console.
      */
@@ -26,11 +26,14 @@ import static com.oracle.graal.hotspot.HotSpotGraalRuntime.*;
 import static com.oracle.graal.phases.GraalOptions.*;
 
 import java.io.File;
+import java.lang.management.*;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.net.*;
-import java.util.Enumeration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import java.util.jar.*;
 
 import com.oracle.graal.api.meta.*;
@@ -65,31 +68,49 @@ public final class CompileTheWorld {
     /** Class index to stop compilation at (see {@link GraalOptions#CompileTheWorldStopAt}. */
     private final int stopAt;
 
+    /** Number of threads compiling classes (see {@link GraalOptions#CompileTheWorldThreads}. */
+    private final int threads;
+
     // Counters
     private int classFileCounter = 0;
-    private int compiledMethodsCounter = 0;
-    private long compileTime = 0;
+    private final AtomicInteger compiledMethodsCounter = new AtomicInteger();
+    private final AtomicLong compiledBytecodesCounter = new AtomicLong();
+    /** Compile time summed over all compiling threads. */
+    private final AtomicLong compileTime = new AtomicLong();
 
     /**
      * Create a compile-the-world instance with default values from
-     * {@link GraalOptions#CompileTheWorld}, {@link GraalOptions#CompileTheWorldStartAt} and
-     * {@link GraalOptions#CompileTheWorldStopAt}.
+     * {@link GraalOptions#CompileTheWorld}, {@link GraalOptions#CompileTheWorldStartAt},
+     * {@link GraalOptions#CompileTheWorldStopAt} and {@link GraalOptions#CompileTheWorldThreads}.
      */
     public CompileTheWorld() {
-        this(CompileTheWorld.getValue(), CompileTheWorldStartAt.getValue(), CompileTheWorldStopAt.getValue());
+        this(CompileTheWorld.getValue(), CompileTheWorldStartAt.getValue(), CompileTheWorldStopAt.getValue(), CompileTheWorldThreads.getValue());
     }
 
     /**
-     * Create a compile-the-world instance.
+     * Create a compile-the-world instance that compiles serially.
      * 
      * @param files {@link File#pathSeparator} separated list of Zip/Jar files to compile
      * @param startAt index of the class file to start compilation at
      * @param stopAt index of the class file to stop compilation at
      */
     public CompileTheWorld(String files, int startAt, int stopAt) {
+        this(files, startAt, stopAt, 1);
+    }
+
+    /**
+     * Create a compile-the-world instance.
+     * 
+     * @param files {@link File#pathSeparator} separated list of Zip/Jar files to compile
+     * @param startAt index of the class file to start compilation at
+     * @param stopAt index of the class file to stop compilation at
+     * @param threads number of threads compiling classes in parallel
+     */
+    public CompileTheWorld(String files, int startAt, int stopAt, int threads) {
         this.files = files;
         this.startAt = startAt;
         this.stopAt = stopAt;
+        this.threads = threads;
 
         // We don't want the VM to exit when a method fails to compile.
         ExitVMOnException.setValue(false);
@@ -127,12 +148,27 @@ public final class CompileTheWorld {
 
     /**
      * Compile all methods in all classes in the Zip/Jar files passed.
+     * <p>
+     * Classes are always loaded and numbered by the calling thread in the order of the Zip/Jar
+     * entries so that {@link #startAt} and {@link #stopAt} select the same classes independent of
+     * the number of {@link #threads}. Only the compilation of the selected classes is distributed
+     * over the compiler threads.
      * 
      * @param fileList {@link File#pathSeparator} separated list of Zip/Jar files to compile
      * @throws Throwable
      */
     private void compile(String fileList) throws Throwable {
         final String[] entries = fileList.split(File.pathSeparator);
+        final ThreadPoolExecutor compileQueue;
+        if (threads > 1) {
+            // Let the loading thread compile classes itself instead of running ahead too far.
+            compileQueue = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(threads * 4), CompilerThread.FACTORY,
+                            new ThreadPoolExecutor.CallerRunsPolicy());
+        } else {
+            compileQueue = null;
+        }
+        long totalStart = System.currentTimeMillis();
+        resetPeakHeapUsage();
 
         for (int i = 0; i < entries.length; i++) {
             final String entry = entries[i];
@@ -147,6 +183,11 @@ public final class CompileTheWorld {
             TTY.println("CompileTheWorld : Compiling all classes in " + entry);
             TTY.println();
 
+            long entryStart = System.currentTimeMillis();
+            int entryMethodsStart = compiledMethodsCounter.get();
+            long entryBytecodesStart = compiledBytecodesCounter.get();
+            List<Future<?>> pending = new ArrayList<>();
+
             URL url = new URL("jar", "", "file:" + entry + "!/");
             ClassLoader loader = new URLClassLoader(new URL[]{url});
 
@@ -164,12 +205,13 @@ public final class CompileTheWorld {
                     break;
                 }
 
-                String className = je.getName().substring(0, je.getName().length() - ".class".length());
+                final String className = je.getName().substring(0, je.getName().length() - ".class".length());
                 classFileCounter++;
+                final int classFileIndex = classFileCounter;
 
                 try {
                     // Load and initialize class
-                    Class<?> javaClass = Class.forName(className.replace('/', '.'), true, loader);
+                    final Class<?> javaClass = Class.forName(className.replace('/', '.'), true, loader);
 
                     // Pre-load all classes in the constant pool.
                     try {
@@ -180,53 +222,127 @@ public final class CompileTheWorld {
                         }
                     } catch (Throwable t) {
                         // If something went wrong during pre-loading we just ignore it.
-                        TTY.println("Preloading failed for (%d) %s", classFileCounter, className);
+                        TTY.println("Preloading failed for (%d) %s", classFileIndex, className);
                     }
 
                     // Are we compiling this class?
-                    if (classFileCounter >= startAt) {
-                        TTY.println("CompileTheWorld (%d) : %s", classFileCounter, className);
-
-                        // Enqueue each constructor/method in the class for compilation.
-                        for (Constructor<?> constructor : javaClass.getDeclaredConstructors()) {
-                            HotSpotResolvedJavaMethod javaMethod = (HotSpotResolvedJavaMethod) graalRuntime.getRuntime().lookupJavaConstructor(constructor);
-                            if (canBeCompiled(javaMethod, constructor.getModifiers())) {
-                                compileMethod(javaMethod);
-                            }
-                        }
-                        for (Method method : javaClass.getDeclaredMethods()) {
-                            HotSpotResolvedJavaMethod javaMethod = (HotSpotResolvedJavaMethod) graalRuntime.getRuntime().lookupJavaMethod(method);
-                            if (canBeCompiled(javaMethod, method.getModifiers())) {
-                                compileMethod(javaMethod);
-                            }
+                    if (classFileIndex >= startAt) {
+                        TTY.println("CompileTheWorld (%d) : %s", classFileIndex, className);
+                        if (compileQueue == null) {
+                            compileClass(javaClass, className, classFileIndex);
+                        } else {
+                            pending.add(compileQueue.submit(new Runnable() {
+
+                                @Override
+                                public void run() {
+                                    compileClass(javaClass, className, classFileIndex);
+                                }
+                            }));
                         }
                     }
                 } catch (Throwable t) {
-                    TTY.println("CompileTheWorld (%d) : Skipping %s", classFileCounter, className);
+                    TTY.println("CompileTheWorld (%d) : Skipping %s", classFileIndex, className);
                 }
             }
             jarFile.close();
+
+            for (Future<?> f : pending) {
+                f.get();
+            }
+            printThroughput(entry, System.currentTimeMillis() - entryStart, compiledMethodsCounter.get() - entryMethodsStart, compiledBytecodesCounter.get() - entryBytecodesStart);
         }
 
+        if (compileQueue != null) {
+            compileQueue.shutdown();
+        }
+
+        // the time in the Done line is parsed as the score by the sanity checks, so it must be
+        // the elapsed time regardless of the number of threads
+        long totalTime = System.currentTimeMillis() - totalStart;
         TTY.println();
-        TTY.println("CompileTheWorld : Done (%d classes, %d methods, %d ms)", classFileCounter, compiledMethodsCounter, compileTime);
+        TTY.println("CompileTheWorld : Done (%d classes, %d methods, %d ms)", classFileCounter, compiledMethodsCounter.get(), totalTime);
+        TTY.println("CompileTheWorld : Compile time summed over %d threads: %d ms", threads, compileTime.get());
+        printThroughput("Total", totalTime, compiledMethodsCounter.get(), compiledBytecodesCounter.get());
+    }
+
+    /**
+     * Compiles all constructors and methods of a class.
+     */
+    private void compileClass(Class<?> javaClass, String className, int classFileIndex) {
+        try {
+            // Enqueue each constructor/method in the class for compilation.
+            for (Constructor<?> constructor : javaClass.getDeclaredConstructors()) {
+                HotSpotResolvedJavaMethod javaMethod = (HotSpotResolvedJavaMethod) graalRuntime.getRuntime().lookupJavaConstructor(constructor);
+                if (canBeCompiled(javaMethod, constructor.getModifiers())) {
+                    compileMethod(javaMethod, classFileIndex);
+                }
+            }
+            for (Method method : javaClass.getDeclaredMethods()) {
+                HotSpotResolvedJavaMethod javaMethod = (HotSpotResolvedJavaMethod) graalRuntime.getRuntime().lookupJavaMethod(method);
+                if (canBeCompiled(javaMethod, method.getModifiers())) {
+                    compileMethod(javaMethod, classFileIndex);
+                }
+            }
+        } catch (Throwable t) {
+            TTY.println("CompileTheWorld (%d) : Skipping %s", classFileIndex, className);
+        }
     }
 
     /**
      * Helper method to schedule a method for compilation and gather some statistics.
      */
-    private void compileMethod(HotSpotResolvedJavaMethod method) {
+    private void compileMethod(HotSpotResolvedJavaMethod method, int classFileIndex) {
+        // Compiler threads do not compile anything by default (see CompilationTask.withinEnqueue).
+        boolean withinEnqueue = CompilationTask.withinEnqueue.get();
+        CompilationTask.withinEnqueue.set(Boolean.FALSE);
         try {
             long start = System.currentTimeMillis();
             vmToCompiler.compileMethod(method, StructuredGraph.INVOCATION_ENTRY_BCI, true);
-            compileTime += (System.currentTimeMillis() - start);
-            compiledMethodsCounter++;
+            compileTime.addAndGet(System.currentTimeMillis() - start);
+            compiledMethodsCounter.incrementAndGet();
+            compiledBytecodesCounter.addAndGet(method.getCodeSize());
             method.reprofile();  // makes the method also not-entrant
         } catch (Throwable t) {
             // Catch everything and print a message
-            TTY.println("CompileTheWorld (%d) : Error compiling method: %s", classFileCounter, MetaUtil.format("%H.%n(%p):%r", method));
+            TTY.println("CompileTheWorld (%d) : Error compiling method: %s", classFileIndex, MetaUtil.format("%H.%n(%p):%r", method));
             t.printStackTrace(TTY.cachedOut);
+        } finally {
+            CompilationTask.withinEnqueue.set(withinEnqueue);
+        }
+    }
+
+    /**
+     * Prints the compilation throughput of a part of the run and the peak heap usage so far.
+     */
+    private static void printThroughput(String name, long millis, int methods, long bytecodes) {
+        double seconds = Math.max(millis, 1) / 1000d;
+        TTY.println("CompileTheWorld : %s: %d methods, %d bytecode bytes in %d ms (%.1f methods/s, %.1f bytecode bytes/s, peak heap %d KB)", name, methods, bytecodes, millis, methods / seconds,
+                        bytecodes / seconds, peakHeapUsage() / 1024);
+    }
+
+    private static void resetPeakHeapUsage() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Gets the sum of the peak usages of the heap memory pools, which is an upper bound of the peak
+     * heap usage since the last {@link #resetPeakHeapUsage()}.
+     */
+    private static long peakHeapUsage() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                MemoryUsage usage = pool.getPeakUsage();
+                if (usage != null) {
+                    peak += usage.getUsed();
+                }
+            }
         }
+        return peak;
     }
 
     /**
@@ -228,7 +228,7 @@ public abstract class HotSpotGraalRuntime implements GraalRuntime {
         backend = createBackend();
         GraalOptions.StackShadowPages.setValue(config.stackShadowPages);
         if (GraalOptions.CacheGraphs.getValue()) {
-            cache = new HotSpotGraphCache();
+            cache = new HotSpotGraphCache(runtime);
         }
     }
 
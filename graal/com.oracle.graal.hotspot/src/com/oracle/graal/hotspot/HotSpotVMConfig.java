@@ -419,6 +419,18 @@ public final class HotSpotVMConfig extends CompilerObject {
      */
     public int methodDataOffset;
 
+    /**
+     * The offset of the _method_counters field in a metaspace Method.
+     */
+    public int methodCountersOffset;
+
+    /**
+     * The offsets of the {@code _counter} words of the invocation and backedge
+     * {@code InvocationCounter}s embedded in a MethodCounters.
+     */
+    public int methodCountersInvocationCounterOffset;
+    public int methodCountersBackedgeCounterOffset;
+
     public int nmethodEntryOffset;
     public int methodCompiledEntryOffset;
     public int basicLockSize;
@@ -465,6 +477,18 @@ public final class HotSpotVMConfig extends CompilerObject {
     // methodData information
     public int methodDataOopDataOffset;
     public int methodDataOopTrapHistoryOffset;
+
+    /**
+     * The offsets of the {@code _counter} words of the invocation and backedge
+     * {@code InvocationCounter}s embedded in a MethodData.
+     */
+    public int methodDataInvocationCounterOffset;
+    public int methodDataBackedgeCounterOffset;
+
+    /**
+     * The number of low-order state bits in an {@code InvocationCounter} word.
+     */
+    public int invocationCounterShift;
     public int dataLayoutHeaderSize;
     public int dataLayoutTagOffset;
     public int dataLayoutFlagsOffset;
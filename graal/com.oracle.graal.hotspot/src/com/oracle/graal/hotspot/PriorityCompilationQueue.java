@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import com.oracle.graal.debug.*;
+import com.oracle.graal.options.*;
+
+/**
+ * A compilation queue that hands out the hottest waiting {@link PrioritizedCompilation} first
+ * instead of the oldest one. The hotness of a task is derived from the invocation and backedge
+ * counters the interpreter maintains for its method. It is sampled every time a compiler thread
+ * asks for work, by a scan over all waiting tasks similar to the task selection of HotSpot's tiered
+ * compilation policy. Tasks whose method got compiled in the meantime, or whose method showed no
+ * activity for {@link #CompileQueueStaleTimeout} milliseconds, are
+ * {@linkplain PrioritizedCompilation#discard() discarded} instead of being compiled.
+ * <p>
+ * Runnables other than {@link PrioritizedCompilation}s are handed out before any compilation, in
+ * FIFO order.
+ */
+public final class PriorityCompilationQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    //@formatter:off
+    @Option(help = "Order the compilation queue by method hotness instead of submission order")
+    public static final OptionValue<Boolean> PriorityCompileQueue = new OptionValue<>(false);
+
+    @Option(help = "Factor by which the hotness of a queued OSR compilation is multiplied")
+    public static final OptionValue<Integer> CompileQueueOSRBoost = new OptionValue<>(4);
+
+    @Option(help = "Time in milliseconds after which the hotness of a queued compilation has decayed to half")
+    public static final OptionValue<Integer> CompileQueueDecayPeriod = new OptionValue<>(1000);
+
+    @Option(help = "Time in milliseconds after which a queued compilation of an inactive method is discarded (-1 for no limit)")
+    public static final OptionValue<Integer> CompileQueueStaleTimeout = new OptionValue<>(5000);
+    //@formatter:on
+
+    private static final DebugMetric metricDiscardedCompiled = Debug.metric("CompileQueueDiscardedCompiled");
+    private static final DebugMetric metricDiscardedStale = Debug.metric("CompileQueueDiscardedStale");
+
+    /**
+     * A compilation whose position in the queue is derived from the profile of the method to be
+     * compiled.
+     */
+    public interface PrioritizedCompilation extends Runnable {
+
+        /**
+         * Gets the number of invocations and taken backward branches of the method to be compiled.
+         */
+        long getProfiledEvents();
+
+        /**
+         * Determines if this is an on-stack replacement compilation.
+         */
+        boolean isOSR();
+
+        /**
+         * Determines if the method got compiled code since this compilation was queued.
+         */
+        boolean isObsolete();
+
+        /**
+         * Abandons this compilation if it has not started running yet.
+         * 
+         * @return {@code true} if the compilation was abandoned, {@code false} if it is already
+         *         running
+         */
+        boolean discard();
+    }
+
+    private static final class Entry {
+
+        final Runnable runnable;
+        final long enqueueTime;
+        final long initialEvents;
+
+        Entry(Runnable runnable) {
+            this.runnable = runnable;
+            this.enqueueTime = System.currentTimeMillis();
+            this.initialEvents = runnable instanceof PrioritizedCompilation ? ((PrioritizedCompilation) runnable).getProfiledEvents() : 0;
+        }
+    }
+
+    private final LinkedList<Entry> entries = new LinkedList<>();
+
+    private static double priority(PrioritizedCompilation task, long events, long age) {
+        double hotness = events;
+        if (task.isOSR()) {
+            hotness *= CompileQueueOSRBoost.getValue();
+        }
+        return hotness / (1.0 + (double) age / Math.max(1, CompileQueueDecayPeriod.getValue()));
+    }
+
+    /**
+     * Selects and removes the entry to be handed out next, discarding the tasks that have become
+     * useless on the way. Must be called while holding the lock on this queue.
+     * 
+     * @return the selected runnable or {@code null} if the queue is (now) empty
+     */
+    private Runnable select() {
+        long now = System.currentTimeMillis();
+        int staleTimeout = CompileQueueStaleTimeout.getValue();
+        Entry best = null;
+        double bestPriority = Double.NEGATIVE_INFINITY;
+        for (Iterator<Entry> iter = entries.iterator(); iter.hasNext();) {
+            Entry entry = iter.next();
+            if (!(entry.runnable instanceof PrioritizedCompilation)) {
+                best = entry;
+                break;
+            }
+            PrioritizedCompilation task = (PrioritizedCompilation) entry.runnable;
+            if (task.isObsolete()) {
+                if (task.discard()) {
+                    metricDiscardedCompiled.increment();
+                }
+                iter.remove();
+                continue;
+            }
+            long events = task.getProfiledEvents();
+            long age = now - entry.enqueueTime;
+            if (staleTimeout >= 0 && age > staleTimeout && events == entry.initialEvents) {
+                if (task.discard()) {
+                    metricDiscardedStale.increment();
+                }
+                iter.remove();
+                continue;
+            }
+            double priority = priority(task, events, age);
+            if (best == null || priority > bestPriority) {
+                best = entry;
+                bestPriority = priority;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        entries.remove(best);
+        return best.runnable;
+    }
+
+    @Override
+    public synchronized boolean offer(Runnable r) {
+        if (r == null) {
+            throw new NullPointerException();
+        }
+        entries.add(new Entry(r));
+        notifyAll();
+        return true;
+    }
+
+    @Override
+    public void put(Runnable r) {
+        offer(r);
+    }
+
+    @Override
+    public boolean offer(Runnable r, long timeout, TimeUnit unit) {
+        return offer(r);
+    }
+
+    @Override
+    public synchronized Runnable poll() {
+        return select();
+    }
+
+    /**
+     * Gets the oldest queued runnable. As the priorities of the queued tasks change while they wait,
+     * the runnable to be handed out next is only determined when a compiler thread asks for work,
+     * so this is not necessarily the runnable {@link #poll()} returns.
+     */
+    @Override
+    public synchronized Runnable peek() {
+        Entry first = entries.peekFirst();
+        return first == null ? null : first.runnable;
+    }
+
+    @Override
+    public synchronized Runnable take() throws InterruptedException {
+        while (true) {
+            Runnable r = select();
+            if (r != null) {
+                return r;
+            }
+            wait();
+        }
+    }
+
+    @Override
+    public synchronized Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            Runnable r = select();
+            if (r != null) {
+                return r;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized boolean remove(Object o) {
+        for (Iterator<Entry> iter = entries.iterator(); iter.hasNext();) {
+            if (iter.next().runnable == o) {
+                iter.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public synchronized int drainTo(Collection<? super Runnable> c, int maxElements) {
+        int n = 0;
+        while (n < maxElements && !entries.isEmpty()) {
+            c.add(entries.removeFirst().runnable);
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Returns a weakly consistent iterator over a snapshot of the queued runnables, in submission
+     * order.
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        final List<Runnable> snapshot = new ArrayList<>();
+        synchronized (this) {
+            for (Entry entry : entries) {
+                snapshot.add(entry.runnable);
+            }
+        }
+        return new Iterator<Runnable>() {
+
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < snapshot.size();
+            }
+
+            @Override
+            public Runnable next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return snapshot.get(index++);
+            }
+
+            @Override
+            public void remove() {
+                PriorityCompilationQueue.this.remove(snapshot.get(index - 1));
+            }
+        };
+    }
+}
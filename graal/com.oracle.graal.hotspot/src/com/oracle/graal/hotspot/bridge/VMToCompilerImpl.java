@@ -87,6 +87,12 @@ public class VMToCompilerImpl implements VMToCompiler {
 
     @Option(help = "")
     private static final OptionValue<String> BenchmarkDynamicCounters = new OptionValue<>(null);
+
+    @Option(help = "Collect Debug metrics and timers with low overhead counters, independent of Meter and Time")
+    private static final OptionValue<Boolean> GraalAlwaysOnMetrics = new OptionValue<>(false);
+
+    @Option(help = "Period in milliseconds for printing always-on metrics (0 prints them at shutdown only)")
+    private static final OptionValue<Integer> GraalAlwaysOnMetricsPeriod = new OptionValue<>(0);
     //@formatter:on
 
     private final HotSpotGraalRuntime graalRuntime;
@@ -114,6 +120,10 @@ public class VMToCompilerImpl implements VMToCompiler {
 
     public VMToCompilerImpl(HotSpotGraalRuntime compiler) {
         this.graalRuntime = compiler;
+        if (GraalAlwaysOnMetrics.getValue()) {
+            // before compiler classes create their metrics in static initializers
+            AlwaysOnMetrics.enable();
+        }
 
         typeBoolean = new HotSpotResolvedPrimitiveType(Kind.Boolean);
         typeChar = new HotSpotResolvedPrimitiveType(Kind.Char);
@@ -159,6 +169,10 @@ public class VMToCompilerImpl implements VMToCompiler {
 
         TTY.initialize(log);
 
+        if (GraalAlwaysOnMetrics.getValue() && GraalAlwaysOnMetricsPeriod.getValue() > 0) {
+            AlwaysOnMetrics.startPeriodicDump(log, GraalAlwaysOnMetricsPeriod.getValue());
+        }
+
         if (Log.getValue() == null && Meter.getValue() == null && Time.getValue() == null && Dump.getValue() == null) {
             if (MethodFilter.getValue() != null) {
                 TTY.println("WARNING: Ignoring MethodFilter option since Log, Meter, Time and Dump options are all null");
@@ -204,7 +218,8 @@ public class VMToCompilerImpl implements VMToCompiler {
         }
 
         // Create compilation queue.
-        compileQueue = new ThreadPoolExecutor(Threads.getValue(), Threads.getValue(), 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), CompilerThread.FACTORY);
+        BlockingQueue<Runnable> workQueue = PriorityCompilationQueue.PriorityCompileQueue.getValue() ? new PriorityCompilationQueue() : new LinkedBlockingQueue<Runnable>();
+        compileQueue = new ThreadPoolExecutor(Threads.getValue(), Threads.getValue(), 0L, TimeUnit.MILLISECONDS, workQueue, CompilerThread.FACTORY);
 
         // Create queue status printing thread.
         if (PrintQueue.getValue()) {
@@ -472,6 +487,9 @@ public class VMToCompilerImpl implements VMToCompiler {
                 }
             }
         }
+        if (GraalAlwaysOnMetrics.getValue()) {
+            AlwaysOnMetrics.print(TTY.cachedOut);
+        }
         phaseTransition("final");
 
         if (graalRuntime.getConfig().ciTime) {
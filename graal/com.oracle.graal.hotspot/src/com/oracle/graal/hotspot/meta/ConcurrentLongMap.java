@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.meta;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * A map from primitive {@code long} keys to values that is safe for concurrent use without
+ * locking on lookups and insertions. Entries are never removed, which makes it suitable for caches
+ * of VM metadata mirrors that must be canonical.
+ * <p>
+ * The map uses open addressing with linear probing. An entry is published by a single CAS into an
+ * empty slot and is immutable afterwards. Growing the table is the only operation that takes a
+ * lock: the resizing thread links the larger table to the current one and seals every empty slot
+ * of the current table with {@link #MOVED} before copying its entries. A thread that runs into a
+ * sealed slot continues in the larger table, so a key can never be inserted twice.
+ */
+public final class ConcurrentLongMap<V> {
+
+    private static final class Entry<V> {
+
+        final long key;
+        final V value;
+
+        Entry(long key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private static final class Table<V> {
+
+        final AtomicReferenceArray<Entry<V>> slots;
+        final AtomicInteger size = new AtomicInteger();
+        volatile Table<V> next;
+
+        Table(int capacity) {
+            slots = new AtomicReferenceArray<>(capacity);
+        }
+    }
+
+    private static final Entry<?> MOVED = new Entry<>(0, null);
+
+    private volatile Table<V> table;
+
+    /**
+     * @param initialCapacity the number of entries the map can hold before it needs to grow
+     */
+    public ConcurrentLongMap(int initialCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(initialCapacity, 2) * 2 - 1) * 2;
+        table = new Table<>(capacity);
+    }
+
+    /**
+     * Gets the value for {@code key}, or null if there is none.
+     */
+    public V get(long key) {
+        Table<V> t = table;
+        while (t != null) {
+            int mask = t.slots.length() - 1;
+            int i = hash(key) & mask;
+            while (true) {
+                Entry<V> entry = t.slots.get(i);
+                if (entry == null) {
+                    return null;
+                } else if (entry == MOVED) {
+                    break;
+                } else if (entry.key == key) {
+                    return entry.value;
+                }
+                i = (i + 1) & mask;
+            }
+            t = t.next;
+        }
+        return null;
+    }
+
+    /**
+     * Associates {@code value} with {@code key} unless there is already a value for {@code key}.
+     * 
+     * @return the value associated with {@code key} when this method returns, which is
+     *         {@code value} if this call won the race to insert it
+     */
+    public V putIfAbsent(long key, V value) {
+        return putIfAbsent(table, new Entry<>(key, value));
+    }
+
+    private V putIfAbsent(Table<V> start, Entry<V> newEntry) {
+        Table<V> t = start;
+        while (true) {
+            int mask = t.slots.length() - 1;
+            int i = hash(newEntry.key) & mask;
+            Table<V> next = null;
+            for (int probes = 0; probes <= mask; probes++) {
+                Entry<V> entry = t.slots.get(i);
+                if (entry == null) {
+                    if (t.slots.compareAndSet(i, null, newEntry)) {
+                        if (t.size.incrementAndGet() * 2 > t.slots.length()) {
+                            grow(t);
+                        }
+                        return newEntry.value;
+                    }
+                    // lost the race for this slot, look at it again
+                    probes--;
+                    continue;
+                } else if (entry == MOVED) {
+                    next = t.next;
+                    break;
+                } else if (entry.key == newEntry.key) {
+                    return entry.value;
+                }
+                i = (i + 1) & mask;
+            }
+            if (next == null) {
+                // every slot is taken, which growing prevents, or the table is being sealed
+                grow(t);
+                next = t.next;
+            }
+            t = next;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized void grow(Table<V> t) {
+        if (t.next != null) {
+            return;
+        }
+        Table<V> larger = new Table<>(t.slots.length() * 2);
+        t.next = larger;
+        for (int i = 0; i < t.slots.length(); i++) {
+            Entry<V> entry;
+            do {
+                entry = t.slots.get(i);
+            } while (entry == null && !t.slots.compareAndSet(i, null, (Entry<V>) MOVED));
+            if (entry != null && entry != MOVED) {
+                putIfAbsent(larger, entry);
+            }
+        }
+        if (table == t) {
+            Table<V> last = larger;
+            while (last.next != null) {
+                last = last.next;
+            }
+            table = last;
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -53,6 +53,9 @@ import com.oracle.graal.nodes.spi.*;
  * 
  * The {@link #cachedGraphIds} map is used to find the graphs that should be removed because of
  * deoptimization, and to enforce the graph cache size restriction.
+ * 
+ * If a {@link HotSpotPersistentGraphCache} is configured, graphs are additionally written to it and
+ * graphs that are not in memory are looked up there, so that they survive VM restarts.
  */
 public class HotSpotGraphCache implements GraphCache {
 
@@ -96,7 +99,10 @@ public class HotSpotGraphCache implements GraphCache {
 
     private final Map<Long, WeakReference<ResolvedJavaMethod>> cachedGraphIds = Collections.synchronizedMap(new LRUCache());
 
-    public HotSpotGraphCache() {
+    private final HotSpotPersistentGraphCache persistentCache;
+
+    public HotSpotGraphCache(MetaAccessProvider runtime) {
+        persistentCache = HotSpotPersistentGraphCache.open(runtime);
         if (PrintGraphCache.getValue()) {
             Runtime.getRuntime().addShutdownHook(new Thread() {
 
@@ -115,6 +121,12 @@ public class HotSpotGraphCache implements GraphCache {
     @Override
     public StructuredGraph get(ResolvedJavaMethod method) {
         StructuredGraph result = (StructuredGraph) method.getCompilerStorage().get(this);
+        if (result == null && persistentCache != null) {
+            result = persistentCache.load(method);
+            if (result != null) {
+                cache(result);
+            }
+        }
 
         if (PrintGraphCache.getValue()) {
             if (result == null) {
@@ -130,8 +142,10 @@ public class HotSpotGraphCache implements GraphCache {
     public void put(StructuredGraph graph, boolean hasMatureProfilingInfo) {
         assert graph.method() != null;
         if (hasMatureProfilingInfo) {
-            cachedGraphIds.put(graph.graphId(), new WeakReference<>(graph.method()));
-            graph.method().getCompilerStorage().put(this, graph);
+            cache(graph);
+            if (persistentCache != null) {
+                persistentCache.store(graph);
+            }
 
             if (PrintGraphCache.getValue()) {
                 putCounter++;
@@ -139,6 +153,11 @@ public class HotSpotGraphCache implements GraphCache {
         }
     }
 
+    private void cache(StructuredGraph graph) {
+        cachedGraphIds.put(graph.graphId(), new WeakReference<>(graph.method()));
+        graph.method().getCompilerStorage().put(this, graph);
+    }
+
     public void clear() {
         synchronized (cachedGraphIds) {
             for (WeakReference<ResolvedJavaMethod> ref : cachedGraphIds.values()) {
@@ -164,6 +183,9 @@ public class HotSpotGraphCache implements GraphCache {
                 StructuredGraph cachedGraph = (StructuredGraph) method.getCompilerStorage().get(this);
                 if (cachedGraph != null && cachedGraph.graphId() == graphId) {
                     method.getCompilerStorage().remove(this);
+                    if (persistentCache != null) {
+                        persistentCache.invalidate(method);
+                    }
                     if (PrintGraphCache.getValue()) {
                         removeHitCounter++;
                     }
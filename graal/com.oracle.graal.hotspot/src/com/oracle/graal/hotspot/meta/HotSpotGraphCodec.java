@@ -0,0 +1,438 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.meta;
+
+import static com.oracle.graal.api.meta.MetaUtil.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.util.*;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.api.meta.JavaTypeProfile.ProfiledType;
+import com.oracle.graal.api.meta.ProfilingInfo.TriState;
+import com.oracle.graal.graph.*;
+import com.oracle.graal.nodes.type.*;
+
+/**
+ * Encodes the values found in the data fields of parsed graphs such that they can be decoded in
+ * another VM instance. Types, methods and fields are encoded symbolically and resolved through the
+ * class loader of the method whose graph is being decoded. Values that have no stable symbolic
+ * representation (e.g., object constants other than strings and classes) cannot be encoded, which
+ * makes the enclosing graph ineligible for persistence.
+ */
+public class HotSpotGraphCodec implements GraphSerializer.ValueCodec {
+
+    private static final int NULL = 0;
+    private static final int WELL_KNOWN = 1;
+    private static final int BOOLEAN = 2;
+    private static final int BYTE = 3;
+    private static final int SHORT = 4;
+    private static final int CHAR = 5;
+    private static final int INT = 6;
+    private static final int LONG = 7;
+    private static final int FLOAT = 8;
+    private static final int DOUBLE = 9;
+    private static final int STRING = 10;
+    private static final int ENUM = 11;
+    private static final int PRIMITIVE_TYPE = 12;
+    private static final int OBJECT_TYPE = 13;
+    private static final int METHOD = 14;
+    private static final int FIELD = 15;
+    private static final int CONSTANT = 16;
+    private static final int CLASS_CONSTANT = 17;
+    private static final int INTEGER_STAMP = 18;
+    private static final int FLOAT_STAMP = 19;
+    private static final int OBJECT_STAMP = 20;
+    private static final int TYPE_PROFILE = 21;
+    private static final int INT_ARRAY = 22;
+    private static final int LONG_ARRAY = 23;
+    private static final int DOUBLE_ARRAY = 24;
+    private static final int OBJECT_ARRAY = 25;
+
+    /**
+     * Values that are compared by identity and therefore must be decoded to the same instance.
+     */
+    private static final Object[] WELL_KNOWN_VALUES = {LocationIdentity.ANY_LOCATION, LocationIdentity.FINAL_LOCATION, StampFactory.forVoid(), StampFactory.forWord(),
+                    StampFactory.forNodeIntrinsic(), StampFactory.dependency(), StampFactory.extension(), StampFactory.virtual(), StampFactory.condition(), StampFactory.object(),
+                    StampFactory.objectNonNull(), StampFactory.alwaysNull()};
+
+    private final MetaAccessProvider runtime;
+    private final ClassLoader loader;
+    private final Set<Class<?>> referencedClasses = new LinkedHashSet<>();
+
+    /**
+     * @param loader the class loader used to resolve the types referenced by the encoded values
+     */
+    public HotSpotGraphCodec(MetaAccessProvider runtime, ClassLoader loader) {
+        this.runtime = runtime;
+        this.loader = loader;
+    }
+
+    /**
+     * Gets the classes referenced by the values written so far, i.e., the classes the encoded graph
+     * depends on.
+     */
+    public Set<Class<?>> getReferencedClasses() {
+        return Collections.unmodifiableSet(referencedClasses);
+    }
+
+    @Override
+    public void write(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+            return;
+        }
+        for (int i = 0; i < WELL_KNOWN_VALUES.length; i++) {
+            if (WELL_KNOWN_VALUES[i] == value) {
+                out.writeByte(WELL_KNOWN);
+                out.writeByte(i);
+                return;
+            }
+        }
+        if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Character) {
+            out.writeByte(CHAR);
+            out.writeChar((Character) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            out.writeUTF((String) value);
+        } else if (value instanceof Enum) {
+            Enum<?> e = (Enum<?>) value;
+            out.writeByte(ENUM);
+            writeClass(out, e.getDeclaringClass());
+            out.writeUTF(e.name());
+        } else if (value instanceof HotSpotResolvedPrimitiveType) {
+            out.writeByte(PRIMITIVE_TYPE);
+            out.writeByte(((HotSpotResolvedPrimitiveType) value).getKind().ordinal());
+        } else if (value instanceof HotSpotResolvedObjectType) {
+            out.writeByte(OBJECT_TYPE);
+            writeClass(out, ((HotSpotResolvedObjectType) value).mirror());
+        } else if (value instanceof HotSpotResolvedJavaMethod) {
+            HotSpotResolvedJavaMethod method = (HotSpotResolvedJavaMethod) value;
+            out.writeByte(METHOD);
+            writeClass(out, ((HotSpotResolvedJavaType) method.getDeclaringClass()).mirror());
+            out.writeUTF(method.getName());
+            out.writeUTF(signatureToMethodDescriptor(method.getSignature()));
+        } else if (value instanceof HotSpotResolvedJavaField) {
+            HotSpotResolvedJavaField field = (HotSpotResolvedJavaField) value;
+            out.writeByte(FIELD);
+            writeClass(out, ((HotSpotResolvedJavaType) field.getDeclaringClass()).mirror());
+            out.writeUTF(field.getName());
+        } else if (value instanceof Constant) {
+            writeConstant(out, (Constant) value);
+        } else if (value instanceof IntegerStamp) {
+            IntegerStamp stamp = (IntegerStamp) value;
+            out.writeByte(INTEGER_STAMP);
+            out.writeByte(stamp.kind().ordinal());
+            out.writeLong(stamp.lowerBound());
+            out.writeLong(stamp.upperBound());
+            out.writeLong(stamp.mask());
+        } else if (value instanceof FloatStamp) {
+            FloatStamp stamp = (FloatStamp) value;
+            out.writeByte(FLOAT_STAMP);
+            out.writeByte(stamp.kind().ordinal());
+            out.writeDouble(stamp.lowerBound());
+            out.writeDouble(stamp.upperBound());
+            out.writeBoolean(stamp.isNonNaN());
+        } else if (value instanceof ObjectStamp) {
+            ObjectStamp stamp = (ObjectStamp) value;
+            out.writeByte(OBJECT_STAMP);
+            write(out, stamp.type());
+            out.writeBoolean(stamp.isExactType());
+            out.writeBoolean(stamp.nonNull());
+            out.writeBoolean(stamp.alwaysNull());
+        } else if (value instanceof JavaTypeProfile) {
+            JavaTypeProfile profile = (JavaTypeProfile) value;
+            out.writeByte(TYPE_PROFILE);
+            write(out, profile.getNullSeen());
+            out.writeDouble(profile.getNotRecordedProbability());
+            ProfiledType[] types = profile.getTypes();
+            out.writeInt(types.length);
+            for (ProfiledType type : types) {
+                write(out, type.getType());
+                out.writeDouble(type.getProbability());
+            }
+        } else if (value instanceof int[]) {
+            int[] array = (int[]) value;
+            out.writeByte(INT_ARRAY);
+            out.writeInt(array.length);
+            for (int element : array) {
+                out.writeInt(element);
+            }
+        } else if (value instanceof long[]) {
+            long[] array = (long[]) value;
+            out.writeByte(LONG_ARRAY);
+            out.writeInt(array.length);
+            for (long element : array) {
+                out.writeLong(element);
+            }
+        } else if (value instanceof double[]) {
+            double[] array = (double[]) value;
+            out.writeByte(DOUBLE_ARRAY);
+            out.writeInt(array.length);
+            for (double element : array) {
+                out.writeDouble(element);
+            }
+        } else if (value instanceof Object[]) {
+            Object[] array = (Object[]) value;
+            out.writeByte(OBJECT_ARRAY);
+            writeClass(out, array.getClass().getComponentType());
+            out.writeInt(array.length);
+            for (Object element : array) {
+                write(out, element);
+            }
+        } else {
+            throw new IOException("cannot encode value of type " + value.getClass().getName());
+        }
+    }
+
+    private void writeConstant(DataOutputStream out, Constant constant) throws IOException {
+        if (constant.getPrimitiveAnnotation() != null) {
+            throw new IOException("cannot encode annotated constant " + constant);
+        }
+        Kind kind = constant.getKind();
+        if (kind.isPrimitive()) {
+            out.writeByte(CONSTANT);
+            out.writeByte(kind.ordinal());
+            write(out, constant.asBoxedValue());
+        } else if (kind == Kind.Object) {
+            Object object = constant.asObject();
+            if (object instanceof Class) {
+                out.writeByte(CLASS_CONSTANT);
+                writeClass(out, (Class<?>) object);
+            } else if (object == null || object instanceof String) {
+                out.writeByte(CONSTANT);
+                out.writeByte(kind.ordinal());
+                write(out, object);
+            } else {
+                throw new IOException("cannot encode object constant of type " + object.getClass().getName());
+            }
+        } else {
+            throw new IOException("cannot encode constant " + constant);
+        }
+    }
+
+    /**
+     * Writes the name of a class after making sure that the name resolves back to the same class.
+     */
+    private void writeClass(DataOutputStream out, Class<?> clazz) throws IOException {
+        if (clazz.isPrimitive() || resolveClass(clazz.getName()) != clazz) {
+            throw new IOException("cannot encode class " + clazz.getName());
+        }
+        referencedClasses.add(clazz);
+        out.writeUTF(clazz.getName());
+    }
+
+    @Override
+    public Class<?> resolveClass(String name) throws IOException {
+        try {
+            return Class.forName(name, false, loader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            throw new IOException("cannot resolve class " + name, e);
+        }
+    }
+
+    @Override
+    public Object read(DataInputStream in) throws IOException {
+        int tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case WELL_KNOWN: {
+                int index = in.readByte();
+                if (index < 0 || index >= WELL_KNOWN_VALUES.length) {
+                    throw new IOException("invalid well-known value " + index);
+                }
+                return WELL_KNOWN_VALUES[index];
+            }
+            case BOOLEAN:
+                return in.readBoolean();
+            case BYTE:
+                return in.readByte();
+            case SHORT:
+                return in.readShort();
+            case CHAR:
+                return in.readChar();
+            case INT:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case FLOAT:
+                return in.readFloat();
+            case DOUBLE:
+                return in.readDouble();
+            case STRING:
+                return in.readUTF();
+            case ENUM:
+                return readEnum(resolveClass(in.readUTF()), in.readUTF());
+            case PRIMITIVE_TYPE:
+                return runtime.lookupJavaType(readKind(in).toJavaClass());
+            case OBJECT_TYPE:
+                return runtime.lookupJavaType(resolveClass(in.readUTF()));
+            case METHOD:
+                return readMethod(resolveClass(in.readUTF()), in.readUTF(), in.readUTF());
+            case FIELD:
+                return readField(resolveClass(in.readUTF()), in.readUTF());
+            case CONSTANT: {
+                Kind kind = readKind(in);
+                if (kind == Kind.Object) {
+                    String value = read(in, String.class);
+                    return value == null ? Constant.NULL_OBJECT : Constant.forObject(value.intern());
+                } else if (kind == Kind.Void || kind == Kind.Illegal) {
+                    throw new IOException("invalid constant kind " + kind);
+                }
+                return Constant.forBoxed(kind, read(in, kind.toBoxedJavaClass()));
+            }
+            case CLASS_CONSTANT:
+                return Constant.forObject(resolveClass(in.readUTF()));
+            case INTEGER_STAMP:
+                return StampFactory.forInteger(readKind(in), in.readLong(), in.readLong(), in.readLong());
+            case FLOAT_STAMP:
+                return StampFactory.forFloat(readKind(in), in.readDouble(), in.readDouble(), in.readBoolean());
+            case OBJECT_STAMP:
+                return new ObjectStamp(read(in, ResolvedJavaType.class), in.readBoolean(), in.readBoolean(), in.readBoolean());
+            case TYPE_PROFILE: {
+                TriState nullSeen = read(in, TriState.class);
+                double notRecordedProbability = in.readDouble();
+                ProfiledType[] types = new ProfiledType[in.readInt()];
+                for (int i = 0; i < types.length; i++) {
+                    types[i] = new ProfiledType(read(in, ResolvedJavaType.class), in.readDouble());
+                }
+                return new JavaTypeProfile(nullSeen, notRecordedProbability, types);
+            }
+            case INT_ARRAY: {
+                int[] array = new int[in.readInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = in.readInt();
+                }
+                return array;
+            }
+            case LONG_ARRAY: {
+                long[] array = new long[in.readInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = in.readLong();
+                }
+                return array;
+            }
+            case DOUBLE_ARRAY: {
+                double[] array = new double[in.readInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = in.readDouble();
+                }
+                return array;
+            }
+            case OBJECT_ARRAY: {
+                Class<?> componentType = resolveClass(in.readUTF());
+                Object[] array = (Object[]) Array.newInstance(componentType, in.readInt());
+                for (int i = 0; i < array.length; i++) {
+                    Object element = read(in);
+                    if (element != null && !componentType.isInstance(element)) {
+                        throw new IOException("cannot store " + element.getClass().getName() + " in " + componentType.getName() + " array");
+                    }
+                    array[i] = element;
+                }
+                return array;
+            }
+            default:
+                throw new IOException("invalid value tag " + tag);
+        }
+    }
+
+    private <T> T read(DataInputStream in, Class<T> type) throws IOException {
+        Object value = read(in);
+        if (value != null && !type.isInstance(value)) {
+            throw new IOException("expected " + type.getName() + " but got " + value.getClass().getName());
+        }
+        return type.cast(value);
+    }
+
+    private static Kind readKind(DataInputStream in) throws IOException {
+        int ordinal = in.readByte();
+        if (ordinal < 0 || ordinal >= Kind.values().length) {
+            throw new IOException("invalid kind " + ordinal);
+        }
+        return Kind.values()[ordinal];
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object readEnum(Class<?> enumClass, String name) throws IOException {
+        if (!enumClass.isEnum()) {
+            throw new IOException(enumClass.getName() + " is not an enum");
+        }
+        try {
+            return Enum.valueOf((Class) enumClass, name);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("unknown enum constant " + enumClass.getName() + "." + name, e);
+        }
+    }
+
+    private ResolvedJavaMethod readMethod(Class<?> holder, String name, String descriptor) throws IOException {
+        if (name.equals("<init>")) {
+            for (Constructor<?> constructor : holder.getDeclaredConstructors()) {
+                ResolvedJavaMethod method = runtime.lookupJavaConstructor(constructor);
+                if (signatureToMethodDescriptor(method.getSignature()).equals(descriptor)) {
+                    return method;
+                }
+            }
+        } else {
+            for (Method reflectionMethod : holder.getDeclaredMethods()) {
+                if (reflectionMethod.getName().equals(name)) {
+                    ResolvedJavaMethod method = runtime.lookupJavaMethod(reflectionMethod);
+                    if (signatureToMethodDescriptor(method.getSignature()).equals(descriptor)) {
+                        return method;
+                    }
+                }
+            }
+        }
+        throw new IOException("cannot resolve method " + holder.getName() + "." + name + descriptor);
+    }
+
+    private ResolvedJavaField readField(Class<?> holder, String name) throws IOException {
+        try {
+            return runtime.lookupJavaField(holder.getDeclaredField(name));
+        } catch (NoSuchFieldException e) {
+            throw new IOException("cannot resolve field " + holder.getName() + "." + name, e);
+        }
+    }
+}
@@ -82,6 +82,24 @@ public final class HotSpotMethodData extends CompilerObject {
         return unsafe.getByte(metaspaceMethodData + config.methodDataOopTrapHistoryOffset + reasonIndex) & 0xFF;
     }
 
+    /**
+     * Gets the number of invocations of the method recorded by this MethodData.
+     */
+    public int getInvocationCount() {
+        return readCounter(config.methodDataInvocationCounterOffset);
+    }
+
+    /**
+     * Gets the number of taken backward branches in the method recorded by this MethodData.
+     */
+    public int getBackedgeCount() {
+        return readCounter(config.methodDataBackedgeCounterOffset);
+    }
+
+    private int readCounter(int offset) {
+        return unsafe.getInt(metaspaceMethodData + offset) >>> config.invocationCounterShift;
+    }
+
     public HotSpotMethodDataAccessor getNormalData(int position) {
         if (position >= normalDataSize) {
             return null;
@@ -0,0 +1,459 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.meta;
+
+import static com.oracle.graal.api.meta.MetaUtil.*;
+import static com.oracle.graal.nodes.StructuredGraph.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.debug.*;
+import com.oracle.graal.graph.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.options.*;
+
+/**
+ * A file backed store for the graphs of the {@link HotSpotGraphCache} that allows a VM instance to
+ * reuse the graphs parsed by earlier instances.
+ * <p>
+ * The file is an append-only log of records. A graph record maps a key to an encoded graph, an
+ * invalidation record removes the graphs stored for a key. The key of a method includes a hash of
+ * its bytecodes, so a graph is never used for a method whose class was changed or redefined. The
+ * part of the file that exists when the VM starts is memory-mapped and only the record headers are
+ * read eagerly. A graph is decoded the first time it is requested.
+ * <p>
+ * A graph also depends on the classes it references: the graph builder only accesses static fields
+ * and allocates instances of classes that are initialized, and it binds invokes according to the
+ * declarations of their targets. Therefore every graph record lists the classes referenced by the
+ * graph together with a {@linkplain #fingerprint(Class) fingerprint} of their declarations and
+ * bytecodes and whether they were initialized when the graph was stored. A graph is only used if
+ * the fingerprints of these classes are unchanged and all classes that were initialized are
+ * initialized in the current VM instance as well. Graphs stored by VM instances with different
+ * versions of these classes coexist in the file.
+ * <p>
+ * Records are appended under a file lock so that multiple VM instances can share a file.
+ */
+public class HotSpotPersistentGraphCache {
+
+    //@formatter:off
+    @Option(help = "File in which parsed graphs are persisted across VM instances (requires CacheGraphs)")
+    public static final OptionValue<String> PersistentGraphCache = new OptionValue<>(null);
+    //@formatter:on
+
+    private static final DebugMetric metricLoaded = Debug.metric("PersistentGraphCacheLoaded");
+    private static final DebugMetric metricLoadFailed = Debug.metric("PersistentGraphCacheLoadFailed");
+    private static final DebugMetric metricChangedDependency = Debug.metric("PersistentGraphCacheChangedDependency");
+    private static final DebugMetric metricUninitializedDependency = Debug.metric("PersistentGraphCacheUninitializedDependency");
+    private static final DebugMetric metricStored = Debug.metric("PersistentGraphCacheStored");
+    private static final DebugMetric metricNotEncodable = Debug.metric("PersistentGraphCacheNotEncodable");
+    private static final DebugMetric metricInvalidated = Debug.metric("PersistentGraphCacheInvalidated");
+
+    private static final int MAGIC = 0x47434146;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 8;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final byte GRAPH_RECORD = 0;
+    private static final byte INVALIDATION_RECORD = 1;
+
+    /**
+     * The position and size of the payload of a graph record, which consists of the dependencies
+     * of the graph followed by the encoded graph.
+     */
+    private static final class Entry {
+
+        final long offset;
+        final int length;
+
+        Entry(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * The result of checking the dependencies of a graph record against the current VM instance.
+     */
+    private enum DependencyState {
+        VALID, CHANGED, UNINITIALIZED
+    }
+
+    private final MetaAccessProvider runtime;
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;
+
+    /**
+     * The graph records for each key, the most recently appended one first.
+     */
+    private final ConcurrentMap<String, List<Entry>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * The fingerprints of the classes loaded in this VM instance. Classes cannot change without a
+     * redefinition, which also changes the key of the redefined methods.
+     */
+    private final ClassValue<Long> fingerprints = new ClassValue<Long>() {
+
+        @Override
+        protected Long computeValue(Class<?> type) {
+            return computeFingerprint(type);
+        }
+    };
+
+    /**
+     * Opens the file named by {@link #PersistentGraphCache}, or returns null if no file is
+     * configured or it cannot be opened.
+     */
+    public static HotSpotPersistentGraphCache open(MetaAccessProvider runtime) {
+        String fileName = PersistentGraphCache.getValue();
+        if (fileName == null) {
+            return null;
+        }
+        try {
+            return new HotSpotPersistentGraphCache(runtime, new File(fileName));
+        } catch (IOException e) {
+            TTY.println("Cannot open graph cache file %s: %s", fileName, e.getMessage());
+            return null;
+        }
+    }
+
+    @SuppressWarnings("resource")
+    public HotSpotPersistentGraphCache(MetaAccessProvider runtime, File file) throws IOException {
+        this.runtime = runtime;
+        this.channel = new RandomAccessFile(file, "rw").getChannel();
+        FileLock lock = channel.lock();
+        try {
+            if (channel.size() < HEADER_SIZE) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION).flip();
+                channel.truncate(0);
+                channel.write(header, 0);
+            }
+            this.mapped = channel.map(MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            lock.release();
+        }
+        if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+            channel.close();
+            throw new IOException("not a graph cache file or incompatible version");
+        }
+        scan();
+    }
+
+    /**
+     * Builds the index of the records in the mapped part of the file. A truncated record at the end
+     * of the file, e.g., from a VM that was killed while appending, ends the scan.
+     */
+    private void scan() {
+        ByteBuffer buffer = mapped.duplicate();
+        buffer.position(HEADER_SIZE);
+        while (buffer.remaining() >= 4) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            if (length < 3 || length > buffer.remaining()) {
+                break;
+            }
+            byte kind = buffer.get();
+            byte[] keyBytes = new byte[buffer.getShort() & 0xFFFF];
+            if (keyBytes.length > buffer.remaining()) {
+                break;
+            }
+            buffer.get(keyBytes);
+            String key = new String(keyBytes, UTF8);
+            int payload = buffer.position();
+            int end = start + 4 + length;
+            if (payload > end) {
+                break;
+            }
+            if (kind == GRAPH_RECORD) {
+                addEntry(key, new Entry(payload, end - payload));
+            } else {
+                entries.remove(key);
+            }
+            buffer.position(end);
+        }
+    }
+
+    private void addEntry(String key, Entry entry) {
+        List<Entry> list = entries.get(key);
+        if (list == null) {
+            list = new CopyOnWriteArrayList<>();
+            List<Entry> existing = entries.putIfAbsent(key, list);
+            if (existing != null) {
+                list = existing;
+            }
+        }
+        list.add(0, entry);
+    }
+
+    /**
+     * Gets the key under which the graph for a method is stored.
+     */
+    private static String key(ResolvedJavaMethod method) {
+        byte[] code = method.getCode();
+        if (code == null) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(code);
+        return format("%H.%n", method) + signatureToMethodDescriptor(method.getSignature()) + "@" + code.length + ":" + Long.toHexString(crc.getValue());
+    }
+
+    private static ClassLoader loader(ResolvedJavaMethod method) {
+        return ((HotSpotResolvedJavaType) method.getDeclaringClass()).mirror().getClassLoader();
+    }
+
+    /**
+     * Gets a hash of the declarations and bytecodes of a class that changes whenever the class is
+     * changed in a way that can affect a graph referencing it.
+     */
+    long fingerprint(Class<?> clazz) {
+        return fingerprints.get(clazz);
+    }
+
+    private long computeFingerprint(Class<?> clazz) {
+        if (clazz.isPrimitive()) {
+            return 0;
+        }
+        if (clazz.isArray()) {
+            return fingerprint(clazz.getComponentType()) * 31 + 1;
+        }
+        CRC32 crc = new CRC32();
+        DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new ByteArrayOutputStream(), crc));
+        try {
+            out.writeUTF(clazz.getName());
+            out.writeInt(clazz.getModifiers());
+            out.writeUTF(clazz.getSuperclass() == null ? "" : clazz.getSuperclass().getName());
+            for (Class<?> iface : clazz.getInterfaces()) {
+                out.writeUTF(iface.getName());
+            }
+
+            Field[] fields = clazz.getDeclaredFields();
+            Arrays.sort(fields, new Comparator<Field>() {
+
+                @Override
+                public int compare(Field a, Field b) {
+                    return a.getName().compareTo(b.getName());
+                }
+            });
+            for (Field field : fields) {
+                out.writeUTF(field.getName());
+                out.writeUTF(field.getType().getName());
+                out.writeInt(field.getModifiers());
+            }
+
+            ResolvedJavaType type = runtime.lookupJavaType(clazz);
+            SortedMap<String, ResolvedJavaMethod> methods = new TreeMap<>();
+            for (ResolvedJavaMethod method : type.getDeclaredConstructors()) {
+                methods.put(method.getName() + signatureToMethodDescriptor(method.getSignature()), method);
+            }
+            for (ResolvedJavaMethod method : type.getDeclaredMethods()) {
+                methods.put(method.getName() + signatureToMethodDescriptor(method.getSignature()), method);
+            }
+            for (Map.Entry<String, ResolvedJavaMethod> entry : methods.entrySet()) {
+                ResolvedJavaMethod method = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeInt(method.getModifiers());
+                byte[] code = method.getCode();
+                out.writeInt(code == null ? -1 : code.length);
+                if (code != null) {
+                    out.write(code);
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new GraalInternalError(e);
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Decodes the graph stored for a method.
+     * 
+     * @return the decoded graph or null if there is no usable graph for {@code method}
+     */
+    public StructuredGraph load(ResolvedJavaMethod method) {
+        String key = key(method);
+        List<Entry> list = key == null ? null : entries.get(key);
+        if (list == null) {
+            return null;
+        }
+        for (Entry entry : list) {
+            HotSpotGraphCodec codec = new HotSpotGraphCodec(runtime, loader(method));
+            try {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(read(entry)));
+                DependencyState state = checkDependencies(in, codec);
+                if (state == DependencyState.CHANGED) {
+                    metricChangedDependency.increment();
+                    continue;
+                } else if (state == DependencyState.UNINITIALIZED) {
+                    // the graph may become usable once the classes are initialized
+                    metricUninitializedDependency.increment();
+                    return null;
+                }
+                StructuredGraph graph = new StructuredGraph(method);
+                GraphSerializer.read(graph, in, codec, graph.start());
+                assert graph.verify();
+                metricLoaded.increment();
+                return graph;
+            } catch (IOException e) {
+                // forget the entry so that a new graph can be stored for this method
+                list.remove(entry);
+                metricLoadFailed.increment();
+            }
+        }
+        return null;
+    }
+
+    private byte[] read(Entry entry) throws IOException {
+        byte[] bytes = new byte[entry.length];
+        if (entry.offset + entry.length <= mapped.capacity()) {
+            ByteBuffer buffer = mapped.duplicate();
+            buffer.position((int) entry.offset);
+            buffer.get(bytes);
+        } else {
+            channel.read(ByteBuffer.wrap(bytes), entry.offset);
+        }
+        return bytes;
+    }
+
+    private DependencyState checkDependencies(DataInputStream in, HotSpotGraphCodec codec) throws IOException {
+        DependencyState state = DependencyState.VALID;
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            boolean initialized = in.readBoolean();
+            long fingerprint = in.readLong();
+            Class<?> clazz;
+            try {
+                clazz = codec.resolveClass(name);
+            } catch (IOException e) {
+                return DependencyState.CHANGED;
+            }
+            if (fingerprint(clazz) != fingerprint) {
+                return DependencyState.CHANGED;
+            }
+            if (initialized && !runtime.lookupJavaType(clazz).isInitialized()) {
+                state = DependencyState.UNINITIALIZED;
+            }
+        }
+        return state;
+    }
+
+    private boolean hasEntryWithUnchangedDependencies(String key, ResolvedJavaMethod method) {
+        List<Entry> list = entries.get(key);
+        if (list != null) {
+            for (Entry entry : list) {
+                try {
+                    DataInputStream in = new DataInputStream(new ByteArrayInputStream(read(entry)));
+                    if (checkDependencies(in, new HotSpotGraphCodec(runtime, loader(method))) != DependencyState.CHANGED) {
+                        return true;
+                    }
+                } catch (IOException e) {
+                    // not usable
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Appends a graph to the file unless a graph for the same method and the same versions of the
+     * classes it depends on is already stored or the graph cannot be encoded.
+     */
+    public void store(StructuredGraph graph) {
+        ResolvedJavaMethod method = graph.method();
+        String key = key(method);
+        if (key == null || graph.getEntryBCI() != INVOCATION_ENTRY_BCI || hasEntryWithUnchangedDependencies(key, method)) {
+            return;
+        }
+        HotSpotGraphCodec codec = new HotSpotGraphCodec(runtime, loader(method));
+        ByteArrayOutputStream graphBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            GraphSerializer.write(graph, new DataOutputStream(graphBytes), codec, graph.start());
+
+            DataOutputStream out = new DataOutputStream(bytes);
+            Set<Class<?>> dependencies = codec.getReferencedClasses();
+            out.writeInt(dependencies.size());
+            for (Class<?> clazz : dependencies) {
+                out.writeUTF(clazz.getName());
+                out.writeBoolean(runtime.lookupJavaType(clazz).isInitialized());
+                out.writeLong(fingerprint(clazz));
+            }
+            graphBytes.writeTo(out);
+            out.flush();
+        } catch (IOException e) {
+            metricNotEncodable.increment();
+            return;
+        }
+        Entry entry = append(GRAPH_RECORD, key, bytes.toByteArray());
+        if (entry != null) {
+            addEntry(key, entry);
+            metricStored.increment();
+        }
+    }
+
+    /**
+     * Removes the graphs stored for a method, e.g., because it was deoptimized.
+     */
+    public void invalidate(ResolvedJavaMethod method) {
+        String key = key(method);
+        if (key != null && entries.remove(key) != null) {
+            append(INVALIDATION_RECORD, key, new byte[0]);
+            metricInvalidated.increment();
+        }
+    }
+
+    private synchronized Entry append(byte kind, String key, byte[] payload) {
+        byte[] keyBytes = key.getBytes(UTF8);
+        if (keyBytes.length > 0xFFFF) {
+            return null;
+        }
+        ByteBuffer record = ByteBuffer.allocate(4 + 1 + 2 + keyBytes.length + payload.length);
+        record.putInt(record.capacity() - 4).put(kind).putShort((short) keyBytes.length).put(keyBytes).put(payload).flip();
+        try {
+            FileLock lock = channel.lock();
+            try {
+                long position = channel.size();
+                while (record.hasRemaining()) {
+                    channel.write(record, position + record.position());
+                }
+                return new Entry(position + record.capacity() - payload.length, payload.length);
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -269,22 +269,54 @@ public final class HotSpotResolvedJavaMethod extends HotSpotMethod implements Re
     @Override
     public ProfilingInfo getProfilingInfo() {
         ProfilingInfo info;
+        HotSpotMethodData data = UseProfilingInformation.getValue() ? getMethodData() : null;
 
-        if (UseProfilingInformation.getValue() && methodData == null) {
+        if (data == null || (!data.hasNormalData() && !data.hasExtraData())) {
+            // Be optimistic and return false for exceptionSeen. A methodDataOop is allocated in
+            // case of a deoptimization.
+            info = DefaultProfilingInfo.get(TriState.FALSE);
+        } else {
+            info = new HotSpotProfilingInfo(data, this);
+        }
+        return info;
+    }
+
+    /**
+     * Gets the MethodData for this method, independent of {@code UseProfilingInformation}.
+     * 
+     * @return {@code null} if the VM has not yet allocated a MethodData for this method
+     */
+    public HotSpotMethodData getMethodData() {
+        if (methodData == null) {
             long metaspaceMethodData = unsafeReadWord(metaspaceMethod + graalRuntime().getConfig().methodDataOffset);
             if (metaspaceMethodData != 0) {
                 methodData = new HotSpotMethodData(metaspaceMethodData);
             }
         }
+        return methodData;
+    }
 
-        if (methodData == null || (!methodData.hasNormalData() && !methodData.hasExtraData())) {
-            // Be optimistic and return false for exceptionSeen. A methodDataOop is allocated in
-            // case of a deoptimization.
-            info = DefaultProfilingInfo.get(TriState.FALSE);
-        } else {
-            info = new HotSpotProfilingInfo(methodData, this);
+    /**
+     * Gets the number of invocations plus the number of taken backward branches of this method as
+     * counted by the interpreter. Without tiered compilation the interpreter increments the
+     * counters in the MethodCounters, with tiered compilation the ones in the MethodData once it
+     * exists, so the larger of the two counts is used for each.
+     */
+    public long getInvocationAndBackedgeCount() {
+        HotSpotVMConfig config = graalRuntime().getConfig();
+        long invocations = 0;
+        long backedges = 0;
+        long metaspaceMethodCounters = unsafeReadWord(metaspaceMethod + config.methodCountersOffset);
+        if (metaspaceMethodCounters != 0) {
+            invocations = unsafe.getInt(metaspaceMethodCounters + config.methodCountersInvocationCounterOffset) >>> config.invocationCounterShift;
+            backedges = unsafe.getInt(metaspaceMethodCounters + config.methodCountersBackedgeCounterOffset) >>> config.invocationCounterShift;
         }
-        return info;
+        HotSpotMethodData data = getMethodData();
+        if (data != null) {
+            invocations = Math.max(invocations, data.getInvocationCount());
+            backedges = Math.max(backedges, data.getBackedgeCount());
+        }
+        return invocations + backedges;
     }
 
     @Override
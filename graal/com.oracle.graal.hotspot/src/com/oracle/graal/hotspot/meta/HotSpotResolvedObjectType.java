@@ -31,8 +31,10 @@ import java.lang.annotation.*;
 import java.lang.reflect.*;
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.atomic.*;
 
 import com.oracle.graal.api.meta.*;
+import com.oracle.graal.debug.*;
 import com.oracle.graal.hotspot.*;
 
 /**
@@ -71,13 +73,28 @@ public final class HotSpotResolvedObjectType extends HotSpotResolvedJavaType {
      */
     private final int sizeOrSpecies;
 
-    private HashMap<Long, ResolvedJavaField> fieldCache;
-    private HashMap<Long, HotSpotResolvedJavaMethod> methodCache;
-    private HotSpotResolvedJavaField[] instanceFields;
-    private ResolvedJavaType[] interfaces;
-    private ConstantPool constantPool;
-    private boolean isInitialized;
-    private ResolvedJavaType arrayOfType;
+    /*
+     * The lazily initialized state below may be accessed by several compiler threads at once. The
+     * caches that must return canonical objects are published with a CAS, the other fields may be
+     * computed more than once by racing threads.
+     */
+    private volatile ConcurrentLongMap<ResolvedJavaField> fieldCache;
+    private volatile ConcurrentLongMap<HotSpotResolvedJavaMethod> methodCache;
+    private volatile HotSpotResolvedJavaField[] instanceFields;
+    private volatile ResolvedJavaType[] interfaces;
+    private volatile ConstantPool constantPool;
+    private volatile boolean isInitialized;
+    private volatile ResolvedJavaType arrayOfType;
+
+    @SuppressWarnings("rawtypes") private static final AtomicReferenceFieldUpdater<HotSpotResolvedObjectType, ConcurrentLongMap> FIELD_CACHE_UPDATER = AtomicReferenceFieldUpdater.newUpdater(
+                    HotSpotResolvedObjectType.class, ConcurrentLongMap.class, "fieldCache");
+    @SuppressWarnings("rawtypes") private static final AtomicReferenceFieldUpdater<HotSpotResolvedObjectType, ConcurrentLongMap> METHOD_CACHE_UPDATER = AtomicReferenceFieldUpdater.newUpdater(
+                    HotSpotResolvedObjectType.class, ConcurrentLongMap.class, "methodCache");
+    private static final AtomicReferenceFieldUpdater<HotSpotResolvedObjectType, ConstantPool> CONSTANT_POOL_UPDATER = AtomicReferenceFieldUpdater.newUpdater(HotSpotResolvedObjectType.class,
+                    ConstantPool.class, "constantPool");
+
+    private static final DebugMetric metricMethodCacheMisses = Debug.metric("ResolvedTypeMethodCacheMisses");
+    private static final DebugMetric metricFieldCacheMisses = Debug.metric("ResolvedTypeFieldCacheMisses");
 
     /**
      * Gets the Graal mirror from a HotSpot metaspace Klass native object.
@@ -146,10 +163,12 @@ public final class HotSpotResolvedObjectType extends HotSpotResolvedJavaType {
 
     @Override
     public ResolvedJavaType getArrayClass() {
-        if (arrayOfType == null) {
-            arrayOfType = fromClass(Array.newInstance(javaMirror, 0).getClass());
+        ResolvedJavaType result = arrayOfType;
+        if (result == null) {
+            result = fromClass(Array.newInstance(javaMirror, 0).getClass());
+            arrayOfType = result;
         }
-        return arrayOfType;
+        return result;
     }
 
     @Override
@@ -189,15 +208,16 @@ public final class HotSpotResolvedObjectType extends HotSpotResolvedJavaType {
 
     @Override
     public ResolvedJavaType[] getInterfaces() {
-        if (interfaces == null) {
+        ResolvedJavaType[] result = interfaces;
+        if (result == null) {
             Class[] javaInterfaces = javaMirror.getInterfaces();
-            ResolvedJavaType[] result = new ResolvedJavaType[javaInterfaces.length];
+            result = new ResolvedJavaType[javaInterfaces.length];
             for (int i = 0; i < javaInterfaces.length; i++) {
                 result[i] = fromClass(javaInterfaces[i]);
             }
             interfaces = result;
         }
-        return interfaces;
+        return result;
     }
 
     public HotSpotResolvedObjectType getSupertype() {
@@ -338,10 +358,12 @@ public final class HotSpotResolvedObjectType extends HotSpotResolvedJavaType {
     }
 
     public ConstantPool constantPool() {
-        if (constantPool == null) {
-            constantPool = new HotSpotConstantPool(this);
+        ConstantPool result = constantPool;
+        if (result == null) {
+            CONSTANT_POOL_UPDATER.compareAndSet(this, null, new HotSpotConstantPool(this));
+            result = constantPool;
         }
-        return constantPool;
+        return result;
     }
 
     /**
@@ -355,36 +377,47 @@ public final class HotSpotResolvedObjectType extends HotSpotResolvedJavaType {
         return sizeOrSpecies;
     }
 
-    public synchronized HotSpotResolvedJavaMethod createMethod(long metaspaceMethod) {
-        HotSpotResolvedJavaMethod method = null;
-        if (methodCache == null) {
-            methodCache = new HashMap<>(8);
-        } else {
-            method = methodCache.get(metaspaceMethod);
+    @SuppressWarnings("unchecked")
+    private ConcurrentLongMap<HotSpotResolvedJavaMethod> methodCache() {
+        ConcurrentLongMap<HotSpotResolvedJavaMethod> cache = methodCache;
+        if (cache == null) {
+            METHOD_CACHE_UPDATER.compareAndSet(this, null, new ConcurrentLongMap<HotSpotResolvedJavaMethod>(8));
+            cache = methodCache;
         }
+        return cache;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ConcurrentLongMap<ResolvedJavaField> fieldCache() {
+        ConcurrentLongMap<ResolvedJavaField> cache = fieldCache;
+        if (cache == null) {
+            FIELD_CACHE_UPDATER.compareAndSet(this, null, new ConcurrentLongMap<ResolvedJavaField>(8));
+            cache = fieldCache;
+        }
+        return cache;
+    }
+
+    public HotSpotResolvedJavaMethod createMethod(long metaspaceMethod) {
+        ConcurrentLongMap<HotSpotResolvedJavaMethod> cache = methodCache();
+        HotSpotResolvedJavaMethod method = cache.get(metaspaceMethod);
         if (method == null) {
-            method = new HotSpotResolvedJavaMethod(this, metaspaceMethod);
-            methodCache.put(metaspaceMethod, method);
+            metricMethodCacheMisses.increment();
+            method = cache.putIfAbsent(metaspaceMethod, new HotSpotResolvedJavaMethod(this, metaspaceMethod));
         }
         return method;
     }
 
-    public synchronized ResolvedJavaField createField(String fieldName, JavaType type, int offset, int flags, boolean internal) {
-        ResolvedJavaField result = null;
-
+    public ResolvedJavaField createField(String fieldName, JavaType type, int offset, int flags, boolean internal) {
         long id = offset + ((long) flags << 32);
 
         // (thomaswue) Must cache the fields, because the local load elimination only works if the
         // objects from two field lookups are identical.
-        if (fieldCache == null) {
-            fieldCache = new HashMap<>(8);
-        } else {
-            result = fieldCache.get(id);
-        }
+        ConcurrentLongMap<ResolvedJavaField> cache = fieldCache();
+        ResolvedJavaField result = cache.get(id);
 
         if (result == null) {
-            result = new HotSpotResolvedJavaField(this, fieldName, type, offset, flags, internal);
-            fieldCache.put(id, result);
+            metricFieldCacheMisses.increment();
+            result = cache.putIfAbsent(id, new HotSpotResolvedJavaField(this, fieldName, type, offset, flags, internal));
         } else {
             assert result.getName().equals(fieldName);
             assert result.getModifiers() == (fieldModifiers() & flags);
@@ -408,37 +441,38 @@ public final class HotSpotResolvedObjectType extends HotSpotResolvedJavaType {
 
     @Override
     public ResolvedJavaField[] getInstanceFields(boolean includeSuperclasses) {
-        if (instanceFields == null) {
+        HotSpotResolvedJavaField[] allFields = instanceFields;
+        if (allFields == null) {
             if (isArray() || isInterface()) {
-                instanceFields = new HotSpotResolvedJavaField[0];
+                allFields = new HotSpotResolvedJavaField[0];
             } else {
                 HotSpotResolvedJavaField[] myFields = graalRuntime().getCompilerToVM().getInstanceFields(this);
                 Arrays.sort(myFields, new OffsetComparator());
                 if (javaMirror != Object.class) {
                     HotSpotResolvedJavaField[] superFields = (HotSpotResolvedJavaField[]) getSuperclass().getInstanceFields(true);
-                    HotSpotResolvedJavaField[] fields = Arrays.copyOf(superFields, superFields.length + myFields.length);
-                    System.arraycopy(myFields, 0, fields, superFields.length, myFields.length);
-                    instanceFields = fields;
+                    allFields = Arrays.copyOf(superFields, superFields.length + myFields.length);
+                    System.arraycopy(myFields, 0, allFields, superFields.length, myFields.length);
                 } else {
                     assert myFields.length == 0 : "java.lang.Object has fields!";
-                    instanceFields = myFields;
+                    allFields = myFields;
                 }
             }
+            instanceFields = allFields;
         }
         if (!includeSuperclasses) {
             int myFieldsStart = 0;
-            while (myFieldsStart < instanceFields.length && instanceFields[myFieldsStart].getDeclaringClass() != this) {
+            while (myFieldsStart < allFields.length && allFields[myFieldsStart].getDeclaringClass() != this) {
                 myFieldsStart++;
             }
             if (myFieldsStart == 0) {
-                return instanceFields;
+                return allFields;
             }
-            if (myFieldsStart == instanceFields.length) {
+            if (myFieldsStart == allFields.length) {
                 return new HotSpotResolvedJavaField[0];
             }
-            return Arrays.copyOfRange(instanceFields, myFieldsStart, instanceFields.length);
+            return Arrays.copyOfRange(allFields, myFieldsStart, allFields.length);
         }
-        return instanceFields;
+        return allFields;
     }
 
     @Override
@@ -233,7 +233,7 @@ public abstract class HotSpotRuntime implements GraalCodeCacheProvider, Disassem
         return register(HotSpotForeignCallLinkage.create(descriptor, address, effect, outgoingCcType, null, transition, reexecutable, killedLocations));
     }
 
-    private static void link(Stub stub) {
+    protected static void link(Stub stub) {
         stub.getLinkage().setCompiledStub(stub);
     }
 
@@ -806,6 +806,10 @@ public abstract class HotSpotRuntime implements GraalCodeCacheProvider, Disassem
             if (tool.getLoweringType() == LoweringType.AFTER_FSA) {
                 newObjectSnippets.lower((DynamicNewArrayNode) n);
             }
+        } else if (n instanceof AllocationGroupNode) {
+            if (tool.getLoweringType() == LoweringType.AFTER_FSA) {
+                newObjectSnippets.lower((AllocationGroupNode) n);
+            }
         } else if (n instanceof MonitorEnterNode) {
             if (tool.getLoweringType() == LoweringType.AFTER_GUARDS) {
                 monitorSnippets.lower((MonitorEnterNode) n, tool);
@@ -997,6 +1001,13 @@ public abstract class HotSpotRuntime implements GraalCodeCacheProvider, Disassem
         return HotSpotResolvedObjectType.fromClass(clazz);
     }
 
+    /**
+     * Determines if a foreign call or stub has been registered for {@code descriptor}.
+     */
+    public boolean hasForeignCall(ForeignCallDescriptor descriptor) {
+        return foreignCalls.containsKey(descriptor);
+    }
+
     public HotSpotForeignCallLinkage lookupForeignCall(ForeignCallDescriptor descriptor) {
         HotSpotForeignCallLinkage callTarget = foreignCalls.get(descriptor);
         assert foreignCalls != null : descriptor;
@@ -1218,6 +1229,11 @@ public abstract class HotSpotRuntime implements GraalCodeCacheProvider, Disassem
             ret.getMidTier().appendPhase(new WriteBarrierVerificationPhase());
         }
 
+        if (OptAllocationGrouping.getValue() && config.useTLAB) {
+            // must directly precede the lowering of the allocations
+            ret.getLowTier().prependPhase(new AllocationGroupingPhase(this));
+        }
+
         return ret;
     }
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.nodes;
+
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.java.*;
+import com.oracle.graal.nodes.spi.*;
+import com.oracle.graal.nodes.type.*;
+
+/**
+ * Marks a {@link NewInstanceNode} or {@link NewArrayNode} as a member of an
+ * {@link AllocationGroupNode}. The marker follows the allocation and removes itself when it is
+ * lowered, after the allocation has been lowered. Since it is a usage of the allocation, the
+ * allocation cannot be removed before, which would leave memory reserved for the group that is not
+ * formatted as an object.
+ */
+public final class AllocationGroupMemberNode extends FixedWithNextNode implements Lowerable {
+
+    @Input private ValueNode group;
+    @Input private ValueNode allocation;
+    private final int offset;
+
+    public AllocationGroupMemberNode(ValueNode group, ValueNode allocation, int offset) {
+        super(StampFactory.forVoid());
+        this.group = group;
+        this.allocation = allocation;
+        this.offset = offset;
+    }
+
+    /**
+     * Gets the start of the memory reserved for the group, which is zero if no memory could be
+     * reserved.
+     */
+    public ValueNode getGroup() {
+        return group;
+    }
+
+    public ValueNode getAllocation() {
+        return allocation;
+    }
+
+    /**
+     * Gets the offset of the allocation in the memory reserved for the group.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Gets the group member marker of an allocation or null if the allocation is not part of a
+     * group.
+     */
+    public static AllocationGroupMemberNode forAllocation(ValueNode allocation) {
+        return allocation.usages().filter(AllocationGroupMemberNode.class).first();
+    }
+
+    @Override
+    public void lower(LoweringTool tool, LoweringType loweringType) {
+        if (loweringType == LoweringType.AFTER_FSA) {
+            graph().removeFixed(this);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.nodes;
+
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.spi.*;
+import com.oracle.graal.nodes.type.*;
+
+/**
+ * Reserves memory in the TLAB for a group of consecutive allocations with a size known at compile
+ * time. Each allocation of the group is followed by an {@link AllocationGroupMemberNode} that
+ * gives its offset in the reserved memory. The value of this node is the start of the reserved
+ * memory or zero if the TLAB does not have enough space left, in which case every allocation of the
+ * group is done on its own.
+ */
+public final class AllocationGroupNode extends FixedWithNextNode implements Lowerable {
+
+    private final int size;
+
+    public AllocationGroupNode(int size) {
+        super(StampFactory.forWord());
+        this.size = size;
+    }
+
+    /**
+     * Gets the number of bytes reserved for the whole group.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public void lower(LoweringTool tool, LoweringType loweringType) {
+        tool.getRuntime().lower(this, tool);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.phases;
+
+import static com.oracle.graal.phases.GraalOptions.*;
+
+import java.util.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.debug.*;
+import com.oracle.graal.graph.*;
+import com.oracle.graal.hotspot.meta.*;
+import com.oracle.graal.hotspot.nodes.*;
+import com.oracle.graal.hotspot.replacements.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.java.*;
+import com.oracle.graal.phases.*;
+
+/**
+ * Groups allocations that directly follow each other and whose sizes are known at compile time,
+ * such as an object and its backing array, so that they are allocated by a single TLAB bump and
+ * bounds check. The memory of a group is reserved by an {@link AllocationGroupNode} in front of the
+ * first allocation and each allocation of the group is marked with an
+ * {@link AllocationGroupMemberNode} that gives its offset in the reserved memory.
+ * <p>
+ * Since only directly consecutive allocations are grouped, there is no safepoint between the
+ * reservation and the initialization of the objects in the reserved memory. This phase must run
+ * right before the lowering of the allocations.
+ */
+public class AllocationGroupingPhase extends Phase {
+
+    private static final DebugMetric ALLOCATION_GROUPS = Debug.metric("AllocationGroups");
+    private static final DebugMetric GROUPED_ALLOCATIONS = Debug.metric("GroupedAllocations");
+
+    private final HotSpotRuntime runtime;
+
+    public AllocationGroupingPhase(HotSpotRuntime runtime) {
+        this.runtime = runtime;
+    }
+
+    @Override
+    protected void run(StructuredGraph graph) {
+        List<FixedWithNextNode> heads = new ArrayList<>();
+        for (NewInstanceNode allocation : graph.getNodes(NewInstanceNode.class)) {
+            if (isHead(allocation)) {
+                heads.add(allocation);
+            }
+        }
+        for (NewArrayNode allocation : graph.getNodes(NewArrayNode.class)) {
+            if (isHead(allocation)) {
+                heads.add(allocation);
+            }
+        }
+
+        for (FixedWithNextNode head : heads) {
+            List<FixedWithNextNode> group = new ArrayList<>();
+            int groupSize = 0;
+            FixedNode current = head;
+            while (current != null) {
+                int size = allocationSize(current);
+                if (size <= 0 || groupSize + size > AllocationGroupMaxSize.getValue()) {
+                    addGroup(graph, group, groupSize);
+                    group.clear();
+                    groupSize = 0;
+                    if (size <= 0 || size > AllocationGroupMaxSize.getValue()) {
+                        break;
+                    }
+                }
+                group.add((FixedWithNextNode) current);
+                groupSize += size;
+                current = ((FixedWithNextNode) current).next();
+            }
+            addGroup(graph, group, groupSize);
+        }
+    }
+
+    private boolean isHead(FixedWithNextNode allocation) {
+        return allocationSize(allocation) > 0 && allocationSize(allocation.predecessor()) <= 0 && allocationSize(allocation.next()) > 0;
+    }
+
+    private void addGroup(StructuredGraph graph, List<FixedWithNextNode> group, int groupSize) {
+        if (group.size() < 2) {
+            return;
+        }
+        AllocationGroupNode reservation = graph.add(new AllocationGroupNode(groupSize));
+        graph.addBeforeFixed(group.get(0), reservation);
+        int offset = 0;
+        for (FixedWithNextNode allocation : group) {
+            graph.addAfterFixed(allocation, graph.add(new AllocationGroupMemberNode(reservation, allocation, offset)));
+            offset += allocationSize(allocation);
+        }
+        Debug.log("Grouped %d allocations of %d bytes starting with %s", group.size(), groupSize, group.get(0));
+        ALLOCATION_GROUPS.increment();
+        GROUPED_ALLOCATIONS.add(group.size());
+    }
+
+    /**
+     * Gets the number of bytes allocated by a node or 0 if it is not an allocation whose size is
+     * known at compile time.
+     */
+    private int allocationSize(Node node) {
+        if (node instanceof NewInstanceNode) {
+            HotSpotResolvedObjectType type = (HotSpotResolvedObjectType) ((NewInstanceNode) node).instanceClass();
+            return type.instanceSize();
+        } else if (node instanceof NewArrayNode) {
+            NewArrayNode newArray = (NewArrayNode) node;
+            if (!newArray.length().isConstant()) {
+                return 0;
+            }
+            int length = newArray.length().asConstant().asInt();
+            if (length < 0 || length > AllocationGroupMaxSize.getValue()) {
+                return 0;
+            }
+            Kind elementKind = newArray.elementType().getKind();
+            int headerSize = HotSpotRuntime.getArrayBaseOffset(elementKind);
+            int log2ElementSize = CodeUtil.log2(runtime.getScalingFactor(elementKind));
+            return NewObjectSnippets.computeArrayAllocationSize(length, HotSpotReplacementsUtil.wordSize(), headerSize, log2ElementSize);
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.replacements;
+
+import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.*;
+import static com.oracle.graal.hotspot.stubs.ArrayFillStub.*;
+
+import java.util.*;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.api.replacements.*;
+import com.oracle.graal.graph.Node.ConstantNodeParameter;
+import com.oracle.graal.graph.Node.NodeIntrinsic;
+import com.oracle.graal.hotspot.nodes.*;
+import com.oracle.graal.hotspot.stubs.*;
+import com.oracle.graal.nodes.extended.*;
+import com.oracle.graal.word.*;
+
+/**
+ * Substitutions for the {@link Arrays} methods that fill a whole primitive array, which call the
+ * {@link ArrayFillStub}. The value is passed to the stub replicated to 8 bytes.
+ */
+@ClassSubstitution(Arrays.class)
+public class ArrayFillSubstitutions {
+
+    private static final long BYTES = 0x0101010101010101L;
+    private static final long SHORTS = 0x0001000100010001L;
+    private static final long INTS = 0x0000000100000001L;
+
+    @MethodSubstitution
+    public static void fill(boolean[] a, boolean val) {
+        fill(a, a.length, Kind.Boolean, val ? BYTES : 0L);
+    }
+
+    @MethodSubstitution
+    public static void fill(byte[] a, byte val) {
+        fill(a, a.length, Kind.Byte, (val & 0xFFL) * BYTES);
+    }
+
+    @MethodSubstitution
+    public static void fill(char[] a, char val) {
+        fill(a, a.length, Kind.Char, val * SHORTS);
+    }
+
+    @MethodSubstitution
+    public static void fill(short[] a, short val) {
+        fill(a, a.length, Kind.Short, (val & 0xFFFFL) * SHORTS);
+    }
+
+    @MethodSubstitution
+    public static void fill(int[] a, int val) {
+        fill(a, a.length, Kind.Int, (val & 0xFFFFFFFFL) * INTS);
+    }
+
+    @MethodSubstitution
+    public static void fill(long[] a, long val) {
+        fill(a, a.length, Kind.Long, val);
+    }
+
+    @MethodSubstitution
+    public static void fill(float[] a, float val) {
+        fill(a, a.length, Kind.Float, (Float.floatToRawIntBits(val) & 0xFFFFFFFFL) * INTS);
+    }
+
+    @MethodSubstitution
+    public static void fill(double[] a, double val) {
+        fill(a, a.length, Kind.Double, Double.doubleToRawLongBits(val));
+    }
+
+    private static void fill(Object a, int length, Kind kind, long pattern) {
+        Word address = Word.unsigned(GetObjectAddressNode.get(a) + arrayBaseOffset(kind));
+        arrayFillStub(ARRAY_FILL, address, Word.unsigned((long) length * arrayIndexScale(kind)), pattern);
+    }
+
+    @NodeIntrinsic(ForeignCallNode.class)
+    private static native void arrayFillStub(@ConstantNodeParameter ForeignCallDescriptor descriptor, Word dest, Word length, long pattern);
+}
@@ -24,7 +24,9 @@ package com.oracle.graal.hotspot.replacements;
 
 import static com.oracle.graal.api.code.UnsignedMath.*;
 import static com.oracle.graal.api.meta.LocationIdentity.*;
+import static com.oracle.graal.hotspot.HotSpotGraalRuntime.*;
 import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.*;
+import static com.oracle.graal.hotspot.stubs.ArrayFillStub.*;
 import static com.oracle.graal.nodes.extended.BranchProbabilityNode.*;
 import static com.oracle.graal.nodes.extended.UnsafeArrayCastNode.*;
 import static com.oracle.graal.nodes.extended.UnsafeCastNode.*;
@@ -35,8 +37,11 @@ import static com.oracle.graal.replacements.nodes.ExplodeLoopNode.*;
 import com.oracle.graal.api.code.*;
 import com.oracle.graal.api.meta.*;
 import com.oracle.graal.debug.*;
+import com.oracle.graal.graph.Node.ConstantNodeParameter;
+import com.oracle.graal.graph.Node.NodeIntrinsic;
 import com.oracle.graal.hotspot.meta.*;
 import com.oracle.graal.hotspot.nodes.*;
+import com.oracle.graal.hotspot.stubs.*;
 import com.oracle.graal.nodes.*;
 import com.oracle.graal.nodes.extended.*;
 import com.oracle.graal.nodes.java.*;
@@ -44,6 +49,7 @@ import com.oracle.graal.nodes.spi.*;
 import com.oracle.graal.nodes.type.*;
 import com.oracle.graal.replacements.*;
 import com.oracle.graal.replacements.Snippet.ConstantParameter;
+import com.oracle.graal.replacements.Snippet.Fold;
 import com.oracle.graal.replacements.Snippet.VarargsParameter;
 import com.oracle.graal.replacements.SnippetTemplate.AbstractTemplates;
 import com.oracle.graal.replacements.SnippetTemplate.Arguments;
@@ -56,8 +62,14 @@ import com.oracle.graal.word.*;
  */
 public class NewObjectSnippets implements Snippets {
 
+    /**
+     * Allocates {@code size} bytes in the TLAB, which is used to reserve the memory of an
+     * {@link AllocationGroupNode}.
+     * 
+     * @return the start of the allocated memory or zero if the TLAB has not enough space left
+     */
     @Snippet
-    public static Word allocate(int size) {
+    public static Word allocate(@ConstantParameter int size) {
         Word thread = thread();
         Word top = readTlabTop(thread);
         Word end = readTlabEnd(thread);
@@ -66,7 +78,7 @@ public class NewObjectSnippets implements Snippets {
          * this check might lead to problems if the TLAB is within 16GB of the address space end
          * (checked in c++ code)
          */
-        if (probability(FAST_PATH_PROBABILITY, newTop.belowOrEqual(end))) {
+        if (useTLAB() && probability(FAST_PATH_PROBABILITY, newTop.belowOrEqual(end))) {
             writeTlabTop(thread, newTop);
             return top;
         }
@@ -75,6 +87,30 @@ public class NewObjectSnippets implements Snippets {
 
     @Snippet
     public static Object allocateInstance(@ConstantParameter int size, Word hub, Word prototypeMarkWord, @ConstantParameter boolean fillContents) {
+        Object result = allocateInstanceImpl(size, hub, prototypeMarkWord, fillContents);
+        BeginNode anchorNode = BeginNode.anchor(StampFactory.forNodeIntrinsic());
+        return unsafeCast(verifyOop(result), StampFactory.forNodeIntrinsic(), anchorNode);
+    }
+
+    /**
+     * Allocates an instance that is part of an {@link AllocationGroupNode} whose memory starts at
+     * {@code groupMemory}.
+     */
+    @Snippet
+    public static Object allocateInstanceInGroup(@ConstantParameter int size, Word hub, Word prototypeMarkWord, @ConstantParameter boolean fillContents, Word groupMemory,
+                    @ConstantParameter int offset) {
+        Object result;
+        if (probability(FAST_PATH_PROBABILITY, groupMemory.notEqual(Word.zero()))) {
+            new_group.inc();
+            result = formatObject(hub, size, groupMemory.add(offset), prototypeMarkWord, fillContents);
+        } else {
+            result = allocateInstanceImpl(size, hub, prototypeMarkWord, fillContents);
+        }
+        BeginNode anchorNode = BeginNode.anchor(StampFactory.forNodeIntrinsic());
+        return unsafeCast(verifyOop(result), StampFactory.forNodeIntrinsic(), anchorNode);
+    }
+
+    private static Object allocateInstanceImpl(int size, Word hub, Word prototypeMarkWord, boolean fillContents) {
         Object result;
         Word thread = thread();
         Word top = readTlabTop(thread);
@@ -87,8 +123,7 @@ public class NewObjectSnippets implements Snippets {
             new_stub.inc();
             result = NewInstanceStubCall.call(hub);
         }
-        BeginNode anchorNode = BeginNode.anchor(StampFactory.forNodeIntrinsic());
-        return unsafeCast(verifyOop(result), StampFactory.forNodeIntrinsic(), anchorNode);
+        return result;
     }
 
     /**
@@ -105,6 +140,24 @@ public class NewObjectSnippets implements Snippets {
         return allocateArrayImpl(hub, length, prototypeMarkWord, headerSize, log2ElementSize, fillContents);
     }
 
+    /**
+     * Allocates an array that is part of an {@link AllocationGroupNode} whose memory starts at
+     * {@code groupMemory}. The length of such an array is a small constant, so it needs no range
+     * check.
+     */
+    @Snippet
+    public static Object allocateArrayInGroup(Word hub, int length, Word prototypeMarkWord, @ConstantParameter int headerSize, @ConstantParameter int log2ElementSize,
+                    @ConstantParameter boolean fillContents, Word groupMemory, @ConstantParameter int offset) {
+        if (probability(FAST_PATH_PROBABILITY, groupMemory.notEqual(Word.zero()))) {
+            newarray_group.inc();
+            int allocationSize = computeArrayAllocationSize(length, wordSize(), headerSize, log2ElementSize);
+            Object result = formatArray(hub, allocationSize, length, headerSize, groupMemory.add(offset), prototypeMarkWord, fillContents);
+            BeginNode anchorNode = BeginNode.anchor(StampFactory.forNodeIntrinsic());
+            return unsafeArrayCast(verifyOop(result), length, StampFactory.forNodeIntrinsic(), anchorNode);
+        }
+        return allocateArrayImpl(hub, length, prototypeMarkWord, headerSize, log2ElementSize, fillContents);
+    }
+
     private static Object allocateArrayImpl(Word hub, int length, Word prototypeMarkWord, int headerSize, int log2ElementSize, boolean fillContents) {
         Object result;
         int alignment = wordSize();
@@ -115,8 +168,14 @@ public class NewObjectSnippets implements Snippets {
         Word newTop = top.add(allocationSize);
         if (useTLAB() && probability(FAST_PATH_PROBABILITY, newTop.belowOrEqual(end))) {
             writeTlabTop(thread, newTop);
-            newarray_loopInit.inc();
-            result = formatArray(hub, allocationSize, length, headerSize, top, prototypeMarkWord, fillContents);
+            if (fillContents && useArrayFillStub() && probability(NOT_FREQUENT_PROBABILITY, allocationSize - headerSize >= MIN_ARRAY_FILL_STUB_ZEROING_SIZE)) {
+                newarray_stubInit.inc();
+                result = formatArray(hub, allocationSize, length, headerSize, top, prototypeMarkWord, false);
+                arrayFillStub(ARRAY_FILL, top.add(headerSize), Word.unsigned(allocationSize - headerSize), 0L);
+            } else {
+                newarray_loopInit.inc();
+                result = formatArray(hub, allocationSize, length, headerSize, top, prototypeMarkWord, fillContents);
+            }
         } else {
             newarray_stub.inc();
             result = NewArrayStubCall.call(hub, length);
@@ -125,6 +184,23 @@ public class NewObjectSnippets implements Snippets {
         return unsafeArrayCast(verifyOop(result), length, StampFactory.forNodeIntrinsic(), anchorNode);
     }
 
+    /**
+     * Minimum size of an array body that is zeroed by the {@link ArrayFillStub} instead of a loop
+     * storing one word at a time.
+     */
+    private static final int MIN_ARRAY_FILL_STUB_ZEROING_SIZE = 256;
+
+    /**
+     * Determines if the target provides the {@link ArrayFillStub}.
+     */
+    @Fold
+    private static boolean useArrayFillStub() {
+        return graalRuntime().getRuntime().hasForeignCall(ARRAY_FILL);
+    }
+
+    @NodeIntrinsic(ForeignCallNode.class)
+    private static native void arrayFillStub(@ConstantNodeParameter ForeignCallDescriptor descriptor, Word dest, Word length, long pattern);
+
     public static final ForeignCallDescriptor DYNAMIC_NEW_ARRAY = new ForeignCallDescriptor("dynamic_new_array", Object.class, Class.class, int.class);
 
     @NodeIntrinsic(ForeignCallNode.class)
@@ -236,8 +312,11 @@ public class NewObjectSnippets implements Snippets {
 
     public static class Templates extends AbstractTemplates {
 
+        private final SnippetInfo allocate = snippet(NewObjectSnippets.class, "allocate");
         private final SnippetInfo allocateInstance = snippet(NewObjectSnippets.class, "allocateInstance");
+        private final SnippetInfo allocateInstanceInGroup = snippet(NewObjectSnippets.class, "allocateInstanceInGroup");
         private final SnippetInfo allocateArray = snippet(NewObjectSnippets.class, "allocateArray");
+        private final SnippetInfo allocateArrayInGroup = snippet(NewObjectSnippets.class, "allocateArrayInGroup");
         private final SnippetInfo allocateArrayDynamic = snippet(NewObjectSnippets.class, "allocateArrayDynamic");
         private final SnippetInfo newmultiarray = snippet(NewObjectSnippets.class, "newmultiarray");
 
@@ -254,12 +333,17 @@ public class NewObjectSnippets implements Snippets {
             assert !type.isArray();
             ConstantNode hub = ConstantNode.forConstant(type.klass(), runtime, graph);
             int size = instanceSize(type);
+            AllocationGroupMemberNode member = AllocationGroupMemberNode.forAllocation(newInstanceNode);
 
-            Arguments args = new Arguments(allocateInstance);
+            Arguments args = new Arguments(member == null ? allocateInstance : allocateInstanceInGroup);
             args.addConst("size", size);
             args.add("hub", hub);
             args.add("prototypeMarkWord", type.prototypeMarkWord());
             args.addConst("fillContents", newInstanceNode.fillContents());
+            if (member != null) {
+                args.add("groupMemory", member.getGroup());
+                args.addConst("offset", member.getOffset());
+            }
 
             SnippetTemplate template = template(args);
             Debug.log("Lowering allocateInstance in %s: node=%s, template=%s, arguments=%s", graph, newInstanceNode, template, args);
@@ -277,20 +361,37 @@ public class NewObjectSnippets implements Snippets {
             ConstantNode hub = ConstantNode.forConstant(arrayType.klass(), runtime, graph);
             final int headerSize = HotSpotRuntime.getArrayBaseOffset(elementKind);
             int log2ElementSize = CodeUtil.log2(((HotSpotRuntime) runtime).getScalingFactor(elementKind));
+            AllocationGroupMemberNode member = AllocationGroupMemberNode.forAllocation(newArrayNode);
 
-            Arguments args = new Arguments(allocateArray);
+            Arguments args = new Arguments(member == null ? allocateArray : allocateArrayInGroup);
             args.add("hub", hub);
             args.add("length", newArrayNode.length());
             args.add("prototypeMarkWord", arrayType.prototypeMarkWord());
             args.addConst("headerSize", headerSize);
             args.addConst("log2ElementSize", log2ElementSize);
             args.addConst("fillContents", newArrayNode.fillContents());
+            if (member != null) {
+                args.add("groupMemory", member.getGroup());
+                args.addConst("offset", member.getOffset());
+            }
 
             SnippetTemplate template = template(args);
             Debug.log("Lowering allocateArray in %s: node=%s, template=%s, arguments=%s", graph, newArrayNode, template, args);
             template.instantiate(runtime, newArrayNode, DEFAULT_REPLACER, args);
         }
 
+        /**
+         * Lowers an {@link AllocationGroupNode}.
+         */
+        public void lower(AllocationGroupNode group) {
+            Arguments args = new Arguments(allocate);
+            args.addConst("size", group.getSize());
+
+            SnippetTemplate template = template(args);
+            Debug.log("Lowering allocate in %s: node=%s, template=%s, arguments=%s", group.graph(), group, template, args);
+            template.instantiate(runtime, group, DEFAULT_REPLACER, args);
+        }
+
         public void lower(DynamicNewArrayNode newArrayNode) {
             Arguments args = new Arguments(allocateArrayDynamic);
             args.add("elementType", newArrayNode.getElementType());
@@ -330,8 +431,11 @@ public class NewObjectSnippets implements Snippets {
     private static final SnippetCounter new_seqInit = new SnippetCounter(countersNew, "tlabSeqInit", "TLAB alloc with unrolled zeroing");
     private static final SnippetCounter new_loopInit = new SnippetCounter(countersNew, "tlabLoopInit", "TLAB alloc with zeroing in a loop");
     private static final SnippetCounter new_stub = new SnippetCounter(countersNew, "stub", "alloc and zeroing via stub");
+    private static final SnippetCounter new_group = new SnippetCounter(countersNew, "group", "alloc in memory reserved for an allocation group");
 
     private static final SnippetCounter.Group countersNewArray = SnippetCounters.getValue() ? new SnippetCounter.Group("NewArray") : null;
     private static final SnippetCounter newarray_loopInit = new SnippetCounter(countersNewArray, "tlabLoopInit", "TLAB alloc with zeroing in a loop");
+    private static final SnippetCounter newarray_stubInit = new SnippetCounter(countersNewArray, "tlabStubInit", "TLAB alloc with zeroing via the array fill stub");
     private static final SnippetCounter newarray_stub = new SnippetCounter(countersNewArray, "stub", "alloc and zeroing via stub");
+    private static final SnippetCounter newarray_group = new SnippetCounter(countersNewArray, "group", "alloc in memory reserved for an allocation group");
 }
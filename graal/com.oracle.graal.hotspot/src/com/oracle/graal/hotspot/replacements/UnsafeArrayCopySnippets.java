@@ -25,15 +25,21 @@ package com.oracle.graal.hotspot.replacements;
 import static com.oracle.graal.api.meta.LocationIdentity.*;
 import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.*;
 import static com.oracle.graal.hotspot.HotSpotGraalRuntime.*;
+import static com.oracle.graal.hotspot.stubs.ArrayCopyStub.*;
 import static com.oracle.graal.nodes.extended.BranchProbabilityNode.*;
 import static com.oracle.graal.replacements.SnippetTemplate.*;
 
 import com.oracle.graal.api.code.*;
 import com.oracle.graal.api.meta.*;
 import com.oracle.graal.asm.*;
+import com.oracle.graal.graph.Node.ConstantNodeParameter;
+import com.oracle.graal.graph.Node.NodeIntrinsic;
+import com.oracle.graal.hotspot.nodes.*;
+import com.oracle.graal.hotspot.stubs.*;
 import com.oracle.graal.nodes.extended.*;
 import com.oracle.graal.nodes.spi.*;
 import com.oracle.graal.replacements.*;
+import com.oracle.graal.replacements.Snippet.Fold;
 import com.oracle.graal.replacements.SnippetTemplate.AbstractTemplates;
 import com.oracle.graal.replacements.SnippetTemplate.Arguments;
 import com.oracle.graal.replacements.SnippetTemplate.SnippetInfo;
@@ -47,6 +53,43 @@ public class UnsafeArrayCopySnippets implements Snippets {
     private static final Kind VECTOR_KIND = Kind.Long;
     private static final long VECTOR_SIZE = arrayIndexScale(Kind.Long);
 
+    /**
+     * Determines if the target provides the {@link ArrayCopyStub}s, which copy primitive arrays out
+     * of line with the widest moves available instead of the loops inlined by these snippets.
+     */
+    @Fold
+    private static boolean useArrayCopyStubs() {
+        return graalRuntime().getRuntime().hasForeignCall(ARRAYCOPY_DISJOINT);
+    }
+
+    @NodeIntrinsic(ForeignCallNode.class)
+    private static native void arraycopyStub(@ConstantNodeParameter ForeignCallDescriptor descriptor, Word src, Word dest, Word length);
+
+    /**
+     * Copies {@code byteLength} bytes between two arrays with an {@link ArrayCopyStub}. The offsets
+     * are relative to the start of the arrays. An aligned copy requires all offsets and the length
+     * to be multiples of 8.
+     */
+    private static void stubCopy(Object src, long srcOffset, Object dest, long destOffset, long byteLength, boolean aligned) {
+        Word srcAddress = Word.unsigned(GetObjectAddressNode.get(src) + srcOffset);
+        Word destAddress = Word.unsigned(GetObjectAddressNode.get(dest) + destOffset);
+        Word length = Word.unsigned(byteLength);
+        // only a copy within one array can overlap
+        if (probability(NOT_FREQUENT_PROBABILITY, src == dest)) {
+            if (aligned) {
+                arraycopyStub(ARRAYCOPY_ALIGNED_CONJOINT, srcAddress, destAddress, length);
+            } else {
+                arraycopyStub(ARRAYCOPY_CONJOINT, srcAddress, destAddress, length);
+            }
+        } else {
+            if (aligned) {
+                arraycopyStub(ARRAYCOPY_ALIGNED_DISJOINT, srcAddress, destAddress, length);
+            } else {
+                arraycopyStub(ARRAYCOPY_DISJOINT, srcAddress, destAddress, length);
+            }
+        }
+    }
+
     private static void vectorizedCopy(Object src, int srcPos, Object dest, int destPos, int length, Kind baseKind) {
         int arrayBaseOffset = arrayBaseOffset(baseKind);
         int elementSize = arrayIndexScale(baseKind);
@@ -54,6 +97,11 @@ public class UnsafeArrayCopySnippets implements Snippets {
         long srcOffset = (long) srcPos * elementSize;
         long destOffset = (long) destPos * elementSize;
 
+        if (useArrayCopyStubs()) {
+            stubCopy(src, arrayBaseOffset + srcOffset, dest, arrayBaseOffset + destOffset, byteLength, false);
+            return;
+        }
+
         long preLoopBytes;
         long mainLoopBytes;
         long postLoopBytes;
@@ -165,6 +213,10 @@ public class UnsafeArrayCopySnippets implements Snippets {
         long byteLength = (long) length * arrayIndexScale(baseKind);
         long srcOffset = (long) srcPos * arrayIndexScale(baseKind);
         long destOffset = (long) destPos * arrayIndexScale(baseKind);
+        if (useArrayCopyStubs()) {
+            stubCopy(src, arrayBaseOffset + srcOffset, dest, arrayBaseOffset + destOffset, byteLength, arrayBaseOffset % 8 == 0);
+            return;
+        }
         if (src == dest && srcPos < destPos) { // bad aliased case
             for (long i = byteLength - VECTOR_SIZE; i >= 0; i -= VECTOR_SIZE) {
                 Long a = UnsafeLoadNode.load(src, arrayBaseOffset, i + srcOffset, VECTOR_KIND);
@@ -185,6 +237,10 @@ public class UnsafeArrayCopySnippets implements Snippets {
         long byteLength = (long) length * arrayIndexScale(baseKind);
         long srcOffset = (long) srcPos * arrayIndexScale(baseKind);
         long destOffset = (long) destPos * arrayIndexScale(baseKind);
+        if (useArrayCopyStubs()) {
+            stubCopy(src, arrayBaseOffset + srcOffset, dest, arrayBaseOffset + destOffset, byteLength, arrayBaseOffset % 8 == 0);
+            return;
+        }
         if (src == dest && srcPos < destPos) { // bad aliased case
             for (long i = byteLength - VECTOR_SIZE; i >= 0; i -= VECTOR_SIZE) {
                 Long a = UnsafeLoadNode.load(src, arrayBaseOffset, i + srcOffset, VECTOR_KIND);
@@ -225,6 +281,11 @@ public class UnsafeArrayCopySnippets implements Snippets {
         int log2ElementSize = (layoutHelper >> layoutHelperLog2ElementSizeShift()) & layoutHelperLog2ElementSizeMask();
         int headerSize = (layoutHelper >> layoutHelperHeaderSizeShift()) & layoutHelperHeaderSizeMask();
 
+        if (useArrayCopyStubs()) {
+            stubCopy(src, headerSize + ((long) srcPos << log2ElementSize), dest, headerSize + ((long) destPos << log2ElementSize), (long) length << log2ElementSize, false);
+            return;
+        }
+
         Word srcOffset = (Word) Word.fromObject(src).add(headerSize).add(srcPos << log2ElementSize);
         Word destOffset = (Word) Word.fromObject(dest).add(headerSize).add(destPos << log2ElementSize);
         Word destStart = destOffset;
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.stubs;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.hotspot.*;
+import com.oracle.graal.hotspot.meta.*;
+import com.oracle.graal.nodes.spi.*;
+import com.oracle.graal.replacements.*;
+import com.oracle.graal.replacements.Snippet.ConstantParameter;
+import com.oracle.graal.replacements.SnippetTemplate.Arguments;
+import com.oracle.graal.replacements.SnippetTemplate.SnippetInfo;
+import com.oracle.graal.replacements.nodes.*;
+import com.oracle.graal.word.*;
+
+/**
+ * Stub called via one of the {@code ARRAYCOPY_*} descriptors to copy a range of bytes between
+ * primitive arrays. All variants share one snippet, which is specialized for the descriptor's kind
+ * of copy:
+ * <ul>
+ * <li>A conjoint copy allows the source and destination ranges to overlap.</li>
+ * <li>An aligned copy requires the length to be a multiple of 8.</li>
+ * </ul>
+ */
+public class ArrayCopyStub extends SnippetStub {
+
+    public static final ForeignCallDescriptor ARRAYCOPY_DISJOINT = new ForeignCallDescriptor("arraycopy_disjoint", void.class, Word.class, Word.class, Word.class);
+    public static final ForeignCallDescriptor ARRAYCOPY_CONJOINT = new ForeignCallDescriptor("arraycopy_conjoint", void.class, Word.class, Word.class, Word.class);
+    public static final ForeignCallDescriptor ARRAYCOPY_ALIGNED_DISJOINT = new ForeignCallDescriptor("arraycopy_aligned_disjoint", void.class, Word.class, Word.class, Word.class);
+    public static final ForeignCallDescriptor ARRAYCOPY_ALIGNED_CONJOINT = new ForeignCallDescriptor("arraycopy_aligned_conjoint", void.class, Word.class, Word.class, Word.class);
+
+    /**
+     * Gets the descriptor of the stub for a given kind of copy.
+     */
+    public static ForeignCallDescriptor getDescriptor(boolean conjoint, boolean aligned) {
+        if (aligned) {
+            return conjoint ? ARRAYCOPY_ALIGNED_CONJOINT : ARRAYCOPY_ALIGNED_DISJOINT;
+        }
+        return conjoint ? ARRAYCOPY_CONJOINT : ARRAYCOPY_DISJOINT;
+    }
+
+    private final boolean conjoint;
+    private final boolean aligned;
+
+    public ArrayCopyStub(final HotSpotRuntime runtime, Replacements replacements, TargetDescription target, HotSpotForeignCallLinkage linkage, boolean conjoint, boolean aligned) {
+        super(runtime, replacements, target, linkage);
+        assert linkage.getDescriptor() == getDescriptor(conjoint, aligned);
+        this.conjoint = conjoint;
+        this.aligned = aligned;
+    }
+
+    @Override
+    protected Arguments makeArguments(SnippetInfo stub) {
+        Arguments args = new Arguments(stub);
+        args.add("src", null);
+        args.add("dest", null);
+        args.add("length", null);
+        args.addConst("conjoint", conjoint);
+        args.addConst("aligned", aligned);
+        return args;
+    }
+
+    /**
+     * Copies {@code length} bytes from {@code src} to {@code dest}.
+     */
+    @Snippet
+    private static void arraycopy(Word src, Word dest, Word length, @ConstantParameter boolean conjoint, @ConstantParameter boolean aligned) {
+        MemoryCopyNode.copy(src, dest, length, conjoint, aligned);
+    }
+
+    @Override
+    public String toString() {
+        // all variants share the snippet method, so use the descriptor to tell them apart
+        return "Stub<" + getLinkage().getDescriptor() + ">";
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.stubs;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.hotspot.*;
+import com.oracle.graal.hotspot.meta.*;
+import com.oracle.graal.nodes.spi.*;
+import com.oracle.graal.replacements.*;
+import com.oracle.graal.replacements.nodes.*;
+import com.oracle.graal.word.*;
+
+/**
+ * Stub called via {@link #ARRAY_FILL} to fill a range of a primitive array with a value, or to
+ * zero the body of a newly allocated array.
+ */
+public class ArrayFillStub extends SnippetStub {
+
+    public static final ForeignCallDescriptor ARRAY_FILL = new ForeignCallDescriptor("array_fill", void.class, Word.class, Word.class, long.class);
+
+    public ArrayFillStub(final HotSpotRuntime runtime, Replacements replacements, TargetDescription target, HotSpotForeignCallLinkage linkage) {
+        super(runtime, replacements, target, linkage);
+    }
+
+    /**
+     * Stores {@code length} bytes of the repeated 8 byte {@code pattern} starting at {@code dest}.
+     * The pattern must be the element value replicated to 8 bytes.
+     */
+    @Snippet
+    private static void arrayFill(Word dest, Word length, long pattern) {
+        MemoryFillNode.fill(dest, length, pattern);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.jtt.bytecode;
+
+import com.oracle.graal.jtt.*;
+import org.junit.*;
+
+/*
+ * A sparse switch with enough key ranges to be emitted as a decision tree, including a dense
+ * cluster of keys and keys at the ends of the int range.
+ */
+public class BC_lookupswitch06 extends JTTTest {
+
+    public static int test(int a) {
+        switch (a) {
+            case Integer.MIN_VALUE:
+                return 1;
+            case -100000:
+                return 2;
+            case -517:
+                return 3;
+            case -3:
+            case -2:
+                return 4;
+            case 10:
+                return 5;
+            case 11:
+                return 6;
+            case 12:
+                return 7;
+            case 13:
+                return 8;
+            case 14:
+                return 5;
+            case 16:
+                return 6;
+            case 17:
+                return 7;
+            case 1000:
+                return 9;
+            case 4711:
+                return 10;
+            case 65536:
+                return 11;
+            case 123456789:
+                return 12;
+            case Integer.MAX_VALUE:
+                return 13;
+        }
+        return 42;
+    }
+
+    @Test
+    public void run0() throws Throwable {
+        runTest("test", Integer.MIN_VALUE);
+    }
+
+    @Test
+    public void run1() throws Throwable {
+        runTest("test", -100000);
+    }
+
+    @Test
+    public void run2() throws Throwable {
+        runTest("test", -2);
+    }
+
+    @Test
+    public void run3() throws Throwable {
+        runTest("test", 0);
+    }
+
+    @Test
+    public void run4() throws Throwable {
+        runTest("test", 12);
+    }
+
+    @Test
+    public void run5() throws Throwable {
+        runTest("test", 15);
+    }
+
+    @Test
+    public void run6() throws Throwable {
+        runTest("test", 17);
+    }
+
+    @Test
+    public void run7() throws Throwable {
+        runTest("test", 4711);
+    }
+
+    @Test
+    public void run8() throws Throwable {
+        runTest("test", 65535);
+    }
+
+    @Test
+    public void run9() throws Throwable {
+        runTest("test", Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void run10() throws Throwable {
+        runTest("test", Integer.MAX_VALUE - 1);
+    }
+
+}
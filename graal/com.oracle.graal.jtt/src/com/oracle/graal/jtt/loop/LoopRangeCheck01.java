@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+// Checkstyle: stop
+package com.oracle.graal.jtt.loop;
+
+import com.oracle.graal.jtt.*;
+import org.junit.*;
+
+/*
+ * Array accesses in counted loops whose bounds checks can be proven from the loop limit.
+ */
+public class LoopRangeCheck01 extends JTTTest {
+
+    private static final int[] array = new int[]{3, 1, 4, 1, 5, 9, 2, 6, 5, 3, 5, 8, 9, 7};
+
+    public static int test(int[] a, int variant) {
+        int sum = 0;
+        if (variant == 0) {
+            for (int i = 0; i < a.length; i++) {
+                sum += a[i];
+            }
+        } else if (variant == 1) {
+            for (int i = 1; i < a.length; i++) {
+                sum += a[i] * a[i - 1];
+            }
+        } else if (variant == 2) {
+            int[] b = new int[a.length];
+            for (int i = 0; i <= a.length - 1; i++) {
+                b[i] = a[i] + 1;
+                sum += b[i];
+            }
+        } else {
+            int[] b = new int[10];
+            for (int i = 0; i < 10; i += 3) {
+                b[i] = i;
+                sum += b[i] + a[i];
+            }
+        }
+        return sum;
+    }
+
+    @Test
+    public void run0() throws Throwable {
+        runTest("test", array, 0);
+    }
+
+    @Test
+    public void run1() throws Throwable {
+        runTest("test", array, 1);
+    }
+
+    @Test
+    public void run2() throws Throwable {
+        runTest("test", array, 2);
+    }
+
+    @Test
+    public void run3() throws Throwable {
+        runTest("test", array, 3);
+    }
+
+    @Test
+    public void run4() throws Throwable {
+        runTest("test", new int[0], 1);
+    }
+
+    @Test
+    public void run5() throws Throwable {
+        runTest("test", new int[5], 3);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+// Checkstyle: stop
+package com.oracle.graal.jtt.loop;
+
+import com.oracle.graal.jtt.*;
+import org.junit.*;
+
+/*
+ * Array accesses in counted loops whose bounds checks can only be checked in front of the loop.
+ */
+public class LoopRangeCheck02 extends JTTTest {
+
+    private static final int[] array = new int[]{3, 1, 4, 1, 5, 9, 2, 6, 5, 3};
+
+    public static int test(int[] a, int start, int end) {
+        int sum = 0;
+        for (int i = start; i < end; i++) {
+            sum += a[i];
+        }
+        return sum;
+    }
+
+    public static int testInclusive(int[] a, int start, int end) {
+        int sum = 0;
+        for (int i = start; i <= end; i++) {
+            sum = sum * 31 + a[i - 1];
+        }
+        return sum;
+    }
+
+    @Test
+    public void run0() throws Throwable {
+        runTest("test", array, 0, array.length);
+    }
+
+    @Test
+    public void run1() throws Throwable {
+        runTest("test", array, 2, 7);
+    }
+
+    @Test
+    public void run2() throws Throwable {
+        runTest("test", array, 5, array.length + 1);
+    }
+
+    @Test
+    public void run3() throws Throwable {
+        runTest("test", array, -1, 3);
+    }
+
+    @Test
+    public void run4() throws Throwable {
+        runTest("test", array, 5, 2);
+    }
+
+    @Test
+    public void run5() throws Throwable {
+        runTest("test", array, Integer.MIN_VALUE, Integer.MIN_VALUE + 1);
+    }
+
+    @Test
+    public void run6() throws Throwable {
+        runTest("testInclusive", array, 1, array.length);
+    }
+
+    @Test
+    public void run7() throws Throwable {
+        runTest("testInclusive", array, 1, array.length + 1);
+    }
+
+    @Test
+    public void run8() throws Throwable {
+        runTest("testInclusive", array, 0, 4);
+    }
+
+    @Test
+    public void run9() throws Throwable {
+        runTest("testInclusive", array, Integer.MAX_VALUE - 1, Integer.MAX_VALUE);
+    }
+}
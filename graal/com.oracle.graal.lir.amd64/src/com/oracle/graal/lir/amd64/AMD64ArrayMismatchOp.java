@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir.amd64;
+
+import static com.oracle.graal.api.code.ValueUtil.*;
+import static com.oracle.graal.graph.UnsafeAccess.*;
+import static com.oracle.graal.lir.LIRInstruction.OperandFlag.*;
+
+import java.lang.reflect.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.asm.*;
+import com.oracle.graal.asm.amd64.*;
+import com.oracle.graal.asm.amd64.AMD64Address.Scale;
+import com.oracle.graal.asm.amd64.AMD64Assembler.ConditionFlag;
+import com.oracle.graal.graph.*;
+import com.oracle.graal.lir.*;
+import com.oracle.graal.lir.asm.*;
+
+/**
+ * Emits code that finds the first index at which two arrays of the same primitive kind differ
+ * within the first {@code length} elements, or {@code length} if there is no such index. The
+ * arrays are compared 16 bytes at a time (if SSE4.1 is available) and 8 bytes at a time. Once a
+ * difference is detected in such a block, or less than 8 bytes are left, the remaining elements
+ * are compared one at a time.
+ */
+@Opcode("ARRAY_MISMATCH")
+public class AMD64ArrayMismatchOp extends AMD64LIRInstruction {
+
+    private final Kind kind;
+    private final boolean useVectors;
+
+    @Def({REG}) protected Value result;
+    @Alive({REG}) protected Value array1;
+    @Alive({REG}) protected Value array2;
+    @Alive({REG}) protected Value length;
+    @Temp({REG}) protected Value limit;
+    @Temp({REG}) protected Value temp1;
+    @Temp({REG}) protected Value temp2;
+    @Temp({REG, ILLEGAL}) protected Value vector1;
+    @Temp({REG, ILLEGAL}) protected Value vector2;
+
+    public AMD64ArrayMismatchOp(Kind kind, boolean useVectors, Value result, Value array1, Value array2, Value length, Value limit, Value temp1, Value temp2, Value vector1, Value vector2) {
+        this.kind = kind;
+        this.useVectors = useVectors;
+        this.result = result;
+        this.array1 = array1;
+        this.array2 = array2;
+        this.length = length;
+        this.limit = limit;
+        this.temp1 = temp1;
+        this.temp2 = temp2;
+        this.vector1 = vector1;
+        this.vector2 = vector2;
+    }
+
+    @Override
+    public void emitCode(TargetMethodAssembler tasm, AMD64MacroAssembler masm) {
+        Class<?> arrayClass = Array.newInstance(kind.toJavaClass(), 0).getClass();
+        int baseOffset = unsafe.arrayBaseOffset(arrayClass);
+        int elementSize = unsafe.arrayIndexScale(arrayClass);
+        int shift = Integer.numberOfTrailingZeros(elementSize);
+
+        // all positions are byte offsets from the first element
+        Register pos = asRegister(result);
+        Register end = asRegister(limit);
+        Register tmp1 = asRegister(temp1);
+        Register tmp2 = asRegister(temp2);
+        Register base1 = asObjectReg(array1);
+        Register base2 = asObjectReg(array2);
+        Label wordLoop = new Label();
+        Label elementLoop = new Label();
+        Label done = new Label();
+
+        // the length is never negative, so the zero extension of the 32-bit move is correct
+        masm.movl(end, asIntReg(length));
+        if (shift != 0) {
+            masm.shlq(end, shift);
+        }
+        masm.xorl(pos, pos);
+
+        if (useVectors) {
+            Register v1 = asDoubleReg(vector1);
+            Register v2 = asDoubleReg(vector2);
+            Label vectorLoop = new Label();
+            masm.bind(vectorLoop);
+            masm.movq(tmp1, end);
+            masm.subq(tmp1, pos);
+            masm.cmpq(tmp1, 16);
+            masm.jcc(ConditionFlag.Less, wordLoop);
+            masm.movdqu(v1, new AMD64Address(base1, pos, Scale.Times1, baseOffset));
+            masm.movdqu(v2, new AMD64Address(base2, pos, Scale.Times1, baseOffset));
+            masm.pxor(v1, v2);
+            masm.ptest(v1, v1);
+            masm.jcc(ConditionFlag.NotZero, elementLoop);
+            masm.addq(pos, 16);
+            masm.jmp(vectorLoop);
+        }
+
+        masm.bind(wordLoop);
+        masm.movq(tmp1, end);
+        masm.subq(tmp1, pos);
+        masm.cmpq(tmp1, 8);
+        masm.jcc(ConditionFlag.Less, elementLoop);
+        masm.movq(tmp1, new AMD64Address(base1, pos, Scale.Times1, baseOffset));
+        masm.cmpq(tmp1, new AMD64Address(base2, pos, Scale.Times1, baseOffset));
+        masm.jcc(ConditionFlag.NotEqual, elementLoop);
+        masm.addq(pos, 8);
+        masm.jmp(wordLoop);
+
+        // only reached for the last block, which contains a difference or is shorter than 8 bytes
+        masm.bind(elementLoop);
+        masm.cmpq(pos, end);
+        masm.jcc(ConditionFlag.GreaterEqual, done);
+        AMD64Address address1 = new AMD64Address(base1, pos, Scale.Times1, baseOffset);
+        AMD64Address address2 = new AMD64Address(base2, pos, Scale.Times1, baseOffset);
+        switch (elementSize) {
+            case 1:
+                masm.movsxb(tmp1, address1);
+                masm.movsxb(tmp2, address2);
+                masm.cmpl(tmp1, tmp2);
+                break;
+            case 2:
+                masm.movsxw(tmp1, address1);
+                masm.movsxw(tmp2, address2);
+                masm.cmpl(tmp1, tmp2);
+                break;
+            case 4:
+                masm.movl(tmp1, address1);
+                masm.cmpl(tmp1, address2);
+                break;
+            case 8:
+                masm.movq(tmp1, address1);
+                masm.cmpq(tmp1, address2);
+                break;
+            default:
+                throw GraalInternalError.shouldNotReachHere("element size " + elementSize);
+        }
+        masm.jcc(ConditionFlag.NotEqual, done);
+        masm.addq(pos, elementSize);
+        masm.jmp(elementLoop);
+
+        masm.bind(done);
+        if (shift != 0) {
+            masm.shrq(pos, shift);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir.amd64;
+
+import static com.oracle.graal.api.code.ValueUtil.*;
+import static com.oracle.graal.graph.UnsafeAccess.*;
+import static com.oracle.graal.lir.LIRInstruction.OperandFlag.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.asm.*;
+import com.oracle.graal.asm.amd64.*;
+import com.oracle.graal.asm.amd64.AMD64Address.Scale;
+import com.oracle.graal.asm.amd64.AMD64Assembler.ConditionFlag;
+import com.oracle.graal.lir.*;
+import com.oracle.graal.lir.asm.*;
+
+/**
+ * Emits code that finds the first index in the range {@code [fromIndex, toIndex)} of a char array
+ * at which the array contains a given char, or -1 if there is no such index. Eight chars are
+ * compared at a time with packed SSE2 instructions, the remaining chars one at a time.
+ */
+@Opcode("CHAR_ARRAY_INDEX_OF")
+public class AMD64CharArrayIndexOfOp extends AMD64LIRInstruction {
+
+    private static final int CHARS_PER_VECTOR = 8;
+
+    @Def({REG}) protected Value result;
+    @Alive({REG}) protected Value array;
+    @Alive({REG}) protected Value ch;
+    @Alive({REG}) protected Value fromIndex;
+    @Alive({REG}) protected Value toIndex;
+    @Temp({REG}) protected Value temp;
+    @Temp({REG}) protected Value vectorChar;
+    @Temp({REG}) protected Value vector;
+
+    public AMD64CharArrayIndexOfOp(Value result, Value array, Value ch, Value fromIndex, Value toIndex, Value temp, Value vectorChar, Value vector) {
+        this.result = result;
+        this.array = array;
+        this.ch = ch;
+        this.fromIndex = fromIndex;
+        this.toIndex = toIndex;
+        this.temp = temp;
+        this.vectorChar = vectorChar;
+        this.vector = vector;
+    }
+
+    @Override
+    public void emitCode(TargetMethodAssembler tasm, AMD64MacroAssembler masm) {
+        int baseOffset = unsafe.arrayBaseOffset(char[].class);
+        Register index = asIntReg(result);
+        Register tmp = asIntReg(temp);
+        Register base = asObjectReg(array);
+        Register vch = asDoubleReg(vectorChar);
+        Register v = asDoubleReg(vector);
+        Label vectorLoop = new Label();
+        Label found = new Label();
+        Label charLoop = new Label();
+        Label notFound = new Label();
+        Label done = new Label();
+
+        // broadcast the char to all eight 16-bit lanes
+        masm.movdl(vch, asIntReg(ch));
+        masm.pshuflw(vch, vch, 0);
+        masm.pshufd(vch, vch, 0);
+
+        // the index is never negative, so the zero extension of the 32-bit move makes it usable
+        // as a 64-bit address index
+        masm.movl(index, asIntReg(fromIndex));
+        masm.bind(vectorLoop);
+        masm.movl(tmp, asIntReg(toIndex));
+        masm.subl(tmp, index);
+        masm.cmpl(tmp, CHARS_PER_VECTOR);
+        masm.jcc(ConditionFlag.Less, charLoop);
+        masm.movdqu(v, new AMD64Address(base, index, Scale.Times2, baseOffset));
+        masm.pcmpeqw(v, vch);
+        masm.pmovmskb(tmp, v);
+        masm.testl(tmp, tmp);
+        masm.jcc(ConditionFlag.NotZero, found);
+        masm.addl(index, CHARS_PER_VECTOR);
+        masm.jmp(vectorLoop);
+
+        // each matching char sets two bits of the byte mask
+        masm.bind(found);
+        masm.bsfl(tmp, tmp);
+        masm.shrl(tmp, 1);
+        masm.addl(index, tmp);
+        masm.jmp(done);
+
+        masm.bind(charLoop);
+        masm.cmpl(index, asIntReg(toIndex));
+        masm.jcc(ConditionFlag.GreaterEqual, notFound);
+        masm.movzxl(tmp, new AMD64Address(base, index, Scale.Times2, baseOffset));
+        masm.cmpl(tmp, asIntReg(ch));
+        masm.jcc(ConditionFlag.Equal, done);
+        masm.addl(index, 1);
+        masm.jmp(charLoop);
+
+        masm.bind(notFound);
+        masm.movl(index, -1);
+        masm.bind(done);
+    }
+}
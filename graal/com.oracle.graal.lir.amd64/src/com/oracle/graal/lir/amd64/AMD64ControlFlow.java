@@ -25,6 +25,8 @@ package com.oracle.graal.lir.amd64;
 import static com.oracle.graal.api.code.ValueUtil.*;
 import static com.oracle.graal.lir.LIRInstruction.OperandFlag.*;
 
+import java.util.*;
+
 import com.oracle.graal.amd64.*;
 import com.oracle.graal.api.code.CompilationResult.JumpTable;
 import com.oracle.graal.api.code.*;
@@ -273,6 +275,172 @@ public class AMD64ControlFlow {
     }
 
 
+    /**
+     * Jumps to the target of the key range that contains {@code key} using a binary decision tree
+     * over the ranges. Ranges that are taken with a probability of at least
+     * {@link #HOT_RANGE_PROBABILITY} are tested first. The tree is split such that both subtrees are
+     * about equally likely to be taken, so likely ranges end up close to its root, and subtrees whose
+     * keys are dense enough are dispatched through a jump table.
+     */
+    public static class SwitchTreeOp extends AMD64LIRInstruction {
+        private static final double HOT_RANGE_PROBABILITY = 0.25;
+        private static final int MAX_SEQUENTIAL_RANGES = 3;
+
+        private final int[] lowKeys;
+        private final int[] highKeys;
+        private final LabelRef[] keyTargets;
+        private final double[] probabilities;
+        private final LabelRef defaultTarget;
+        private final int minTableSize;
+        private final double minTableDensity;
+        @Alive({REG}) protected Value key;
+        @Temp({REG}) protected Value index;
+        @Temp({REG}) protected Value scratch;
+
+        public SwitchTreeOp(int[] lowKeys, int[] highKeys, LabelRef[] keyTargets, double[] probabilities, LabelRef defaultTarget, int minTableSize, double minTableDensity, Value key, Value index, Value scratch) {
+            this.lowKeys = lowKeys;
+            this.highKeys = highKeys;
+            this.keyTargets = keyTargets;
+            this.probabilities = probabilities;
+            this.defaultTarget = defaultTarget;
+            this.minTableSize = minTableSize;
+            this.minTableDensity = minTableDensity;
+            this.key = key;
+            this.index = index;
+            this.scratch = scratch;
+        }
+
+        @Override
+        public void emitCode(TargetMethodAssembler tasm, AMD64MacroAssembler masm) {
+            Label defaultLabel = defaultTarget == null ? new Label() : defaultTarget.label();
+            int rangeCount = lowKeys.length;
+            boolean[] tested = new boolean[rangeCount];
+            while (true) {
+                int hottest = mostLikely(0, rangeCount, tested);
+                if (hottest == -1 || probabilities[hottest] < HOT_RANGE_PROBABILITY) {
+                    break;
+                }
+                emitRangeTest(masm, hottest, Integer.MIN_VALUE, Integer.MAX_VALUE);
+                tested[hottest] = true;
+            }
+
+            // the ranges tested above are not reached by the tree any more; every range also gets
+            // a small share of the weight so that the tree stays balanced without a useful profile
+            double[] weightSums = new double[rangeCount + 1];
+            for (int i = 0; i < rangeCount; i++) {
+                double weight = (tested[i] ? 0 : probabilities[i]) + 1.0 / (4 * rangeCount);
+                weightSums[i + 1] = weightSums[i] + weight;
+            }
+            emitTree(tasm, masm, 0, rangeCount, Integer.MIN_VALUE, Integer.MAX_VALUE, weightSums, defaultLabel);
+
+            if (defaultTarget == null) {
+                masm.bind(defaultLabel);
+                masm.hlt();
+            }
+        }
+
+        /**
+         * Emits the tree for the ranges {@code from} (inclusive) to {@code to} (exclusive), knowing
+         * that {@code key} is between {@code lo} and {@code hi} (both inclusive).
+         */
+        private void emitTree(TargetMethodAssembler tasm, AMD64MacroAssembler masm, int from, int to, int lo, int hi, double[] weightSums, Label defaultLabel) {
+            if (to - from <= MAX_SEQUENTIAL_RANGES) {
+                boolean[] tested = new boolean[to];
+                for (int i = mostLikely(from, to, tested); i != -1; i = mostLikely(from, to, tested)) {
+                    emitRangeTest(masm, i, lo, hi);
+                    tested[i] = true;
+                }
+                masm.jmp(defaultLabel);
+            } else if (to - from >= minTableSize && isDense(from, to)) {
+                int lowKey = lowKeys[from];
+                Label[] targets = new Label[highKeys[to - 1] - lowKey + 1];
+                Arrays.fill(targets, defaultLabel);
+                for (int i = from; i < to; i++) {
+                    for (int k = lowKeys[i]; k <= highKeys[i]; k++) {
+                        targets[k - lowKey] = keyTargets[i].label();
+                    }
+                }
+                masm.movl(asIntReg(index), asIntReg(key));
+                tableswitch(tasm, masm, lowKey, defaultLabel, targets, asIntReg(index), asLongReg(scratch));
+            } else {
+                // split where the probabilities of both halves are closest to each other
+                int mid = from + 1;
+                double best = Double.MAX_VALUE;
+                for (int i = from + 1; i < to; i++) {
+                    double difference = Math.abs((weightSums[i] - weightSums[from]) - (weightSums[to] - weightSums[i]));
+                    if (difference < best) {
+                        best = difference;
+                        mid = i;
+                    }
+                }
+                Label less = new Label();
+                masm.cmpl(asIntReg(key), lowKeys[mid]);
+                masm.jcc(ConditionFlag.Less, less);
+                emitTree(tasm, masm, mid, to, lowKeys[mid], hi, weightSums, defaultLabel);
+                masm.bind(less);
+                emitTree(tasm, masm, from, mid, lo, lowKeys[mid] - 1, weightSums, defaultLabel);
+            }
+        }
+
+        /**
+         * Emits a jump to the target of range {@code i} if it contains {@code key}, knowing that
+         * {@code key} is between {@code lo} and {@code hi} (both inclusive).
+         */
+        private void emitRangeTest(AMD64MacroAssembler masm, int i, int lo, int hi) {
+            Register keyRegister = asIntReg(key);
+            int lowKey = lowKeys[i];
+            int highKey = highKeys[i];
+            Label target = keyTargets[i].label();
+            if (lowKey <= lo && highKey >= hi) {
+                masm.jmp(target);
+            } else if (lowKey == highKey) {
+                masm.cmpl(keyRegister, lowKey);
+                masm.jcc(ConditionFlag.Equal, target);
+            } else if (lowKey <= lo) {
+                masm.cmpl(keyRegister, highKey);
+                masm.jcc(ConditionFlag.LessEqual, target);
+            } else if (highKey >= hi) {
+                masm.cmpl(keyRegister, lowKey);
+                masm.jcc(ConditionFlag.GreaterEqual, target);
+            } else {
+                // a single unsigned comparison of key - lowKey covers both bounds
+                Register indexRegister = asIntReg(index);
+                masm.movl(indexRegister, keyRegister);
+                masm.subl(indexRegister, lowKey);
+                masm.cmpl(indexRegister, highKey - lowKey);
+                masm.jcc(ConditionFlag.BelowEqual, target);
+            }
+        }
+
+        private boolean isDense(int from, int to) {
+            long keys = 0;
+            for (int i = from; i < to; i++) {
+                keys += (long) highKeys[i] - lowKeys[i] + 1;
+            }
+            long valueRange = (long) highKeys[to - 1] - lowKeys[from] + 1;
+            return keys >= minTableDensity * valueRange;
+        }
+
+        private int mostLikely(int from, int to, boolean[] excluded) {
+            int result = -1;
+            for (int i = from; i < to; i++) {
+                if (!excluded[i] && (result == -1 || probabilities[i] > probabilities[result])) {
+                    result = i;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        protected void verify() {
+            super.verify();
+            assert lowKeys.length == keyTargets.length;
+            assert highKeys.length == keyTargets.length;
+            assert probabilities.length == keyTargets.length;
+            assert key.getKind() == Kind.Int;
+        }
+    }
+
     @Opcode("CMOVE")
     public static class CondMoveOp extends AMD64LIRInstruction {
         @Def({REG, HINT}) protected Value result;
@@ -317,6 +485,14 @@ public class AMD64ControlFlow {
     }
 
     private static void tableswitch(TargetMethodAssembler tasm, AMD64MacroAssembler masm, int lowKey, LabelRef defaultTarget, LabelRef[] targets, Register value, Register scratch) {
+        Label[] targetLabels = new Label[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            targetLabels[i] = targets[i].label();
+        }
+        tableswitch(tasm, masm, lowKey, defaultTarget == null ? null : defaultTarget.label(), targetLabels, value, scratch);
+    }
+
+    private static void tableswitch(TargetMethodAssembler tasm, AMD64MacroAssembler masm, int lowKey, Label defaultLabel, Label[] targets, Register value, Register scratch) {
         Buffer buf = masm.codeBuffer;
         // Compare index against jump table bounds
         int highKey = lowKey + targets.length - 1;
@@ -329,8 +505,8 @@ public class AMD64ControlFlow {
         }
 
         // Jump to default target if index is not within the jump table
-        if (defaultTarget != null) {
-            masm.jcc(ConditionFlag.Above, defaultTarget.label());
+        if (defaultLabel != null) {
+            masm.jcc(ConditionFlag.Above, defaultLabel);
         }
 
         // Set scratch to address of jump table
@@ -355,8 +531,7 @@ public class AMD64ControlFlow {
         buf.setPosition(jumpTablePos);
 
         // Emit jump table entries
-        for (LabelRef target : targets) {
-            Label label = target.label();
+        for (Label label : targets) {
             int offsetToJumpTableBase = buf.position() - jumpTablePos;
             if (label.isBound()) {
                 int imm32 = label.position() - jumpTablePos;
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir.amd64;
+
+import static com.oracle.graal.api.code.ValueUtil.*;
+import static com.oracle.graal.lir.LIRInstruction.OperandFlag.*;
+
+import com.oracle.graal.amd64.*;
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.asm.*;
+import com.oracle.graal.asm.amd64.*;
+import com.oracle.graal.asm.amd64.AMD64Assembler.ConditionFlag;
+import com.oracle.graal.lir.*;
+import com.oracle.graal.lir.asm.*;
+
+/**
+ * Emits code that copies {@code length} bytes from the address {@code src} to the address
+ * {@code dest}. Copies of at least {@link #REP_MOVS_THRESHOLD} bytes use {@code rep movsb}, which
+ * current processors implement with cache line sized moves. Shorter copies move 32 bytes (with AVX)
+ * or 16 bytes at a time, then 8 bytes and finally single bytes.
+ * <p>
+ * A conjoint copy allows the source and destination to overlap. It copies backwards, without
+ * {@code rep movsb}, if the destination starts within the source. An aligned copy requires
+ * {@code length} to be a multiple of 8 and omits the byte loop.
+ */
+@Opcode("MEMORY_COPY")
+public class AMD64MemoryCopyOp extends AMD64LIRInstruction {
+
+    /**
+     * The number of bytes from which on {@code rep movsb} is faster than the vector loop, whose
+     * startup cost is lower.
+     */
+    public static final int REP_MOVS_THRESHOLD = 2048;
+
+    private final boolean conjoint;
+    private final boolean aligned;
+    private final boolean useAVX;
+
+    @Alive({REG}) protected Value src;
+    @Alive({REG}) protected Value dest;
+    @Alive({REG}) protected Value length;
+    @Temp({REG}) protected Value rsiTemp;
+    @Temp({REG}) protected Value rdiTemp;
+    @Temp({REG}) protected Value rcxTemp;
+    @Temp({REG}) protected Value temp;
+    @Temp({REG}) protected Value vector;
+
+    public AMD64MemoryCopyOp(boolean conjoint, boolean aligned, boolean useAVX, Value src, Value dest, Value length, Value temp, Value vector) {
+        this.conjoint = conjoint;
+        this.aligned = aligned;
+        this.useAVX = useAVX;
+        this.src = src;
+        this.dest = dest;
+        this.length = length;
+        this.rsiTemp = AMD64.rsi.asValue(Kind.Long);
+        this.rdiTemp = AMD64.rdi.asValue(Kind.Long);
+        this.rcxTemp = AMD64.rcx.asValue(Kind.Long);
+        this.temp = temp;
+        this.vector = vector;
+    }
+
+    @Override
+    public void emitCode(TargetMethodAssembler tasm, AMD64MacroAssembler masm) {
+        Register from = AMD64.rsi;
+        Register to = AMD64.rdi;
+        Register count = AMD64.rcx;
+        Register tmp = asLongReg(temp);
+        Register vec = asDoubleReg(vector);
+        Label done = new Label();
+
+        masm.movq(from, asLongReg(src));
+        masm.movq(to, asLongReg(dest));
+        masm.movq(count, asLongReg(length));
+
+        if (conjoint) {
+            // dest - src is below length (as unsigned numbers) iff dest lies within the source
+            Label backward = new Label();
+            masm.movq(tmp, to);
+            masm.subq(tmp, from);
+            masm.cmpq(tmp, count);
+            masm.jcc(ConditionFlag.Below, backward);
+            emitForward(masm, from, to, count, tmp, vec, done);
+            masm.bind(backward);
+            emitBackward(masm, from, to, count, tmp, vec);
+        } else {
+            emitForward(masm, from, to, count, tmp, vec, done);
+        }
+
+        masm.bind(done);
+        if (useAVX) {
+            masm.vzeroupper();
+        }
+    }
+
+    private int vectorSize() {
+        return useAVX ? 32 : 16;
+    }
+
+    private void emitForward(AMD64MacroAssembler masm, Register from, Register to, Register count, Register tmp, Register vec, Label done) {
+        int vectorSize = vectorSize();
+        Label vectorLoop = new Label();
+        Label wordLoop = new Label();
+        Label byteLoop = new Label();
+        Label repMovs = new Label();
+
+        masm.cmpq(count, REP_MOVS_THRESHOLD);
+        masm.jcc(ConditionFlag.AboveEqual, repMovs);
+
+        masm.bind(vectorLoop);
+        masm.cmpq(count, vectorSize);
+        masm.jcc(ConditionFlag.Below, wordLoop);
+        if (useAVX) {
+            masm.vmovdqu(vec, new AMD64Address(from));
+            masm.vmovdqu(new AMD64Address(to), vec);
+        } else {
+            masm.movdqu(vec, new AMD64Address(from));
+            masm.movdqu(new AMD64Address(to), vec);
+        }
+        masm.addq(from, vectorSize);
+        masm.addq(to, vectorSize);
+        masm.subq(count, vectorSize);
+        masm.jmp(vectorLoop);
+
+        masm.bind(wordLoop);
+        masm.cmpq(count, 8);
+        masm.jcc(ConditionFlag.Below, byteLoop);
+        masm.movq(tmp, new AMD64Address(from));
+        masm.movq(new AMD64Address(to), tmp);
+        masm.addq(from, 8);
+        masm.addq(to, 8);
+        masm.subq(count, 8);
+        masm.jmp(wordLoop);
+
+        masm.bind(byteLoop);
+        if (!aligned) {
+            masm.testq(count, count);
+            masm.jcc(ConditionFlag.Zero, done);
+            masm.movsxb(tmp, new AMD64Address(from));
+            masm.movb(new AMD64Address(to), tmp);
+            masm.addq(from, 1);
+            masm.addq(to, 1);
+            masm.subq(count, 1);
+            masm.jmp(byteLoop);
+        } else {
+            masm.jmp(done);
+        }
+
+        masm.bind(repMovs);
+        masm.repMovsb();
+        masm.jmp(done);
+    }
+
+    /**
+     * Copies from the end of the source to the end of the destination. This is correct if the
+     * destination starts within the source as every block is loaded before any byte of it is
+     * overwritten.
+     */
+    private void emitBackward(AMD64MacroAssembler masm, Register from, Register to, Register count, Register tmp, Register vec) {
+        int vectorSize = vectorSize();
+        Label vectorLoop = new Label();
+        Label wordLoop = new Label();
+        Label byteLoop = new Label();
+        Label done = new Label();
+
+        masm.addq(from, count);
+        masm.addq(to, count);
+
+        masm.bind(vectorLoop);
+        masm.cmpq(count, vectorSize);
+        masm.jcc(ConditionFlag.Below, wordLoop);
+        masm.subq(from, vectorSize);
+        masm.subq(to, vectorSize);
+        masm.subq(count, vectorSize);
+        if (useAVX) {
+            masm.vmovdqu(vec, new AMD64Address(from));
+            masm.vmovdqu(new AMD64Address(to), vec);
+        } else {
+            masm.movdqu(vec, new AMD64Address(from));
+            masm.movdqu(new AMD64Address(to), vec);
+        }
+        masm.jmp(vectorLoop);
+
+        masm.bind(wordLoop);
+        masm.cmpq(count, 8);
+        masm.jcc(ConditionFlag.Below, byteLoop);
+        masm.subq(from, 8);
+        masm.subq(to, 8);
+        masm.subq(count, 8);
+        masm.movq(tmp, new AMD64Address(from));
+        masm.movq(new AMD64Address(to), tmp);
+        masm.jmp(wordLoop);
+
+        masm.bind(byteLoop);
+        if (!aligned) {
+            masm.testq(count, count);
+            masm.jcc(ConditionFlag.Zero, done);
+            masm.subq(from, 1);
+            masm.subq(to, 1);
+            masm.subq(count, 1);
+            masm.movsxb(tmp, new AMD64Address(from));
+            masm.movb(new AMD64Address(to), tmp);
+            masm.jmp(byteLoop);
+        }
+        masm.bind(done);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir.amd64;
+
+import static com.oracle.graal.api.code.ValueUtil.*;
+import static com.oracle.graal.lir.LIRInstruction.OperandFlag.*;
+
+import com.oracle.graal.amd64.*;
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.asm.*;
+import com.oracle.graal.asm.amd64.*;
+import com.oracle.graal.asm.amd64.AMD64Assembler.ConditionFlag;
+import com.oracle.graal.lir.*;
+import com.oracle.graal.lir.asm.*;
+
+/**
+ * Emits code that stores {@code length} bytes of a repeated 8 byte {@code pattern} starting at the
+ * address {@code dest}. The pattern is stored in little endian order, so a trailing part shorter
+ * than 8 bytes receives the lower bytes of the pattern. Fills of at least
+ * {@link #REP_STOS_THRESHOLD} bytes use {@code rep stosq}. Shorter fills store 32 bytes (with AVX)
+ * or 16 bytes at a time, then 8 bytes and finally single bytes.
+ */
+@Opcode("MEMORY_FILL")
+public class AMD64MemoryFillOp extends AMD64LIRInstruction {
+
+    /**
+     * The number of bytes from which on {@code rep stosq} is faster than the vector loop.
+     */
+    public static final int REP_STOS_THRESHOLD = 2048;
+
+    private final boolean useAVX;
+
+    @Alive({REG}) protected Value dest;
+    @Alive({REG}) protected Value length;
+    @Alive({REG}) protected Value pattern;
+    @Temp({REG}) protected Value rdiTemp;
+    @Temp({REG}) protected Value rcxTemp;
+    @Temp({REG}) protected Value raxTemp;
+    @Temp({REG}) protected Value temp;
+    @Temp({REG}) protected Value vector;
+
+    public AMD64MemoryFillOp(boolean useAVX, Value dest, Value length, Value pattern, Value temp, Value vector) {
+        this.useAVX = useAVX;
+        this.dest = dest;
+        this.length = length;
+        this.pattern = pattern;
+        this.rdiTemp = AMD64.rdi.asValue(Kind.Long);
+        this.rcxTemp = AMD64.rcx.asValue(Kind.Long);
+        this.raxTemp = AMD64.rax.asValue(Kind.Long);
+        this.temp = temp;
+        this.vector = vector;
+    }
+
+    @Override
+    public void emitCode(TargetMethodAssembler tasm, AMD64MacroAssembler masm) {
+        Register to = AMD64.rdi;
+        Register count = AMD64.rcx;
+        Register value = AMD64.rax;
+        Register tmp = asLongReg(temp);
+        Register vec = asDoubleReg(vector);
+        int vectorSize = useAVX ? 32 : 16;
+        Label vectorLoop = new Label();
+        Label wordLoop = new Label();
+        Label byteLoop = new Label();
+        Label repStos = new Label();
+        Label done = new Label();
+
+        masm.movq(to, asLongReg(dest));
+        masm.movq(count, asLongReg(length));
+        masm.movq(value, asLongReg(pattern));
+
+        masm.cmpq(count, REP_STOS_THRESHOLD);
+        masm.jcc(ConditionFlag.AboveEqual, repStos);
+
+        // broadcast the pattern to all quadwords of the vector register
+        masm.movdq(vec, value);
+        masm.pshufd(vec, vec, 0x44);
+        if (useAVX) {
+            masm.vinsertf128(vec, vec, vec, 1);
+        }
+
+        masm.bind(vectorLoop);
+        masm.cmpq(count, vectorSize);
+        masm.jcc(ConditionFlag.Below, wordLoop);
+        if (useAVX) {
+            masm.vmovdqu(new AMD64Address(to), vec);
+        } else {
+            masm.movdqu(new AMD64Address(to), vec);
+        }
+        masm.addq(to, vectorSize);
+        masm.subq(count, vectorSize);
+        masm.jmp(vectorLoop);
+
+        masm.bind(wordLoop);
+        masm.cmpq(count, 8);
+        masm.jcc(ConditionFlag.Below, byteLoop);
+        masm.movq(new AMD64Address(to), value);
+        masm.addq(to, 8);
+        masm.subq(count, 8);
+        masm.jmp(wordLoop);
+
+        // all previous stores were whole quadwords, so the pattern starts with its lowest byte here
+        masm.bind(byteLoop);
+        masm.testq(count, count);
+        masm.jcc(ConditionFlag.Zero, done);
+        masm.movb(new AMD64Address(to), value);
+        masm.shrq(value, 8);
+        masm.addq(to, 1);
+        masm.subq(count, 1);
+        masm.jmp(byteLoop);
+
+        masm.bind(repStos);
+        masm.movq(tmp, count);
+        masm.shrq(count, 3);
+        masm.repStosq();
+        masm.movq(count, tmp);
+        masm.andq(count, 7);
+        masm.jmp(byteLoop);
+
+        masm.bind(done);
+        if (useAVX) {
+            masm.vzeroupper();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir.amd64;
+
+import static com.oracle.graal.api.code.ValueUtil.*;
+import static com.oracle.graal.graph.UnsafeAccess.*;
+import static com.oracle.graal.lir.LIRInstruction.OperandFlag.*;
+
+import java.lang.reflect.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.asm.*;
+import com.oracle.graal.asm.amd64.*;
+import com.oracle.graal.asm.amd64.AMD64Address.Scale;
+import com.oracle.graal.asm.amd64.AMD64Assembler.ConditionFlag;
+import com.oracle.graal.graph.*;
+import com.oracle.graal.lir.*;
+import com.oracle.graal.lir.asm.*;
+import com.oracle.graal.nodes.extended.VectorArrayOpNode.Op;
+
+/**
+ * Emits a loop that applies an element-wise operation to 16 bytes of array elements per iteration
+ * using packed SSE instructions. The loop starts at index {@code start} and stops before the first
+ * index at which less than a full vector is left before {@code end}. That index is the result.
+ */
+@Opcode("VECTOR_ARRAY_OP")
+public class AMD64VectorArrayOp extends AMD64LIRInstruction {
+
+    private static final int VECTOR_SIZE = 16;
+
+    @Opcode private final Op op;
+    private final Kind kind;
+
+    @Def({REG}) protected Value result;
+    @Alive({REG}) protected Value destination;
+    @Alive({REG}) protected Value x;
+    @Alive({REG, ILLEGAL}) protected Value y;
+    @Alive({REG}) protected Value start;
+    @Alive({REG}) protected Value end;
+    @Temp({REG}) protected Value remaining;
+    @Temp({REG}) protected Value vectorX;
+    @Temp({REG}) protected Value vectorY;
+
+    public AMD64VectorArrayOp(Op op, Kind kind, Value result, Value destination, Value x, Value y, Value start, Value end, Value remaining, Value vectorX, Value vectorY) {
+        this.op = op;
+        this.kind = kind;
+        this.result = result;
+        this.destination = destination;
+        this.x = x;
+        this.y = y;
+        this.start = start;
+        this.end = end;
+        this.remaining = remaining;
+        this.vectorX = vectorX;
+        this.vectorY = vectorY;
+    }
+
+    @Override
+    public void emitCode(TargetMethodAssembler tasm, AMD64MacroAssembler masm) {
+        Class<?> arrayClass = Array.newInstance(kind.toJavaClass(), 0).getClass();
+        int baseOffset = unsafe.arrayBaseOffset(arrayClass);
+        int elementSize = unsafe.arrayIndexScale(arrayClass);
+        Scale scale = Scale.fromInt(elementSize);
+        int elementsPerVector = VECTOR_SIZE / elementSize;
+
+        Register index = asIntReg(result);
+        Register tmp = asIntReg(remaining);
+        Register vx = asDoubleReg(vectorX);
+        Register vy = asDoubleReg(vectorY);
+        Label loop = new Label();
+        Label done = new Label();
+
+        // the index is never negative, so the zero extension of the 32-bit move makes it usable
+        // as a 64-bit address index
+        masm.movl(index, asIntReg(start));
+        masm.bind(loop);
+        masm.movl(tmp, asIntReg(end));
+        masm.subl(tmp, index);
+        masm.cmpl(tmp, elementsPerVector);
+        masm.jcc(ConditionFlag.Less, done);
+        masm.movdqu(vx, new AMD64Address(asObjectReg(x), index, scale, baseOffset));
+        if (op != Op.COPY) {
+            masm.movdqu(vy, new AMD64Address(asObjectReg(y), index, scale, baseOffset));
+            emitPacked(masm, vx, vy);
+        }
+        masm.movdqu(new AMD64Address(asObjectReg(destination), index, scale, baseOffset), vx);
+        masm.addl(index, elementsPerVector);
+        masm.jmp(loop);
+        masm.bind(done);
+    }
+
+    private void emitPacked(AMD64MacroAssembler masm, Register dst, Register src) {
+        switch (op) {
+            case ADD:
+                switch (kind) {
+                    case Int:
+                        masm.paddd(dst, src);
+                        return;
+                    case Long:
+                        masm.paddq(dst, src);
+                        return;
+                    case Float:
+                        masm.addps(dst, src);
+                        return;
+                    case Double:
+                        masm.addpd(dst, src);
+                        return;
+                }
+                break;
+            case MUL:
+                switch (kind) {
+                    case Int:
+                        masm.pmulld(dst, src);
+                        return;
+                    case Float:
+                        masm.mulps(dst, src);
+                        return;
+                    case Double:
+                        masm.mulpd(dst, src);
+                        return;
+                }
+                break;
+            case AND:
+                masm.pand(dst, src);
+                return;
+            case OR:
+                masm.por(dst, src);
+                return;
+            case XOR:
+                masm.pxor(dst, src);
+                return;
+            case MIN:
+                if (kind == Kind.Int) {
+                    masm.pminsd(dst, src);
+                    return;
+                }
+                break;
+            case MAX:
+                if (kind == Kind.Int) {
+                    masm.pmaxsd(dst, src);
+                    return;
+                }
+                break;
+        }
+        throw GraalInternalError.shouldNotReachHere(op + " " + kind);
+    }
+}
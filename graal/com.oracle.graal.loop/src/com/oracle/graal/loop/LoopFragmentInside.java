@@ -72,9 +72,56 @@ public class LoopFragmentInside extends LoopFragment {
         return (LoopFragmentInside) super.original();
     }
 
-    @SuppressWarnings("unused")
+    /**
+     * Appends this duplicate of the loop body to the end of the body of {@code loop}, such that one
+     * iteration of the loop executes the original body followed by the duplicate. The loop must
+     * have a single loop end. Duplicated loop exits are merged with the original ones.
+     */
     public void appendInside(LoopEx loop) {
-        // TODO (gd)
+        assert this.isDuplicate() && this.original().loop() == loop;
+        final LoopBeginNode loopBegin = loop.loopBegin();
+        assert loopBegin.loopEnds().count() == 1;
+        final LoopEndNode loopEnd = loopBegin.loopEnds().first();
+
+        // in the duplicate, the loop phis are replaced by their values at the end of the original
+        patchNodes(new DuplicationReplacement() {
+
+            @Override
+            public Node replacement(Node original) {
+                if (loopBegin.isPhiAtMerge(original)) {
+                    return ((PhiNode) original).valueAt(loopEnd);
+                }
+                return original;
+            }
+        });
+
+        Map<PhiNode, ValueNode> newBackValues = new IdentityHashMap<>();
+        for (PhiNode phi : loopBegin.phis()) {
+            ValueNode backValue = phi.valueAt(loopEnd);
+            ValueNode newBackValue = getDuplicatedNode(backValue);
+            if (newBackValue == null) {
+                newBackValue = loopBegin.isPhiAtMerge(backValue) ? ((PhiNode) backValue).valueAt(loopEnd) : backValue;
+            }
+            newBackValues.put(phi, newBackValue);
+        }
+
+        AbstractBeginNode entry = getDuplicatedNode(loopBegin);
+        FrameState state = entry.stateAfter();
+        if (state != null) {
+            entry.setStateAfter(null);
+            GraphUtil.killWithUnusedFloatingInputs(state);
+        }
+        AbstractEndNode end = getDuplicatedNode(loopEnd);
+        loopEnd.replaceAtPredecessor(entry);
+        end.replaceAtPredecessor(loopEnd);
+        end.safeDelete();
+
+        int endIndex = loopBegin.phiPredecessorIndex(loopEnd);
+        for (Map.Entry<PhiNode, ValueNode> e : newBackValues.entrySet()) {
+            e.getKey().setValueAt(endIndex, e.getValue());
+        }
+
+        mergeEarlyExits();
     }
 
     @Override
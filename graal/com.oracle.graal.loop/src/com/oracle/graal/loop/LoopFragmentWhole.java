@@ -91,9 +91,30 @@ public class LoopFragmentWhole extends LoopFragment {
         // TODO (gd) ?
     }
 
+    /**
+     * Inserts this duplicate of the whole loop before {@code loop}, such that the duplicate is
+     * executed first and {@code loop} continues with the values the duplicate exits with. The loop
+     * must have a single loop exit.
+     */
     @Override
     public void insertBefore(LoopEx loop) {
-        // TODO Auto-generated method stub
+        assert this.isDuplicate() && this.original().loop() == loop;
+        LoopBeginNode loopBegin = loop.loopBegin();
+        assert loopBegin.loopExits().count() == 1;
 
+        patchNodes(null);
+
+        StructuredGraph graph = graph();
+        LoopBeginNode newLoopBegin = getDuplicatedNode(loopBegin);
+        LoopExitNode newExit = getDuplicatedNode(loopBegin.loopExits().first());
+        AbstractEndNode entry = loopBegin.forwardEnd();
+        entry.replaceAtPredecessor(newLoopBegin.forwardEnd());
+        newExit.setNext(entry);
+
+        int entryIndex = loopBegin.phiPredecessorIndex(entry);
+        for (PhiNode phi : loopBegin.phis()) {
+            PhiNode newPhi = getDuplicatedNode(phi);
+            phi.setValueAt(entryIndex, graph.unique(new ProxyNode(newPhi, newExit, phi.type(), phi.getIdentity())));
+        }
     }
 }
@@ -26,9 +26,12 @@ import static com.oracle.graal.phases.GraalOptions.*;
 
 import com.oracle.graal.debug.*;
 import com.oracle.graal.graph.*;
+import com.oracle.graal.loop.InductionVariable.Direction;
 import com.oracle.graal.nodes.*;
 import com.oracle.graal.nodes.cfg.*;
+import com.oracle.graal.nodes.java.*;
 import com.oracle.graal.nodes.util.*;
+import com.oracle.graal.phases.*;
 
 public abstract class LoopPolicies {
 
@@ -55,6 +58,86 @@ public abstract class LoopPolicies {
         return size * exactTrips <= maxNodes;
     }
 
+    /**
+     * Determines if {@link LoopTransformations#unroll(LoopEx, int)} can be applied to a loop. This
+     * is the case for innermost counted loops with a single loop end and a single exit, whose
+     * counter is incremented by a positive constant and compared with {@code <} to the limit.
+     */
+    public static boolean canPartialUnroll(LoopEx loop) {
+        if (!loop.isCounted() || !loop.lirLoop().children.isEmpty()) {
+            return false;
+        }
+        CountedLoopInfo counted = loop.counted();
+        LoopBeginNode loopBegin = loop.loopBegin();
+        if (counted.getDirection() != Direction.Up || counted.isLimitIncluded() || !counted.getCounter().isConstantStride() || counted.getCounter().constantStride() <= 0) {
+            return false;
+        }
+        if (loopBegin.loopEnds().count() != 1 || loopBegin.loopExits().count() != 1) {
+            return false;
+        }
+        AbstractBeginNode body = counted.getBody();
+        return body.predecessor() instanceof IfNode && ((IfNode) body.predecessor()).trueSuccessor() == body;
+    }
+
+    /**
+     * Gets the factor by which a loop should be partially unrolled, which is a power of two. The
+     * factor is reduced until the unrolled loop fits into {@link GraalOptions#PartialUnrollMaxNodes}
+     * and the main loop of the unrolled loop is expected to execute at least twice.
+     * 
+     * @return the unroll factor or 1 if the loop should not be unrolled
+     */
+    public static int partialUnrollFactor(LoopEx loop) {
+        if (!canPartialUnroll(loop)) {
+            return 1;
+        }
+        int factor = unrollFactor(loop, PartialUnrollMaxFactor.getValue());
+        Debug.log("partialUnrollFactor(%s) : frequency=%.2f, factor=%d", loop, loop.loopBegin().loopFrequency(), factor);
+        return factor;
+    }
+
+    /**
+     * Gets the factor by which a loop that acquires and releases a loop invariant lock in every
+     * iteration should be unrolled so that {@link GraalOptions#LockCoarseningLoopChunk} iterations
+     * can be executed while holding the lock once. The factor is limited in the same way as by
+     * {@link #partialUnrollFactor(LoopEx)}.
+     * 
+     * @return the unroll factor or 1 if the loop should not be unrolled
+     */
+    public static int lockCoarseningFactor(LoopEx loop) {
+        if (LockCoarseningLoopChunk.getValue() <= 1 || !canPartialUnroll(loop) || !hasInvariantLock(loop)) {
+            return 1;
+        }
+        int factor = unrollFactor(loop, LockCoarseningLoopChunk.getValue());
+        Debug.log("lockCoarseningFactor(%s) : frequency=%.2f, factor=%d", loop, loop.loopBegin().loopFrequency(), factor);
+        return factor;
+    }
+
+    private static boolean hasInvariantLock(LoopEx loop) {
+        for (Node node : loop.inside().nodes()) {
+            if (node instanceof MonitorEnterNode && loop.isOutsideLoop(((MonitorEnterNode) node).object())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int unrollFactor(LoopEx loop, int maxFactor) {
+        LoopBeginNode loopBegin = loop.loopBegin();
+        CountedLoopInfo counted = loop.counted();
+        int size = Math.max(1, loop.size() - 1 - loopBegin.phis().count());
+        int maxNodes = Math.min(PartialUnrollMaxNodes.getValue(), MaximumDesiredSize.getValue() - loopBegin.graph().getNodeCount() - loop.size());
+        int factor = Integer.highestOneBit(Math.max(1, maxFactor));
+        while (factor > 1) {
+            boolean tooFewIterations = loopBegin.loopFrequency() < 2 * factor || (counted.isConstantMaxTripCount() && counted.constantMaxTripCount() < 2 * factor);
+            boolean strideFits = counted.getCounter().constantStride() * (factor - 1) <= counted.getKind().getMaxValue();
+            if (!tooFewIterations && strideFits && size * (factor - 1) <= maxNodes) {
+                break;
+            }
+            factor /= 2;
+        }
+        return factor;
+    }
+
     public static boolean shouldTryUnswitch(LoopEx loop) {
         return loop.loopBegin().unswitches() <= LoopMaxUnswitch.getValue();
     }
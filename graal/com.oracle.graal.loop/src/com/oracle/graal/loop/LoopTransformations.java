@@ -30,7 +30,9 @@ import com.oracle.graal.graph.*;
 import com.oracle.graal.graph.NodeClass.NodeClassIterator;
 import com.oracle.graal.graph.NodeClass.Position;
 import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.calc.*;
 import com.oracle.graal.nodes.extended.*;
+import com.oracle.graal.nodes.util.*;
 import com.oracle.graal.phases.common.*;
 
 public abstract class LoopTransformations {
@@ -95,27 +97,69 @@ public abstract class LoopTransformations {
         // TODO (gd) probabilities need some amount of fixup.. (probably also in other transforms)
     }
 
+    /**
+     * Partially unrolls a counted loop by a power of two {@code factor}. The loop is split into a
+     * main loop whose body consists of {@code factor} copies of the original body and which only
+     * runs while at least {@code factor} iterations are left, and the original loop, which executes
+     * the remaining iterations. Only the first copy in the main loop checks the loop condition.
+     * 
+     * @see LoopPolicies#canPartialUnroll(LoopEx)
+     */
     public static void unroll(LoopEx loop, int factor) {
-        assert loop.isCounted();
-        if (factor > 0) {
-            throw new UnsupportedOperationException();
+        assert LoopPolicies.canPartialUnroll(loop) && factor > 1 && Integer.bitCount(factor) == 1 : factor;
+        CountedLoopInfo counted = loop.counted();
+        LoopBeginNode loopBegin = loop.loopBegin();
+        StructuredGraph graph = loopBegin.graph();
+        AbstractBeginNode body = counted.getBody();
+        IfNode ifNode = (IfNode) body.predecessor();
+        double continueProbability = ifNode.probability(body);
+        double loopFrequency = loopBegin.loopFrequency();
+        ValueNode mainLimit = mainLoopLimit(counted, factor);
+
+        LoopFragmentWhole mainFragment = new LoopFragmentWhole(loop.whole());
+        mainFragment.insertBefore(loop);
+        LoopBeginNode mainBegin = mainFragment.getDuplicatedNode(loopBegin);
+        IfNode mainIf = mainFragment.getDuplicatedNode(ifNode);
+        IntegerLessThanNode compare = (IntegerLessThanNode) mainIf.condition();
+        assert compare.y() == counted.getLimit();
+        mainIf.setCondition(graph.unique(new IntegerLessThanNode(compare.x(), mainLimit)));
+        if (compare.usages().isEmpty()) {
+            GraphUtil.killWithUnusedFloatingInputs(compare);
         }
-        // TODO (gd) implement counted loop
-        LoopFragmentWhole main = loop.whole();
-        LoopFragmentWhole prologue = main.duplicate();
-        prologue.insertBefore(loop);
-        // CountedLoopBeginNode counted = prologue.countedLoop();
-        // StructuredGraph graph = (StructuredGraph) counted.graph();
-        // ValueNode tripCountPrologue = counted.tripCount();
-        // ValueNode tripCountMain = counted.tripCount();
-        // graph.replaceFloating(tripCountPrologue, "tripCountPrologue % factor");
-        // graph.replaceFloating(tripCountMain, "tripCountMain - (tripCountPrologue % factor)");
-        LoopFragmentInside inside = loop.inside();
-        for (int i = 0; i < factor; i++) {
-            inside.duplicate().appendInside(loop);
+
+        // each iteration of the main loop covers factor iterations of the original loop while the
+        // original loop now only executes the (less than factor) remaining iterations
+        mainBegin.setLoopFrequency(Math.max(1.0, loopFrequency / factor));
+        mainIf.setProbability(mainIf.successor(true), Math.max(0.0, 1.0 - factor * (1.0 - continueProbability)));
+        double remainderFrequency = Math.min(loopFrequency, (factor + 1) / 2.0);
+        loopBegin.setLoopFrequency(remainderFrequency);
+        ifNode.setProbability(body, Math.min(continueProbability, 1.0 - 1.0 / remainderFrequency));
+
+        // double the body of the main loop until it contains factor copies
+        for (int copies = 1; copies < factor; copies *= 2) {
+            LoopEx mainLoop = new LoopsData(graph).loop(mainBegin);
+            LoopFragmentInside copy = mainLoop.inside().duplicate();
+            copy.appendInside(mainLoop);
+            IfNode copyIf = copy.getDuplicatedNode(mainIf);
+            graph.removeSplitPropagate(copyIf, copyIf.successor(true));
         }
     }
 
+    /**
+     * Creates the limit for the main loop of a partially unrolled loop, i.e., the largest value of
+     * the counter for which another {@code factor} iterations can be executed.
+     */
+    private static ValueNode mainLoopLimit(CountedLoopInfo counted, int factor) {
+        ValueNode limit = counted.getLimit();
+        StructuredGraph graph = limit.graph();
+        Kind kind = counted.getKind();
+        long distance = (factor - 1) * counted.getCounter().constantStride();
+        IntegerArithmeticNode mainLimit = IntegerArithmeticNode.sub(limit, ConstantNode.forIntegerKind(kind, distance, graph));
+        // if the subtraction overflows, the main loop must not be entered
+        LogicNode noOverflow = graph.unique(new IntegerLessThanNode(mainLimit, limit));
+        return graph.unique(new ConditionalNode(noOverflow, mainLimit, ConstantNode.forIntegerKind(kind, kind.getMinValue(), graph)));
+    }
+
     public static ControlSplitNode findUnswitchable(LoopEx loop) {
         for (IfNode ifNode : loop.whole().nodes().filter(IfNode.class)) {
             if (loop.isOutsideLoop(ifNode.condition())) {
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.loop.phases;
+
+import java.util.*;
+
+import com.oracle.graal.debug.*;
+import com.oracle.graal.loop.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.phases.*;
+import com.oracle.graal.phases.common.*;
+import com.oracle.graal.phases.graph.*;
+
+/**
+ * Unrolls counted loops that acquire and release a loop invariant lock in every iteration according
+ * to {@link LoopPolicies#lockCoarseningFactor(LoopEx)}. The copies of the loop body in the main loop
+ * are straight-line code, so {@link LockCoarseningPhase} can then merge their locked regions and
+ * the lock is only released and acquired once per chunk of iterations. Bounding the chunk size
+ * bounds the time other threads waiting for the lock have to wait.
+ */
+public class LoopLockCoarseningPhase extends Phase {
+
+    private static final DebugMetric LOCK_COARSENED_LOOPS = Debug.metric("LockCoarsenedLoops");
+
+    @Override
+    protected void run(StructuredGraph graph) {
+        if (graph.hasLoops()) {
+            new ComputeProbabilityClosure(graph).apply();
+            List<LoopBeginNode> candidates = graph.getNodes(LoopBeginNode.class).snapshot();
+            for (LoopBeginNode loopBegin : candidates) {
+                if (loopBegin.isDeleted()) {
+                    continue;
+                }
+                LoopsData data = new LoopsData(graph);
+                data.detectedCountedLoops();
+                LoopEx loop = data.loop(loopBegin);
+                int factor = LoopPolicies.lockCoarseningFactor(loop);
+                if (factor > 1) {
+                    Debug.log("LockCoarsening %s by %d", loop, factor);
+                    LoopTransformations.unroll(loop, factor);
+                    LOCK_COARSENED_LOOPS.increment();
+                    Debug.dump(graph, "After lock coarsening unroll %s", loop);
+                }
+            }
+        }
+    }
+}
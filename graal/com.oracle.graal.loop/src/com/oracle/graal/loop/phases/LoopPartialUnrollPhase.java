@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.loop.phases;
+
+import java.util.*;
+
+import com.oracle.graal.debug.*;
+import com.oracle.graal.loop.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.phases.*;
+import com.oracle.graal.phases.graph.*;
+
+/**
+ * Partially unrolls counted loops according to {@link LoopPolicies#partialUnrollFactor(LoopEx)}.
+ */
+public class LoopPartialUnrollPhase extends Phase {
+
+    private static final DebugMetric PARTIALLY_UNROLLED_LOOPS = Debug.metric("PartialUnrolls");
+
+    @Override
+    protected void run(StructuredGraph graph) {
+        if (graph.hasLoops()) {
+            // computes the loop frequencies the policy is based on
+            new ComputeProbabilityClosure(graph).apply();
+            // the main loops created by unrolling must not be considered again
+            List<LoopBeginNode> candidates = graph.getNodes(LoopBeginNode.class).snapshot();
+            for (LoopBeginNode loopBegin : candidates) {
+                if (loopBegin.isDeleted()) {
+                    continue;
+                }
+                LoopsData data = new LoopsData(graph);
+                data.detectedCountedLoops();
+                LoopEx loop = data.loop(loopBegin);
+                int factor = LoopPolicies.partialUnrollFactor(loop);
+                if (factor > 1) {
+                    Debug.log("PartialUnroll %s by %d", loop, factor);
+                    LoopTransformations.unroll(loop, factor);
+                    PARTIALLY_UNROLLED_LOOPS.increment();
+                    Debug.dump(graph, "After partial unroll %s", loop);
+                }
+            }
+        }
+    }
+}
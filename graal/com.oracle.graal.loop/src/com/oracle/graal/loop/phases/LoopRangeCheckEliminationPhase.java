@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.loop.phases;
+
+import static com.oracle.graal.api.code.DeoptimizationAction.*;
+import static com.oracle.graal.api.meta.DeoptimizationReason.*;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.debug.*;
+import com.oracle.graal.loop.*;
+import com.oracle.graal.loop.InductionVariable.Direction;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.calc.*;
+import com.oracle.graal.nodes.cfg.*;
+import com.oracle.graal.nodes.extended.*;
+import com.oracle.graal.nodes.java.*;
+import com.oracle.graal.nodes.type.*;
+import com.oracle.graal.nodes.util.*;
+import com.oracle.graal.phases.*;
+import com.oracle.graal.phases.tiers.*;
+
+/**
+ * Removes array bounds check guards inside counted loops whose index is the loop counter (plus a
+ * constant offset). A guard is removed if the bounds of the counter prove the index to be in range.
+ * Otherwise, if the array length is loop invariant, the guard is replaced by a predicate in front
+ * of the loop that deoptimizes if any iteration of the loop could access the array out of bounds.
+ */
+public class LoopRangeCheckEliminationPhase extends BasePhase<MidTierContext> {
+
+    private static final DebugMetric METRIC_RANGE_CHECKS_ELIMINATED = Debug.metric("RangeChecksEliminated");
+    private static final DebugMetric METRIC_RANGE_CHECKS_HOISTED = Debug.metric("RangeChecksHoisted");
+
+    @Override
+    protected void run(StructuredGraph graph, MidTierContext context) {
+        if (!graph.hasLoops()) {
+            return;
+        }
+        LoopsData loops = new LoopsData(graph);
+        loops.detectedCountedLoops();
+        OptimisticOptimizations opt = context.getOptimisticOptimizations();
+        for (GuardNode guard : graph.getNodes(GuardNode.class).snapshot()) {
+            if (guard.isAlive() && guard.reason() == BoundsCheckException && !guard.negated() && guard.condition() instanceof IntegerBelowThanNode && guard.getGuard() instanceof FixedNode) {
+                Block block = loops.controlFlowGraph().blockFor(guard.getGuard().asNode());
+                for (Loop lirLoop = block == null ? null : block.getLoop(); lirLoop != null; lirLoop = lirLoop.parent) {
+                    LoopEx loop = loops.loop(lirLoop);
+                    if (loop.isCounted() && tryEliminate(guard, loop, block, opt)) {
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean tryEliminate(GuardNode guard, LoopEx loop, Block block, OptimisticOptimizations opt) {
+        CountedLoopInfo counted = loop.counted();
+        InductionVariable counter = counted.getCounter();
+        if (!(counter instanceof BasicInductionVariable) || counted.getKind() != Kind.Int || counted.getDirection() != Direction.Up || !counter.isConstantStride()) {
+            return false;
+        }
+        if (!loop.loopsData().controlFlowGraph().blockFor(counted.getBody()).dominates(block)) {
+            // the loop condition does not hold at the guarded access
+            return false;
+        }
+        IntegerBelowThanNode compare = (IntegerBelowThanNode) guard.condition();
+        ValueNode index = compare.x();
+        ValueNode length = compare.y();
+        long offset;
+        if (index == counter.valueNode()) {
+            offset = 0;
+        } else if (index instanceof IntegerAddNode && ((IntegerAddNode) index).x() == counter.valueNode() && ((IntegerAddNode) index).y().isConstant()) {
+            offset = ((IntegerAddNode) index).y().asConstant().asLong();
+        } else if (index instanceof IntegerSubNode && ((IntegerSubNode) index).x() == counter.valueNode() && ((IntegerSubNode) index).y().isConstant()) {
+            offset = -((IntegerSubNode) index).y().asConstant().asLong();
+        } else {
+            return false;
+        }
+
+        // without an overflow guard the counter can wrap around unless it is incremented by one
+        // and compared with < to the limit
+        boolean noOverflow = counted.getOverFlowGuard() != null || (counter.constantStride() == 1 && !counted.isLimitIncluded());
+        if (!noOverflow && !opt.useLoopLimitChecks()) {
+            return false;
+        }
+
+        ValueNode start = counter.initNode();
+        ValueNode limit = counted.getLimit();
+        // the largest index is limit + offset + maxIndexAdjustment
+        long maxIndexAdjustment = counted.isLimitIncluded() ? 0 : -1;
+        boolean lowerProven = lowerBound(start) + offset >= 0;
+        boolean upperProven = (offset + maxIndexAdjustment < 0 && isSameArrayLength(limit, length)) || upperBound(limit) + offset + maxIndexAdjustment < lowerBound(length);
+        GuardingNode replacement;
+        if (lowerProven && upperProven) {
+            replacement = guard.getGuard();
+            METRIC_RANGE_CHECKS_ELIMINATED.increment();
+        } else if (opt.useRangeCheckPredication() && loop.isOutsideLoop(length) && (lowerProven || offset == 0) && (upperProven || offset <= 0)) {
+            replacement = createPredicate(loop, start, limit, length, offset, lowerProven, upperProven);
+            METRIC_RANGE_CHECKS_HOISTED.increment();
+        } else {
+            return false;
+        }
+        if (!noOverflow) {
+            counted.createOverFlowGuard();
+        }
+        Debug.log("Replacing range check %s in %s with %s", guard, loop, replacement);
+        guard.replaceAtUsages(replacement.asNode());
+        GraphUtil.killWithUnusedFloatingInputs(guard);
+        return true;
+    }
+
+    /**
+     * Creates guards in front of the loop that deoptimize if the index {@code counter + offset}
+     * could be out of bounds in any iteration. The conditions are chosen such that an overflow in
+     * their computation can only lead to a spurious deoptimization.
+     */
+    private static GuardingNode createPredicate(LoopEx loop, ValueNode start, ValueNode limit, ValueNode length, long offset, boolean lowerProven, boolean upperProven) {
+        StructuredGraph graph = loop.loopBegin().graph();
+        GuardingNode predicate = BeginNode.prevBegin(loop.entryPoint());
+        if (!lowerProven) {
+            assert offset == 0;
+            LogicNode negativeStart = graph.unique(new IntegerLessThanNode(start, ConstantNode.forInt(0, graph)));
+            predicate = graph.unique(new GuardNode(negativeStart, predicate, BoundsCheckException, InvalidateRecompile, true));
+        }
+        if (!upperProven) {
+            assert offset <= 0;
+            ValueNode bound = offset == 0 ? limit : IntegerArithmeticNode.add(limit, ConstantNode.forInt((int) offset, graph));
+            if (loop.counted().isLimitIncluded()) {
+                LogicNode inBounds = graph.unique(new IntegerLessThanNode(bound, length));
+                predicate = graph.unique(new GuardNode(inBounds, predicate, BoundsCheckException, InvalidateRecompile, false));
+            } else {
+                LogicNode outOfBounds = graph.unique(new IntegerLessThanNode(length, bound));
+                predicate = graph.unique(new GuardNode(outOfBounds, predicate, BoundsCheckException, InvalidateRecompile, true));
+            }
+        }
+        return predicate;
+    }
+
+    /**
+     * Determines if two values are known to be the length of the same array, either as
+     * {@link ArrayLengthNode}s or as lowered reads of the length field.
+     */
+    private static boolean isSameArrayLength(ValueNode x, ValueNode y) {
+        if (x == y) {
+            return true;
+        }
+        if (x instanceof ArrayLengthNode && y instanceof ArrayLengthNode) {
+            return GraphUtil.unproxify(((ArrayLengthNode) x).array()) == GraphUtil.unproxify(((ArrayLengthNode) y).array());
+        }
+        LocationNode xLocation = finalLocation(x);
+        return xLocation != null && xLocation == finalLocation(y) && GraphUtil.unproxify(((Access) x).object()) == GraphUtil.unproxify(((Access) y).object());
+    }
+
+    private static LocationNode finalLocation(ValueNode value) {
+        LocationNode location = null;
+        if (value instanceof AccessNode) {
+            location = ((AccessNode) value).location();
+        } else if (value instanceof FloatingAccessNode) {
+            location = ((FloatingAccessNode) value).location();
+        }
+        if (location != null && location.getLocationIdentity() == LocationIdentity.FINAL_LOCATION) {
+            return location;
+        }
+        return null;
+    }
+
+    private static long lowerBound(ValueNode value) {
+        if (value.stamp() instanceof IntegerStamp) {
+            return ((IntegerStamp) value.stamp()).lowerBound();
+        }
+        return value.kind().getMinValue();
+    }
+
+    private static long upperBound(ValueNode value) {
+        if (value.stamp() instanceof IntegerStamp) {
+            return ((IntegerStamp) value.stamp()).upperBound();
+        }
+        return value.kind().getMaxValue();
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.loop.phases;
+
+import static com.oracle.graal.api.code.DeoptimizationAction.*;
+import static com.oracle.graal.api.meta.DeoptimizationReason.*;
+
+import java.util.*;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.debug.*;
+import com.oracle.graal.loop.*;
+import com.oracle.graal.loop.InductionVariable.Direction;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.calc.*;
+import com.oracle.graal.nodes.extended.*;
+import com.oracle.graal.nodes.extended.VectorArrayOpNode.Op;
+import com.oracle.graal.nodes.java.*;
+import com.oracle.graal.phases.*;
+
+/**
+ * Vectorizes innermost counted loops of the form
+ *
+ * <pre>
+ * for (int i = start; i &lt; limit; i++) {
+ *     dst[i] = x[i] op y[i];
+ * }
+ * </pre>
+ *
+ * where {@code op} is an element-wise operation that can be performed with packed instructions (or
+ * a plain copy {@code dst[i] = x[i]}). A {@link VectorArrayOpNode} that processes as many whole
+ * vectors of elements as possible is inserted in front of the loop, and the original loop is kept
+ * as the scalar post-loop that processes the remaining elements.
+ */
+public class LoopVectorizationPhase extends Phase {
+
+    private static final DebugMetric METRIC_LOOPS_VECTORIZED = Debug.metric("LoopsVectorized");
+
+    /**
+     * The number of bytes processed by one vector operation.
+     */
+    private static final int VECTOR_SIZE = 16;
+
+    private final boolean supportsPackedIntMulMinMax;
+
+    /**
+     * @param supportsPackedIntMulMinMax specifies if the target supports packed multiplication,
+     *            minimum and maximum of int elements
+     */
+    public LoopVectorizationPhase(boolean supportsPackedIntMulMinMax) {
+        this.supportsPackedIntMulMinMax = supportsPackedIntMulMinMax;
+    }
+
+    @Override
+    protected void run(StructuredGraph graph) {
+        if (!graph.hasLoops()) {
+            return;
+        }
+        LoopsData loops = new LoopsData(graph);
+        loops.detectedCountedLoops();
+        for (LoopEx loop : loops.countedLoops()) {
+            if (loop.lirLoop().children.isEmpty() && tryVectorize(graph, loop)) {
+                METRIC_LOOPS_VECTORIZED.increment();
+            }
+        }
+    }
+
+    private boolean tryVectorize(StructuredGraph graph, LoopEx loop) {
+        CountedLoopInfo counted = loop.counted();
+        LoopBeginNode loopBegin = loop.loopBegin();
+        InductionVariable counter = counted.getCounter();
+        if (!(counter instanceof BasicInductionVariable) || counted.getKind() != Kind.Int || counted.getDirection() != Direction.Up || counted.isLimitIncluded() || !counter.isConstantStride() ||
+                        counter.constantStride() != 1) {
+            return false;
+        }
+        PhiNode phi = ((BasicInductionVariable) counter).valueNode();
+        if (loopBegin.phis().count() != 1 || loopBegin.loopEnds().count() != 1 || loopBegin.loopExits().count() != 1) {
+            return false;
+        }
+        FrameState loopState = loopBegin.stateAfter();
+        if (loopState == null || loopState.virtualObjectMappingCount() != 0) {
+            return false;
+        }
+
+        // the body must consist of loads of the current elements followed by a single store
+        AbstractBeginNode body = counted.getBody();
+        if (loopBegin.next() != body.predecessor()) {
+            return false;
+        }
+        Map<ValueNode, ValueNode> loadedArrays = new HashMap<>();
+        FixedNode current = body.next();
+        while (current instanceof LoadIndexedNode) {
+            LoadIndexedNode load = (LoadIndexedNode) current;
+            if (load.index() != phi || !loop.isOutsideLoop(load.array())) {
+                return false;
+            }
+            loadedArrays.put(load, load.array());
+            current = load.next();
+        }
+        if (!(current instanceof StoreIndexedNode)) {
+            return false;
+        }
+        StoreIndexedNode store = (StoreIndexedNode) current;
+        if (store.index() != phi || !loop.isOutsideLoop(store.array()) || !(store.next() instanceof LoopEndNode)) {
+            return false;
+        }
+        Kind kind = store.elementKind();
+        if (kind != Kind.Int && kind != Kind.Long && kind != Kind.Float && kind != Kind.Double) {
+            return false;
+        }
+        for (ValueNode load : loadedArrays.keySet()) {
+            if (((LoadIndexedNode) load).elementKind() != kind) {
+                return false;
+            }
+        }
+        int elementsPerVector = VECTOR_SIZE / (kind.getBitCount() / 8);
+        if (counted.isConstantMaxTripCount() && counted.constantMaxTripCount() < 2 * elementsPerVector) {
+            return false;
+        }
+
+        // match the stored value
+        ValueNode value = store.value();
+        Op op;
+        ValueNode x;
+        ValueNode y = null;
+        if (loadedArrays.containsKey(value)) {
+            op = Op.COPY;
+            x = loadedArrays.get(value);
+        } else if (value instanceof ConditionalNode) {
+            ConditionalNode conditional = (ConditionalNode) value;
+            if (kind != Kind.Int || !supportsPackedIntMulMinMax || !(conditional.condition() instanceof IntegerLessThanNode)) {
+                return false;
+            }
+            IntegerLessThanNode condition = (IntegerLessThanNode) conditional.condition();
+            x = loadedArrays.get(condition.x());
+            y = loadedArrays.get(condition.y());
+            ValueNode trueArray = loadedArrays.get(conditional.trueValue());
+            ValueNode falseArray = loadedArrays.get(conditional.falseValue());
+            if (x == null || y == null) {
+                return false;
+            } else if (trueArray == x && falseArray == y) {
+                op = Op.MIN;
+            } else if (trueArray == y && falseArray == x) {
+                op = Op.MAX;
+            } else {
+                return false;
+            }
+        } else if (value instanceof BinaryNode && value.kind() == kind) {
+            op = binaryOp((BinaryNode) value, kind);
+            x = loadedArrays.get(((BinaryNode) value).x());
+            y = loadedArrays.get(((BinaryNode) value).y());
+            if (op == null || x == null || y == null) {
+                return false;
+            }
+        } else {
+            return false;
+        }
+
+        /*
+         * Make sure that the arrays can be dereferenced in front of the loop. This includes arrays
+         * whose elements are loaded but not used by the stored value, so that the vector operation
+         * stops in front of the element for which the scalar loop throws an exception.
+         */
+        List<ValueNode> arrays = new ArrayList<>(loadedArrays.size() + 1);
+        arrays.add(store.array());
+        for (ValueNode array : loadedArrays.values()) {
+            if (!arrays.contains(array)) {
+                arrays.add(array);
+            }
+        }
+        boolean needsNullChecks = false;
+        for (ValueNode array : arrays) {
+            needsNullChecks |= !array.stamp().nonNull();
+        }
+        if (needsNullChecks && (graph.method() == null || graph.method().getProfilingInfo().getDeoptimizationCount(NullCheckException) >= GraalOptions.DeoptsToDisableOptimisticOptimization.getValue())) {
+            return false;
+        }
+
+        Debug.log("vectorizing %s in %s: %s %s", loopBegin, graph.method(), op, kind);
+        AbstractEndNode forwardEnd = loopBegin.forwardEnd();
+        ValueNode start = phi.valueAt(forwardEnd);
+        ValueNode end = counted.getLimit();
+        for (ValueNode array : arrays) {
+            if (!array.stamp().nonNull()) {
+                graph.addBeforeFixed(forwardEnd, graph.add(new FixedGuardNode(graph.unique(new IsNullNode(array)), NullCheckException, InvalidateReprofile, true)));
+            }
+            ArrayLengthNode length = graph.add(new ArrayLengthNode(array));
+            graph.addBeforeFixed(forwardEnd, length);
+            end = graph.unique(new ConditionalNode(graph.unique(new IntegerLessThanNode(length, end)), length, end));
+        }
+        // do nothing if the start index is negative, the scalar loop will throw the exception
+        end = graph.unique(new ConditionalNode(graph.unique(new IntegerLessThanNode(start, ConstantNode.forInt(0, graph))), start, end));
+
+        VectorArrayOpNode vectorOp = graph.add(new VectorArrayOpNode(op, kind, store.array(), x, y, start, end));
+        graph.addBeforeFixed(forwardEnd, vectorOp);
+        FrameState stateAfter = loopState.duplicate();
+        for (int i = 0; i < stateAfter.values().size(); i++) {
+            if (stateAfter.values().get(i) == phi) {
+                stateAfter.values().set(i, vectorOp);
+            }
+        }
+        vectorOp.setStateAfter(stateAfter);
+        phi.setValueAt(loopBegin.phiPredecessorIndex(forwardEnd), vectorOp);
+        return true;
+    }
+
+    private Op binaryOp(BinaryNode value, Kind kind) {
+        if (value instanceof IntegerAddNode || value instanceof FloatAddNode) {
+            return Op.ADD;
+        } else if (value instanceof IntegerMulNode) {
+            return kind == Kind.Int && supportsPackedIntMulMinMax ? Op.MUL : null;
+        } else if (value instanceof FloatMulNode) {
+            return Op.MUL;
+        } else if (value instanceof AndNode) {
+            return Op.AND;
+        } else if (value instanceof OrNode) {
+            return Op.OR;
+        } else if (value instanceof XorNode) {
+            return Op.XOR;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.microbenchmarks;
+
+import java.lang.reflect.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.api.runtime.*;
+import com.oracle.graal.compiler.target.*;
+import com.oracle.graal.java.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.spi.*;
+import com.oracle.graal.phases.*;
+import com.oracle.graal.phases.PhasePlan.PhasePosition;
+import com.oracle.graal.phases.tiers.*;
+
+/**
+ * State holding a graph for one method of the benchmark corpus. The corpus consists of the
+ * {@code test} methods of a fixed set of {@code com.oracle.graal.jtt} classes.
+ * <p>
+ * The graph is built once per trial by {@link #prepare(StructuredGraph)} and a fresh copy is made
+ * available in {@link #graph} before each invocation, so that phases which modify the graph always
+ * see the same input.
+ */
+@State(Scope.Thread)
+public class GraphState {
+
+    // @formatter:off
+    @Param({"com.oracle.graal.jtt.micro.Bubblesort",
+            "com.oracle.graal.jtt.micro.Fibonacci",
+            "com.oracle.graal.jtt.micro.Matrix01",
+            "com.oracle.graal.jtt.micro.String_format01",
+            "com.oracle.graal.jtt.hotpath.HP_life",
+            "com.oracle.graal.jtt.hotpath.HP_trees01",
+            "com.oracle.graal.jtt.loop.LoopParseLong",
+            "com.oracle.graal.jtt.loop.LoopSwitch01",
+            "com.oracle.graal.jtt.optimize.ABCE_02"})
+    // @formatter:on
+    public String corpusClass;
+
+    public GraalCodeCacheProvider runtime;
+    public Replacements replacements;
+    public Backend backend;
+    public Suites suites;
+    public ResolvedJavaMethod method;
+
+    /**
+     * A copy of the prepared graph, refreshed before every benchmark invocation.
+     */
+    public StructuredGraph graph;
+
+    private StructuredGraph originalGraph;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws Exception {
+        runtime = Graal.getRequiredCapability(GraalCodeCacheProvider.class);
+        replacements = Graal.getRequiredCapability(Replacements.class);
+        backend = Graal.getRequiredCapability(Backend.class);
+        suites = Graal.getRequiredCapability(SuitesProvider.class).createSuites();
+        method = runtime.lookupJavaMethod(lookupTestMethod(Class.forName(corpusClass)));
+        originalGraph = prepare(parse());
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        graph = originalGraph.copy();
+        prepareInvocation();
+    }
+
+    /**
+     * Brings a freshly parsed graph into the state expected by a benchmark. The default
+     * implementation returns the parsed graph unchanged.
+     */
+    protected StructuredGraph prepare(StructuredGraph parsedGraph) {
+        return parsedGraph;
+    }
+
+    /**
+     * Hook called after {@link #graph} has been refreshed for the next invocation.
+     */
+    protected void prepareInvocation() {
+    }
+
+    public StructuredGraph parse() {
+        StructuredGraph newGraph = new StructuredGraph(method);
+        new GraphBuilderPhase(runtime, GraphBuilderConfiguration.getDefault(), OptimisticOptimizations.ALL).apply(newGraph);
+        return newGraph;
+    }
+
+    public PhasePlan phasePlan() {
+        PhasePlan plan = new PhasePlan();
+        plan.addPhase(PhasePosition.AFTER_PARSING, new GraphBuilderPhase(runtime, GraphBuilderConfiguration.getDefault(), OptimisticOptimizations.ALL));
+        return plan;
+    }
+
+    public PhaseContext phaseContext() {
+        return new PhaseContext(runtime, new Assumptions(true), replacements);
+    }
+
+    public HighTierContext highTierContext() {
+        return new HighTierContext(runtime, new Assumptions(true), replacements, null, phasePlan(), OptimisticOptimizations.ALL);
+    }
+
+    public MidTierContext midTierContext() {
+        return new MidTierContext(runtime, new Assumptions(true), replacements, runtime.getTarget(), OptimisticOptimizations.ALL);
+    }
+
+    public LowTierContext lowTierContext() {
+        return new LowTierContext(runtime, new Assumptions(true), replacements, runtime.getTarget());
+    }
+
+    private static Method lookupTestMethod(Class<?> c) {
+        for (Method m : c.getDeclaredMethods()) {
+            if (m.getName().equals("test")) {
+                return m;
+            }
+        }
+        throw new IllegalArgumentException("no test method in " + c.getName());
+    }
+}
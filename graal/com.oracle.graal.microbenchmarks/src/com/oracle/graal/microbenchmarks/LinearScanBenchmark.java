@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.microbenchmarks;
+
+import static com.oracle.graal.api.code.CodeUtil.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.code.CallingConvention.Type;
+import com.oracle.graal.compiler.*;
+import com.oracle.graal.compiler.alloc.*;
+import com.oracle.graal.compiler.gen.*;
+import com.oracle.graal.lir.*;
+import com.oracle.graal.phases.*;
+
+/**
+ * Benchmarks the {@link LinearScan} register allocator. The LIR is regenerated from the parsed
+ * graph before every invocation since register allocation modifies it in place.
+ */
+public class LinearScanBenchmark extends GraalBenchmark {
+
+    public static class AllocationState extends GraphState {
+
+        public LIR lir;
+        public LIRGenerator lirGen;
+
+        @Override
+        protected void prepareInvocation() {
+            lir = GraalCompiler.emitHIR(runtime, runtime.getTarget(), graph, replacements, new Assumptions(true), null, phasePlan(), OptimisticOptimizations.ALL, new SpeculationLog(), suites);
+            CallingConvention cc = getCallingConvention(runtime, Type.JavaCallee, method, false);
+            lirGen = GraalCompiler.generateLIR(backend, lir, graph, cc);
+        }
+    }
+
+    @Benchmark
+    public LIR allocate(AllocationState s) {
+        GraalCompiler.allocateRegisters(s.runtime.getTarget(), s.lir, s.lirGen);
+        return s.lir;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.microbenchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.phases.common.*;
+import com.oracle.graal.phases.tiers.*;
+import com.oracle.graal.virtual.phases.ea.*;
+
+/**
+ * Benchmarks the {@link PartialEscapePhase} on graphs that have been canonicalized and had their
+ * calls inlined, which is the shape the phase sees in the high tier.
+ */
+public class PartialEscapeBenchmark extends GraalBenchmark {
+
+    public static class InlinedGraphState extends GraphState {
+
+        @Override
+        protected StructuredGraph prepare(StructuredGraph parsedGraph) {
+            HighTierContext context = highTierContext();
+            CanonicalizerPhase canonicalizer = new CanonicalizerPhase(true);
+            canonicalizer.apply(parsedGraph, context);
+            new InliningPhase().apply(parsedGraph, context);
+            new DeadCodeEliminationPhase().apply(parsedGraph);
+            canonicalizer.apply(parsedGraph, context);
+            return parsedGraph;
+        }
+    }
+
+    @Benchmark
+    public StructuredGraph partialEscape(InlinedGraphState s) {
+        new PartialEscapePhase(true, new CanonicalizerPhase(true)).apply(s.graph, s.highTierContext());
+        return s.graph;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.microbenchmarks;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.api.runtime.*;
+
+/**
+ * Measures metadata lookups on a few hot types from several threads at once, as done by the
+ * compiler threads. The lookups go through the method and field caches of the resolved types, so
+ * the {@code ResolvedTypeMethodCacheMisses} and {@code ResolvedTypeFieldCacheMisses} metrics
+ * count the remaining round trips to the VM.
+ */
+@Threads(4)
+public class ResolvedTypeBenchmark extends GraalBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class HotTypes {
+
+        public MetaAccessProvider metaAccess;
+        public Method[] methods;
+        public Class<?>[] classes;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            metaAccess = Graal.getRequiredCapability(MetaAccessProvider.class);
+            classes = new Class<?>[]{Object.class, String.class, ArrayList.class, HashMap.class, Integer.class, StringBuilder.class};
+            List<Method> list = new ArrayList<>();
+            for (Class<?> c : classes) {
+                list.addAll(Arrays.asList(c.getDeclaredMethods()));
+            }
+            methods = list.toArray(new Method[list.size()]);
+        }
+    }
+
+    @Benchmark
+    public void lookupMethods(HotTypes state, Blackhole bh) {
+        for (Method m : state.methods) {
+            bh.consume(state.metaAccess.lookupJavaMethod(m));
+        }
+    }
+
+    @Benchmark
+    public void instanceFields(HotTypes state, Blackhole bh) {
+        for (Class<?> c : state.classes) {
+            ResolvedJavaType type = state.metaAccess.lookupJavaType(c);
+            bh.consume(type.getInstanceFields(true));
+            bh.consume(type.getInterfaces());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.microbenchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.phases.schedule.*;
+
+/**
+ * Benchmarks the {@link SchedulePhase} on graphs that have been through all compiler tiers, which
+ * is where the final schedule for LIR generation is computed.
+ */
+public class SchedulePhaseBenchmark extends GraalBenchmark {
+
+    public static class LoweredGraphState extends GraphState {
+
+        @Override
+        protected StructuredGraph prepare(StructuredGraph parsedGraph) {
+            suites.getHighTier().apply(parsedGraph, highTierContext());
+            suites.getMidTier().apply(parsedGraph, midTierContext());
+            suites.getLowTier().apply(parsedGraph, lowTierContext());
+            return parsedGraph;
+        }
+    }
+
+    @Benchmark
+    public SchedulePhase schedule(LoweredGraphState s) {
+        SchedulePhase schedule = new SchedulePhase();
+        schedule.apply(s.graph);
+        return schedule;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.nodes.extended;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.spi.*;
+import com.oracle.graal.nodes.type.*;
+
+/**
+ * Applies an element-wise operation to the elements of one or two source arrays and stores the
+ * results into a destination array, starting at index {@code start}, using packed (SIMD)
+ * instructions. Only whole vectors of elements are processed, i.e., the node stops before the
+ * first index at which less than a vector of elements is left before {@code end}, and produces
+ * that index so that the remaining elements can be processed by a scalar loop.
+ * <p>
+ * All arrays must be non-null and {@code 0 <= start} and {@code end <= length} must hold for all
+ * arrays if {@code start < end}. Since every element is only read and written at the same index,
+ * the destination may be the same array as one of the sources.
+ */
+public final class VectorArrayOpNode extends AbstractStateSplit implements LIRLowerable, MemoryCheckpoint.Single {
+
+    public enum Op {
+        ADD, MUL, AND, OR, XOR, MIN, MAX, COPY
+    }
+
+    private final Op op;
+    private final Kind elementKind;
+    @Input private ValueNode destination;
+    @Input private ValueNode x;
+    @Input private ValueNode y;
+    @Input private ValueNode start;
+    @Input private ValueNode end;
+
+    /**
+     * @param y the second source array or null for {@link Op#COPY}
+     */
+    public VectorArrayOpNode(Op op, Kind elementKind, ValueNode destination, ValueNode x, ValueNode y, ValueNode start, ValueNode end) {
+        super(StampFactory.forKind(Kind.Int));
+        assert (op == Op.COPY) == (y == null);
+        this.op = op;
+        this.elementKind = elementKind;
+        this.destination = destination;
+        this.x = x;
+        this.y = y;
+        this.start = start;
+        this.end = end;
+    }
+
+    public Op getOp() {
+        return op;
+    }
+
+    public Kind getElementKind() {
+        return elementKind;
+    }
+
+    public ValueNode destination() {
+        return destination;
+    }
+
+    public ValueNode x() {
+        return x;
+    }
+
+    public ValueNode y() {
+        return y;
+    }
+
+    public ValueNode start() {
+        return start;
+    }
+
+    public ValueNode end() {
+        return end;
+    }
+
+    @Override
+    public LocationIdentity getLocationIdentity() {
+        return NamedLocationIdentity.getArrayLocation(elementKind);
+    }
+
+    @Override
+    public void generate(LIRGeneratorTool gen) {
+        Value result = gen.emitVectorArrayOp(op, elementKind, gen.operand(destination), gen.operand(x), y == null ? null : gen.operand(y), gen.operand(start), gen.operand(end));
+        gen.setResult(this, result);
+    }
+}
@@ -95,6 +95,14 @@ public interface LIRGeneratorTool {
 
     Value emitConvert(ConvertNode.Op opcode, Value inputVal);
 
+    /**
+     * Emits the packed loop of a {@link VectorArrayOpNode}.
+     * 
+     * @param y the second source array or null for {@link VectorArrayOpNode.Op#COPY}
+     * @return the index of the first element that was not processed
+     */
+    Value emitVectorArrayOp(VectorArrayOpNode.Op op, Kind kind, Value destination, Value x, Value y, Value start, Value end);
+
     void emitMembar(int barriers);
 
     void emitDeoptimize(DeoptimizationAction action, DeoptimizingNode deopting);
@@ -62,6 +62,13 @@ public class FloatStamp extends Stamp {
         return upperBound;
     }
 
+    /**
+     * Determines if this stamp excludes NaN.
+     */
+    public boolean isNonNaN() {
+        return nonNaN;
+    }
+
     public boolean isUnrestricted() {
         return lowerBound == Double.NEGATIVE_INFINITY && upperBound == Double.POSITIVE_INFINITY && !nonNaN;
     }
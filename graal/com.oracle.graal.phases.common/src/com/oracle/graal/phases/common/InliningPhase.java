@@ -34,10 +34,12 @@ import com.oracle.graal.debug.*;
 import com.oracle.graal.graph.*;
 import com.oracle.graal.nodes.*;
 import com.oracle.graal.nodes.java.*;
+import com.oracle.graal.nodes.java.MethodCallTargetNode.InvokeKind;
 import com.oracle.graal.nodes.spi.*;
 import com.oracle.graal.nodes.type.*;
 import com.oracle.graal.nodes.util.*;
 import com.oracle.graal.options.*;
+import com.oracle.graal.phases.*;
 import com.oracle.graal.phases.PhasePlan.PhasePosition;
 import com.oracle.graal.phases.common.CanonicalizerPhase.CustomCanonicalizer;
 import com.oracle.graal.phases.common.InliningUtil.InlineInfo;
@@ -71,15 +73,15 @@ public class InliningPhase extends AbstractInliningPhase {
     private static final DebugMetric metricInliningRuns = Debug.metric("Runs");
 
     public InliningPhase() {
-        this(new GreedyInliningPolicy(null), null);
+        this(createDefaultPolicy(null), null);
     }
 
     public InliningPhase(CustomCanonicalizer canonicalizer) {
-        this(new GreedyInliningPolicy(null), canonicalizer);
+        this(createDefaultPolicy(null), canonicalizer);
     }
 
     public InliningPhase(Map<Invoke, Double> hints) {
-        this(new GreedyInliningPolicy(hints), null);
+        this(createDefaultPolicy(hints), null);
     }
 
     public InliningPhase(InliningPolicy policy) {
@@ -91,6 +93,13 @@ public class InliningPhase extends AbstractInliningPhase {
         this.customCanonicalizer = customCanonicalizer;
     }
 
+    private static InliningPolicy createDefaultPolicy(Map<Invoke, Double> hints) {
+        if (GlobalInlining.getValue()) {
+            return new GlobalInliningPolicy(hints);
+        }
+        return new GreedyInliningPolicy(hints);
+    }
+
     public void setMaxMethodsPerInlining(int max) {
         maxMethodPerInlining = max;
     }
@@ -109,6 +118,11 @@ public class InliningPhase extends AbstractInliningPhase {
 
     @Override
     protected void run(final StructuredGraph graph, final HighTierContext context) {
+        if (inliningPolicy instanceof GlobalInliningPolicy) {
+            runGlobal(graph, context, (GlobalInliningPolicy) inliningPolicy);
+            return;
+        }
+
         final InliningData data = new InliningData(graph, context.getAssumptions());
         while (data.hasUnprocessedGraphs()) {
             final MethodInvocation currentInvocation = data.currentInvocation();
@@ -147,6 +161,88 @@ public class InliningPhase extends AbstractInliningPhase {
         assert data.graphCount() == 0;
     }
 
+    /**
+     * Inlines the call sites of {@code graph} in the order of their
+     * {@linkplain GlobalInliningPolicy#priority priority} instead of depth-first, so that cold call
+     * sites cannot use up {@link GraalOptions#MaximumDesiredSize} before hot call sites further
+     * down the call tree are considered. The call tree is expanded as inlining proceeds: the
+     * invokes of inlined code become candidates themselves, with probabilities relative to
+     * {@code graph}. Since inlining can fold branches and turn arguments into constants, the call
+     * sites that are already queued are re-prioritized after each inlining.
+     */
+    private void runGlobal(StructuredGraph graph, HighTierContext context, GlobalInliningPolicy policy) {
+        Assumptions assumptions = context.getAssumptions();
+        PriorityQueue<CallSite> queue = new PriorityQueue<>();
+        CallSite root = new CallSite(graph.method());
+        NodesToDoubles probabilities = new ComputeProbabilityClosure(graph).apply();
+        for (Invoke invoke : graph.getInvokes()) {
+            addCallSite(queue, root, invoke, probabilities.get(invoke.asNode()), policy, context);
+        }
+
+        while (!queue.isEmpty() && policy.continueInlining(graph)) {
+            CallSite site = queue.poll();
+            InlineInfo info = site.info();
+            if (!info.invoke().asNode().isAlive()) {
+                continue;
+            }
+            if (site.isStale()) {
+                // canonicalization has changed the target of the invoke since it was queued
+                addCallSite(queue, site.parent(), info.invoke(), site.probability(), policy, context);
+                continue;
+            }
+
+            if (policy.isWorthInlining(context.getReplacements(), info, site.inliningDepth(), site.probability(), site.probability(), true)) {
+                int markBeforeInlining = graph.getMark();
+                inline(graph, info, site.assumptions(), assumptions, context);
+
+                probabilities = new ComputeProbabilityClosure(graph).apply();
+                reprioritize(queue, probabilities, policy, context);
+                for (Node newNode : graph.getNewNodes(markBeforeInlining)) {
+                    if (newNode instanceof Invoke) {
+                        Invoke invoke = (Invoke) newNode;
+                        addCallSite(queue, site, invoke, probabilities.get(invoke.asNode()), policy, context);
+                    }
+                }
+            } else if (context.getOptimisticOptimizations().devirtualizeInvokes()) {
+                info.tryToDevirtualizeInvoke(context.getRuntime(), assumptions);
+            }
+            metricInliningConsidered.increment();
+        }
+    }
+
+    /**
+     * Recomputes the probabilities and priorities of the queued call sites after the graph has
+     * changed, dropping the call sites whose invokes have been removed.
+     */
+    private static void reprioritize(PriorityQueue<CallSite> queue, NodesToDoubles probabilities, GlobalInliningPolicy policy, HighTierContext context) {
+        List<CallSite> sites = new ArrayList<>(queue);
+        queue.clear();
+        for (CallSite site : sites) {
+            Invoke invoke = site.info().invoke();
+            if (invoke.asNode().isAlive()) {
+                double probability = probabilities.get(invoke.asNode());
+                site.reprioritize(probability, policy.priority(context.getReplacements(), site.info(), probability));
+                queue.add(site);
+            }
+        }
+    }
+
+    /**
+     * Builds the graphs that {@code invoke} may be inlined with and queues it as a child of
+     * {@code parent} in the call tree.
+     */
+    private void addCallSite(PriorityQueue<CallSite> queue, CallSite parent, Invoke invoke, double probability, GlobalInliningPolicy policy, HighTierContext context) {
+        Assumptions assumptions = context.getAssumptions();
+        InlineInfo info = InliningUtil.getInlineInfo(parent, invoke, maxMethodPerInlining, context.getReplacements(), assumptions, context.getOptimisticOptimizations());
+        if (info != null) {
+            Assumptions calleeAssumptions = new Assumptions(assumptions.useOptimisticAssumptions());
+            for (int i = 0; i < info.numberOfMethods(); i++) {
+                info.setInlinableElement(i, getInlineableElement(info.methodAt(i), invoke, calleeAssumptions, context));
+            }
+            queue.add(new CallSite(parent, info, calleeAssumptions, probability, policy.priority(context.getReplacements(), info, probability)));
+        }
+    }
+
     /**
      * Process the next invoke and enqueue all its graphs for processing.
      */
@@ -188,31 +284,40 @@ public class InliningPhase extends AbstractInliningPhase {
 
     private void doInline(GraphInfo callerGraphInfo, MethodInvocation calleeInfo, Assumptions callerAssumptions, HighTierContext context) {
         StructuredGraph callerGraph = callerGraphInfo.graph();
+        int markBeforeCanonicalization = inline(callerGraph, calleeInfo.callee(), calleeInfo.assumptions(), callerAssumptions, context);
+
+        // process invokes that are possibly created during canonicalization
+        for (Node newNode : callerGraph.getNewNodes(markBeforeCanonicalization)) {
+            if (newNode instanceof Invoke) {
+                callerGraphInfo.pushInvoke((Invoke) newNode);
+            }
+        }
+
+        callerGraphInfo.computeProbabilities();
+    }
+
+    /**
+     * Inlines {@code callee} into {@code callerGraph} and canonicalizes the inlined code.
+     * 
+     * @return the mark of {@code callerGraph} before the canonicalization
+     */
+    private int inline(StructuredGraph callerGraph, InlineInfo callee, Assumptions calleeAssumptions, Assumptions callerAssumptions, HighTierContext context) {
         int markBeforeInlining = callerGraph.getMark();
-        InlineInfo callee = calleeInfo.callee();
         try {
             List<Node> invokeUsages = callee.invoke().asNode().usages().snapshot();
             callee.inline(context.getRuntime(), callerAssumptions, context.getReplacements());
-            callerAssumptions.record(calleeInfo.assumptions());
+            callerAssumptions.record(calleeAssumptions);
             metricInliningRuns.increment();
             Debug.dump(callerGraph, "after %s", callee);
 
+            int markBeforeCanonicalization = callerGraph.getMark();
             if (OptCanonicalizer.getValue()) {
-                int markBeforeCanonicalization = callerGraph.getMark();
                 new CanonicalizerPhase.Instance(context.getRuntime(), callerAssumptions, !AOTCompilation.getValue(), invokeUsages, markBeforeInlining, customCanonicalizer).apply(callerGraph);
-
-                // process invokes that are possibly created during canonicalization
-                for (Node newNode : callerGraph.getNewNodes(markBeforeCanonicalization)) {
-                    if (newNode instanceof Invoke) {
-                        callerGraphInfo.pushInvoke((Invoke) newNode);
-                    }
-                }
             }
 
-            callerGraphInfo.computeProbabilities();
-
             inliningCount++;
             metricInliningPerformed.increment();
+            return markBeforeCanonicalization;
         } catch (BailoutException bailout) {
             throw bailout;
         } catch (AssertionError | RuntimeException e) {
@@ -312,13 +417,16 @@ public class InliningPhase extends AbstractInliningPhase {
 
         new DeadCodeEliminationPhase().apply(newGraph);
 
-        if (OptCanonicalizer.getValue()) {
-            new CanonicalizerPhase.Instance(context.getRuntime(), assumptions, !AOTCompilation.getValue()).apply(newGraph);
-        }
-
+        // The graph is cached before canonicalization: the canonicalizer folds the values of static
+        // final fields and records assumptions, which are only valid for the current compilation
+        // and VM state. Graphs taken from the cache are canonicalized by buildGraph.
         if (CacheGraphs.getValue() && context.getGraphCache() != null) {
             context.getGraphCache().put(newGraph.copy(), hasMatureProfilingInfo);
         }
+
+        if (OptCanonicalizer.getValue()) {
+            new CanonicalizerPhase.Instance(context.getRuntime(), assumptions, !AOTCompilation.getValue()).apply(newGraph);
+        }
         return newGraph;
     }
 
@@ -476,6 +584,84 @@ public class InliningPhase extends AbstractInliningPhase {
         }
     }
 
+    /**
+     * Policy for {@link InliningPhase#runGlobal}, which orders the call sites of a compilation unit
+     * by their {@linkplain #priority(Replacements, InlineInfo, double) priority} and inlines them
+     * until the graph reaches {@link GraalOptions#MaximumDesiredSize}.
+     */
+    private static final class GlobalInliningPolicy extends AbstractInliningPolicy {
+
+        public GlobalInliningPolicy(Map<Invoke, Double> hints) {
+            super(hints);
+        }
+
+        public boolean continueInlining(StructuredGraph currentGraph) {
+            if (currentGraph.getNodeCount() >= MaximumDesiredSize.getValue()) {
+                InliningUtil.logInliningDecision("inlining is cut off by MaximumDesiredSize");
+                metricInliningStoppedByMaxDesiredSize.increment();
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Estimates the benefit of inlining a call site over its cost. The benefit is the
+         * probability of the call site relative to the compilation unit, increased by the number
+         * of constant arguments the callee can be specialized for. The cost is the node count of
+         * the callee without its own call sites inlined, as those are separate candidates.
+         */
+        public double priority(Replacements replacements, InlineInfo info, double probability) {
+            if (isIntrinsic(replacements, info)) {
+                return Double.POSITIVE_INFINITY;
+            }
+            int constantArguments = 0;
+            for (ValueNode argument : info.invoke().callTarget().arguments()) {
+                if (argument != null && argument.isConstant()) {
+                    constantArguments++;
+                }
+            }
+            int nodes = Math.max(1, determineNodeCount(info));
+            return probability * getInliningBonus(info) * (1 + constantArguments) / nodes;
+        }
+
+        @Override
+        public boolean isWorthInlining(Replacements replacements, InlineInfo info, int inliningDepth, double probability, double relevance, boolean fullyProcessed) {
+            if (InlineEverything.getValue()) {
+                return InliningUtil.logInlinedMethod(info, inliningDepth, fullyProcessed, "inline everything");
+            }
+
+            if (isIntrinsic(replacements, info)) {
+                return InliningUtil.logInlinedMethod(info, inliningDepth, fullyProcessed, "intrinsic");
+            }
+
+            int nodes = determineNodeCount(info);
+            int graphSize = info.graph().getNodeCount();
+            if (graphSize + nodes > MaximumDesiredSize.getValue()) {
+                return InliningUtil.logNotInlinedMethod(info, inliningDepth, "exceeds the global budget (probability=%f, nodes=%d, graph nodes=%d)", probability, nodes, graphSize);
+            }
+
+            double inliningBonus = getInliningBonus(info);
+            if (nodes < TrivialInliningSize.getValue() * inliningBonus) {
+                return InliningUtil.logInlinedMethod(info, inliningDepth, fullyProcessed, "trivial (probability=%f, bonus=%f, nodes=%d)", probability, inliningBonus, nodes);
+            }
+
+            /*
+             * A call site that is executed once per invocation of the compilation unit is inlined
+             * if the callee has at most MaximumInliningSize nodes, like with a relevance of 1 in
+             * the greedy policy.
+             */
+            double priority = priority(replacements, info, probability);
+            double minimumPriority = 1.0 / MaximumInliningSize.getValue();
+            if (priority >= minimumPriority) {
+                return InliningUtil.logInlinedMethod(info, inliningDepth, fullyProcessed, "benefit/cost (probability=%f, bonus=%f, nodes=%d, priority=%f >= %f)", probability, inliningBonus,
+                                nodes, priority, minimumPriority);
+            }
+
+            return InliningUtil.logNotInlinedMethod(info, inliningDepth, "benefit/cost (probability=%f, bonus=%f, nodes=%d, priority=%f < %f)", probability, inliningBonus, nodes, priority,
+                            minimumPriority);
+        }
+    }
+
     public static final class InlineEverythingPolicy implements InliningPolicy {
 
         public boolean continueInlining(StructuredGraph graph) {
@@ -583,11 +769,28 @@ public class InliningPhase extends AbstractInliningPhase {
         }
     }
 
+    /**
+     * The position in the call tree that the invokes considered by
+     * {@link InliningUtil#getInlineInfo} are located at.
+     */
+    interface CallTreeContext {
+
+        /**
+         * Gets the number of inlined calls enclosing the invokes.
+         */
+        int inliningDepth();
+
+        /**
+         * Counts how often {@code method} occurs in the call chain leading to the invokes.
+         */
+        int countRecursiveInlining(ResolvedJavaMethod method);
+    }
+
     /**
      * Holds the data for building the callee graphs recursively: graphs and invocations (each
      * invocation can have multiple graphs).
      */
-    static class InliningData {
+    static class InliningData implements CallTreeContext {
 
         private static final GraphInfo DummyGraphInfo = new GraphInfo(null, new LinkedList<Invoke>(), 1.0, 1.0);
 
@@ -868,6 +1071,138 @@ public class InliningPhase extends AbstractInliningPhase {
         }
     }
 
+    /**
+     * A node of the call tree explored by {@link InliningPhase#runGlobal}: either the compilation
+     * unit or a call site that may be inlined into it.
+     */
+    private static final class CallSite implements CallTreeContext, Comparable<CallSite> {
+
+        private final CallSite parent;
+        private final ResolvedJavaMethod rootMethod;
+        private final InlineInfo info;
+        private final Assumptions assumptions;
+        private double probability;
+        private double priority;
+
+        private final CallTargetNode callTarget;
+        private final ResolvedJavaMethod targetMethod;
+        private final InvokeKind invokeKind;
+
+        public CallSite(ResolvedJavaMethod rootMethod) {
+            this.parent = null;
+            this.rootMethod = rootMethod;
+            this.info = null;
+            this.assumptions = null;
+            this.probability = 1.0;
+            this.priority = Double.POSITIVE_INFINITY;
+            this.callTarget = null;
+            this.targetMethod = null;
+            this.invokeKind = null;
+        }
+
+        public CallSite(CallSite parent, InlineInfo info, Assumptions assumptions, double probability, double priority) {
+            this.parent = parent;
+            this.rootMethod = null;
+            this.info = info;
+            this.assumptions = assumptions;
+            this.probability = probability;
+            this.priority = priority;
+
+            MethodCallTargetNode methodCallTarget = (MethodCallTargetNode) info.invoke().callTarget();
+            this.callTarget = methodCallTarget;
+            this.targetMethod = methodCallTarget.targetMethod();
+            this.invokeKind = methodCallTarget.invokeKind();
+        }
+
+        public CallSite parent() {
+            return parent;
+        }
+
+        public InlineInfo info() {
+            return info;
+        }
+
+        public Assumptions assumptions() {
+            return assumptions;
+        }
+
+        public double probability() {
+            return probability;
+        }
+
+        public boolean isRoot() {
+            return parent == null;
+        }
+
+        /**
+         * Updates the probability and priority of this call site. This must only be called while
+         * the call site is not in a queue.
+         */
+        public void reprioritize(double newProbability, double newPriority) {
+            this.probability = newProbability;
+            this.priority = newPriority;
+        }
+
+        /**
+         * Determines if the call target of the invoke has changed since {@link #info()} was
+         * computed.
+         */
+        public boolean isStale() {
+            CallTargetNode current = info.invoke().callTarget();
+            if (current != callTarget) {
+                return true;
+            }
+            MethodCallTargetNode methodCallTarget = (MethodCallTargetNode) current;
+            return methodCallTarget.targetMethod() != targetMethod || methodCallTarget.invokeKind() != invokeKind;
+        }
+
+        @Override
+        public int inliningDepth() {
+            int depth = 0;
+            for (CallSite site = parent; site != null; site = site.parent) {
+                depth++;
+            }
+            return depth;
+        }
+
+        @Override
+        public int countRecursiveInlining(ResolvedJavaMethod method) {
+            int count = 0;
+            for (CallSite site = this; site != null; site = site.parent) {
+                if (site.calls(method)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private boolean calls(ResolvedJavaMethod method) {
+            if (isRoot()) {
+                return method.equals(rootMethod);
+            }
+            for (int i = 0; i < info.numberOfMethods(); i++) {
+                if (method.equals(info.methodAt(i))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int compareTo(CallSite other) {
+            // higher priorities first
+            return Double.compare(other.priority, priority);
+        }
+
+        @Override
+        public String toString() {
+            if (isRoot()) {
+                return "<root>";
+            }
+            return String.format("%s (probability=%f, priority=%f)", info, probability, priority);
+        }
+    }
+
     private static class CompiledMethodInfo {
 
         private int lowLevelNodes;
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.phases.common;
+
+import static com.oracle.graal.phases.GraalOptions.*;
+
+import com.oracle.graal.debug.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.extended.*;
+import com.oracle.graal.nodes.java.*;
+import com.oracle.graal.nodes.util.*;
+import com.oracle.graal.phases.*;
+
+/**
+ * Merges a monitor exit with a following monitor enter on the same object if the code in between
+ * is straight-line code without side effects, so that the lock is held across that code instead of
+ * being released and acquired again.
+ * <p>
+ * Since the intervening code has no side effects and therefore no frame states, a deoptimization
+ * in it resumes the interpreter at a state inside the first locked region, from where the
+ * interpreter executes the monitor exit and the intervening code again. The amount of code over
+ * which a lock is held longer is limited by {@link GraalOptions#LockCoarseningMaxNodes}.
+ */
+public class LockCoarseningPhase extends Phase {
+
+    private static final DebugMetric COARSENED_LOCKS = Debug.metric("CoarsenedLocks");
+
+    @Override
+    protected void run(StructuredGraph graph) {
+        for (MonitorExitNode exit : graph.getNodes(MonitorExitNode.class).snapshot()) {
+            if (exit.isDeleted()) {
+                continue;
+            }
+            MonitorEnterNode enter = findMatchingEnter(exit);
+            if (enter != null) {
+                Debug.log("Coarsening %s and %s", exit, enter);
+                FrameState stateAfterExit = exit.stateAfter();
+                FrameState stateAfterEnter = enter.stateAfter();
+                graph.removeFixed(exit);
+                graph.removeFixed(enter);
+                if (stateAfterExit != null && stateAfterExit.usages().isEmpty()) {
+                    GraphUtil.killWithUnusedFloatingInputs(stateAfterExit);
+                }
+                if (stateAfterEnter != null && stateAfterEnter.usages().isEmpty()) {
+                    GraphUtil.killWithUnusedFloatingInputs(stateAfterEnter);
+                }
+                COARSENED_LOCKS.increment();
+            }
+        }
+    }
+
+    /**
+     * Gets the monitor enter on the object of {@code exit} that follows {@code exit} with only
+     * side-effect free fixed nodes in between.
+     */
+    private static MonitorEnterNode findMatchingEnter(MonitorExitNode exit) {
+        FixedNode current = exit.next();
+        for (int i = 0; i < LockCoarseningMaxNodes.getValue(); i++) {
+            if (current instanceof MonitorEnterNode) {
+                MonitorEnterNode enter = (MonitorEnterNode) current;
+                if (enter.object() == exit.object() && enter.getLockDepth() == exit.getLockDepth()) {
+                    return enter;
+                }
+                // acquiring another lock while holding this one could introduce a deadlock
+                return null;
+            }
+            if (!(current instanceof FixedWithNextNode) || current instanceof MergeNode || current instanceof MonitorExitNode || current instanceof Invoke || current instanceof MemoryCheckpoint) {
+                return null;
+            }
+            if (current instanceof StateSplit && (((StateSplit) current).stateAfter() != null || ((StateSplit) current).hasSideEffect())) {
+                return null;
+            }
+            current = ((FixedWithNextNode) current).next();
+        }
+        return null;
+    }
+}
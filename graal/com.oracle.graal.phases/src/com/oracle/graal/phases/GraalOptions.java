@@ -65,6 +65,8 @@ public final class GraalOptions {
     public static final OptionValue<Double> LimitInlinedInvokes = new OptionValue<>(5.0);
     @Option(help = "")
     public static final OptionValue<Boolean> InlineEverything = new OptionValue<>(false);
+    @Option(help = "Inline the call sites of a compilation unit in the order of their profiled benefit over their size, up to MaximumDesiredSize nodes")
+    public static final OptionValue<Boolean> GlobalInlining = new OptionValue<>(false);
 
     // escape analysis settings
     @Option(help = "")
@@ -96,6 +98,8 @@ public final class GraalOptions {
     public static final OptionValue<Integer> CompileTheWorldStartAt = new OptionValue<>(1);
     @Option(help = "")
     public static final OptionValue<Integer> CompileTheWorldStopAt = new OptionValue<>(Integer.MAX_VALUE);
+    @Option(help = "Number of threads compiling classes in parallel during CompileTheWorld (1 compiles serially)")
+    public static final OptionValue<Integer> CompileTheWorldThreads = new OptionValue<>(1);
 
     // graph caching
     @Option(help = "")
@@ -128,6 +132,16 @@ public final class GraalOptions {
     public static final OptionValue<Integer> LoopUnswitchUncertaintyBoost = new OptionValue<>(5);
     @Option(help = "")
     public static final OptionValue<Boolean> UseLoopLimitChecks = new OptionValue<>(true);
+    @Option(help = "Partially unroll counted loops with a high loop frequency")
+    public static final OptionValue<Boolean> PartialUnroll = new OptionValue<>(false);
+    @Option(help = "Maximum factor by which a loop is partially unrolled (rounded down to a power of two)")
+    public static final OptionValue<Integer> PartialUnrollMaxFactor = new OptionValue<>(4);
+    @Option(help = "Maximum number of nodes by which partial unrolling may grow a loop")
+    public static final OptionValue<Integer> PartialUnrollMaxNodes = new OptionValue<>(200);
+    @Option(help = "Use packed instructions for simple counted loops over arrays where supported by the target")
+    public static final OptionValue<Boolean> VectorizeLoops = new OptionValue<>(false);
+    @Option(help = "Maximum number of iterations of a counted loop that are executed while holding a loop invariant lock once (rounded down to a power of two, 0 disables)")
+    public static final OptionValue<Integer> LockCoarseningLoopChunk = new OptionValue<>(0);
 
     // debugging settings
     @Option(help = "")
@@ -160,6 +174,12 @@ public final class GraalOptions {
     public static final OptionValue<Integer> PrintIdealGraphPort = new OptionValue<>(4444);
     @Option(help = "")
     public static final OptionValue<Integer> PrintBinaryGraphPort = new OptionValue<>(4445);
+    @Option(help = "Write binary graph dump files compressed and with an index of the dumped graphs (.bgvz)")
+    public static final OptionValue<Boolean> PrintBinaryGraphsIndexed = new OptionValue<>(false);
+    @Option(help = "Maximum number of binary graph dumps waiting to be written by a background thread (0 writes on the compiler thread)")
+    public static final OptionValue<Integer> PrintBinaryGraphQueueSize = new OptionValue<>(64);
+    @Option(help = "Drop binary graph dumps instead of stalling the compiler thread when the dump queue is full")
+    public static final OptionValue<Boolean> PrintBinaryGraphDropWhenFull = new OptionValue<>(false);
 
     // Other printing settings
     @Option(help = "")
@@ -243,6 +263,8 @@ public final class GraalOptions {
     public static final OptionValue<Integer> RangeTestsSwitchDensity = new OptionValue<>(5);
     @Option(help = "")
     public static final OptionValue<Double> MinTableSwitchDensity = new OptionValue<>(0.5);
+    @Option(help = "Minimum number of key ranges of a sparse switch for which a binary decision tree is emitted instead of a sequence of tests")
+    public static final OptionValue<Integer> MinimumSwitchTreeRanges = new OptionValue<>(8);
 
     // Ahead of time compilation
     @Option(help = "configure compiler to emit code compatible with AOT requirements for HotSpot")
@@ -287,6 +309,18 @@ public final class GraalOptions {
     public static final OptionValue<Boolean> OptDevirtualizeInvokesOptimistically = new OptionValue<>(true);
     @Option(help = "")
     public static final OptionValue<Boolean> OptPushThroughPi = new OptionValue<>(true);
+    @Option(help = "Eliminate array bounds checks in counted loops or hoist them in front of the loop")
+    public static final OptionValue<Boolean> OptRangeCheckElimination = new OptionValue<>(true);
+    @Option(help = "Merge a monitor exit with a following monitor enter on the same object if only side-effect free code is in between")
+    public static final OptionValue<Boolean> OptLockCoarsening = new OptionValue<>(true);
+    @Option(help = "Maximum number of fixed nodes between a monitor exit and a monitor enter that are merged by lock coarsening")
+    public static final OptionValue<Integer> LockCoarseningMaxNodes = new OptionValue<>(50);
+    @Option(help = "Allocate consecutive objects whose sizes are known at compile time with a single TLAB bump")
+    public static final OptionValue<Boolean> OptAllocationGrouping = new OptionValue<>(true);
+    @Option(help = "Maximum number of bytes allocated by a group of consecutive allocations")
+    public static final OptionValue<Integer> AllocationGroupMaxSize = new OptionValue<>(256);
+    @Option(help = "Compact a graph between tiers if more than this percentage of its node ids belong to deleted nodes")
+    public static final OptionValue<Integer> GraphCompactionThreshold = new OptionValue<>(30);
 
     // Intrinsification settings
     @Option(help = "")
@@ -22,14 +22,13 @@
  */
 package com.oracle.graal.phases.util;
 
-import java.util.*;
-
 /**
- * This class implements a two-dimensional bitmap.
+ * This class implements a two-dimensional bitmap. Memory is only allocated for the parts of the
+ * bitmap that contain set bits.
  */
 public final class BitMap2D {
 
-    private BitSet map;
+    private ChunkedBitSet map;
     private final int bitsPerSlot;
 
     private int bitIndex(int slotIndex, int bitWithinSlotIndex) {
@@ -42,7 +41,7 @@ public final class BitMap2D {
     }
 
     public BitMap2D(int sizeInSlots, int bitsPerSlot) {
-        map = new BitSet(sizeInSlots * bitsPerSlot);
+        map = new ChunkedBitSet(sizeInSlots * bitsPerSlot);
         this.bitsPerSlot = bitsPerSlot;
     }
 
@@ -81,7 +80,7 @@ public final class BitMap2D {
             while (size <= slotIndex) {
                 size *= 2;
             }
-            BitSet newBitMap = new BitSet(size * bitsPerSlot);
+            ChunkedBitSet newBitMap = new ChunkedBitSet(size * bitsPerSlot);
             newBitMap.or(map);
             map = newBitMap;
         }
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.phases.util;
+
+import java.util.*;
+
+/**
+ * A bit set of fixed size that stores its bits in chunks of {@value #CHUNK_BITS} bits which are
+ * only allocated once a bit in them is set. A set whose bits are clustered, such as the live
+ * variables at a block boundary in a method with many variables, uses memory proportional to the
+ * number of touched chunks instead of to its size. A small set consists of a single chunk and
+ * behaves like a dense bit set.
+ * <p>
+ * The operations mirror those of {@link BitSet}. An all-zero chunk and a missing chunk are
+ * equivalent.
+ */
+public final class ChunkedBitSet {
+
+    private static final int WORD_SHIFT = 6;
+    private static final int CHUNK_SHIFT = 9;
+    public static final int CHUNK_BITS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_WORDS = CHUNK_BITS >> WORD_SHIFT;
+
+    private final int size;
+    private long[][] chunks;
+
+    /**
+     * Creates a set that can hold the bits {@code 0} to {@code size - 1}.
+     */
+    public ChunkedBitSet(int size) {
+        this.size = size;
+        this.chunks = new long[(size + CHUNK_BITS - 1) >> CHUNK_SHIFT][];
+    }
+
+    /**
+     * Creates a set with the same size and bits as {@code other}.
+     */
+    public ChunkedBitSet(ChunkedBitSet other) {
+        this.size = other.size;
+        this.chunks = new long[other.chunks.length][];
+        for (int i = 0; i < chunks.length; i++) {
+            if (other.chunks[i] != null) {
+                chunks[i] = other.chunks[i].clone();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of bits this set can hold.
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean get(int index) {
+        assert index >= 0 && index < size : index;
+        long[] chunk = chunks[index >> CHUNK_SHIFT];
+        return chunk != null && (chunk[(index & (CHUNK_BITS - 1)) >> WORD_SHIFT] & (1L << index)) != 0;
+    }
+
+    public void set(int index) {
+        assert index >= 0 && index < size : index;
+        int c = index >> CHUNK_SHIFT;
+        long[] chunk = chunks[c];
+        if (chunk == null) {
+            chunk = new long[CHUNK_WORDS];
+            chunks[c] = chunk;
+        }
+        chunk[(index & (CHUNK_BITS - 1)) >> WORD_SHIFT] |= 1L << index;
+    }
+
+    public void clear(int index) {
+        assert index >= 0 && index < size : index;
+        long[] chunk = chunks[index >> CHUNK_SHIFT];
+        if (chunk != null) {
+            chunk[(index & (CHUNK_BITS - 1)) >> WORD_SHIFT] &= ~(1L << index);
+        }
+    }
+
+    /**
+     * Clears all bits and releases the memory of all chunks.
+     */
+    public void clear() {
+        Arrays.fill(chunks, null);
+    }
+
+    public boolean isEmpty() {
+        for (long[] chunk : chunks) {
+            if (chunk != null && !isZero(chunk)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int cardinality() {
+        int count = 0;
+        for (long[] chunk : chunks) {
+            if (chunk != null) {
+                for (long word : chunk) {
+                    count += Long.bitCount(word);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Sets the bits of this set that are set in {@code other}.
+     */
+    public void or(ChunkedBitSet other) {
+        int n = Math.min(chunks.length, other.chunks.length);
+        for (int c = 0; c < n; c++) {
+            long[] src = other.chunks[c];
+            if (src != null) {
+                long[] dst = chunks[c];
+                if (dst == null) {
+                    chunks[c] = src.clone();
+                } else {
+                    for (int w = 0; w < CHUNK_WORDS; w++) {
+                        dst[w] |= src[w];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Clears the bits of this set that are set in {@code other}.
+     */
+    public void andNot(ChunkedBitSet other) {
+        int n = Math.min(chunks.length, other.chunks.length);
+        for (int c = 0; c < n; c++) {
+            long[] src = other.chunks[c];
+            long[] dst = chunks[c];
+            if (src != null && dst != null) {
+                for (int w = 0; w < CHUNK_WORDS; w++) {
+                    dst[w] &= ~src[w];
+                }
+                if (isZero(dst)) {
+                    chunks[c] = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the index of the first set bit at or after {@code fromIndex}, or -1 if there is none.
+     */
+    public int nextSetBit(int fromIndex) {
+        if (fromIndex >= size) {
+            return -1;
+        }
+        int c = fromIndex >> CHUNK_SHIFT;
+        int w = (fromIndex & (CHUNK_BITS - 1)) >> WORD_SHIFT;
+        long mask = -1L << fromIndex;
+        while (c < chunks.length) {
+            long[] chunk = chunks[c];
+            if (chunk != null) {
+                for (; w < CHUNK_WORDS; w++) {
+                    long word = chunk[w] & mask;
+                    if (word != 0) {
+                        return (c << CHUNK_SHIFT) + (w << WORD_SHIFT) + Long.numberOfTrailingZeros(word);
+                    }
+                    mask = -1L;
+                }
+            }
+            c++;
+            w = 0;
+            mask = -1L;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the number of chunks that currently hold memory.
+     */
+    public int allocatedChunks() {
+        int count = 0;
+        for (long[] chunk : chunks) {
+            if (chunk != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean isZero(long[] chunk) {
+        for (long word : chunk) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof ChunkedBitSet)) {
+            return false;
+        }
+        ChunkedBitSet other = (ChunkedBitSet) obj;
+        int n = Math.max(chunks.length, other.chunks.length);
+        for (int c = 0; c < n; c++) {
+            long[] a = c < chunks.length ? chunks[c] : null;
+            long[] b = c < other.chunks.length ? other.chunks[c] : null;
+            if (a == null || b == null) {
+                if ((a != null && !isZero(a)) || (b != null && !isZero(b))) {
+                    return false;
+                }
+            } else if (!Arrays.equals(a, b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        long h = 1234;
+        for (int i = nextSetBit(0); i >= 0; i = nextSetBit(i + 1)) {
+            h = h * 31 + i;
+        }
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = nextSetBit(0); i >= 0; i = nextSetBit(i + 1)) {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(i);
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -31,6 +31,7 @@ import java.util.*;
 import java.util.Map.Entry;
 
 import com.oracle.graal.api.meta.*;
+import com.oracle.graal.debug.*;
 import com.oracle.graal.graph.*;
 import com.oracle.graal.graph.NodeClass.NodeClassIterator;
 import com.oracle.graal.graph.NodeClass.Position;
@@ -43,6 +44,7 @@ import com.oracle.graal.phases.schedule.*;
 public class BinaryGraphPrinter implements GraphPrinter {
 
     private static final int CONSTANT_POOL_MAX_SIZE = 2000;
+    private static final int INDEXED_CONSTANT_POOL_MAX_SIZE = 64 * 1024;
 
     private static final int BEGIN_GROUP = 0x00;
     private static final int BEGIN_GRAPH = 0x01;
@@ -73,17 +75,19 @@ public class BinaryGraphPrinter implements GraphPrinter {
     private static final class ConstantPool extends LinkedHashMap<Object, Integer> {
 
         private final LinkedList<Integer> availableIds;
+        private final int maxSize;
         private int nextId;
         private static final long serialVersionUID = -2676889957907285681L;
 
-        public ConstantPool() {
+        public ConstantPool(int maxSize) {
             super(50, 0.65f);
             availableIds = new LinkedList<>();
+            this.maxSize = maxSize;
         }
 
         @Override
         protected boolean removeEldestEntry(java.util.Map.Entry<Object, Integer> eldest) {
-            if (size() > CONSTANT_POOL_MAX_SIZE) {
+            if (size() > maxSize) {
                 availableIds.addFirst(eldest.getValue());
                 return true;
             }
@@ -102,16 +106,59 @@ public class BinaryGraphPrinter implements GraphPrinter {
             put(obj, id);
             return id;
         }
+
+        /**
+         * Forgets all entries so that every object is sent again with a new id.
+         */
+        public void reset() {
+            clear();
+            availableIds.clear();
+            nextId = 0;
+        }
     }
 
+    private static final DebugMetric METRIC_BYTES_WRITTEN = Debug.metric("BinaryGraphBytesWritten");
+    private static final DebugMetric METRIC_DUMPS_DROPPED = Debug.metric("BinaryGraphDumpsDropped");
+
     private final ConstantPool constantPool;
-    private final ByteBuffer buffer;
+    private ByteBuffer buffer;
     private final WritableByteChannel channel;
-
+    private final GraphDumpQueue queue;
+    private final IndexedGraphChannel index;
+
+    /**
+     * The position in the stream of the first byte in {@link #buffer}.
+     */
+    private long streamPosition;
+    private int compilationId;
+    private final Deque<String> groupMethods = new ArrayDeque<>();
+
+    /**
+     * Creates a printer that writes to {@code channel} on the calling thread. If {@code channel}
+     * is an {@link IndexedGraphChannel}, the printer records the position of every graph and pool
+     * entry in its index.
+     */
     public BinaryGraphPrinter(WritableByteChannel channel) {
-        constantPool = new ConstantPool();
+        this(channel, 0, false);
+    }
+
+    /**
+     * Creates a printer that encodes dumps on the calling thread and writes them to
+     * {@code channel} on a background thread.
+     * 
+     * @param queueSize the maximum number of dumps waiting to be written. If this is not positive,
+     *            the dumps are written on the calling thread.
+     * @param dropWhenFull specifies if graphs are discarded instead of blocking the calling thread
+     *            when {@code queueSize} dumps are waiting to be written
+     */
+    public BinaryGraphPrinter(WritableByteChannel channel, int queueSize, boolean dropWhenFull) {
+        this.index = channel instanceof IndexedGraphChannel ? (IndexedGraphChannel) channel : null;
+        // readers of an indexed dump look up pool entries by position, so fewer evictions only
+        // save resending entries
+        constantPool = new ConstantPool(index != null ? INDEXED_CONSTANT_POOL_MAX_SIZE : CONSTANT_POOL_MAX_SIZE);
         buffer = ByteBuffer.allocateDirect(256 * 1024);
         this.channel = channel;
+        this.queue = queueSize > 0 ? new GraphDumpQueue(channel, queueSize, dropWhenFull) : null;
     }
 
     public void print(Graph graph, String title, SchedulePhase predefinedSchedule) throws IOException {
@@ -126,22 +173,62 @@ public class BinaryGraphPrinter implements GraphPrinter {
         ControlFlowGraph cfg = schedule == null ? null : schedule.getCFG();
         BlockMap<List<ScheduledNode>> blockToNodes = schedule == null ? null : schedule.getBlockToNodesMap();
         Block[] blocks = cfg == null ? null : cfg.getBlocks();
+        if (index != null) {
+            index.addGraph(compilationId, groupMethods.peek(), title, streamPosition + buffer.position());
+        }
         writeByte(BEGIN_GRAPH);
         writePoolObject(title);
         writeNodes(graph);
         writeBlocks(blocks, blockToNodes);
-        flush();
+        flush(true);
     }
 
-    private void flush() throws IOException {
+    /**
+     * Sends the buffered bytes to the channel or the queue. When writing asynchronously, the
+     * buffer always holds complete records so that a dropped graph does not corrupt the stream.
+     * 
+     * @param droppable specifies if the buffered bytes may be discarded
+     */
+    private void flush(boolean droppable) throws IOException {
         buffer.flip();
-        channel.write(buffer);
-        buffer.compact();
+        if (queue == null) {
+            int written = channel.write(buffer);
+            METRIC_BYTES_WRITTEN.add(written);
+            streamPosition += written;
+            buffer.compact();
+            if (index != null) {
+                index.commit();
+            }
+            return;
+        }
+        int size = buffer.remaining();
+        if (queue.submit(buffer, droppable)) {
+            METRIC_BYTES_WRITTEN.add(size);
+            streamPosition += size;
+            if (index != null) {
+                index.commit();
+            }
+        } else {
+            // the dropped graph may have introduced pool entries the reader will never see
+            METRIC_DUMPS_DROPPED.increment();
+            constantPool.reset();
+            if (index != null) {
+                index.discard();
+            }
+        }
+        buffer.clear();
     }
 
     private void ensureAvailable(int i) throws IOException {
-        while (buffer.remaining() < i) {
-            flush();
+        if (queue == null) {
+            while (buffer.remaining() < i) {
+                flush(false);
+            }
+        } else if (buffer.remaining() < i) {
+            ByteBuffer newBuffer = ByteBuffer.allocateDirect(Math.max(buffer.capacity() * 2, buffer.position() + i));
+            buffer.flip();
+            newBuffer.put(buffer);
+            buffer = newBuffer;
         }
     }
 
@@ -253,9 +340,12 @@ public class BinaryGraphPrinter implements GraphPrinter {
     }
 
     private void addPoolEntry(Object object) throws IOException {
-        int index = constantPool.add(object);
+        int id = constantPool.add(object);
         writeByte(POOL_NEW);
-        writeInt(index);
+        if (index != null) {
+            index.addPoolEntry(id, streamPosition + buffer.position());
+        }
+        writeInt(id);
         if (object instanceof Class<?>) {
             Class<?> klass = (Class<?>) object;
             writeByte(POOL_CLASS);
@@ -450,17 +540,37 @@ public class BinaryGraphPrinter implements GraphPrinter {
         writePoolObject(shortName);
         writePoolObject(method);
         writeInt(bci);
+        if (index != null) {
+            if (groupMethods.isEmpty()) {
+                compilationId++;
+            }
+            String methodName = method != null ? MetaUtil.format("%H.%n(%p)", method) : groupMethods.peek();
+            groupMethods.push(methodName == null ? name : methodName);
+        }
+        if (queue != null) {
+            flush(false);
+        }
     }
 
     public void endGroup() throws IOException {
         writeByte(CLOSE_GROUP);
+        if (index != null && !groupMethods.isEmpty()) {
+            groupMethods.pop();
+        }
+        if (queue != null) {
+            flush(false);
+        }
     }
 
     @Override
     public void close() {
         try {
-            flush();
-            channel.close();
+            flush(false);
+            if (queue == null) {
+                channel.close();
+            } else {
+                queue.close();
+            }
         } catch (IOException ex) {
             throw new Error(ex);
         }
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.printer;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.concurrent.*;
+
+/**
+ * Writes the dumps encoded by a {@link BinaryGraphPrinter} to a channel on a background thread so
+ * that compiler threads do not wait for file or socket I/O. The number of dumps waiting to be
+ * written is bounded. When the queue is full, a dump is either dropped or the submitting thread
+ * blocks until the writer catches up.
+ */
+class GraphDumpQueue implements Closeable {
+
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final WritableByteChannel channel;
+    private final BlockingQueue<ByteBuffer> queue;
+    private final boolean dropWhenFull;
+    private final Thread writer;
+    private volatile IOException failure;
+
+    /**
+     * @param capacity the maximum number of dumps waiting to be written
+     * @param dropWhenFull specifies if {@link #submit(ByteBuffer, boolean) droppable} dumps are
+     *            discarded instead of blocking the caller when the queue is full
+     */
+    GraphDumpQueue(WritableByteChannel channel, int capacity, boolean dropWhenFull) {
+        this.channel = channel;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.dropWhenFull = dropWhenFull;
+        this.writer = new Thread(new Runnable() {
+
+            public void run() {
+                drain();
+            }
+        });
+        writer.setName("GraphDumpWriter-" + writer.getId());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues the remaining bytes of {@code data} to be written. The bytes are copied so the caller
+     * can reuse {@code data} once this method returns.
+     * 
+     * @param droppable specifies if the bytes may be discarded when the queue is full
+     * @return false if the bytes were discarded
+     * @throws IOException if writing an earlier dump failed
+     */
+    boolean submit(ByteBuffer data, boolean droppable) throws IOException {
+        checkFailure();
+        ByteBuffer copy = ByteBuffer.allocate(data.remaining());
+        copy.put(data);
+        copy.flip();
+        if (droppable && dropWhenFull) {
+            return queue.offer(copy);
+        }
+        enqueue(copy);
+        return true;
+    }
+
+    /**
+     * Gets the number of dumps waiting to be written.
+     */
+    int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Writes all queued dumps, stops the writer thread and closes the channel.
+     */
+    @Override
+    public void close() throws IOException {
+        enqueue(END);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } finally {
+            channel.close();
+        }
+        checkFailure();
+    }
+
+    private void enqueue(ByteBuffer data) throws IOException {
+        try {
+            queue.put(data);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            ByteBuffer data;
+            try {
+                data = queue.take();
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (data == END) {
+                return;
+            }
+            if (failure != null) {
+                // keep consuming so that submitters never block on a dead writer
+                continue;
+            }
+            try {
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+    }
+}
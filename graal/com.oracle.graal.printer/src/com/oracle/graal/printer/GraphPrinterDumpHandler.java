@@ -86,7 +86,7 @@ public class GraphPrinterDumpHandler implements DebugDumpHandler {
     private void initializeFilePrinter() {
         String ext;
         if (PrintBinaryGraphs.getValue()) {
-            ext = ".bgv";
+            ext = PrintBinaryGraphsIndexed.getValue() ? ".bgvz" : ".bgv";
         } else {
             ext = ".gv.xml";
         }
@@ -102,7 +102,11 @@ public class GraphPrinterDumpHandler implements DebugDumpHandler {
         }
         try {
             if (PrintBinaryGraphs.getValue()) {
-                printer = new BinaryGraphPrinter(FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW));
+                WritableByteChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+                if (PrintBinaryGraphsIndexed.getValue()) {
+                    channel = new IndexedGraphChannel(channel);
+                }
+                printer = new BinaryGraphPrinter(channel, PrintBinaryGraphQueueSize.getValue(), PrintBinaryGraphDropWhenFull.getValue());
             } else {
                 printer = new IdealGraphPrinter(new FileOutputStream(file));
             }
@@ -119,7 +123,7 @@ public class GraphPrinterDumpHandler implements DebugDumpHandler {
         int port = PrintBinaryGraphs.getValue() ? PrintBinaryGraphPort.getValue() : PrintIdealGraphPort.getValue();
         try {
             if (PrintBinaryGraphs.getValue()) {
-                printer = new BinaryGraphPrinter(SocketChannel.open(new InetSocketAddress(host, port)));
+                printer = new BinaryGraphPrinter(SocketChannel.open(new InetSocketAddress(host, port)), PrintBinaryGraphQueueSize.getValue(), PrintBinaryGraphDropWhenFull.getValue());
             } else {
                 IdealGraphPrinter xmlPrinter = new IdealGraphPrinter(new Socket(host, port).getOutputStream());
                 printer = xmlPrinter;
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.printer;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * A channel that stores the stream produced by a {@link BinaryGraphPrinter} in compressed blocks
+ * and appends an index of the dumped graphs when closed. The index allows a reader to decode a
+ * single graph without reading the dump from the start.
+ * <p>
+ * The file layout is:
+ * 
+ * <pre>
+ * header: int MAGIC, int VERSION, int BLOCK_SIZE
+ * blocks: { int compressedLength, byte[compressedLength] deflated }
+ * index:  int blockCount, { long fileOffset }, long streamLength,
+ *         int graphCount, { int compilationId, UTF method, UTF title, long streamOffset },
+ *         int poolEntryCount, { int id, long streamOffset }
+ * footer: long indexOffset, int MAGIC
+ * </pre>
+ * 
+ * Every block except the last one inflates to {@code BLOCK_SIZE} bytes of the uncompressed
+ * stream, so the block holding a stream offset is found by division. The stream offset of a pool
+ * entry is the position just after its {@code POOL_NEW} tag. Since pool ids are recycled, a
+ * reference to a pool id from a given position resolves to the last definition of that id before
+ * the position.
+ * <p>
+ * The index is built by the thread encoding the graphs while the blocks may be written by a
+ * {@link GraphDumpQueue} writer thread. The two sides share no state until {@link #close()}, which
+ * must be called by the encoding thread once all blocks are written.
+ */
+public class IndexedGraphChannel implements WritableByteChannel {
+
+    static final int MAGIC = 0x42475649; // "BGVI"
+    static final int VERSION = 1;
+    static final int BLOCK_SIZE = 256 * 1024;
+
+    private final WritableByteChannel channel;
+    private final Deflater deflater;
+    private final byte[] block;
+    private final byte[] compressed;
+    private int blockPosition;
+    private long fileOffset;
+    private long streamLength;
+    private final List<Long> blockOffsets;
+
+    private final ByteArrayOutputStream graphs;
+    private final ByteArrayOutputStream poolEntries;
+    private final ByteArrayOutputStream pendingGraphs;
+    private final ByteArrayOutputStream pendingPoolEntries;
+    private int graphCount;
+    private int poolEntryCount;
+    private int pendingGraphCount;
+    private int pendingPoolEntryCount;
+
+    public IndexedGraphChannel(WritableByteChannel channel) throws IOException {
+        this.channel = channel;
+        this.deflater = new Deflater(Deflater.BEST_SPEED);
+        this.block = new byte[BLOCK_SIZE];
+        this.compressed = new byte[BLOCK_SIZE];
+        this.blockOffsets = new ArrayList<>();
+        this.graphs = new ByteArrayOutputStream();
+        this.poolEntries = new ByteArrayOutputStream();
+        this.pendingGraphs = new ByteArrayOutputStream();
+        this.pendingPoolEntries = new ByteArrayOutputStream();
+        ByteBuffer header = ByteBuffer.allocate(12);
+        header.putInt(MAGIC).putInt(VERSION).putInt(BLOCK_SIZE);
+        header.flip();
+        writeFully(header);
+    }
+
+    /**
+     * Records a graph starting at {@code streamOffset}. The entry becomes part of the index when
+     * {@link #commit()} is called.
+     */
+    void addGraph(int compilationId, String method, String title, long streamOffset) throws IOException {
+        DataOutputStream out = new DataOutputStream(pendingGraphs);
+        out.writeInt(compilationId);
+        out.writeUTF(truncate(method == null ? "" : method));
+        out.writeUTF(truncate(title == null ? "" : title));
+        out.writeLong(streamOffset);
+        pendingGraphCount++;
+    }
+
+    /**
+     * Records the definition of a constant pool entry. The entry becomes part of the index when
+     * {@link #commit()} is called.
+     */
+    void addPoolEntry(int id, long streamOffset) throws IOException {
+        DataOutputStream out = new DataOutputStream(pendingPoolEntries);
+        out.writeInt(id);
+        out.writeLong(streamOffset);
+        pendingPoolEntryCount++;
+    }
+
+    /**
+     * Adds the entries recorded since the last commit or {@linkplain #discard() discard} to the
+     * index.
+     */
+    void commit() throws IOException {
+        pendingGraphs.writeTo(graphs);
+        pendingPoolEntries.writeTo(poolEntries);
+        graphCount += pendingGraphCount;
+        poolEntryCount += pendingPoolEntryCount;
+        discard();
+    }
+
+    /**
+     * Forgets the entries recorded since the last commit, for example because the bytes they
+     * describe were dropped.
+     */
+    void discard() {
+        pendingGraphs.reset();
+        pendingPoolEntries.reset();
+        pendingGraphCount = 0;
+        pendingPoolEntryCount = 0;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        int written = src.remaining();
+        while (src.hasRemaining()) {
+            int length = Math.min(src.remaining(), BLOCK_SIZE - blockPosition);
+            src.get(block, blockPosition, length);
+            blockPosition += length;
+            if (blockPosition == BLOCK_SIZE) {
+                writeBlock();
+            }
+        }
+        streamLength += written;
+        return written;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (blockPosition > 0) {
+                writeBlock();
+            }
+            deflater.end();
+            long indexOffset = fileOffset;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(blockOffsets.size());
+            for (long offset : blockOffsets) {
+                out.writeLong(offset);
+            }
+            out.writeLong(streamLength);
+            out.writeInt(graphCount);
+            graphs.writeTo(out);
+            out.writeInt(poolEntryCount);
+            poolEntries.writeTo(out);
+            out.writeLong(indexOffset);
+            out.writeInt(MAGIC);
+            writeFully(ByteBuffer.wrap(bytes.toByteArray()));
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        deflater.reset();
+        deflater.setInput(block, 0, blockPosition);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(BLOCK_SIZE / 4);
+        while (!deflater.finished()) {
+            int length = deflater.deflate(compressed);
+            out.write(compressed, 0, length);
+        }
+        blockOffsets.add(fileOffset);
+        ByteBuffer length = ByteBuffer.allocate(4);
+        length.putInt(out.size());
+        length.flip();
+        writeFully(length);
+        writeFully(ByteBuffer.wrap(out.toByteArray()));
+        blockPosition = 0;
+    }
+
+    private void writeFully(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            fileOffset += channel.write(data);
+        }
+    }
+
+    /**
+     * Keeps strings within the limit of {@link DataOutput#writeUTF(String)}.
+     */
+    private static String truncate(String s) {
+        return s.length() > 16 * 1024 ? s.substring(0, 16 * 1024) : s;
+    }
+}
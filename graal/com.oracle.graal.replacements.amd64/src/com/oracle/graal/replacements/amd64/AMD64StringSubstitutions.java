@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.replacements.amd64;
+
+import static com.oracle.graal.graph.UnsafeAccess.*;
+import static com.oracle.graal.nodes.extended.UnsafeCastNode.*;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.api.replacements.*;
+import com.oracle.graal.graph.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.extended.*;
+import com.oracle.graal.replacements.nodes.*;
+
+/**
+ * Substitutions for {@link String} methods that compare and search the character arrays of strings
+ * several characters at a time. They access the {@code value} field directly and therefore
+ * require a {@link String} implementation without {@code offset} and {@code count} fields, i.e.,
+ * where the value array of a string contains exactly its characters.
+ */
+@ClassSubstitution(String.class)
+public class AMD64StringSubstitutions {
+
+    private static final long valueOffset;
+
+    static {
+        try {
+            valueOffset = unsafe.objectFieldOffset(String.class.getDeclaredField("value"));
+        } catch (NoSuchFieldException e) {
+            throw new GraalInternalError(e);
+        }
+    }
+
+    /**
+     * Determines if the {@link String} implementation of the running VM has the layout expected by
+     * these substitutions.
+     */
+    public static boolean isSupported() {
+        try {
+            String.class.getDeclaredField("offset");
+            return false;
+        } catch (NoSuchFieldException e) {
+            return true;
+        }
+    }
+
+    private static char[] value(String s) {
+        return unsafeCast(UnsafeLoadNode.load(s, 0, valueOffset, Kind.Object), char[].class, true, true);
+    }
+
+    @MethodSubstitution(isStatic = false)
+    public static boolean equals(String thisString, Object obj) {
+        if (thisString == obj) {
+            return true;
+        }
+        if (!(obj instanceof String)) {
+            return false;
+        }
+        char[] value1 = value(thisString);
+        char[] value2 = value(unsafeCast(obj, String.class, true, true));
+        int length = value1.length;
+        return length == value2.length && ArrayMismatchNode.mismatch(value1, value2, length, Kind.Char) == length;
+    }
+
+    @MethodSubstitution(isStatic = false)
+    public static int compareTo(String thisString, String anotherString) {
+        char[] value1 = value(thisString);
+        char[] value2 = value(GuardingPiNode.guardingNonNull(anotherString));
+        int length1 = value1.length;
+        int length2 = value2.length;
+        int limit = Math.min(length1, length2);
+        int index = ArrayMismatchNode.mismatch(value1, value2, limit, Kind.Char);
+        if (index < limit) {
+            return value1[index] - value2[index];
+        }
+        return length1 - length2;
+    }
+
+    @MethodSubstitution(isStatic = false)
+    public static int indexOf(String thisString, int ch, int fromIndex) {
+        char[] value = value(thisString);
+        int max = value.length;
+        int from = fromIndex < 0 ? 0 : fromIndex;
+        if (from >= max || ch < 0) {
+            return -1;
+        }
+        if (ch < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            return CharArrayIndexOfNode.indexOf(value, (char) ch, from, max);
+        }
+        if (ch <= Character.MAX_CODE_POINT) {
+            char high = Character.highSurrogate(ch);
+            char low = Character.lowSurrogate(ch);
+            for (int i = from; i < max - 1; i++) {
+                if (value[i] == high && value[i + 1] == low) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @MethodSubstitution(isStatic = false)
+    public static int indexOf(String thisString, String str, int fromIndex) {
+        char[] source = value(thisString);
+        char[] target = value(GuardingPiNode.guardingNonNull(str));
+        int sourceCount = source.length;
+        int targetCount = target.length;
+        if (fromIndex >= sourceCount) {
+            return targetCount == 0 ? sourceCount : -1;
+        }
+        int from = fromIndex < 0 ? 0 : fromIndex;
+        if (targetCount == 0) {
+            return from;
+        }
+        char first = target[0];
+        int max = sourceCount - targetCount;
+        for (int i = from; i <= max; i++) {
+            // find the first character with packed compares, then check the rest
+            i = CharArrayIndexOfNode.indexOf(source, first, i, max + 1);
+            if (i < 0) {
+                return -1;
+            }
+            int j = 1;
+            while (j < targetCount && source[i + j] == target[j]) {
+                j++;
+            }
+            if (j == targetCount) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.replacements.nodes;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.gen.*;
+import com.oracle.graal.compiler.target.*;
+import com.oracle.graal.lir.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.spi.*;
+import com.oracle.graal.nodes.type.*;
+
+/**
+ * Finds the first index at which two non-null arrays of the same primitive kind differ within the
+ * first {@code length} elements. The result is {@code length} if there is no such index. Both
+ * arrays must have at least {@code length} elements.
+ */
+public class ArrayMismatchNode extends FixedWithNextNode implements LIRGenLowerable, Canonicalizable {
+
+    @Input private ValueNode array1;
+    @Input private ValueNode array2;
+    @Input private ValueNode length;
+    private final Kind kind;
+
+    public ArrayMismatchNode(ValueNode array1, ValueNode array2, ValueNode length, Kind kind) {
+        super(StampFactory.positiveInt());
+        assert kind.isPrimitive() && kind != Kind.Void;
+        this.array1 = array1;
+        this.array2 = array2;
+        this.length = length;
+        this.kind = kind;
+    }
+
+    @Override
+    public ValueNode canonical(CanonicalizerTool tool) {
+        if (array1 == array2) {
+            return length;
+        }
+        return this;
+    }
+
+    @NodeIntrinsic
+    public static native int mismatch(Object array1, Object array2, int length, @ConstantNodeParameter Kind kind);
+
+    @Override
+    public void generate(LIRGenerator gen) {
+        Variable result = gen.newVariable(Kind.Int);
+        gen.emitArrayMismatch(result, kind, gen.operand(array1), gen.operand(array2), gen.operand(length));
+        gen.setResult(this, result);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.replacements.nodes;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.gen.*;
+import com.oracle.graal.compiler.target.*;
+import com.oracle.graal.lir.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.type.*;
+
+/**
+ * Finds the first index in the range {@code [fromIndex, toIndex)} of a non-null char array at which
+ * the array contains the char {@code ch}. The result is -1 if there is no such index. The range
+ * must be within the bounds of the array.
+ */
+public class CharArrayIndexOfNode extends FixedWithNextNode implements LIRGenLowerable {
+
+    @Input private ValueNode array;
+    @Input private ValueNode ch;
+    @Input private ValueNode fromIndex;
+    @Input private ValueNode toIndex;
+
+    public CharArrayIndexOfNode(ValueNode array, ValueNode ch, ValueNode fromIndex, ValueNode toIndex) {
+        super(StampFactory.forInteger(Kind.Int, -1, Integer.MAX_VALUE));
+        this.array = array;
+        this.ch = ch;
+        this.fromIndex = fromIndex;
+        this.toIndex = toIndex;
+    }
+
+    @NodeIntrinsic
+    public static native int indexOf(char[] array, char ch, int fromIndex, int toIndex);
+
+    @Override
+    public void generate(LIRGenerator gen) {
+        Variable result = gen.newVariable(Kind.Int);
+        gen.emitCharArrayIndexOf(result, gen.operand(array), gen.operand(ch), gen.operand(fromIndex), gen.operand(toIndex));
+        gen.setResult(this, result);
+    }
+}
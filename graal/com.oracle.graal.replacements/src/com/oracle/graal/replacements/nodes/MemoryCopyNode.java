@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.replacements.nodes;
+
+import static com.oracle.graal.api.meta.LocationIdentity.*;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.gen.*;
+import com.oracle.graal.compiler.target.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.extended.*;
+import com.oracle.graal.nodes.type.*;
+import com.oracle.graal.word.*;
+
+/**
+ * Copies {@code length} bytes from the address {@code src} to the address {@code dest}. Unless the
+ * copy is conjoint, the source and destination must not overlap. An aligned copy requires
+ * {@code length} to be a multiple of 8.
+ */
+public class MemoryCopyNode extends FixedWithNextNode implements LIRGenLowerable, MemoryCheckpoint.Single {
+
+    @Input private ValueNode src;
+    @Input private ValueNode dest;
+    @Input private ValueNode length;
+    private final boolean conjoint;
+    private final boolean aligned;
+
+    public MemoryCopyNode(ValueNode src, ValueNode dest, ValueNode length, boolean conjoint, boolean aligned) {
+        super(StampFactory.forVoid());
+        this.src = src;
+        this.dest = dest;
+        this.length = length;
+        this.conjoint = conjoint;
+        this.aligned = aligned;
+    }
+
+    @Override
+    public LocationIdentity getLocationIdentity() {
+        return ANY_LOCATION;
+    }
+
+    @NodeIntrinsic
+    public static native void copy(Word src, Word dest, Word length, @ConstantNodeParameter boolean conjoint, @ConstantNodeParameter boolean aligned);
+
+    @Override
+    public void generate(LIRGenerator gen) {
+        gen.emitMemoryCopy(gen.operand(src), gen.operand(dest), gen.operand(length), conjoint, aligned);
+    }
+}
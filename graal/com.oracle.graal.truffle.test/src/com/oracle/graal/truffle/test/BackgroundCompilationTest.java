@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.test;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.junit.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.truffle.*;
+
+public class BackgroundCompilationTest {
+
+    private static class TestCode implements InstalledCode {
+
+        private volatile boolean valid = true;
+
+        public ResolvedJavaMethod getMethod() {
+            return null;
+        }
+
+        public long getStart() {
+            return 0;
+        }
+
+        public byte[] getCode() {
+            return null;
+        }
+
+        public boolean isValid() {
+            return valid;
+        }
+
+        public void invalidate() {
+            valid = false;
+        }
+
+        public Object execute(Object arg1, Object arg2, Object arg3) {
+            throw new UnsupportedOperationException();
+        }
+
+        public Object executeVarargs(Object... args) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static BackgroundCompilation compilationOf(final InstalledCode code) {
+        return new BackgroundCompilation(new Callable<InstalledCode>() {
+
+            public InstalledCode call() {
+                return code;
+            }
+        });
+    }
+
+    @Test
+    public void testCompleted() throws Exception {
+        TestCode code = new TestCode();
+        BackgroundCompilation compilation = compilationOf(code);
+        compilation.run();
+        assertSame(code, compilation.get());
+        assertTrue(code.isValid());
+    }
+
+    @Test
+    public void testCancelledBeforeStart() {
+        final AtomicBoolean compiled = new AtomicBoolean();
+        BackgroundCompilation compilation = new BackgroundCompilation(new Callable<InstalledCode>() {
+
+            public InstalledCode call() {
+                compiled.set(true);
+                return new TestCode();
+            }
+        });
+        compilation.cancel(true);
+        compilation.run();
+        assertTrue(compilation.isCancelled());
+        assertFalse(compiled.get());
+    }
+
+    @Test
+    public void testCancelledAfterCompletion() throws Exception {
+        TestCode code = new TestCode();
+        BackgroundCompilation compilation = compilationOf(code);
+        compilation.run();
+        assertSame(code, compilation.get());
+        compilation.cancel(true);
+        assertFalse(code.isValid());
+    }
+
+    /**
+     * Cancels a compilation on a background thread after it has installed its code but before the
+     * compilation returns, while the compiler thread ignores the interrupt.
+     */
+    @Test
+    public void testCancelledWhileCompiling() throws Exception {
+        final TestCode code = new TestCode();
+        final CountDownLatch installed = new CountDownLatch(1);
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        BackgroundCompilation compilation = new BackgroundCompilation(new Callable<InstalledCode>() {
+
+            public InstalledCode call() {
+                installed.countDown();
+                while (true) {
+                    try {
+                        cancelled.await();
+                        return code;
+                    } catch (InterruptedException e) {
+                        // keep compiling
+                    }
+                }
+            }
+        });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.execute(compilation);
+            installed.await();
+            compilation.cancel(true);
+            cancelled.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+            assertTrue(compilation.isCancelled());
+            assertFalse(code.isValid());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Races cancellation against completion and checks that code produced by a cancelled
+     * compilation never stays valid.
+     */
+    @Test
+    public void testCancellationRace() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            for (int i = 0; i < 1000; i++) {
+                final TestCode code = new TestCode();
+                final AtomicBoolean compiled = new AtomicBoolean();
+                BackgroundCompilation compilation = new BackgroundCompilation(new Callable<InstalledCode>() {
+
+                    public InstalledCode call() {
+                        compiled.set(true);
+                        return code;
+                    }
+                });
+                executor.execute(compilation);
+                compilation.cancel(true);
+                try {
+                    compilation.get();
+                } catch (CancellationException e) {
+                    // expected if the cancellation came first
+                }
+                while (!compilation.isDone()) {
+                    Thread.yield();
+                }
+                // wait for the compiler thread to leave the compilation
+                executor.submit(new Runnable() {
+
+                    public void run() {
+                    }
+                }).get();
+                assertFalse(compiled.get() && code.isValid());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle;
+
+import java.util.concurrent.*;
+
+import com.oracle.graal.api.code.*;
+
+/**
+ * A compilation running on a background compiler thread. Code produced by a compilation that was
+ * {@linkplain #cancel(boolean) cancelled} is invalidated, no matter whether the cancellation
+ * happens before, while or after the code is installed: the compiler thread and the cancelling
+ * thread agree on the order of these events under the lock of this object.
+ */
+public final class BackgroundCompilation extends FutureTask<InstalledCode> {
+
+    private InstalledCode installedCode;
+    private boolean cancelled;
+
+    public BackgroundCompilation(Callable<InstalledCode> compilation) {
+        super(compilation);
+    }
+
+    @Override
+    protected void set(InstalledCode code) {
+        synchronized (this) {
+            if (cancelled) {
+                if (code != null) {
+                    code.invalidate();
+                }
+            } else {
+                installedCode = code;
+            }
+        }
+        super.set(code);
+    }
+
+    /**
+     * Cancels this compilation and invalidates the code it has installed, if any.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        synchronized (this) {
+            cancelled = true;
+            if (installedCode != null) {
+                installedCode.invalidate();
+                installedCode = null;
+            }
+        }
+        return super.cancel(mayInterruptIfRunning);
+    }
+}
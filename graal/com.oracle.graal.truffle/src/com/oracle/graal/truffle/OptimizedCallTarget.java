@@ -26,6 +26,7 @@ import static com.oracle.graal.truffle.TruffleCompilerOptions.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import com.oracle.graal.api.code.*;
 import com.oracle.graal.debug.*;
@@ -57,6 +58,7 @@ public final class OptimizedCallTarget extends DefaultCallTarget implements Fram
     }
 
     private HotSpotNmethod compiledMethod;
+    private Future<InstalledCode> installedCodeTask;
     private final TruffleCompiler compiler;
 
     private int invokeCounter;
@@ -108,6 +110,13 @@ public final class OptimizedCallTarget extends DefaultCallTarget implements Fram
 
     private Object interpreterCall(PackedFrame caller, Arguments args) {
         CompilerAsserts.neverPartOfCompilation();
+        if (installedCodeTask != null) {
+            if (!installedCodeTask.isDone()) {
+                return executeHelper(caller, args);
+            }
+            receiveInstalledCode();
+            return call(caller, args);
+        }
         invokeCounter--;
         loopAndInvokeCounter--;
         if (disableCompilation || loopAndInvokeCounter > 0 || invokeCounter > 0) {
@@ -136,34 +145,63 @@ public final class OptimizedCallTarget extends DefaultCallTarget implements Fram
 
     public void compile() {
         CompilerAsserts.neverPartOfCompilation();
-        try {
-            compiledMethod = (HotSpotNmethod) compiler.compile(this);
-            if (compiledMethod == null) {
-                throw new BailoutException(String.format("code installation failed (codeSize=%s)", codeSize));
-            } else {
-                if (TraceTruffleCompilation.getValue()) {
-                    int nodeCountTruffle = NodeUtil.countNodes(rootNode);
-                    OUT.printf("[truffle] optimized %-50s |Nodes %7d |Time %5.0f(%4.0f+%-4.0f)ms |Nodes %5d/%5d |CodeSize %d\n", rootNode, nodeCountTruffle,
-                                    (timeCompilationFinished - timeCompilationStarted) / 1e6, (timePartialEvaluationFinished - timeCompilationStarted) / 1e6,
-                                    (timeCompilationFinished - timePartialEvaluationFinished) / 1e6, nodeCountPartialEval, nodeCountLowered, codeSize);
-                }
-                if (TruffleCallTargetProfiling.getValue()) {
-                    resetProfiling();
-                }
+        if (TruffleBackgroundCompilation.getValue()) {
+            installedCodeTask = compiler.submitForCompilation(this);
+            if (installedCodeTask == null) {
+                // compilation queue is full, keep interpreting for a while before trying again
+                invokeCounter = MIN_INVOKES_AFTER_INLINING;
+                loopAndInvokeCounter = TruffleReplaceReprofileCount.getValue();
             }
+            return;
+        }
+        try {
+            installCompiledMethod((HotSpotNmethod) compiler.compile(this));
+        } catch (Throwable e) {
+            compilationFailed(e);
+        }
+    }
+
+    private void receiveInstalledCode() {
+        Future<InstalledCode> task = installedCodeTask;
+        installedCodeTask = null;
+        try {
+            installCompiledMethod((HotSpotNmethod) task.get());
+        } catch (ExecutionException e) {
+            compilationFailed(e.getCause());
         } catch (Throwable e) {
-            disableCompilation = true;
+            compilationFailed(e);
+        }
+    }
+
+    private void installCompiledMethod(HotSpotNmethod installedCode) {
+        compiledMethod = installedCode;
+        if (compiledMethod == null) {
+            throw new BailoutException(String.format("code installation failed (codeSize=%s)", codeSize));
+        } else {
             if (TraceTruffleCompilation.getValue()) {
-                if (e instanceof BailoutException) {
-                    OUT.printf("[truffle] opt bailout %-48s  %s\n", rootNode, e.getMessage());
-                } else {
-                    OUT.printf("[truffle] opt failed %-49s  %s\n", rootNode, e.toString());
-                    if (TraceTruffleCompilationExceptions.getValue()) {
-                        e.printStackTrace(OUT);
-                    }
-                    if (TruffleCompilationExceptionsAreFatal.getValue()) {
-                        System.exit(-1);
-                    }
+                int nodeCountTruffle = NodeUtil.countNodes(rootNode);
+                OUT.printf("[truffle] optimized %-50s |Nodes %7d |Time %5.0f(%4.0f+%-4.0f)ms |Nodes %5d/%5d |CodeSize %d\n", rootNode, nodeCountTruffle,
+                                (timeCompilationFinished - timeCompilationStarted) / 1e6, (timePartialEvaluationFinished - timeCompilationStarted) / 1e6,
+                                (timeCompilationFinished - timePartialEvaluationFinished) / 1e6, nodeCountPartialEval, nodeCountLowered, codeSize);
+            }
+            if (TruffleCallTargetProfiling.getValue()) {
+                resetProfiling();
+            }
+        }
+    }
+
+    private void compilationFailed(Throwable e) {
+        disableCompilation = true;
+        if (TraceTruffleCompilation.getValue()) {
+            if (e instanceof BailoutException) {
+                OUT.printf("[truffle] opt bailout %-48s  %s\n", rootNode, e.getMessage());
+            } else {
+                OUT.printf("[truffle] opt failed %-49s  %s\n", rootNode, e.toString());
+                if (TraceTruffleCompilationExceptions.getValue()) {
+                    e.printStackTrace(OUT);
+                }
+                if (TruffleCompilationExceptionsAreFatal.getValue()) {
+                    System.exit(-1);
                 }
             }
         }
@@ -192,6 +230,15 @@ public final class OptimizedCallTarget extends DefaultCallTarget implements Fram
     public void nodeReplaced() {
         replaceCount++;
 
+        if (installedCodeTask != null) {
+            // the code being compiled in the background no longer matches the tree
+            installedCodeTask.cancel(true);
+            installedCodeTask = null;
+            if (TraceTruffleCompilation.getValue()) {
+                OUT.printf("[truffle] opt cancelled %-46s |Replace# %d\n", rootNode, replaceCount);
+            }
+        }
+
         // delay compilation until tree is deemed stable enough
         int replaceBackoff = TruffleReplaceReprofileCount.getValue();
         if (loopAndInvokeCounter < replaceBackoff) {
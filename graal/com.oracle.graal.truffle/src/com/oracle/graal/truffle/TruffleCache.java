@@ -50,15 +50,33 @@ import com.oracle.truffle.api.nodes.*;
 
 /**
  * Implementation of a cache for Truffle graphs for improving partial evaluation time.
+ * <p>
+ * The cache may be used by multiple compiler threads. Its size is bounded by
+ * {@link TruffleCompilerOptions#TruffleCacheMaxNodes} graph nodes; when the budget is exceeded the
+ * least recently used graphs are evicted. Cached graphs are never modified after they have been
+ * added, so graphs are built and copied outside the lock.
  */
 public final class TruffleCache {
 
+    private static final DebugMetric METRIC_CACHE_HITS = Debug.metric("TruffleCacheHits");
+    private static final DebugMetric METRIC_CACHE_MISSES = Debug.metric("TruffleCacheMisses");
+    private static final DebugMetric METRIC_CACHE_EVICTIONS = Debug.metric("TruffleCacheEvictions");
+    private static final DebugMetric METRIC_STAMP_GENERALIZATIONS = Debug.metric("TruffleCacheStampGeneralizations");
+
     private final MetaAccessProvider metaAccessProvider;
     private final GraphBuilderConfiguration config;
     private final OptimisticOptimizations optimisticOptimizations;
     private final Replacements replacements;
 
-    private final HashMap<ResolvedJavaMethod, StructuredGraph> cache = new HashMap<>();
+    /**
+     * The cached graphs in access order. All accesses must be synchronized on this map.
+     */
+    private final LinkedHashMap<ResolvedJavaMethod, StructuredGraph> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The total number of nodes of the graphs in {@link #cache}.
+     */
+    private int cachedNodeCount;
 
     public TruffleCache(MetaAccessProvider metaAccessProvider, GraphBuilderConfiguration config, OptimisticOptimizations optimisticOptimizations, Replacements replacements) {
         this.metaAccessProvider = metaAccessProvider;
@@ -70,11 +88,16 @@ public final class TruffleCache {
     public StructuredGraph lookup(final ResolvedJavaMethod method, final NodeInputList<ValueNode> arguments, final Assumptions assumptions) {
 
         StructuredGraph resultGraph = null;
-        if (cache.containsKey(method)) {
-            StructuredGraph graph = cache.get(method);
-            if (checkArgumentStamps(graph, arguments)) {
-                resultGraph = graph;
+        final StructuredGraph cachedGraph = get(method);
+        if (cachedGraph != null) {
+            if (checkArgumentStamps(cachedGraph, arguments)) {
+                resultGraph = cachedGraph;
+                METRIC_CACHE_HITS.increment();
+            } else {
+                METRIC_STAMP_GENERALIZATIONS.increment();
             }
+        } else {
+            METRIC_CACHE_MISSES.increment();
         }
 
         if (resultGraph == null) {
@@ -89,10 +112,9 @@ public final class TruffleCache {
                         stamps.add(arg.stamp());
                     }
 
-                    if (cache.containsKey(method)) {
+                    if (cachedGraph != null) {
                         // Make sure stamps are generalized based on previous stamps.
-                        StructuredGraph graph = cache.get(method);
-                        for (LocalNode localNode : graph.getNodes(LocalNode.class)) {
+                        for (LocalNode localNode : cachedGraph.getNodes(LocalNode.class)) {
                             int index = localNode.index();
                             Stamp stamp = stamps.get(index);
                             stamps.set(index, stamp.meet(localNode.stamp()));
@@ -114,7 +136,7 @@ public final class TruffleCache {
                     PartialEscapePhase partialEscapePhase = new PartialEscapePhase(false, new CanonicalizerPhase(true));
                     partialEscapePhase.apply(newGraph, context);
 
-                    cache.put(method, newGraph);
+                    put(method, newGraph);
                     if (TruffleCompilerOptions.TraceTruffleCacheDetails.getValue()) {
                         TTY.println(String.format("[truffle] added to graph cache method %s with %d nodes.", method, newGraph.getNodeCount()));
                     }
@@ -147,6 +169,38 @@ public final class TruffleCache {
         return clonedResultGraph;
     }
 
+    private StructuredGraph get(ResolvedJavaMethod method) {
+        synchronized (cache) {
+            return cache.get(method);
+        }
+    }
+
+    private void put(ResolvedJavaMethod method, StructuredGraph graph) {
+        int maxNodes = TruffleCompilerOptions.TruffleCacheMaxNodes.getValue();
+        synchronized (cache) {
+            StructuredGraph previous = cache.put(method, graph);
+            if (previous != null) {
+                cachedNodeCount -= previous.getNodeCount();
+            }
+            cachedNodeCount += graph.getNodeCount();
+
+            Iterator<Map.Entry<ResolvedJavaMethod, StructuredGraph>> iterator = cache.entrySet().iterator();
+            while (cachedNodeCount > maxNodes && iterator.hasNext()) {
+                Map.Entry<ResolvedJavaMethod, StructuredGraph> eldest = iterator.next();
+                if (eldest.getValue() == graph) {
+                    // Always keep the graph that was just added.
+                    continue;
+                }
+                iterator.remove();
+                cachedNodeCount -= eldest.getValue().getNodeCount();
+                METRIC_CACHE_EVICTIONS.increment();
+                if (TruffleCompilerOptions.TraceTruffleCacheDetails.getValue()) {
+                    TTY.println(String.format("[truffle] evicted from graph cache method %s with %d nodes.", eldest.getKey(), eldest.getValue().getNodeCount()));
+                }
+            }
+        }
+    }
+
     private void optimizeGraph(StructuredGraph newGraph, Assumptions assumptions) {
         PhaseContext context = new PhaseContext(metaAccessProvider, assumptions, replacements);
         ConditionalEliminationPhase conditionalEliminationPhase = new ConditionalEliminationPhase(metaAccessProvider);
@@ -22,6 +22,8 @@
  */
 package com.oracle.graal.truffle;
 
+import java.util.concurrent.*;
+
 import com.oracle.graal.api.code.*;
 
 /**
@@ -31,4 +33,13 @@ import com.oracle.graal.api.code.*;
 public interface TruffleCompiler {
 
     InstalledCode compile(OptimizedCallTarget node);
+
+    /**
+     * Schedules the compilation of the given {@link OptimizedCallTarget} on the background compiler
+     * thread. Compilations are performed one at a time in the order they were scheduled. Cancelling the returned future invalidates the code produced by the compilation, also
+     * if the compilation has already completed.
+     * 
+     * @return the pending compilation or {@code null} if the compilation queue is full
+     */
+    Future<InstalledCode> submitForCompilation(OptimizedCallTarget node);
 }
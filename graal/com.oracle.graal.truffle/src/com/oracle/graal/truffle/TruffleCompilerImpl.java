@@ -24,6 +24,7 @@ package com.oracle.graal.truffle;
 
 import static com.oracle.graal.api.code.CodeUtil.*;
 import static com.oracle.graal.compiler.GraalDebugConfig.*;
+import static com.oracle.graal.truffle.TruffleCompilerOptions.*;
 
 import java.util.*;
 import java.util.concurrent.*;
@@ -62,6 +63,7 @@ public class TruffleCompilerImpl implements TruffleCompiler {
     private final ResolvedJavaType[] skippedExceptionTypes;
     private final HotSpotGraalRuntime graalRuntime;
     private final TruffleCache truffleCache;
+    private final ThreadPoolExecutor compileQueue;
 
     private static final Class[] SKIPPED_EXCEPTION_CLASSES = new Class[]{SlowPathException.class, UnexpectedResultException.class, ArithmeticException.class};
 
@@ -83,6 +85,13 @@ public class TruffleCompilerImpl implements TruffleCompiler {
 
         this.partialEvaluator = new PartialEvaluator(metaAccessProvider, replacements, truffleCache);
 
+        if (TruffleBackgroundCompilation.getValue()) {
+            // a single compiler thread, because the partial evaluator is not thread-safe
+            this.compileQueue = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(TruffleCompilationQueueSize.getValue()), CompilerThread.FACTORY);
+        } else {
+            this.compileQueue = null;
+        }
+
         if (DebugEnabled.getValue()) {
             DebugEnvironment.initialize(System.out);
         }
@@ -107,6 +116,23 @@ public class TruffleCompilerImpl implements TruffleCompiler {
         });
     }
 
+    public Future<InstalledCode> submitForCompilation(final OptimizedCallTarget compilable) {
+        assert compileQueue != null : "background compilation is disabled";
+        BackgroundCompilation compilation = new BackgroundCompilation(new Callable<InstalledCode>() {
+
+            @Override
+            public InstalledCode call() throws Exception {
+                return compile(compilable);
+            }
+        });
+        try {
+            compileQueue.execute(compilation);
+            return compilation;
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
     private InstalledCode compileMethodImpl(final OptimizedCallTarget compilable) {
         final StructuredGraph graph;
         final GraphBuilderConfiguration config = GraphBuilderConfiguration.getDefault();
@@ -49,6 +49,10 @@ public class TruffleCompilerOptions {
     public static final OptionValue<Integer> TruffleInvalidationReprofileCount = new OptionValue<>(3);
     @Option(help = "")
     public static final OptionValue<Integer> TruffleReplaceReprofileCount = new OptionValue<>(10);
+    @Option(help = "Compile call targets on a single background compiler thread while they keep running in the interpreter")
+    public static final OptionValue<Boolean> TruffleBackgroundCompilation = new OptionValue<>(false);
+    @Option(help = "Maximum number of call targets waiting for background compilation")
+    public static final OptionValue<Integer> TruffleCompilationQueueSize = new OptionValue<>(64);
     @Option(help = "")
     public static final OptionValue<Integer> TruffleInliningReprofileCount = new OptionValue<>(100);
     @Option(help = "")
@@ -57,6 +61,8 @@ public class TruffleCompilerOptions {
     public static final OptionValue<Integer> TruffleConstantUnrollLimit = new OptionValue<>(32);
     @Option(help = "")
     public static final OptionValue<Integer> TruffleOperationCacheMaxNodes = new OptionValue<>(350);
+    @Option(help = "Maximum total number of nodes of the graphs kept in the Truffle graph cache")
+    public static final OptionValue<Integer> TruffleCacheMaxNodes = new OptionValue<>(200000);
     @Option(help = "")
     public static final OptionValue<Integer> TruffleGraphMaxNodes = new OptionValue<>(20000);
     @Option(help = "")
@@ -1147,6 +1147,44 @@ def bench(args):
         with open(resultFile, 'w') as f:
             f.write(json.dumps(results))
 
+def microbench(args):
+    """run JMH microbenchmarks of individual compiler phases
+
+    Options with a '@' prefix are passed to the VM, all other arguments
+    are passed to JMH (e.g. a benchmark name regexp or '-prof gc' for
+    allocation profiling). Unless overridden, the results are written
+    in JSON format to microbench.json."""
+    vmArgs = [a[1:] for a in args if a[0] == '@']
+    jmhArgs = [a for a in args if a[0] != '@']
+    if '-rf' not in jmhArgs:
+        jmhArgs += ['-rf', 'json']
+    if '-rff' not in jmhArgs:
+        jmhArgs += ['-rff', 'microbench.json']
+
+    p = mx.project('com.oracle.graal.microbenchmarks')
+    jmhcp = os.pathsep.join([mx.library(l).get_path(resolve=True) for l in ['JMH', 'JOPTSIMPLE', 'COMMONS_MATH3']])
+    cp = mx.classpath(p.name)
+    gencp = os.pathsep.join([cp] + [mx.library(l).get_path(resolve=True) for l in ['JMH_GENERATOR_BYTECODE', 'JMH_GENERATOR_REFLECTION']])
+
+    # The JMH harness classes and the benchmark list are generated from the
+    # compiled benchmarks rather than by an annotation processor so that
+    # 'mx build' does not need to know about JMH.
+    genDir = p.source_gen_dir()
+    if exists(genDir):
+        shutil.rmtree(genDir)
+    os.makedirs(genDir)
+    mx.run_java(['-cp', gencp, 'org.openjdk.jmh.generators.bytecode.JmhBytecodeGenerator', p.output_dir(), genDir, p.output_dir(), 'reflection'])
+    genSources = []
+    for root, _, files in os.walk(genDir):
+        genSources += [join(root, f) for f in files if f.endswith('.java')]
+    if len(genSources) == 0:
+        mx.abort('no JMH benchmarks found in ' + p.output_dir())
+    mx.run([mx.java().javac, '-nowarn', '-source', str(p.javaCompliance), '-target', str(p.javaCompliance), '-cp', os.pathsep.join([cp, jmhcp]), '-d', p.output_dir()] + genSources)
+
+    if isGraalEnabled(_vm):
+        vmArgs = ['-XX:-BootstrapGraal'] + vmArgs
+    vm(vmArgs + ['-cp', os.pathsep.join([cp, jmhcp]), 'org.openjdk.jmh.Main'] + jmhArgs)
+
 def specjvm2008(args):
     """run one or all SPECjvm2008 benchmarks
 
@@ -1315,6 +1353,7 @@ def mx_init():
         'gate' : [gate, '[-options]'],
         'gv' : [gv, ''],
         'bench' : [bench, '[-resultfile file] [all(default)|dacapo|specjvm2008|bootstrap]'],
+        'microbench' : [microbench, '[JMH options|@VM options]'],
         'unittest' : [unittest, '[filters...|@VM options]', _unittestHelpSuffix],
         'longunittest' : [longunittest, '[filters...|@VM options]', _unittestHelpSuffix],
         'shortunittest' : [shortunittest, '[filters...|@VM options]', _unittestHelpSuffix],
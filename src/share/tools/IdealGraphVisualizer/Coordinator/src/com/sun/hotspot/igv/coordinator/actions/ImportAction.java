@@ -28,6 +28,7 @@ import com.sun.hotspot.igv.coordinator.OutlineTopComponent;
 import com.sun.hotspot.igv.data.GraphDocument;
 import com.sun.hotspot.igv.data.serialization.BinaryParser;
 import com.sun.hotspot.igv.data.serialization.GraphParser;
+import com.sun.hotspot.igv.data.serialization.IndexedGraphFile;
 import com.sun.hotspot.igv.data.serialization.ParseMonitor;
 import com.sun.hotspot.igv.data.serialization.Parser;
 import com.sun.hotspot.igv.settings.Settings;
@@ -37,6 +38,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.StandardOpenOption;
 import javax.swing.Action;
 import javax.swing.JFileChooser;
@@ -63,12 +65,12 @@ public final class ImportAction extends CallableSystemAction {
 
             @Override
             public boolean accept(File f) {
-                return f.getName().toLowerCase().endsWith(".xml") || f.getName().toLowerCase().endsWith(".bgv") || f.isDirectory();
+                return f.getName().toLowerCase().endsWith(".xml") || f.getName().toLowerCase().endsWith(".bgv") || f.getName().toLowerCase().endsWith(".bgvz") || f.isDirectory();
             }
 
             @Override
             public String getDescription() {
-                return "Graph files (*.xml, *.bgv)";
+                return "Graph files (*.xml, *.bgv, *.bgvz)";
             }
         };
     }
@@ -91,14 +93,23 @@ public final class ImportAction extends CallableSystemAction {
             Settings.get().put(Settings.DIRECTORY, dir.getAbsolutePath());
             try {
                 final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                final IndexedGraphFile indexedFile;
+                final SeekableByteChannel input;
+                if (file.getName().endsWith(".bgvz")) {
+                    indexedFile = new IndexedGraphFile(channel);
+                    input = indexedFile.openStream();
+                } else {
+                    indexedFile = null;
+                    input = channel;
+                }
                 final ProgressHandle handle = ProgressHandleFactory.createHandle("Opening file " + file.getName());
                 handle.start(WORKUNITS);
-                final long start = channel.size();
+                final long start = input.size();
                 ParseMonitor monitor = new ParseMonitor() {
                     @Override
                     public void updateProgress() {
                         try {
-                            int prog = (int) (WORKUNITS * (double) channel.position() / (double) start);
+                            int prog = (int) (WORKUNITS * (double) input.position() / (double) start);
                             handle.progress(prog);
                         } catch (IOException ex) {
                         }
@@ -115,6 +126,17 @@ public final class ImportAction extends CallableSystemAction {
                     parser = new Parser(channel, monitor, null);
                 } else if (file.getName().endsWith(".bgv")) {
                     parser = new BinaryParser(channel, monitor, component.getDocument(), null);
+                } else if (indexedFile != null && indexedFile.hasIndex()) {
+                    // graphs are decoded when they are opened
+                    parser = new GraphParser() {
+                        @Override
+                        public GraphDocument parse() {
+                            return indexedFile.createDocument();
+                        }
+                    };
+                } else if (indexedFile != null) {
+                    // the index is missing, e.g. because the VM was killed while dumping
+                    parser = new BinaryParser(input, monitor, component.getDocument(), null);
                 } else {
                     parser = null;
                 }
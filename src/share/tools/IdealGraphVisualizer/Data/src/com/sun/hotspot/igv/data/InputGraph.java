@@ -23,7 +23,10 @@
  */
 package com.sun.hotspot.igv.data;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  *
@@ -38,6 +41,15 @@ public class InputGraph extends Properties.Entity implements FolderElement {
     private Map<String, InputBlock> blocks;
     private Set<InputBlockEdge> blockEdges;
     private Map<Integer, InputBlock> nodeToBlock;
+    private Loader loader;
+
+    /**
+     * Reads the nodes, edges and blocks of a graph that was created before they were parsed.
+     */
+    public interface Loader {
+
+        void load(InputGraph graph) throws IOException;
+    }
 
     public InputGraph(String name) {
         setName(name);
@@ -47,6 +59,37 @@ public class InputGraph extends Properties.Entity implements FolderElement {
         blockEdges = new LinkedHashSet<>();
         nodeToBlock = new LinkedHashMap<>();
     }
+
+    /**
+     * Creates a graph whose nodes, edges and blocks are read by {@code loader} when they are first
+     * accessed.
+     */
+    public InputGraph(String name, Loader loader) {
+        this(name);
+        this.loader = loader;
+    }
+
+    public synchronized boolean isLoaded() {
+        return loader == null;
+    }
+
+    private synchronized void ensureLoaded() {
+        if (loader != null) {
+            Loader l = loader;
+            loader = null;
+            try {
+                l.load(this);
+            } catch (IOException ex) {
+                nodes.clear();
+                edges.clear();
+                blocks.clear();
+                blockEdges.clear();
+                nodeToBlock.clear();
+                getProperties().setProperty("loadError", ex.toString());
+                Logger.getLogger(InputGraph.class.getName()).log(Level.WARNING, "Could not load graph " + getName(), ex);
+            }
+        }
+    }
     
     @Override
     public void setParent(Folder parent) {
@@ -58,6 +101,7 @@ public class InputGraph extends Properties.Entity implements FolderElement {
     }
 
     public InputBlockEdge addBlockEdge(InputBlock left, InputBlock right) {
+        ensureLoaded();
         InputBlockEdge edge = new InputBlockEdge(left, right);
         blockEdges.add(edge);
         left.addSuccessor(right);
@@ -81,6 +125,7 @@ public class InputGraph extends Properties.Entity implements FolderElement {
     }
     
     public Map<InputNode, List<InputEdge>> findAllOutgoingEdges() {
+        ensureLoaded();
         
         Map<InputNode, List<InputEdge>> result = new HashMap<>(getNodes().size());
         for(InputNode n : this.getNodes()) {
@@ -104,6 +149,7 @@ public class InputGraph extends Properties.Entity implements FolderElement {
     }
     
     public Map<InputNode, List<InputEdge>> findAllIngoingEdges() {
+        ensureLoaded();
         
         Map<InputNode, List<InputEdge>> result = new HashMap<>(getNodes().size());
         for(InputNode n : this.getNodes()) {
@@ -127,6 +173,7 @@ public class InputGraph extends Properties.Entity implements FolderElement {
     }
     
     public List<InputEdge> findOutgoingEdges(InputNode n) {
+        ensureLoaded();
         List<InputEdge> result = new ArrayList<>();
         
         for(InputEdge e : this.edges) {
@@ -141,6 +188,7 @@ public class InputGraph extends Properties.Entity implements FolderElement {
     }
 
     public void clearBlocks() {
+        ensureLoaded();
         blocks.clear();
         nodeToBlock.clear();
     }
@@ -156,6 +204,7 @@ public class InputGraph extends Properties.Entity implements FolderElement {
     }
 
     public void ensureNodesInBlocks() {
+        ensureLoaded();
         InputBlock noBlock = null;
         Set<InputNode> scheduledNodes = new HashSet<>();
 
@@ -179,14 +228,17 @@ public class InputGraph extends Properties.Entity implements FolderElement {
     }
 
     public void setBlock(InputNode node, InputBlock block) {
+        ensureLoaded();
         nodeToBlock.put(node.getId(), block);
     }
 
     public InputBlock getBlock(int nodeId) {
+        ensureLoaded();
         return nodeToBlock.get(nodeId);
     }
 
     public InputBlock getBlock(InputNode node) {
+        ensureLoaded();
         assert nodes.containsKey(node.getId());
         assert nodes.get(node.getId()).equals(node);
         return getBlock(node.getId());
@@ -210,39 +262,48 @@ public class InputGraph extends Properties.Entity implements FolderElement {
     }
 
     public Collection<InputNode> getNodes() {
+        ensureLoaded();
         return Collections.unmodifiableCollection(nodes.values());
     }
 
     public Set<Integer> getNodesAsSet() {
+        ensureLoaded();
         return Collections.unmodifiableSet(nodes.keySet());
     }
 
     public Collection<InputBlock> getBlocks() {
+        ensureLoaded();
         return Collections.unmodifiableCollection(blocks.values());
     }
 
     public void addNode(InputNode node) {
+        ensureLoaded();
         nodes.put(node.getId(), node);
     }
 
     public InputNode getNode(int id) {
+        ensureLoaded();
         return nodes.get(id);
     }
 
     public InputNode removeNode(int index) {
+        ensureLoaded();
         return nodes.remove(index);
     }
 
     public Collection<InputEdge> getEdges() {
+        ensureLoaded();
         return Collections.unmodifiableSet(edges);
     }
 
     public void removeEdge(InputEdge c) {
+        ensureLoaded();
         boolean removed = edges.remove(c);
         assert removed;
     }
 
     public void addEdge(InputEdge c) {
+        ensureLoaded();
         edges.add(c);
     }
 
@@ -252,6 +313,7 @@ public class InputGraph extends Properties.Entity implements FolderElement {
 
     @Override
     public String toString() {
+        ensureLoaded();
         StringBuilder sb = new StringBuilder();
         sb.append("Graph ").append(getName()).append(" ").append(getProperties().toString()).append("\n");
         for (InputNode n : nodes.values()) {
@@ -273,16 +335,19 @@ public class InputGraph extends Properties.Entity implements FolderElement {
     }
 
     public InputBlock addBlock(String name) {
+        ensureLoaded();
         final InputBlock b = new InputBlock(this, name);
         blocks.put(b.getName(), b);
         return b;
     }
 
     public InputBlock getBlock(String s) {
+        ensureLoaded();
         return blocks.get(s);
     }
 
     public Collection<InputBlockEdge> getBlockEdges() {
+        ensureLoaded();
         return Collections.unmodifiableSet(blockEdges);
     }
 
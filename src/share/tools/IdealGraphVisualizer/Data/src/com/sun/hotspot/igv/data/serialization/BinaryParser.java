@@ -72,6 +72,8 @@ public class BinaryParser implements GraphParser {
     private final GraphDocument rootDocument;
     private final Deque<Folder> folderStack;
     private final ParseMonitor monitor;
+    private final IndexedGraphFile indexedFile;
+    private final long origin;
     
     private enum Length {
         S,
@@ -250,6 +252,26 @@ public class BinaryParser implements GraphParser {
         this.rootDocument = rootDocument;
         folderStack = new LinkedList<>();
         this.monitor = monitor;
+        this.indexedFile = null;
+        this.origin = 0;
+    }
+
+    /**
+     * Creates a parser for a single record at {@code origin} in the stream of an indexed dump.
+     * References to pool entries that were defined before {@code origin} are resolved through
+     * {@code indexedFile}.
+     */
+    BinaryParser(ReadableByteChannel channel, IndexedGraphFile indexedFile, long origin) {
+        this.callback = null;
+        constantPool = new ArrayList<>();
+        buffer = ByteBuffer.allocateDirect(16 * 1024);
+        buffer.flip();
+        this.channel = channel;
+        this.rootDocument = null;
+        folderStack = new LinkedList<>();
+        this.monitor = null;
+        this.indexedFile = indexedFile;
+        this.origin = origin;
     }
     
     private void fill() throws IOException {
@@ -377,6 +399,11 @@ public class BinaryParser implements GraphParser {
         }
         assert assertObjectType(klass, type);
         int index = readInt();
+        if (indexedFile != null && index >= 0 && (index >= constantPool.size() || constantPool.get(index) == null)) {
+            Object obj = indexedFile.resolvePoolEntry(index, origin);
+            setPoolEntry(index, obj);
+            return (T) obj;
+        }
         if (index < 0 || index >= constantPool.size()) {
             throw new IOException("Invalid constant pool index : " + index);
         }
@@ -486,11 +513,15 @@ public class BinaryParser implements GraphParser {
             default:
                 throw new IOException("unknown pool type");
         }
+        setPoolEntry(index, obj);
+        return obj;
+    }
+
+    private void setPoolEntry(int index, Object obj) {
         while (constantPool.size() <= index) {
             constantPool.add(null);
         }
         constantPool.set(index, obj);
-        return obj;
     }
     
     private Object readPropertyObject() throws IOException {
@@ -546,6 +577,25 @@ public class BinaryParser implements GraphParser {
         return rootDocument;
     }
 
+    /**
+     * Parses the graph record starting at the current position into {@code graph}.
+     */
+    void parseGraphAt(InputGraph graph) throws IOException {
+        int type = readByte();
+        if (type != BEGIN_GRAPH) {
+            throw new IOException("Expected a graph but found : " + type);
+        }
+        readPoolObject(String.class);
+        parseGraphContents(graph);
+    }
+
+    /**
+     * Parses the pool entry whose {@code POOL_NEW} tag was just before the current position.
+     */
+    Object parsePoolEntryAt() throws IOException {
+        return addPoolEntry(Object.class);
+    }
+
     private void parseRoot() throws IOException {
         int type = readByte();
         switch(type) {
@@ -613,10 +663,14 @@ public class BinaryParser implements GraphParser {
         }
         String title = readPoolObject(String.class);
         InputGraph graph = new InputGraph(title);
+        parseGraphContents(graph);
+        return graph;
+    }
+
+    private void parseGraphContents(InputGraph graph) throws IOException {
         parseNodes(graph);
         parseBlocks(graph);
         graph.ensureNodesInBlocks();
-        return graph;
     }
     
     private void parseBlocks(InputGraph graph) throws IOException {
@@ -0,0 +1,438 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.hotspot.igv.data.serialization;
+
+import com.sun.hotspot.igv.data.GraphDocument;
+import com.sun.hotspot.igv.data.Group;
+import com.sun.hotspot.igv.data.InputGraph;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Random access to a compressed, indexed binary graph dump as written by Graal's
+ * {@code IndexedGraphChannel}. Only the blocks holding the requested graph and the constant pool
+ * entries it refers to are read and inflated, so a single graph can be loaded from a dump of any
+ * size.
+ * <p>
+ * The index is written when the dump is closed. If it is missing, for example because the VM
+ * writing the dump was killed, the complete blocks at the start of the file can still be read as
+ * one {@linkplain #openStream() stream} by a {@link BinaryParser}.
+ */
+public class IndexedGraphFile implements Closeable {
+    private static final int MAGIC = 0x42475649;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int FOOTER_SIZE = 12;
+    private static final int CACHED_BLOCKS = 16;
+
+    public static final class GraphEntry {
+        private final int compilationId;
+        private final String method;
+        private final String title;
+        private final long streamOffset;
+
+        private GraphEntry(int compilationId, String method, String title, long streamOffset) {
+            this.compilationId = compilationId;
+            this.method = method;
+            this.title = title;
+            this.streamOffset = streamOffset;
+        }
+
+        /**
+         * Gets the number of the top level group, normally a compilation, the graph was dumped in.
+         */
+        public int getCompilationId() {
+            return compilationId;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        @Override
+        public String toString() {
+            return compilationId + ": " + method + " / " + title;
+        }
+    }
+
+    private final FileChannel file;
+    private final int blockSize;
+    private long[] blockOffsets;
+    private long streamLength;
+    private List<GraphEntry> graphs;
+    private Map<Integer, long[]> poolDefinitions;
+    private final Map<Long, Object> poolCache;
+    private final Map<Integer, byte[]> blockCache;
+    private final Inflater inflater;
+
+    public IndexedGraphFile(FileChannel file) throws IOException {
+        this.file = file;
+        ByteBuffer header = readAt(0, HEADER_SIZE);
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not an indexed graph dump");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported indexed graph dump version " + version);
+        }
+        blockSize = header.getInt();
+        inflater = new Inflater();
+
+        long indexOffset = -1;
+        if (file.size() >= HEADER_SIZE + FOOTER_SIZE) {
+            ByteBuffer footer = readAt(file.size() - FOOTER_SIZE, FOOTER_SIZE);
+            indexOffset = footer.getLong();
+            if (footer.getInt() != MAGIC || indexOffset < HEADER_SIZE || indexOffset > file.size() - FOOTER_SIZE) {
+                indexOffset = -1;
+            }
+        }
+        if (indexOffset >= 0) {
+            readIndex(indexOffset);
+        } else {
+            scanBlocks();
+        }
+        poolCache = new HashMap<>();
+        blockCache = new LinkedHashMap<Integer, byte[]>(CACHED_BLOCKS, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+                return size() > CACHED_BLOCKS;
+            }
+        };
+    }
+
+    private void readIndex(long indexOffset) throws IOException {
+        ByteBuffer indexBuffer = readAt(indexOffset, (int) (file.size() - FOOTER_SIZE - indexOffset));
+        DataInputStream index = new DataInputStream(new ByteArrayInputStream(indexBuffer.array()));
+        blockOffsets = new long[index.readInt()];
+        for (int i = 0; i < blockOffsets.length; i++) {
+            blockOffsets[i] = index.readLong();
+        }
+        streamLength = index.readLong();
+        int graphCount = index.readInt();
+        graphs = new ArrayList<>(graphCount);
+        for (int i = 0; i < graphCount; i++) {
+            int compilationId = index.readInt();
+            String method = index.readUTF();
+            String title = index.readUTF();
+            graphs.add(new GraphEntry(compilationId, method, title, index.readLong()));
+        }
+        int poolEntryCount = index.readInt();
+        Map<Integer, long[]> definitions = new HashMap<>();
+        for (int i = 0; i < poolEntryCount; i++) {
+            int id = index.readInt();
+            long offset = index.readLong();
+            long[] offsets = definitions.get(id);
+            if (offsets == null) {
+                offsets = new long[]{offset};
+            } else {
+                // entries are recorded in stream order, so the array stays sorted
+                offsets = Arrays.copyOf(offsets, offsets.length + 1);
+                offsets[offsets.length - 1] = offset;
+            }
+            definitions.put(id, offsets);
+        }
+        poolDefinitions = definitions;
+    }
+
+    /**
+     * Finds the blocks of a dump without an index. Blocks are accepted as long as they inflate
+     * completely. Only the last block of a dump may be shorter than the block size, so such a block
+     * ends the stream as well.
+     */
+    private void scanBlocks() throws IOException {
+        List<Long> offsets = new ArrayList<>();
+        byte[] scratch = new byte[blockSize + 1];
+        long position = HEADER_SIZE;
+        long length = 0;
+        while (position + 4 <= file.size()) {
+            int compressedLength = readAt(position, 4).getInt();
+            if (compressedLength <= 0 || compressedLength > file.size() - position - 4) {
+                break;
+            }
+            int inflated;
+            try {
+                inflated = inflate(readAt(position + 4, compressedLength).array(), compressedLength, scratch);
+            } catch (DataFormatException e) {
+                break;
+            }
+            if (!inflater.finished() || inflated == 0 || inflated > blockSize) {
+                break;
+            }
+            offsets.add(position);
+            position += 4 + compressedLength;
+            length += inflated;
+            if (inflated < blockSize) {
+                break;
+            }
+        }
+        blockOffsets = new long[offsets.size()];
+        for (int i = 0; i < blockOffsets.length; i++) {
+            blockOffsets[i] = offsets.get(i);
+        }
+        streamLength = length;
+    }
+
+    /**
+     * Checks if {@code file} starts like an indexed graph dump.
+     */
+    public static boolean isIndexed(FileChannel file) throws IOException {
+        if (file.size() < HEADER_SIZE) {
+            return false;
+        }
+        ByteBuffer magic = ByteBuffer.allocate(4);
+        file.read(magic, 0);
+        magic.flip();
+        return magic.remaining() == 4 && magic.getInt() == MAGIC;
+    }
+
+    /**
+     * Determines if the dump has an index. Without an index, the graphs of the dump can only be
+     * read sequentially from the {@linkplain #openStream() stream}.
+     */
+    public boolean hasIndex() {
+        return graphs != null;
+    }
+
+    /**
+     * Gets the graphs in the order they were dumped, or an empty list if the dump has no index.
+     */
+    public List<GraphEntry> getGraphs() {
+        return graphs == null ? Collections.<GraphEntry>emptyList() : Collections.unmodifiableList(graphs);
+    }
+
+    /**
+     * Decodes a single graph. Pool entries the graph refers to are decoded from their definitions
+     * earlier in the dump.
+     */
+    public InputGraph loadGraph(GraphEntry entry) throws IOException {
+        InputGraph graph = new InputGraph(entry.title);
+        loadGraph(entry, graph);
+        return graph;
+    }
+
+    private synchronized void loadGraph(GraphEntry entry, InputGraph graph) throws IOException {
+        new BinaryParser(openStream(entry.streamOffset), this, entry.streamOffset).parseGraphAt(graph);
+    }
+
+    /**
+     * Creates a document with a group for each compilation in the indexed dump. Graphs dumped in
+     * a nested group for another method, such as an inlined snippet, are put in a subgroup of the
+     * compilation. The nodes, edges and blocks of the graphs are only decoded when they are first
+     * accessed.
+     */
+    public GraphDocument createDocument() {
+        GraphDocument document = new GraphDocument();
+        Group compilation = null;
+        Group current = null;
+        int compilationId = 0;
+        for (final GraphEntry entry : getGraphs()) {
+            InputGraph graph = new InputGraph(entry.title, new InputGraph.Loader() {
+                @Override
+                public void load(InputGraph g) throws IOException {
+                    loadGraph(entry, g);
+                }
+            });
+            if (entry.method.isEmpty()) {
+                // dumped outside of any group
+                document.addElement(graph);
+                compilation = null;
+                continue;
+            }
+            if (compilation == null || entry.compilationId != compilationId) {
+                compilation = new Group(document);
+                compilation.getProperties().setProperty("name", entry.method);
+                document.addElement(compilation);
+                compilationId = entry.compilationId;
+                current = compilation;
+            } else if (!entry.method.equals(current.getName())) {
+                if (entry.method.equals(compilation.getName())) {
+                    current = compilation;
+                } else {
+                    current = new Group(compilation);
+                    current.getProperties().setProperty("name", entry.method);
+                    compilation.addElement(current);
+                }
+            }
+            current.addElement(graph);
+        }
+        return document;
+    }
+
+    /**
+     * Opens the uncompressed stream of the whole dump, which can be read by a {@link BinaryParser}
+     * like a plain binary dump. The position and size of the returned channel refer to the
+     * uncompressed stream and can be used to report progress.
+     */
+    public SeekableByteChannel openStream() {
+        return openStream(0);
+    }
+
+    /**
+     * Resolves a reference to pool entry {@code id} made at {@code position} in the stream, which
+     * is the last definition of the id before that position.
+     */
+    synchronized Object resolvePoolEntry(int id, long position) throws IOException {
+        long[] offsets = poolDefinitions.get(id);
+        int i = offsets == null ? -1 : Arrays.binarySearch(offsets, position);
+        if (i < 0) {
+            i = -i - 2;
+        }
+        if (i < 0) {
+            throw new IOException("No definition of constant pool entry " + id + " before " + position);
+        }
+        long offset = offsets[i];
+        Object obj = poolCache.get(offset);
+        if (obj == null) {
+            obj = new BinaryParser(openStream(offset), this, offset).parsePoolEntryAt();
+            poolCache.put(offset, obj);
+        }
+        return obj;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        file.close();
+    }
+
+    private SeekableByteChannel openStream(final long start) {
+        return new SeekableByteChannel() {
+            private long position = start;
+
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                if (position >= streamLength) {
+                    return -1;
+                }
+                int read = 0;
+                while (dst.hasRemaining() && position < streamLength) {
+                    byte[] block = getBlock((int) (position / blockSize));
+                    int offset = (int) (position % blockSize);
+                    int length = Math.min(dst.remaining(), block.length - offset);
+                    dst.put(block, offset, length);
+                    position += length;
+                    read += length;
+                }
+                return read;
+            }
+
+            @Override
+            public int write(ByteBuffer src) {
+                throw new NonWritableChannelException();
+            }
+
+            @Override
+            public long position() {
+                return position;
+            }
+
+            @Override
+            public SeekableByteChannel position(long newPosition) {
+                position = newPosition;
+                return this;
+            }
+
+            @Override
+            public long size() {
+                return streamLength;
+            }
+
+            @Override
+            public SeekableByteChannel truncate(long size) {
+                throw new NonWritableChannelException();
+            }
+
+            @Override
+            public boolean isOpen() {
+                return file.isOpen();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private synchronized byte[] getBlock(int n) throws IOException {
+        byte[] block = blockCache.get(n);
+        if (block != null) {
+            return block;
+        }
+        if (n >= blockOffsets.length) {
+            throw new EOFException();
+        }
+        int length = readAt(blockOffsets[n], 4).getInt();
+        ByteBuffer compressed = readAt(blockOffsets[n] + 4, length);
+        block = new byte[(int) Math.min(blockSize, streamLength - (long) n * blockSize)];
+        try {
+            if (inflate(compressed.array(), length, block) != block.length) {
+                throw new IOException("Corrupted block " + n);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted block " + n, e);
+        }
+        blockCache.put(n, block);
+        return block;
+    }
+
+    private int inflate(byte[] input, int length, byte[] output) throws DataFormatException {
+        inflater.reset();
+        inflater.setInput(input, 0, length);
+        int inflated = 0;
+        while (inflated < output.length && !inflater.finished()) {
+            int n = inflater.inflate(output, inflated, output.length - inflated);
+            if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                break;
+            }
+            inflated += n;
+        }
+        return inflated;
+    }
+
+    private ByteBuffer readAt(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (file.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.sun.hotspot.igv.data.serialization;
+
+import com.sun.hotspot.igv.data.*;
+import com.sun.hotspot.igv.data.serialization.IndexedGraphFile.GraphEntry;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.Deflater;
+import javax.swing.SwingUtilities;
+import static org.junit.Assert.*;
+import org.junit.*;
+
+/**
+ * Tests {@link IndexedGraphFile} with dumps in the format written by Graal's
+ * {@code IndexedGraphChannel}. The blocks are small so that graphs and the pool entries they refer
+ * to are spread over several blocks.
+ */
+public class IndexedGraphFileTest {
+
+    private static final int MAGIC = 0x42475649;
+    private static final int BLOCK_SIZE = 32;
+
+    /**
+     * Writes a binary graph stream and records the index of an indexed dump.
+     */
+    private static class DumpWriter {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> pool = new HashMap<>();
+        private final List<long[]> poolEntries = new ArrayList<>();
+        private final ByteArrayOutputStream graphs = new ByteArrayOutputStream();
+        private final DataOutputStream graphsOut = new DataOutputStream(graphs);
+        private final Deque<String> methods = new ArrayDeque<>();
+        private int graphCount;
+        private int compilationId;
+
+        void beginGroup(String method) throws IOException {
+            out.writeByte(0x00);
+            writePoolString(method);
+            writePoolString(method);
+            out.writeByte(0x05);
+            out.writeInt(0);
+            if (methods.isEmpty()) {
+                compilationId++;
+            }
+            methods.push(method);
+        }
+
+        void endGroup() throws IOException {
+            out.writeByte(0x02);
+            methods.pop();
+        }
+
+        void beginGraph(String title, int nodeCount) throws IOException {
+            graphsOut.writeInt(compilationId);
+            graphsOut.writeUTF(methods.isEmpty() ? "" : methods.peek());
+            graphsOut.writeUTF(title);
+            graphsOut.writeLong(bytes.size());
+            graphCount++;
+            out.writeByte(0x01);
+            writePoolString(title);
+            out.writeInt(nodeCount);
+        }
+
+        /**
+         * Writes a node of a class with one successor named "next" and no inputs.
+         */
+        void node(int id, String className, int next, Integer value) throws IOException {
+            out.writeInt(id);
+            writeNodeClass(className);
+            out.writeByte(0);
+            out.writeShort(value == null ? 0 : 1);
+            if (value != null) {
+                writePoolString("value");
+                out.writeByte(0x01);
+                out.writeInt(value);
+            }
+            if (next >= 0) {
+                out.writeShort(1);
+                out.writeInt(next);
+                out.writeShort(0);
+            } else {
+                out.writeShort(0);
+            }
+            out.writeShort(0);
+        }
+
+        void endGraph() throws IOException {
+            out.writeInt(0);
+        }
+
+        private boolean define(String key) throws IOException {
+            Integer id = pool.get(key);
+            if (id != null) {
+                out.writeInt(id);
+                return false;
+            }
+            id = pool.size();
+            pool.put(key, id);
+            poolEntries.add(new long[]{id, bytes.size()});
+            out.writeInt(id);
+            return true;
+        }
+
+        private void writePoolString(String s) throws IOException {
+            out.writeByte(pool.containsKey("s:" + s) ? 0x01 : 0x00);
+            if (define("s:" + s)) {
+                out.writeByte(0x01);
+                writeString(s);
+            }
+        }
+
+        private void writeNodeClass(String className) throws IOException {
+            out.writeByte(pool.containsKey("c:" + className) ? 0x06 : 0x00);
+            if (define("c:" + className)) {
+                out.writeByte(0x06);
+                writeString(className);
+                writeString(className);
+                out.writeShort(0);
+                out.writeShort(1);
+                writePoolString("next");
+            }
+        }
+
+        private void writeString(String s) throws IOException {
+            out.writeInt(s.length());
+            out.writeChars(s);
+        }
+
+        /**
+         * Gets the dump in the indexed format, optionally without the index and footer.
+         */
+        byte[] toIndexedDump(boolean withIndex) throws IOException {
+            byte[] stream = bytes.toByteArray();
+            ByteArrayOutputStream file = new ByteArrayOutputStream();
+            DataOutputStream fileOut = new DataOutputStream(file);
+            fileOut.writeInt(MAGIC);
+            fileOut.writeInt(1);
+            fileOut.writeInt(BLOCK_SIZE);
+            List<Long> blockOffsets = new ArrayList<>();
+            Deflater deflater = new Deflater();
+            byte[] compressed = new byte[BLOCK_SIZE * 2 + 64];
+            for (int start = 0; start < stream.length; start += BLOCK_SIZE) {
+                deflater.reset();
+                deflater.setInput(stream, start, Math.min(BLOCK_SIZE, stream.length - start));
+                deflater.finish();
+                int length = deflater.deflate(compressed);
+                assertTrue(deflater.finished());
+                blockOffsets.add((long) file.size());
+                fileOut.writeInt(length);
+                fileOut.write(compressed, 0, length);
+            }
+            if (withIndex) {
+                long indexOffset = file.size();
+                fileOut.writeInt(blockOffsets.size());
+                for (long offset : blockOffsets) {
+                    fileOut.writeLong(offset);
+                }
+                fileOut.writeLong(stream.length);
+                fileOut.writeInt(graphCount);
+                graphs.writeTo(fileOut);
+                fileOut.writeInt(poolEntries.size());
+                for (long[] entry : poolEntries) {
+                    fileOut.writeInt((int) entry[0]);
+                    fileOut.writeLong(entry[1]);
+                }
+                fileOut.writeLong(indexOffset);
+                fileOut.writeInt(MAGIC);
+            }
+            return file.toByteArray();
+        }
+    }
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("IndexedGraphFileTest", ".bgvz");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * Dumps a compilation with two graphs, a graph of an inlined method in a nested group and a
+     * graph outside of any group.
+     */
+    private static DumpWriter createDump() throws IOException {
+        DumpWriter writer = new DumpWriter();
+        writer.beginGroup("Test.snippet()");
+        writer.beginGraph("graph A", 2);
+        writer.node(0, "StartNode", 1, null);
+        writer.node(1, "ReturnNode", -1, 42);
+        writer.endGraph();
+        writer.beginGraph("graph B", 1);
+        writer.node(0, "StartNode", -1, null);
+        writer.endGraph();
+        writer.beginGroup("Test.callee()");
+        writer.beginGraph("graph C", 1);
+        writer.node(3, "ReturnNode", -1, 7);
+        writer.endGraph();
+        writer.endGroup();
+        writer.endGroup();
+        writer.beginGraph("graph D", 4);
+        for (int i = 0; i < 4; i++) {
+            writer.node(i, "StartNode", -1, i);
+        }
+        writer.endGraph();
+        return writer;
+    }
+
+    private IndexedGraphFile open(byte[] dump) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(dump);
+        }
+        return new IndexedGraphFile(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+    }
+
+    private static List<String> titles(Folder folder) {
+        List<String> result = new ArrayList<>();
+        for (FolderElement element : folder.getElements()) {
+            result.add(element.getName());
+        }
+        return result;
+    }
+
+    @Test
+    public void testWriteAndReadBack() throws IOException {
+        IndexedGraphFile indexed = open(createDump().toIndexedDump(true));
+        assertTrue(indexed.hasIndex());
+        List<GraphEntry> graphs = indexed.getGraphs();
+        assertEquals(4, graphs.size());
+        assertEquals("graph A", graphs.get(0).getTitle());
+        assertEquals("Test.callee()", graphs.get(2).getMethod());
+        assertEquals(1, graphs.get(2).getCompilationId());
+
+        GraphDocument document = indexed.createDocument();
+        assertEquals(Arrays.asList("Test.snippet()", "graph D"), titles(document));
+        Group compilation = (Group) document.getElements().get(0);
+        assertEquals(Arrays.asList("graph A", "graph B", "Test.callee()"), titles(compilation));
+
+        InputGraph graphA = compilation.getGraphs().get(0);
+        assertFalse(graphA.isLoaded());
+        assertEquals(2, graphA.getNodes().size());
+        assertTrue(graphA.isLoaded());
+        assertEquals("42", graphA.getNode(1).getProperties().get("value"));
+        assertEquals("ReturnNode", graphA.getNode(1).getProperties().get("class"));
+        assertEquals(1, graphA.getEdges().size());
+
+        InputGraph graphC = ((Group) compilation.getElements().get(2)).getGraphs().get(0);
+        assertEquals("7", graphC.getNode(3).getProperties().get("value"));
+        indexed.close();
+    }
+
+    @Test
+    public void testLoadSingleGraph() throws IOException {
+        IndexedGraphFile indexed = open(createDump().toIndexedDump(true));
+        // graph B refers to the node class defined by graph A
+        InputGraph graphB = indexed.loadGraph(indexed.getGraphs().get(1));
+        assertEquals("graph B", graphB.getName());
+        assertEquals(1, graphB.getNodes().size());
+        assertEquals("StartNode", graphB.getNode(0).getProperties().get("class"));
+
+        InputGraph graphD = indexed.loadGraph(indexed.getGraphs().get(3));
+        assertEquals(4, graphD.getNodes().size());
+        assertEquals("3", graphD.getNode(3).getProperties().get("value"));
+        indexed.close();
+    }
+
+    private static GraphDocument parseSequentially(IndexedGraphFile indexed) throws Exception {
+        SeekableByteChannel stream = indexed.openStream();
+        GraphDocument document = new BinaryParser(stream, null, new GraphDocument(), null).parse();
+        assertEquals(stream.size(), stream.position());
+        // the parser adds the elements on the event dispatch thread
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        return document;
+    }
+
+    @Test
+    public void testMissingIndex() throws Exception {
+        IndexedGraphFile indexed = open(createDump().toIndexedDump(false));
+        assertFalse(indexed.hasIndex());
+        assertTrue(indexed.getGraphs().isEmpty());
+
+        GraphDocument document = parseSequentially(indexed);
+        assertEquals(Arrays.asList("Test.snippet()", "graph D"), titles(document));
+        Group compilation = (Group) document.getElements().get(0);
+        assertEquals(Arrays.asList("graph A", "graph B", "Test.callee()"), titles(compilation));
+        assertEquals(4, ((InputGraph) document.getElements().get(1)).getNodes().size());
+        indexed.close();
+    }
+
+    @Test
+    public void testTruncatedDump() throws Exception {
+        byte[] dump = createDump().toIndexedDump(false);
+        // the last block, which only holds part of graph D, is incomplete
+        IndexedGraphFile indexed = open(Arrays.copyOf(dump, dump.length - 3));
+        assertFalse(indexed.hasIndex());
+
+        GraphDocument document = parseSequentially(indexed);
+        assertEquals(Arrays.asList("Test.snippet()"), titles(document));
+        Group compilation = (Group) document.getElements().get(0);
+        assertEquals(Arrays.asList("graph A", "graph B", "Test.callee()"), titles(compilation));
+        assertEquals(2, compilation.getGraphs().get(0).getNodes().size());
+        indexed.close();
+    }
+}
@@ -716,6 +716,9 @@ C2V_ENTRY(void, initializeConfiguration, (JNIEnv *env, jobject, jobject config))
   set_int("klassLayoutHelperOffset", in_bytes(Klass::layout_helper_offset()));
   set_int("klassSuperKlassOffset", in_bytes(Klass::super_offset()));
   set_int("methodDataOffset", in_bytes(Method::method_data_offset()));
+  set_int("methodCountersOffset", in_bytes(Method::method_counters_offset()));
+  set_int("methodCountersInvocationCounterOffset", in_bytes(MethodCounters::invocation_counter_offset() + InvocationCounter::counter_offset()));
+  set_int("methodCountersBackedgeCounterOffset", in_bytes(MethodCounters::backedge_counter_offset() + InvocationCounter::counter_offset()));
   set_int("nmethodEntryOffset", nmethod::verified_entry_point_offset());
   set_int("methodCompiledEntryOffset", in_bytes(Method::from_compiled_offset()));
   set_int("basicLockSize", sizeof(BasicLock));
@@ -735,6 +738,9 @@ C2V_ENTRY(void, initializeConfiguration, (JNIEnv *env, jobject, jobject config))
   set_int("metaspaceArrayBaseOffset", Array<Klass*>::base_offset_in_bytes());
   set_int("methodDataOopDataOffset", in_bytes(MethodData::data_offset()));
   set_int("methodDataOopTrapHistoryOffset", in_bytes(MethodData::trap_history_offset()));
+  set_int("methodDataInvocationCounterOffset", in_bytes(MethodData::invocation_counter_offset() + InvocationCounter::counter_offset()));
+  set_int("methodDataBackedgeCounterOffset", in_bytes(MethodData::backedge_counter_offset() + InvocationCounter::counter_offset()));
+  set_int("invocationCounterShift", InvocationCounter::count_shift);
   set_int("dataLayoutHeaderSize", DataLayout::header_size_in_bytes());
   set_int("dataLayoutTagOffset", in_bytes(DataLayout::tag_offset()));
   set_int("dataLayoutFlagsOffset", in_bytes(DataLayout::flags_offset()));